@@ -0,0 +1,151 @@
+package com.example.javathreaddemo;
+
+import com.example.javathreaddemo.service.AdaptiveConcurrencyLimiter;
+import com.example.javathreaddemo.service.SeckillService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 自适应限流 Demo:
+ * 下游 (库存扣减前的风控、落库等) 只能同时处理 backendSlots 个请求，每个耗时 serviceMicros；
+ * 以开环的方式按容量的 50% ~ 300% 发送请求，对比不限流、AIMD 和梯度算法下被接受请求的 p99 延迟和拒绝率。
+ * <p>
+ * 不限流时超出容量的请求全部在下游排队，延迟随负载无限增长；
+ * 自适应限流把在途请求数压在下游容量附近，多出来的请求被立即拒绝，被接受请求的 p99 保持稳定。
+ */
+public class AdaptiveLimiterDemo {
+
+    /**
+     * 一个负载阶段的结果
+     */
+    static final class PhaseResult {
+        final double offeredRate;
+        final long accepted;
+        final long rejected;
+        final double p99Millis;
+        final int limit;
+
+        PhaseResult(double offeredRate, long accepted, long rejected, double p99Millis, int limit) {
+            this.offeredRate = offeredRate;
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.p99Millis = p99Millis;
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * 以 rate 次/秒的速率发送 durationMillis 毫秒的请求，limiter 为 null 表示不限流
+     */
+    static PhaseResult runPhase(ExecutorService requestThreads, Supplier<Boolean> backend,
+                                AdaptiveConcurrencyLimiter limiter, double rate, long durationMillis)
+            throws InterruptedException {
+        int requests = (int) (rate * durationMillis / 1000);
+        long[] latencies = new long[requests];
+        boolean[] acceptedFlags = new boolean[requests];
+        LongAdder finished = new LongAdder();
+        long intervalNanos = (long) (1e9 / rate);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < requests; i++) {
+            final int id = i;
+            final long arrival = start + i * intervalNanos;
+            long wait = arrival - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            requestThreads.execute(() -> {
+                try {
+                    AdaptiveConcurrencyLimiter.Token token = limiter == null ? null : limiter.tryAcquire();
+                    if (limiter != null && token == null) {
+                        return; // 快速拒绝
+                    }
+                    try {
+                        backend.get();
+                    } finally {
+                        if (token != null) {
+                            token.onSuccess();
+                        }
+                    }
+                    // 延迟从计划到达时间算起，包括在请求线程池里排队的时间
+                    latencies[id] = System.nanoTime() - arrival;
+                    acceptedFlags[id] = true;
+                } finally {
+                    finished.increment();
+                }
+            });
+        }
+        // 等待本阶段的请求全部结束 (不限流时积压的请求可能要很久)
+        while (finished.sum() < requests) {
+            Thread.sleep(10);
+        }
+
+        List<Long> accepted = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            if (acceptedFlags[i]) {
+                accepted.add(latencies[i]);
+            }
+        }
+        long[] sorted = accepted.stream().mapToLong(Long::longValue).sorted().toArray();
+        double p99 = sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1e6;
+        return new PhaseResult(rate, sorted.length, requests - sorted.length, p99, limiter == null ? -1 : limiter.getLimit());
+    }
+
+    // --- Main 方法 ---
+    // 参数: [下游并发容量, 默认 8] [每个请求耗时 µs, 默认 2000] [每个阶段毫秒数, 默认 2000]
+    public static void main(String[] args) throws InterruptedException {
+        int backendSlots = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long serviceMicros = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        long phaseMillis = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+        double capacity = backendSlots * 1e6 / serviceMicros;
+
+        SeckillService seckillService = new SeckillService();
+        // 下游容量：公平信号量模拟只有 backendSlots 个处理槽，超出的请求在这里排队
+        Semaphore backendSlotsSemaphore = new Semaphore(backendSlots, true);
+        Supplier<Boolean> backend = () -> {
+            backendSlotsSemaphore.acquireUninterruptibly();
+            try {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(serviceMicros));
+                return seckillService.processSeckill(1);
+            } finally {
+                backendSlotsSemaphore.release();
+            }
+        };
+
+        System.out.printf("下游容量 %d 并发 x %d µs = %,.0f 次/秒，每个阶段 %d ms\n", backendSlots, serviceMicros, capacity, phaseMillis);
+        double[] loads = {0.5, 1.0, 1.5, 2.0, 3.0};
+        String[] names = {"不限流", "AIMD", "Gradient"};
+        for (String name : names) {
+            AdaptiveConcurrencyLimiter limiter;
+            switch (name) {
+                case "AIMD":
+                    limiter = new AdaptiveConcurrencyLimiter(new AdaptiveConcurrencyLimiter.AimdLimit(
+                            20, 1, 1000, serviceMicros * 3, TimeUnit.MICROSECONDS));
+                    break;
+                case "Gradient":
+                    limiter = new AdaptiveConcurrencyLimiter(new AdaptiveConcurrencyLimiter.GradientLimit(20, 1, 1000, 1.5));
+                    break;
+                default:
+                    limiter = null;
+            }
+            System.out.printf("\n--- %s ---\n", name);
+            System.out.printf("%8s %12s %10s %10s %10s %8s\n", "负载", "请求/秒", "接受", "拒绝", "p99(ms)", "limit");
+            ExecutorService requestThreads = Executors.newFixedThreadPool(256);
+            for (double load : loads) {
+                PhaseResult result = runPhase(requestThreads, backend, limiter, capacity * load, phaseMillis);
+                System.out.printf("%7.0f%% %,12.0f %,10d %,10d %10.1f %8s\n", load * 100, result.offeredRate,
+                        result.accepted, result.rejected, result.p99Millis, result.limit < 0 ? "-" : result.limit);
+            }
+            requestThreads.shutdown();
+            requestThreads.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
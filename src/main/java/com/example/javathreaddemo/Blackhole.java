@@ -0,0 +1,20 @@
+package com.example.javathreaddemo;
+
+/**
+ * 基准测试共用的结果汇总点：把读到的值累加成校验和交给 consume，
+ * 读取结果就有了"副作用"，JIT 不能把它当作死代码消除
+ */
+final class Blackhole {
+
+    private static volatile long sink;
+
+    private Blackhole() {
+    }
+
+    /**
+     * 每个线程在测量结束后调用一次，不要放在热循环里 (volatile 写本身有开销)
+     */
+    static void consume(long checksum) {
+        sink += checksum;
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.javathreaddemo;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * 阻塞缓冲区基准测试:
+ * 对比两个 BlockingBuffer (环形数组实现) 与原来的 LinkedList 实现的生产/消费吞吐和内存分配 (GC 压力)，
+ * 以及批量 putAll / drainTo 在不同批大小下的吞吐。
+ * <p>
+ * 放入的元素是预先装箱好的 Integer，测到的分配量只来自缓冲区本身 (LinkedList 每次 put 一个 Node)。
+ */
+public class BlockingBufferBenchmark {
+
+    interface BenchmarkBuffer {
+        void put(Integer item) throws InterruptedException;
+
+        Integer take() throws InterruptedException;
+    }
+
+    /**
+     * 基线：改造前的 LinkedList + synchronized/wait/notifyAll 实现 (去掉了日志)
+     */
+    static class LinkedListWaitNotifyBuffer<T> {
+        private final Queue<T> buffer = new LinkedList<>();
+        private final int capacity;
+
+        LinkedListWaitNotifyBuffer(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public void put(T item) throws InterruptedException {
+            synchronized (buffer) {
+                while (buffer.size() == capacity) {
+                    buffer.wait();
+                }
+                buffer.offer(item);
+                buffer.notifyAll();
+            }
+        }
+
+        public T take() throws InterruptedException {
+            synchronized (buffer) {
+                while (buffer.isEmpty()) {
+                    buffer.wait();
+                }
+                T item = buffer.poll();
+                buffer.notifyAll();
+                return item;
+            }
+        }
+    }
+
+    /**
+     * 基线：改造前的 LinkedList + Lock/Condition 实现 (去掉了日志)
+     */
+    static class LinkedListConditionBuffer<T> {
+        private final Queue<T> buffer = new LinkedList<>();
+        private final int capacity;
+        private final Lock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private final Condition notEmpty = lock.newCondition();
+
+        LinkedListConditionBuffer(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public void put(T item) throws InterruptedException {
+            lock.lock();
+            try {
+                while (buffer.size() == capacity) {
+                    notFull.await();
+                }
+                buffer.offer(item);
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public T take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (buffer.isEmpty()) {
+                    notEmpty.await();
+                }
+                T item = buffer.poll();
+                notFull.signal();
+                return item;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    static Map<String, IntFunction<BenchmarkBuffer>> bufferFactories() {
+        Map<String, IntFunction<BenchmarkBuffer>> factories = new LinkedHashMap<>();
+        factories.put("LinkedList + wait/notify", capacity -> {
+            LinkedListWaitNotifyBuffer<Integer> buffer = new LinkedListWaitNotifyBuffer<>(capacity);
+            return adapt(buffer::put, buffer::take);
+        });
+        factories.put("环形数组 + wait/notify", capacity -> {
+            ProducerConsumerWaitNotify.BlockingBuffer<Integer> buffer = new ProducerConsumerWaitNotify.BlockingBuffer<>(capacity);
+            return adapt(buffer::put, buffer::take);
+        });
+        factories.put("LinkedList + Condition", capacity -> {
+            LinkedListConditionBuffer<Integer> buffer = new LinkedListConditionBuffer<>(capacity);
+            return adapt(buffer::put, buffer::take);
+        });
+        factories.put("环形数组 + Condition", capacity -> {
+            ProducerConsumerLockConditionDemo.BlockingBuffer<Integer> buffer =
+                    new ProducerConsumerLockConditionDemo.BlockingBuffer<>(capacity);
+            return adapt(buffer::put, buffer::take);
+        });
+        factories.put("环形数组 + 双锁", capacity -> {
+            ProducerConsumerLockConditionDemo.TwoLockBlockingBuffer<Integer> buffer =
+                    new ProducerConsumerLockConditionDemo.TwoLockBlockingBuffer<>(capacity);
+            return adapt(buffer::put, buffer::take);
+        });
+        return factories;
+    }
+
+    interface Putter {
+        void put(Integer item) throws InterruptedException;
+    }
+
+    interface Taker {
+        Integer take() throws InterruptedException;
+    }
+
+    static BenchmarkBuffer adapt(Putter putter, Taker taker) {
+        return new BenchmarkBuffer() {
+            @Override
+            public void put(Integer item) throws InterruptedException {
+                putter.put(item);
+            }
+
+            @Override
+            public Integer take() throws InterruptedException {
+                return taker.take();
+            }
+        };
+    }
+
+    /**
+     * producers 个生产者各放入 itemsPerProducer 个元素，consumers 个消费者把它们全部取完。
+     *
+     * @return [耗时纳秒, 工作线程分配的字节数]
+     */
+    static long[] run(BenchmarkBuffer buffer, Integer[] items, int producers, int consumers, int itemsPerProducer)
+            throws InterruptedException {
+        long total = (long) producers * itemsPerProducer;
+        // 消费者按配额取，保证总数正好等于生产的数量，不需要毒丸
+        long perConsumer = total / consumers;
+        long remainder = total % consumers;
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        AtomicLong allocatedBytes = new AtomicLong();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+
+        for (int p = 0; p < producers; p++) {
+            new Thread(() -> {
+                long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+                try {
+                    startSignal.await();
+                    for (int i = 0; i < itemsPerProducer; i++) {
+                        buffer.put(items[i & (items.length - 1)]);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    allocatedBytes.addAndGet(threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore);
+                    done.countDown();
+                }
+            }, "生产者-" + p).start();
+        }
+        for (int c = 0; c < consumers; c++) {
+            long quota = perConsumer + (c < remainder ? 1 : 0);
+            new Thread(() -> {
+                long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+                try {
+                    startSignal.await();
+                    long checksum = 0;
+                    for (long i = 0; i < quota; i++) {
+                        checksum += buffer.take();
+                    }
+                    Blackhole.consume(checksum);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    allocatedBytes.addAndGet(threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore);
+                    done.countDown();
+                }
+            }, "消费者-" + c).start();
+        }
+
+        long start = System.nanoTime();
+        startSignal.countDown();
+        done.await();
+        return new long[]{System.nanoTime() - start, allocatedBytes.get()};
+    }
+
+    interface BatchBuffer {
+        int putAll(List<Integer> batch) throws InterruptedException;
+
+        int drainTo(Collection<Integer> target, int maxItems) throws InterruptedException;
+    }
+
+    static Map<String, IntFunction<BatchBuffer>> batchBufferFactories() {
+        Map<String, IntFunction<BatchBuffer>> factories = new LinkedHashMap<>();
+        factories.put("环形数组 + wait/notify", capacity -> {
+            ProducerConsumerWaitNotify.BlockingBuffer<Integer> buffer = new ProducerConsumerWaitNotify.BlockingBuffer<>(capacity);
+            return new BatchBuffer() {
+                @Override
+                public int putAll(List<Integer> batch) throws InterruptedException {
+                    return buffer.putAll(batch);
+                }
+
+                @Override
+                public int drainTo(Collection<Integer> target, int maxItems) throws InterruptedException {
+                    return buffer.drainTo(target, maxItems);
+                }
+            };
+        });
+        factories.put("环形数组 + Condition", capacity -> {
+            ProducerConsumerLockConditionDemo.BlockingBuffer<Integer> buffer =
+                    new ProducerConsumerLockConditionDemo.BlockingBuffer<>(capacity);
+            return new BatchBuffer() {
+                @Override
+                public int putAll(List<Integer> batch) throws InterruptedException {
+                    return buffer.putAll(batch);
+                }
+
+                @Override
+                public int drainTo(Collection<Integer> target, int maxItems) throws InterruptedException {
+                    return buffer.drainTo(target, maxItems);
+                }
+            };
+        });
+        return factories;
+    }
+
+    /**
+     * 批量版本的 run：生产者每次 putAll 一批 (放不下的部分继续 putAll)，消费者每次最多 drainTo 一批。
+     * itemsPerProducer 向上取整为 batchSize 的整数倍。
+     *
+     * @return [耗时纳秒, 实际传递的元素总数]
+     */
+    static long[] runBatched(BatchBuffer buffer, Integer[] items, int producers, int consumers, int itemsPerProducer,
+                             int batchSize) throws InterruptedException {
+        int batches = (itemsPerProducer + batchSize - 1) / batchSize;
+        long total = (long) producers * batches * batchSize;
+        long perConsumer = total / consumers;
+        long remainder = total % consumers;
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+
+        for (int p = 0; p < producers; p++) {
+            new Thread(() -> {
+                List<Integer> batch = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    batch.add(items[i & (items.length - 1)]);
+                }
+                try {
+                    startSignal.await();
+                    for (int b = 0; b < batches; b++) {
+                        int offset = buffer.putAll(batch);
+                        while (offset < batchSize) {
+                            offset += buffer.putAll(batch.subList(offset, batchSize));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "生产者-" + p).start();
+        }
+        for (int c = 0; c < consumers; c++) {
+            long quota = perConsumer + (c < remainder ? 1 : 0);
+            new Thread(() -> {
+                List<Integer> drained = new ArrayList<>(batchSize);
+                try {
+                    startSignal.await();
+                    long checksum = 0;
+                    long remaining = quota;
+                    while (remaining > 0) {
+                        remaining -= buffer.drainTo(drained, (int) Math.min(batchSize, remaining));
+                        for (int i = 0; i < drained.size(); i++) {
+                            checksum += drained.get(i);
+                        }
+                        drained.clear();
+                    }
+                    Blackhole.consume(checksum);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "消费者-" + c).start();
+        }
+
+        long start = System.nanoTime();
+        startSignal.countDown();
+        done.await();
+        return new long[]{System.nanoTime() - start, total};
+    }
+
+    private static long[] gcCountAndTime() {
+        long count = 0;
+        long timeMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            timeMillis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, timeMillis};
+    }
+
+    // --- Main 方法 ---
+    // 参数: [生产者数, 默认 2] [消费者数, 默认 2] [缓冲区容量, 默认 1024] [每个生产者的元素数, 默认 2000000]
+    public static void main(String[] args) throws InterruptedException {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        int itemsPerProducer = args.length > 3 ? Integer.parseInt(args[3]) : 2_000_000;
+
+        // 预先装箱，避免 Integer.valueOf 的分配混进测量结果
+        Integer[] items = new Integer[1 << 12];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i + 1000;
+        }
+
+        System.out.printf("%d 生产者 / %d 消费者，容量 %d，每个生产者 %,d 个元素\n",
+                producers, consumers, capacity, itemsPerProducer);
+        System.out.printf("%-26s %14s %16s %8s %10s\n", "实现", "items/s", "每元素分配(字节)", "GC 次数", "GC 耗时(ms)");
+        long total = (long) producers * itemsPerProducer;
+        for (Map.Entry<String, IntFunction<BenchmarkBuffer>> entry : bufferFactories().entrySet()) {
+            // 预热一轮 (结果丢弃)，让 JIT 编译完成
+            run(entry.getValue().apply(capacity), items, producers, consumers, Math.max(1, itemsPerProducer / 10));
+
+            BenchmarkBuffer buffer = entry.getValue().apply(capacity);
+            long[] gcBefore = gcCountAndTime();
+            long[] result = run(buffer, items, producers, consumers, itemsPerProducer);
+            long[] gcAfter = gcCountAndTime();
+            System.out.printf("%-26s %,14.0f %16.1f %8d %10d\n", entry.getKey(),
+                    total * 1e9 / result[0], (double) result[1] / total,
+                    gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+        }
+
+        // 批量操作：每批一次加锁、一次唤醒
+        System.out.println("\n批量 putAll / drainTo");
+        System.out.printf("%-26s %10s %14s\n", "实现", "批大小", "items/s");
+        for (Map.Entry<String, IntFunction<BatchBuffer>> entry : batchBufferFactories().entrySet()) {
+            for (int batchSize : new int[]{1, 16, 256}) {
+                runBatched(entry.getValue().apply(capacity), items, producers, consumers,
+                        Math.max(batchSize, itemsPerProducer / 10), batchSize);
+                long[] result = runBatched(entry.getValue().apply(capacity), items, producers, consumers, itemsPerProducer, batchSize);
+                System.out.printf("%-26s %10d %,14.0f\n", entry.getKey(), batchSize, result[1] * 1e9 / result[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.example.javathreaddemo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 缓存基准测试套件:
+ * 通过统一的 BenchmarkCache 接口驱动项目中的所有缓存实现，
+ * 支持可配置的 key 分布 (uniform / zipfian / hotspot / scan)、读写比例和线程数，
+ * 报告吞吐 (ops/s)、命中率和延迟百分位。
+ * <p>
+ * 测量路径里没有任何打印和休眠：结果在全部线程结束后统一输出。
+ * <p>
+ * 运行示例: java CacheBenchmarkSuite threads=8 duration=2000 dist=zipfian read=90 keys=100000 caches=rw,stamped
+ */
+public class CacheBenchmarkSuite {
+
+    /**
+     * 基准测试统一使用的缓存接口，各实现通过适配器接入
+     */
+    interface BenchmarkCache {
+        /**
+         * 读取 key，未命中时按各实现自己的方式回填 (value = key)
+         *
+         * @return 是否命中
+         */
+        boolean read(Long key) throws Exception;
+
+        void write(Long key, Long value) throws Exception;
+
+        /**
+         * 基准结束后释放资源 (后台线程等)
+         */
+        default void close() throws Exception {
+        }
+    }
+
+    /**
+     * 适配"get 返回 null 表示未命中，未命中后 put 回填"的缓存
+     */
+    interface Getter {
+        Long get(Long key) throws Exception;
+    }
+
+    interface Putter {
+        void put(Long key, Long value) throws Exception;
+    }
+
+    static BenchmarkCache getThenPut(Getter getter, Putter putter) {
+        return new BenchmarkCache() {
+            @Override
+            public boolean read(Long key) throws Exception {
+                if (getter.get(key) != null) {
+                    return true;
+                }
+                putter.put(key, key);
+                return false;
+            }
+
+            @Override
+            public void write(Long key, Long value) throws Exception {
+                putter.put(key, value);
+            }
+        };
+    }
+
+    /**
+     * 所有参与测试的缓存：名称 -> 工厂 (参数为 key 空间大小，有界缓存按 key 空间的 10% 设置容量)
+     */
+    static Map<String, Function<Integer, BenchmarkCache>> cacheFactories() {
+        Map<String, Function<Integer, BenchmarkCache>> factories = new LinkedHashMap<>();
+        factories.put("rw", keys -> {
+            ReadWriteLockCacheDemo.ReadWriteCache<Long, Long> cache = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+            return getThenPut(cache::get, cache::put);
+        });
+        factories.put("stamped", keys -> {
+            StampedLockCacheDemo.StampedLockCache<Long, Long> cache = new StampedLockCacheDemo.StampedLockCache<>();
+            return getThenPut(cache::get, cache::put);
+        });
+        factories.put("segmented16", keys -> {
+            SegmentedCacheDemo.SegmentedReadWriteCache<Long, Long> cache = new SegmentedCacheDemo.SegmentedReadWriteCache<>(16);
+            return getThenPut(cache::get, cache::put);
+        });
+        factories.put("tinylfu", keys -> {
+            TinyLfuCacheDemo.BoundedCache<Long, Long> cache = new TinyLfuCacheDemo.BoundedCache<>(Math.max(1, keys / 10));
+            return getThenPut(cache::get, cache::put);
+        });
+        factories.put("lru", keys -> {
+            TinyLfuCacheDemo.LruCache<Long, Long> cache = new TinyLfuCacheDemo.LruCache<>(Math.max(1, keys / 10));
+            return getThenPut(cache::get, cache::put);
+        });
+        factories.put("expiring", keys -> {
+            ExpiringCacheDemo.ExpiringCache<Long, Long> cache =
+                    new ExpiringCacheDemo.ExpiringCache<>(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(1));
+            return getThenPut(cache::get, cache::put);
+        });
+        factories.put("longlong", keys -> {
+            LongLongCacheDemo.LongLongReadWriteCache cache = new LongLongCacheDemo.LongLongReadWriteCache();
+            return getThenPut(key -> {
+                long value = cache.get(key, Long.MIN_VALUE);
+                return value == Long.MIN_VALUE ? null : value;
+            }, cache::put);
+        });
+        factories.put("offheap", keys -> {
+            OffHeapCacheDemo.OffHeapCache<Long, Long> cache =
+                    new OffHeapCacheDemo.OffHeapCache<>(OffHeapCacheDemo.LONG_SERIALIZER, 1024 * 1024, 256L * 1024 * 1024);
+            return getThenPut(cache::get, cache::put);
+        });
+        factories.put("loading", keys -> {
+            // 命中判断直接看底层缓存，未命中时走 single-flight 加载
+            ReadWriteLockCacheDemo.ReadWriteCache<Long, Long> backing = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+            ExecutorService loaderPool = Executors.newFixedThreadPool(4);
+            LoadingCacheDemo.LoadingCache<Long, Long> cache = new LoadingCacheDemo.LoadingCache<>(backing, loaderPool);
+            return new BenchmarkCache() {
+                @Override
+                public boolean read(Long key) throws Exception {
+                    if (backing.get(key) != null) {
+                        return true;
+                    }
+                    cache.get(key, k -> k);
+                    return false;
+                }
+
+                @Override
+                public void write(Long key, Long value) {
+                    backing.put(key, value);
+                }
+
+                @Override
+                public void close() {
+                    loaderPool.shutdownNow();
+                }
+            };
+        });
+        factories.put("writebehind", keys -> {
+            // 丢弃写入的 sink：只测量缓存本身，不测量磁盘
+            WriteBehindCacheDemo.WriteBehindCache<Long, Long> cache =
+                    new WriteBehindCacheDemo.WriteBehindCache<>(batch -> { }, 10_000, 1000, 10);
+            return new BenchmarkCache() {
+                @Override
+                public boolean read(Long key) throws Exception {
+                    if (cache.get(key) != null) {
+                        return true;
+                    }
+                    cache.put(key, key);
+                    return false;
+                }
+
+                @Override
+                public void write(Long key, Long value) throws Exception {
+                    cache.put(key, value);
+                }
+
+                @Override
+                public void close() throws Exception {
+                    cache.shutdown(5, TimeUnit.SECONDS);
+                }
+            };
+        });
+        return factories;
+    }
+
+    // ===================== key 分布 =====================
+
+    /**
+     * 单个线程使用的 key 生成器 (可以有状态，例如扫描的当前位置)
+     */
+    interface KeyGenerator {
+        int next(ThreadLocalRandom random);
+    }
+
+    /**
+     * key 分布：为每个线程创建独立的生成器，key 范围 [0, keySpace)
+     */
+    interface KeyDistribution {
+        KeyGenerator newGenerator();
+    }
+
+    static KeyDistribution uniform(int keySpace) {
+        return () -> random -> random.nextInt(keySpace);
+    }
+
+    static KeyDistribution zipfian(int keySpace, double theta) {
+        // zeta 的预计算是 O(n) 的，所有线程共享一个 (只读) 生成器
+        ZipfianGenerator generator = new ZipfianGenerator(keySpace, theta);
+        return () -> random -> (int) generator.next(random);
+    }
+
+    /**
+     * hotOpFraction 的访问落在前 hotKeyFraction 的 key 上，其余均匀分布在剩下的 key 上
+     */
+    static KeyDistribution hotspot(int keySpace, double hotKeyFraction, double hotOpFraction) {
+        // 至少保留 1 个冷 key (要求 keySpace >= 2)
+        int hotKeys = Math.min(keySpace - 1, Math.max(1, (int) (keySpace * hotKeyFraction)));
+        return () -> random -> random.nextDouble() < hotOpFraction
+                ? random.nextInt(hotKeys)
+                : hotKeys + random.nextInt(keySpace - hotKeys);
+    }
+
+    /**
+     * 每个线程从随机位置开始顺序扫描整个 key 空间
+     */
+    static KeyDistribution scan(int keySpace) {
+        return () -> new KeyGenerator() {
+            private int position = -1;
+
+            @Override
+            public int next(ThreadLocalRandom random) {
+                if (position < 0) {
+                    position = random.nextInt(keySpace);
+                }
+                int key = position;
+                position = position + 1 == keySpace ? 0 : position + 1;
+                return key;
+            }
+        };
+    }
+
+    /**
+     * Zipfian 分布的 key 生成器 (YCSB 的算法)，rank 越小越热；线程安全 (只读状态)
+     */
+    static class ZipfianGenerator {
+        private final long items;
+        private final double theta;
+        private final double zetan;
+        private final double alpha;
+        private final double eta;
+
+        ZipfianGenerator(long items, double theta) {
+            this.items = items;
+            this.theta = theta;
+            this.zetan = zeta(items, theta);
+            double zeta2 = zeta(2, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetan);
+        }
+
+        long next(Random random) {
+            double u = random.nextDouble();
+            double uz = u * zetan;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return 1;
+            }
+            return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        private static double zeta(long n, double theta) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+
+    // ===================== 测量 =====================
+
+    // 每 LATENCY_SAMPLE_MASK + 1 次操作采样一次延迟，避免 nanoTime 本身影响吞吐
+    private static final int LATENCY_SAMPLE_MASK = 7;
+    private static final int MAX_SAMPLES_PER_THREAD = 1 << 18;
+
+    static final class Result {
+        final String cache;
+        final double opsPerSecond;
+        final double hitRatio;
+        final long[] sortedLatencies;
+
+        Result(String cache, double opsPerSecond, double hitRatio, long[] sortedLatencies) {
+            this.cache = cache;
+            this.opsPerSecond = opsPerSecond;
+            this.hitRatio = hitRatio;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        double percentileMicros(double p) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = Math.min(sortedLatencies.length - 1, (int) (sortedLatencies.length * p));
+            return sortedLatencies[index] / 1000.0;
+        }
+    }
+
+    /**
+     * 预热后运行一轮：threads 个线程按 readPercent 的比例读写 durationMillis 毫秒
+     */
+    static Result run(String name, BenchmarkCache cache, KeyDistribution distribution, Long[] keys,
+                      int threads, int readPercent, long warmupMillis, long durationMillis) throws InterruptedException {
+        // 预热：同样的负载跑一小段时间，让 JIT 编译和缓存填充完成，结果丢弃
+        if (warmupMillis > 0) {
+            measure(cache, distribution, keys, threads, readPercent, warmupMillis);
+        }
+        long[][] perThread = measure(cache, distribution, keys, threads, readPercent, durationMillis);
+
+        long ops = 0;
+        long reads = 0;
+        long hits = 0;
+        List<long[]> samples = new ArrayList<>();
+        for (long[] stats : perThread) {
+            ops += stats[0];
+            reads += stats[1];
+            hits += stats[2];
+            samples.add(Arrays.copyOfRange(stats, 4, 4 + (int) stats[3]));
+        }
+        long[] latencies = samples.stream().flatMapToLong(Arrays::stream).toArray();
+        Arrays.sort(latencies);
+        return new Result(name, ops * 1000.0 / durationMillis, reads == 0 ? 0 : (double) hits / reads, latencies);
+    }
+
+    // Demo 里的对比基准统一使用的预热时间
+    private static final long DEMO_WARMUP_MILLIS = 200;
+
+    /**
+     * 各缓存 Demo 对比两三种实现时使用的简化入口：固定预热 DEMO_WARMUP_MILLIS 毫秒，只返回 ops/s
+     */
+    static double throughput(BenchmarkCache cache, KeyDistribution distribution, Long[] keys,
+                             int threads, int readPercent, long durationMillis) throws InterruptedException {
+        return run("", cache, distribution, keys, threads, readPercent, DEMO_WARMUP_MILLIS, durationMillis).opsPerSecond;
+    }
+
+    /**
+     * 0 ~ count - 1 的 key，装箱在测量开始前完成
+     */
+    static Long[] sequentialKeys(int count) {
+        Long[] keys = new Long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (long) i;
+        }
+        return keys;
+    }
+
+    /**
+     * 返回每个线程的统计：[操作数, 读次数, 命中次数, 采样数, 采样的延迟...]
+     */
+    private static long[][] measure(BenchmarkCache cache, KeyDistribution distribution, Long[] keys,
+                                    int threads, int readPercent, long durationMillis) throws InterruptedException {
+        long[][] perThread = new long[threads][];
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicLong errors = new AtomicLong();
+        // 结束时间在 startSignal.countDown() 之前写入，由 CountDownLatch 保证对工作线程可见
+        long[] stopAt = new long[1];
+        for (int t = 0; t < threads; t++) {
+            final int threadIndex = t;
+            new Thread(() -> {
+                long[] stats = new long[4 + MAX_SAMPLES_PER_THREAD];
+                try {
+                    KeyGenerator generator = distribution.newGenerator();
+                    startSignal.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long ops = 0;
+                    long reads = 0;
+                    long hits = 0;
+                    int sampleCount = 0;
+                    while ((ops & 1023) != 0 || System.nanoTime() < stopAt[0]) {
+                        Long key = keys[generator.next(random)];
+                        boolean read = random.nextInt(100) < readPercent;
+                        boolean sample = (ops & LATENCY_SAMPLE_MASK) == 0 && sampleCount < MAX_SAMPLES_PER_THREAD;
+                        long start = sample ? System.nanoTime() : 0;
+                        if (read) {
+                            reads++;
+                            if (cache.read(key)) {
+                                hits++;
+                            }
+                        } else {
+                            cache.write(key, key);
+                        }
+                        if (sample) {
+                            stats[4 + sampleCount++] = System.nanoTime() - start;
+                        }
+                        ops++;
+                    }
+                    stats[0] = ops;
+                    stats[1] = reads;
+                    stats[2] = hits;
+                    stats[3] = sampleCount;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                } finally {
+                    perThread[threadIndex] = stats;
+                    done.countDown();
+                }
+            }, "基准线程-" + t).start();
+        }
+        stopAt[0] = System.nanoTime() + durationMillis * 1_000_000L;
+        startSignal.countDown();
+        done.await();
+        if (errors.get() > 0) {
+            System.err.printf("有 %d 个基准线程因异常提前退出！\n", errors.get());
+        }
+        return perThread;
+    }
+
+    static Map<String, Supplier<KeyDistribution>> distributions(int keySpace) {
+        Map<String, Supplier<KeyDistribution>> distributions = new LinkedHashMap<>();
+        distributions.put("uniform", () -> uniform(keySpace));
+        distributions.put("zipfian", () -> zipfian(keySpace, 0.99));
+        distributions.put("hotspot", () -> hotspot(keySpace, 0.01, 0.9));
+        distributions.put("scan", () -> scan(keySpace));
+        return distributions;
+    }
+
+    // --- Main 方法 ---
+    // 参数 (key=value，均可省略):
+    //   threads  线程数，默认 CPU 核数
+    //   duration 每轮测量毫秒数，默认 1000；warmup 预热毫秒数，默认 500
+    //   keys     key 空间大小，默认 100000
+    //   dist     key 分布，逗号分隔，可选 uniform,zipfian,hotspot,scan，默认全部
+    //   read     读比例 (百分比)，逗号分隔，默认 95,50
+    //   caches   参与测试的缓存，逗号分隔，默认全部 (rw,stamped,segmented16,tinylfu,lru,expiring,longlong,offheap,loading,writebehind)
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long durationMillis = Long.parseLong(options.getOrDefault("duration", "1000"));
+        long warmupMillis = Long.parseLong(options.getOrDefault("warmup", "500"));
+        int keySpace = Integer.parseInt(options.getOrDefault("keys", "100000"));
+
+        Map<String, Function<Integer, BenchmarkCache>> allCaches = cacheFactories();
+        Map<String, Supplier<KeyDistribution>> allDistributions = distributions(keySpace);
+        List<String> cacheNames = List.of(options.getOrDefault("caches", String.join(",", allCaches.keySet())).split(","));
+        List<String> distNames = List.of(options.getOrDefault("dist", String.join(",", allDistributions.keySet())).split(","));
+        int[] readPercents = Arrays.stream(options.getOrDefault("read", "95,50").split(",")).mapToInt(Integer::parseInt).toArray();
+
+        Long[] keys = sequentialKeys(keySpace);
+
+        System.out.printf("缓存基准：%d 线程，key 空间 %,d，预热 %d ms，每轮 %d ms\n", threads, keySpace, warmupMillis, durationMillis);
+        for (String distName : distNames) {
+            Supplier<KeyDistribution> distribution = allDistributions.get(distName);
+            if (distribution == null) {
+                throw new IllegalArgumentException("Unknown distribution: " + distName);
+            }
+            KeyDistribution keyDistribution = distribution.get();
+            for (int readPercent : readPercents) {
+                System.out.printf("\n--- 分布 %s，读 %d%% / 写 %d%% ---\n", distName, readPercent, 100 - readPercent);
+                System.out.printf("%-12s %14s %8s %10s %10s %10s\n", "缓存", "ops/s", "命中率", "p50(µs)", "p99(µs)", "p99.9(µs)");
+                for (String cacheName : cacheNames) {
+                    Function<Integer, BenchmarkCache> factory = allCaches.get(cacheName);
+                    if (factory == null) {
+                        throw new IllegalArgumentException("Unknown cache: " + cacheName);
+                    }
+                    BenchmarkCache cache = factory.apply(keySpace);
+                    try {
+                        Result result = run(cacheName, cache, keyDistribution, keys, threads, readPercent, warmupMillis, durationMillis);
+                        System.out.printf("%-12s %14.0f %7.1f%% %10.2f %10.2f %10.2f\n", result.cache, result.opsPerSecond,
+                                result.hitRatio * 100, result.percentileMicros(0.5), result.percentileMicros(0.99),
+                                result.percentileMicros(0.999));
+                    } finally {
+                        cache.close();
+                    }
+                }
+            }
+        }
+    }
+}
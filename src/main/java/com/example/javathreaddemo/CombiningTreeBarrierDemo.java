@@ -0,0 +1,339 @@
+package com.example.javathreaddemo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * 组合树屏障 Demo:
+ * CyclicBarrier 的每次 await 都要获取同一把 ReentrantLock，参与方多达几百个时，屏障本身就成了热点。
+ * CombiningTreeBarrier 把参与方分散到一棵 radix 叉树的叶子上：
+ * <ul>
+ *     <li>每个节点只有 radix 个到达者竞争它的计数器，最后到达者代表整个子树继续向父节点到达</li>
+ *     <li>根节点的最后到达者执行屏障动作，然后从上往下逐层释放：每个爬升的线程负责释放它经过的节点</li>
+ *     <li>等待者只读自己所在节点的状态字 (缓存行填充，互不干扰)，先自旋再 park</li>
+ * </ul>
+ * 与 CyclicBarrier 一样可以循环使用，任一等待者被中断或屏障动作抛出异常时屏障被破坏，其他等待者抛出 BrokenBarrierException。
+ */
+public class CombiningTreeBarrierDemo {
+
+    /**
+     * CyclicBarrier 与 CombiningTreeBarrier 共同的接口，CyclicBarrierDemo 通过它切换实现
+     */
+    interface Barrier {
+        /**
+         * @return 0 表示最后到达 (执行了屏障动作) 的线程，其他线程返回 1 ~ getParties()-1 中互不相同的值
+         */
+        int await() throws InterruptedException, BrokenBarrierException;
+
+        int getParties();
+    }
+
+    static Barrier cyclic(CyclicBarrier barrier) {
+        return new Barrier() {
+            @Override
+            public int await() throws InterruptedException, BrokenBarrierException {
+                return barrier.await();
+            }
+
+            @Override
+            public int getParties() {
+                return barrier.getParties();
+            }
+        };
+    }
+
+    static class CombiningTreeBarrier implements Barrier {
+
+        // 单核机器上自旋只会浪费时间片，直接 park (与 SynchronousQueue 的做法一致)
+        private static final int DEFAULT_SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1 << 10 : 0;
+
+        private static final class Node {
+            final Node parent;
+            final int capacity;
+            // 在该节点等待的线程返回 indexBase + slot
+            final int indexBase;
+            // 高 32 位为代数 (generation)，低 32 位为本代还差几个到达者；
+            // 释放时一次写入"代数 + 1 且计数复位"，等待者看到代数变化即被释放
+            final LockFreeQueueDemo.PaddedAtomicLong state;
+            // 按到达时领到的 slot 记录 park 的等待者，释放时逐个 unpark。
+            // 奇偶代分开存放：释放者还在逐个 unpark 时，已被释放的线程可能已经在下一代领到了同一个 slot
+            final AtomicReferenceArray<Thread> waiters;
+
+            Node(Node parent, int capacity, int indexBase) {
+                this.parent = parent;
+                this.capacity = capacity;
+                this.indexBase = indexBase;
+                this.state = new LockFreeQueueDemo.PaddedAtomicLong(capacity);
+                this.waiters = new AtomicReferenceArray<>(capacity * 2);
+            }
+        }
+
+        private final int parties;
+        private final Runnable barrierAction;
+        private final int spins;
+        private final Node[] leaves;
+        private final List<Node> allNodes = new ArrayList<>();
+        private volatile boolean broken;
+
+        CombiningTreeBarrier(int parties) {
+            this(parties, null);
+        }
+
+        CombiningTreeBarrier(int parties, Runnable barrierAction) {
+            this(parties, barrierAction, 4, DEFAULT_SPINS);
+        }
+
+        /**
+         * @param radix 每个节点的子节点 (叶子为到达线程) 个数上限
+         * @param spins park 之前自旋检查的次数
+         */
+        CombiningTreeBarrier(int parties, Runnable barrierAction, int radix, int spins) {
+            if (parties <= 0 || radix < 2) {
+                throw new IllegalArgumentException("parties must be positive and radix at least 2");
+            }
+            this.parties = parties;
+            this.barrierAction = barrierAction;
+            this.spins = spins;
+
+            // 先自底向上算出每层节点数，再自顶向下建树，保证父节点先于子节点创建
+            List<Integer> levelSizes = new ArrayList<>();
+            int size = parties;
+            do {
+                size = (size + radix - 1) / radix;
+                levelSizes.add(0, size);
+            } while (size > 1);
+
+            int indexBase = 0;
+            Node[] level = {};
+            for (int depth = 0; depth < levelSizes.size(); depth++) {
+                int count = levelSizes.get(depth);
+                // 本层节点下面的元素个数：内部节点是下一层的节点数，叶子则是参与方个数
+                int below = depth + 1 < levelSizes.size() ? levelSizes.get(depth + 1) : parties;
+                Node[] next = new Node[count];
+                int parent = 0;
+                for (int i = 0; i < count; i++) {
+                    // 父节点 j 的子节点为 [split(j), split(j + 1))，与下面计算 capacity 的划分方式一致
+                    while (level.length > 0 && i >= split(count, level.length, parent + 1)) {
+                        parent++;
+                    }
+                    int capacity = split(below, count, i + 1) - split(below, count, i);
+                    next[i] = new Node(level.length == 0 ? null : level[parent], capacity, indexBase);
+                    indexBase += capacity - 1;
+                    allNodes.add(next[i]);
+                }
+                level = next;
+            }
+            this.leaves = level;
+        }
+
+        // 把 total 个元素均匀分成 groups 组时，第 group 组的起始下标
+        private static int split(int total, int groups, int group) {
+            return (int) ((long) total * group / groups);
+        }
+
+        @Override
+        public int await() throws InterruptedException, BrokenBarrierException {
+            if (Thread.interrupted()) {
+                breakBarrier();
+                throw new InterruptedException();
+            }
+            if (broken) {
+                throw new BrokenBarrierException();
+            }
+            // 按线程 id 选一个起始叶子，叶子本代已满时依次尝试下一个
+            int start = (int) (Thread.currentThread().getId() % leaves.length);
+            for (int attempt = 0; ; attempt++) {
+                for (int i = 0; i < leaves.length; i++) {
+                    Node leaf = leaves[(start + i) % leaves.length];
+                    long s = leaf.state.get();
+                    int remaining = (int) s;
+                    if (remaining > 0 && leaf.state.compareAndSet(s, s - 1)) {
+                        return arrive(leaf, (int) (s >>> 32), remaining - 1);
+                    }
+                }
+                // 所有叶子都满：本代已经到齐，只是还没释放完，等下一代复位
+                if (broken) {
+                    throw new BrokenBarrierException();
+                }
+                if (attempt < spins) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+
+        // slot 为 0 表示本节点的最后到达者，负责向父节点到达，之后释放本节点
+        private int arrive(Node node, int generation, int slot) throws InterruptedException, BrokenBarrierException {
+            if (slot > 0) {
+                awaitRelease(node, generation, slot);
+                return node.indexBase + slot;
+            }
+            int index;
+            if (node.parent == null) {
+                index = 0;
+                if (barrierAction != null) {
+                    try {
+                        barrierAction.run();
+                    } catch (Throwable e) {
+                        breakBarrier();
+                        throw e;
+                    }
+                }
+            } else {
+                // 内部节点的子节点个数固定，直接递减即可
+                long s = node.parent.state.getAndDecrement();
+                index = arrive(node.parent, (int) (s >>> 32), (int) s - 1);
+            }
+            release(node, generation);
+            return index;
+        }
+
+        private void awaitRelease(Node node, int generation, int slot) throws InterruptedException, BrokenBarrierException {
+            for (int i = 0; i < spins; i++) {
+                if ((int) (node.state.get() >>> 32) != generation) {
+                    return;
+                }
+                if (broken) {
+                    throw new BrokenBarrierException();
+                }
+                Thread.onSpinWait();
+            }
+            Thread current = Thread.currentThread();
+            int waiterIndex = waiterIndex(node, generation, slot);
+            node.waiters.set(waiterIndex, current);
+            try {
+                // 登记之后再检查一次状态，避免错过在登记之前发生的释放
+                while ((int) (node.state.get() >>> 32) == generation) {
+                    if (broken) {
+                        throw new BrokenBarrierException();
+                    }
+                    LockSupport.park(this);
+                    if (Thread.interrupted()) {
+                        if ((int) (node.state.get() >>> 32) != generation) {
+                            // 已经被释放，只保留中断状态
+                            current.interrupt();
+                            return;
+                        }
+                        breakBarrier();
+                        throw new InterruptedException();
+                    }
+                }
+            } finally {
+                node.waiters.compareAndSet(waiterIndex, current, null);
+            }
+        }
+
+        private void release(Node node, int generation) {
+            node.state.set(((long) (generation + 1) << 32) | node.capacity);
+            for (int i = 1; i < node.capacity; i++) {
+                Thread waiter = node.waiters.get(waiterIndex(node, generation, i));
+                if (waiter != null) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+        }
+
+        private static int waiterIndex(Node node, int generation, int slot) {
+            return (generation & 1) * node.capacity + slot;
+        }
+
+        private void breakBarrier() {
+            broken = true;
+            for (Node node : allNodes) {
+                for (int i = 0; i < node.waiters.length(); i++) {
+                    Thread waiter = node.waiters.get(i);
+                    if (waiter != null) {
+                        LockSupport.unpark(waiter);
+                    }
+                }
+            }
+        }
+
+        boolean isBroken() {
+            return broken;
+        }
+
+        @Override
+        public int getParties() {
+            return parties;
+        }
+
+        /**
+         * 树的层数 (只有一个节点时为 1)
+         */
+        int depth() {
+            int depth = 0;
+            for (Node node = leaves[0]; node != null; node = node.parent) {
+                depth++;
+            }
+            return depth;
+        }
+    }
+
+    // ===================== 屏障穿越延迟测试 =====================
+
+    /**
+     * parties 个线程连续穿越 rounds 次屏障，返回平均每次穿越的纳秒数
+     */
+    static double crossingNanos(Barrier barrier, int rounds) throws InterruptedException {
+        int parties = barrier.getParties();
+        CountDownLatch ready = new CountDownLatch(parties);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(parties);
+        for (int t = 0; t < parties; t++) {
+            new Thread(() -> {
+                try {
+                    ready.countDown();
+                    start.await();
+                    for (int r = 0; r < rounds; r++) {
+                        barrier.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (BrokenBarrierException e) {
+                    System.err.println("屏障被破坏: " + e);
+                } finally {
+                    done.countDown();
+                }
+            }, "参与方-" + t).start();
+        }
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return (double) (System.nanoTime() - begin) / rounds;
+    }
+
+    // --- Main 方法 ---
+    // 参数: [每种参与方数的穿越次数, 默认 2000] [树的 radix, 默认 4]
+    public static void main(String[] args) throws InterruptedException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int radix = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        System.out.printf("CPU 核数 %d，每种参与方数穿越 %,d 次，radix %d\n",
+                Runtime.getRuntime().availableProcessors(), rounds, radix);
+        System.out.printf("%-16s %8s %6s %16s\n", "实现", "参与方", "层数", "每次穿越(µs)");
+        for (int parties : new int[]{4, 64, 512}) {
+            // 参与方越多每次穿越越慢，按参与方数缩减次数，保证每组运行时间相近
+            int scaledRounds = Math.max(20, rounds * 4 / parties);
+            List<IntFunction<Barrier>> factories = List.of(
+                    n -> cyclic(new CyclicBarrier(n)),
+                    n -> new CombiningTreeBarrier(n, null, radix, CombiningTreeBarrier.DEFAULT_SPINS));
+            for (IntFunction<Barrier> factory : factories) {
+                crossingNanos(factory.apply(parties), Math.max(10, scaledRounds / 10)); // 预热
+                Barrier barrier = factory.apply(parties);
+                double nanos = crossingNanos(barrier, scaledRounds);
+                boolean tree = barrier instanceof CombiningTreeBarrier;
+                System.out.printf("%-16s %8d %6s %16.1f\n", tree ? "CombiningTree" : "CyclicBarrier", parties,
+                        tree ? String.valueOf(((CombiningTreeBarrier) barrier).depth()) : "-", nanos / 1000);
+            }
+        }
+    }
+}
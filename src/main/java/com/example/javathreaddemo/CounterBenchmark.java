@@ -0,0 +1,129 @@
+package com.example.javathreaddemo;
+
+import com.example.javathreaddemo.util.HighContentionCounters;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 高竞争计数器基准测试:
+ * 多个线程同时递增同一个计数器，对比 synchronized、AtomicInteger、LongAdder 与 HighContentionCounters 中
+ * 分槽、每线程、松散计数器的吞吐量，并核对结束时的总数 (松散计数器输出误差和误差上界)。
+ */
+public class CounterBenchmark {
+
+    /**
+     * RaceConditionDemo.Counter 加上 synchronized 之后的正确版本
+     */
+    static class SynchronizedCounter implements HighContentionCounters.StatCounter {
+        private long count;
+
+        @Override
+        public synchronized void add(long delta) {
+            count += delta;
+        }
+
+        @Override
+        public synchronized long sum() {
+            return count;
+        }
+    }
+
+    static HighContentionCounters.StatCounter atomicInteger() {
+        AtomicInteger counter = new AtomicInteger();
+        return new HighContentionCounters.StatCounter() {
+            @Override
+            public void add(long delta) {
+                counter.addAndGet((int) delta);
+            }
+
+            @Override
+            public long sum() {
+                return counter.get();
+            }
+        };
+    }
+
+    static HighContentionCounters.StatCounter longAdder() {
+        LongAdder adder = new LongAdder();
+        return new HighContentionCounters.StatCounter() {
+            @Override
+            public void add(long delta) {
+                adder.add(delta);
+            }
+
+            @Override
+            public long sum() {
+                return adder.sum();
+            }
+        };
+    }
+
+    static Map<String, Supplier<HighContentionCounters.StatCounter>> counterFactories() {
+        Map<String, Supplier<HighContentionCounters.StatCounter>> factories = new LinkedHashMap<>();
+        factories.put("synchronized", SynchronizedCounter::new);
+        factories.put("AtomicInteger", CounterBenchmark::atomicInteger);
+        factories.put("LongAdder", CounterBenchmark::longAdder);
+        factories.put("Striped", HighContentionCounters.StripedCounter::new);
+        factories.put("PerThread", HighContentionCounters.PerThreadCounter::new);
+        factories.put("Sloppy(1024)", () -> new HighContentionCounters.SloppyCounter(1024));
+        return factories;
+    }
+
+    /**
+     * threads 个线程各递增 increments 次，返回耗时纳秒
+     */
+    static long run(HighContentionCounters.StatCounter counter, int threads, int increments) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    ready.countDown();
+                    start.await();
+                    for (int i = 0; i < increments; i++) {
+                        counter.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "计数线程-" + t).start();
+        }
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+
+    // --- Main 方法 ---
+    // 参数: [每线程递增次数, 默认 5000000] [最大线程数, 默认 CPU 核数的 2 倍且不少于 8]
+    public static void main(String[] args) throws InterruptedException {
+        int increments = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(8, cores * 2);
+
+        System.out.printf("CPU 核数 %d，每线程递增 %,d 次\n", cores, increments);
+        System.out.printf("%-14s %6s %16s %14s %12s\n", "实现", "线程", "递增次数/秒", "结果误差", "误差上界");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            for (Map.Entry<String, Supplier<HighContentionCounters.StatCounter>> entry : counterFactories().entrySet()) {
+                run(entry.getValue().get(), threads, increments / 10); // 预热
+                HighContentionCounters.StatCounter counter = entry.getValue().get();
+                long nanos = run(counter, threads, increments);
+                long expected = (long) threads * increments;
+                String bound = counter instanceof HighContentionCounters.SloppyCounter
+                        ? String.format("%,d", ((HighContentionCounters.SloppyCounter) counter).maxError()) : "0";
+                System.out.printf("%-14s %6d %,16.0f %,14d %12s\n", entry.getKey(), threads,
+                        expected * 1e9 / nanos, expected - counter.sum(), bound);
+            }
+            System.out.println();
+        }
+    }
+}
@@ -19,12 +19,16 @@ public class CyclicBarrierDemo {
 
         // 创建一个 CyclicBarrier，需要 3 个线程到达
         // 并指定一个“栅栏动作”，在栅栏被破开时执行 (由最后一个到达的线程执行)
-        final CyclicBarrier barrier = new CyclicBarrier(SOLDIER_COUNT, () -> {
+        Runnable barrierAction = () -> {
             // 这个 Runnable 会在 3 个士兵都到达栅栏时执行一次
             System.out.println("\n====================================");
             System.out.println("报告指挥官！所有 " + SOLDIER_COUNT + " 名士兵已在栅栏集合完毕！准备执行下一阶段任务！");
             System.out.println("====================================\n");
-        });
+        };
+        // 传入参数 tree 时改用组合树屏障 (CombiningTreeBarrierDemo)，用法完全相同
+        final CombiningTreeBarrierDemo.Barrier barrier = args.length > 0 && "tree".equals(args[0])
+                ? new CombiningTreeBarrierDemo.CombiningTreeBarrier(SOLDIER_COUNT, barrierAction)
+                : CombiningTreeBarrierDemo.cyclic(new CyclicBarrier(SOLDIER_COUNT, barrierAction));
 
         System.out.println("演习开始：派遣 " + SOLDIER_COUNT + " 名士兵执行任务...");
 
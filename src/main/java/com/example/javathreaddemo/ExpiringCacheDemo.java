@@ -0,0 +1,308 @@
+package com.example.javathreaddemo;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 带过期时间 (TTL) 和提前刷新 (refresh-ahead) 的缓存 Demo
+ * <p>
+ * - 每个条目可以单独设置写入后过期 (write-TTL) 和访问后过期 (access-TTL)；
+ * - 过期采用"读时惰性删除 + 后台分批清扫"：读到过期条目时直接按条件删除，
+ *   后台每次只检查一小批条目，游标跨批次保留，不需要在任何全局锁下扫描整个缓存；
+ * - 配置了 loader 时，热点条目在写入 TTL 到期前 refreshAhead 时间内被读到，就异步重新加载，
+ *   读者继续拿旧值返回，永远不会因为刷新而阻塞。
+ */
+public class ExpiringCacheDemo {
+
+    static class ExpiringCache<K, V> {
+        // 访问时间的更新粒度：同一毫秒内的重复读取不再写 volatile 字段，减少缓存行争用
+        private static final long ACCESS_TIME_GRANULARITY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+        static final class Entry<V> {
+            final V value;
+            final long writeTime;
+            // <= 0 表示不按该维度过期
+            final long writeTtlNanos;
+            final long accessTtlNanos;
+            volatile long lastAccessTime;
+            final AtomicBoolean refreshing = new AtomicBoolean();
+
+            Entry(V value, long now, long writeTtlNanos, long accessTtlNanos) {
+                this.value = value;
+                this.writeTime = now;
+                this.writeTtlNanos = writeTtlNanos;
+                this.accessTtlNanos = accessTtlNanos;
+                this.lastAccessTime = now;
+            }
+
+            boolean isExpired(long now) {
+                return (writeTtlNanos > 0 && now - writeTime >= writeTtlNanos)
+                        || (accessTtlNanos > 0 && now - lastAccessTime >= accessTtlNanos);
+            }
+        }
+
+        private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+        private final long defaultWriteTtlNanos;
+        private final long defaultAccessTtlNanos;
+        private final Function<? super K, ? extends V> loader;
+        private final long refreshAheadNanos;
+        private final Executor refreshExecutor;
+
+        // 后台清扫的游标，只在持有 sweepLock 时使用
+        private final ReentrantLock sweepLock = new ReentrantLock();
+        private Iterator<Map.Entry<K, Entry<V>>> sweepCursor;
+
+        private final AtomicInteger refreshCount = new AtomicInteger();
+        private final AtomicInteger refreshFailures = new AtomicInteger();
+
+        /**
+         * 只有过期，没有提前刷新
+         *
+         * @param defaultWriteTtlMillis  默认写入后过期时间，<= 0 表示不过期
+         * @param defaultAccessTtlMillis 默认访问后过期时间，<= 0 表示不过期
+         */
+        public ExpiringCache(long defaultWriteTtlMillis, long defaultAccessTtlMillis) {
+            this(defaultWriteTtlMillis, defaultAccessTtlMillis, null, 0, null);
+        }
+
+        /**
+         * @param loader            提前刷新时使用的加载函数
+         * @param refreshAheadMillis 距离写入 TTL 到期还剩多少毫秒时触发刷新，必须小于默认写入 TTL
+         *                           (否则条目一写入就处在刷新窗口内，每次读取都会触发重新加载)
+         * @param refreshExecutor   执行刷新的线程池
+         */
+        public ExpiringCache(long defaultWriteTtlMillis, long defaultAccessTtlMillis,
+                             Function<? super K, ? extends V> loader, long refreshAheadMillis, Executor refreshExecutor) {
+            if (loader != null && (refreshExecutor == null || refreshAheadMillis <= 0)) {
+                throw new IllegalArgumentException("Refresh-ahead requires an executor and a positive refresh window");
+            }
+            if (loader != null && defaultWriteTtlMillis > 0 && refreshAheadMillis >= defaultWriteTtlMillis) {
+                throw new IllegalArgumentException("Refresh-ahead window must be shorter than the write TTL");
+            }
+            this.defaultWriteTtlNanos = TimeUnit.MILLISECONDS.toNanos(defaultWriteTtlMillis);
+            this.defaultAccessTtlNanos = TimeUnit.MILLISECONDS.toNanos(defaultAccessTtlMillis);
+            this.loader = loader;
+            this.refreshAheadNanos = TimeUnit.MILLISECONDS.toNanos(refreshAheadMillis);
+            this.refreshExecutor = refreshExecutor;
+        }
+
+        public V get(K key) {
+            Entry<V> entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+            long now = System.nanoTime();
+            if (entry.isExpired(now)) {
+                // 惰性删除：只删除读到的这个条目对象，不会误删并发写入的新值
+                map.remove(key, entry);
+                return null;
+            }
+            if (entry.accessTtlNanos > 0 && now - entry.lastAccessTime >= ACCESS_TIME_GRANULARITY_NANOS) {
+                entry.lastAccessTime = now;
+            }
+            if (loader != null) {
+                maybeRefresh(key, entry, now);
+            }
+            return entry.value;
+        }
+
+        public void put(K key, V value) {
+            map.put(key, new Entry<>(value, System.nanoTime(), defaultWriteTtlNanos, defaultAccessTtlNanos));
+        }
+
+        /**
+         * 为单个条目指定过期时间；写入 TTL 不大于提前刷新窗口的条目不做提前刷新，到期后直接过期
+         */
+        public void put(K key, V value, long writeTtl, long accessTtl, TimeUnit unit) {
+            map.put(key, new Entry<>(value, System.nanoTime(), unit.toNanos(writeTtl), unit.toNanos(accessTtl)));
+        }
+
+        public void clear() {
+            map.clear();
+        }
+
+        /**
+         * 当前条目数 (可能包含已过期但还没被清扫的条目)
+         */
+        public int size() {
+            return map.size();
+        }
+
+        /**
+         * 分批清扫：最多检查 maxEntries 个条目，删除其中已过期的，返回删除数量。
+         * 游标在批次之间保留，所以多次调用会轮流覆盖整个缓存；同一时刻只有一个线程在清扫。
+         */
+        public int sweep(int maxEntries) {
+            if (!sweepLock.tryLock()) {
+                return 0;
+            }
+            try {
+                long now = System.nanoTime();
+                int removed = 0;
+                for (int examined = 0; examined < maxEntries; examined++) {
+                    if (sweepCursor == null || !sweepCursor.hasNext()) {
+                        // 上一轮已经扫完，从头开始新一轮
+                        sweepCursor = map.entrySet().iterator();
+                        if (!sweepCursor.hasNext()) {
+                            break;
+                        }
+                    }
+                    Map.Entry<K, Entry<V>> next = sweepCursor.next();
+                    if (next.getValue().isExpired(now) && map.remove(next.getKey(), next.getValue())) {
+                        removed++;
+                    }
+                }
+                return removed;
+            } finally {
+                sweepLock.unlock();
+            }
+        }
+
+        /**
+         * 定期执行分批清扫
+         */
+        public ScheduledFuture<?> scheduleSweep(ScheduledExecutorService scheduler, long period, TimeUnit unit, int batchSize) {
+            return scheduler.scheduleWithFixedDelay(() -> sweep(batchSize), period, period, unit);
+        }
+
+        public int getRefreshCount() {
+            return refreshCount.get();
+        }
+
+        public int getRefreshFailures() {
+            return refreshFailures.get();
+        }
+
+        private void maybeRefresh(K key, Entry<V> entry, long now) {
+            // 写入 TTL 不比刷新窗口长的条目一写入就在窗口内，刷新出的新条目也一样，会变成每次读取都重新加载
+            if (entry.writeTtlNanos <= refreshAheadNanos || now - entry.writeTime < entry.writeTtlNanos - refreshAheadNanos) {
+                return;
+            }
+            // 每个条目只允许一个刷新任务
+            if (!entry.refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                refreshExecutor.execute(() -> {
+                    try {
+                        V value = loader.apply(key);
+                        if (value == null) {
+                            throw new IllegalStateException("Loader returned null for key: " + key);
+                        }
+                        // 只替换触发刷新的那个条目；期间如果有新的 put，以 put 的值为准
+                        map.replace(key, entry, new Entry<>(value, System.nanoTime(), entry.writeTtlNanos, entry.accessTtlNanos));
+                        refreshCount.incrementAndGet();
+                    } catch (Throwable t) {
+                        // 刷新失败时保留旧值直到过期，并允许下次读取再次触发刷新
+                        refreshFailures.incrementAndGet();
+                        entry.refreshing.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                entry.refreshing.set(false);
+            }
+        }
+    }
+
+    // --- Main 方法：过期、提前刷新和开销对比 ---
+    // 参数: [线程数, 默认 CPU 核数 * 2] [每轮毫秒数, 默认 2000] [key 数量, 默认 100000]
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        long durationMillis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        int keyCount = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService refreshPool = Executors.newFixedThreadPool(2);
+
+        // 1. 写入 TTL：库存快照 300ms 后过期，由惰性删除和后台清扫回收
+        ExpiringCache<String, Integer> stockCache = new ExpiringCache<>(300, 0);
+        stockCache.scheduleSweep(scheduler, 50, TimeUnit.MILLISECONDS, 1000);
+        for (int i = 0; i < 10_000; i++) {
+            stockCache.put("stock-" + i, i);
+        }
+        // 单独给一个条目设置 1 秒的 TTL
+        stockCache.put("stock-long-lived", 1, 1, 0, TimeUnit.SECONDS);
+        System.out.printf("写入后条目数: %d\n", stockCache.size());
+        Thread.sleep(500);
+        System.out.printf("500ms 后: stock-0=%s, stock-long-lived=%s, 条目数 (后台清扫后): %d\n",
+                stockCache.get("stock-0"), stockCache.get("stock-long-lived"), stockCache.size());
+
+        // 2. 访问 TTL：持续被读的条目不过期，没人读的条目 200ms 后过期
+        ExpiringCache<String, String> metadataCache = new ExpiringCache<>(0, 200);
+        metadataCache.put("hot", "热门商品");
+        metadataCache.put("cold", "冷门商品");
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(100);
+            metadataCache.get("hot");
+        }
+        System.out.printf("访问 TTL 200ms，500ms 后: hot=%s, cold=%s\n", metadataCache.get("hot"), metadataCache.get("cold"));
+
+        // 3. 提前刷新：TTL 300ms，到期前 100ms 异步刷新；加载耗时 50ms，读者不应该读到空值或被阻塞
+        AtomicInteger version = new AtomicInteger();
+        ExpiringCache<String, Integer> refreshingCache = new ExpiringCache<>(300, 0, key -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return version.incrementAndGet();
+        }, 100, refreshPool);
+        refreshingCache.put("price", version.incrementAndGet());
+        long misses = 0;
+        long reads = 0;
+        long maxReadNanos = 0;
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (System.nanoTime() < end) {
+            long start = System.nanoTime();
+            Integer value = refreshingCache.get("price");
+            maxReadNanos = Math.max(maxReadNanos, System.nanoTime() - start);
+            reads++;
+            if (value == null) {
+                misses++;
+            }
+            Thread.sleep(1);
+        }
+        System.out.printf("提前刷新：2 秒内读取 %d 次，未命中 %d 次，刷新 %d 次，最长单次读取 %d µs\n",
+                reads, misses, refreshingCache.getRefreshCount(), TimeUnit.NANOSECONDS.toMicros(maxReadNanos));
+
+        // 4. 开销：TTL 足够长 (不会过期) 时，与同样基于 ConcurrentHashMap 但不做过期检查的缓存对比吞吐，
+        //    两边只差 Entry 包装、时间戳读取和访问时间更新
+        Long[] keys = CacheBenchmarkSuite.sequentialKeys(keyCount);
+        CacheBenchmarkSuite.KeyDistribution uniform = CacheBenchmarkSuite.uniform(keyCount);
+        System.out.printf("\n开销对比：%d 线程，key 数量 %d，每轮 %d ms\n", threads, keyCount, durationMillis);
+        System.out.printf("%-10s %22s %22s %22s\n", "写比例", "CHM无过期(ops/s)", "TTL(ops/s)", "TTL+访问TTL(ops/s)");
+        for (int writePercent : new int[]{0, 10}) {
+            ConcurrentHashMap<Long, Long> plain = new ConcurrentHashMap<>();
+            ExpiringCache<Long, Long> writeTtl = new ExpiringCache<>(TimeUnit.HOURS.toMillis(1), 0);
+            ExpiringCache<Long, Long> bothTtl = new ExpiringCache<>(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(1));
+            for (Long key : keys) {
+                plain.put(key, key);
+                writeTtl.put(key, key);
+                bothTtl.put(key, key);
+            }
+            int readPercent = 100 - writePercent;
+            double plainOps = CacheBenchmarkSuite.throughput(CacheBenchmarkSuite.getThenPut(plain::get, plain::put),
+                    uniform, keys, threads, readPercent, durationMillis);
+            double writeTtlOps = CacheBenchmarkSuite.throughput(CacheBenchmarkSuite.getThenPut(writeTtl::get, writeTtl::put),
+                    uniform, keys, threads, readPercent, durationMillis);
+            double bothTtlOps = CacheBenchmarkSuite.throughput(CacheBenchmarkSuite.getThenPut(bothTtl::get, bothTtl::put),
+                    uniform, keys, threads, readPercent, durationMillis);
+            System.out.printf("%-10s %22.0f %22.0f %22.0f\n", writePercent + "%", plainOps, writeTtlOps, bothTtlOps);
+        }
+
+        scheduler.shutdownNow();
+        refreshPool.shutdownNow();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.javathreaddemo;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 带"请求合并"(single-flight) 的加载缓存 Demo:
+ * 热点 key 未命中时，同一时刻只允许一次回源加载，其它并发请求等待同一个 CompletableFuture。
+ */
+public class LoadingCacheDemo {
+
+    /**
+     * 在 ReadWriteCache 外面包一层加载逻辑。
+     * <p>
+     * - 命中时和 ReadWriteCache.get 完全一样，只持有读锁；
+     * - 未命中时按 key 在 inFlight 中登记一个 future，只有登记成功的那个调用者提交加载任务，
+     *   其余调用者等待同一个 future；
+     * - 加载在 loaderExecutor 中执行，不持有任何缓存锁，只在写回结果时短暂持有写锁，
+     *   所以慢加载不会阻塞其它 key 的读写；
+     * - 加载失败时所有等待者都收到同一个 ExecutionException，失败结果不会被缓存，下次请求会重新加载；
+     * - 带超时的 get 超时只影响当前调用者，加载本身继续进行，完成后照常写入缓存。
+     */
+    static class LoadingCache<K, V> {
+        private final ReadWriteLockCacheDemo.ReadWriteCache<K, V> cache;
+        private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+        private final Executor loaderExecutor;
+
+        public LoadingCache(ReadWriteLockCacheDemo.ReadWriteCache<K, V> cache, Executor loaderExecutor) {
+            this.cache = cache;
+            this.loaderExecutor = loaderExecutor;
+        }
+
+        /**
+         * 获取 key 对应的值，未命中时通过 loader 加载 (同一 key 同时只加载一次)
+         *
+         * @throws ExecutionException   加载失败，cause 为 loader 抛出的异常
+         * @throws InterruptedException 如果线程在等待时被中断
+         */
+        public V get(K key, Function<? super K, ? extends V> loader) throws InterruptedException, ExecutionException {
+            V value = cache.get(key);
+            if (value != null) {
+                return value;
+            }
+            return loadAsync(key, loader).get();
+        }
+
+        /**
+         * 同 {@link #get(Object, Function)}，但最多等待 timeout
+         *
+         * @throws TimeoutException 当前调用者等待超时 (加载仍在继续)
+         */
+        public V get(K key, Function<? super K, ? extends V> loader, long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            V value = cache.get(key);
+            if (value != null) {
+                return value;
+            }
+            return loadAsync(key, loader).get(timeout, unit);
+        }
+
+        /**
+         * 返回 key 的加载 future：已有加载在进行则复用，否则发起一次新的加载
+         */
+        public CompletableFuture<V> loadAsync(K key, Function<? super K, ? extends V> loader) {
+            CompletableFuture<V> existing = inFlight.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            CompletableFuture<V> created = new CompletableFuture<>();
+            existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                return existing;
+            }
+            // 双重检查：登记之前，上一次加载可能刚好写入缓存并从 inFlight 中移除
+            V cached = cache.get(key);
+            if (cached != null) {
+                inFlight.remove(key, created);
+                created.complete(cached);
+                return created;
+            }
+            try {
+                loaderExecutor.execute(() -> runLoad(key, loader, created));
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(key, created);
+                created.completeExceptionally(e);
+            }
+            return created;
+        }
+
+        private void runLoad(K key, Function<? super K, ? extends V> loader, CompletableFuture<V> future) {
+            try {
+                V loaded = loader.apply(key);
+                if (loaded == null) {
+                    throw new IllegalStateException("Loader returned null for key: " + key);
+                }
+                // 先写缓存再移除登记：新来的请求要么命中缓存，要么拿到这个 future
+                cache.put(key, loaded);
+                inFlight.remove(key, future);
+                future.complete(loaded);
+            } catch (Throwable t) {
+                inFlight.remove(key, future);
+                future.completeExceptionally(t);
+            }
+        }
+
+        /**
+         * 当前正在进行中的加载数量
+         */
+        public int inFlightCount() {
+            return inFlight.size();
+        }
+    }
+
+    /**
+     * 模拟的慢后端：每次加载耗时 loadMillis，并统计被调用的次数
+     */
+    static class SlowBackend implements Function<Integer, String> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final long loadMillis;
+
+        SlowBackend(long loadMillis) {
+            this.loadMillis = loadMillis;
+        }
+
+        @Override
+        public String apply(Integer key) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(loadMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Load interrupted for key: " + key, e);
+            }
+            return "product-" + key;
+        }
+
+        int getCalls() {
+            return calls.get();
+        }
+    }
+
+    interface CacheReader {
+        String read(Integer key) throws Exception;
+    }
+
+    /**
+     * 未命中风暴：threads 个线程同时读取同一批冷 key，返回耗时 (毫秒)
+     */
+    static long missStorm(CacheReader reader, int threads, int hotKeys) throws InterruptedException {
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger errors = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            new Thread(() -> {
+                try {
+                    startSignal.await();
+                    for (int i = 0; i < hotKeys; i++) {
+                        reader.read((i + offset) % hotKeys);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }, "请求线程-" + t).start();
+        }
+        long start = System.nanoTime();
+        startSignal.countDown();
+        done.await();
+        if (errors.get() > 0) {
+            System.err.printf("未命中风暴中有 %d 个线程出错！\n", errors.get());
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    // --- Main 方法：未命中风暴下的回源次数对比 ---
+    // 参数: [并发线程数, 默认 200] [热点 key 数, 默认 10] [单次加载毫秒数, 默认 50]
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int hotKeys = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long loadMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+
+        System.out.printf("未命中风暴：%d 个线程同时读取 %d 个冷 key，每次回源耗时 %d ms\n", threads, hotKeys, loadMillis);
+
+        // 1. 现有写法：get 未命中 -> 自己回源 -> put
+        ReadWriteLockCacheDemo.ReadWriteCache<Integer, String> plainCache = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+        SlowBackend plainBackend = new SlowBackend(loadMillis);
+        long plainMillis = missStorm(key -> {
+            String value = plainCache.get(key);
+            if (value == null) {
+                value = plainBackend.apply(key);
+                plainCache.put(key, value);
+            }
+            return value;
+        }, threads, hotKeys);
+
+        // 2. single-flight 加载缓存
+        ExecutorService loaderPool = Executors.newFixedThreadPool(Math.max(hotKeys, 4));
+        LoadingCache<Integer, String> loadingCache =
+                new LoadingCache<>(new ReadWriteLockCacheDemo.ReadWriteCache<>(), loaderPool);
+        SlowBackend loadingBackend = new SlowBackend(loadMillis);
+        long loadingMillis = missStorm(key -> loadingCache.get(key, loadingBackend), threads, hotKeys);
+
+        System.out.printf("%-22s 回源次数: %5d, 耗时: %d ms\n", "ReadWriteCache", plainBackend.getCalls(), plainMillis);
+        System.out.printf("%-22s 回源次数: %5d, 耗时: %d ms\n", "LoadingCache", loadingBackend.getCalls(), loadingMillis);
+
+        // 3. 失败传播：所有等待者都收到同一个异常，失败不会被缓存
+        Function<Integer, String> failingLoader = key -> {
+            throw new IllegalStateException("后端不可用");
+        };
+        try {
+            loadingCache.get(-1, failingLoader);
+        } catch (ExecutionException e) {
+            System.out.println("\n加载失败被传播给调用者: " + e.getCause());
+        }
+        System.out.println("失败后重新加载: " + loadingCache.get(-1, loadingBackend));
+
+        // 4. 超时：只有当前调用者放弃等待，加载完成后照常写入缓存
+        try {
+            loadingCache.get(-2, new SlowBackend(500), 100, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.out.println("等待加载超时 (100 ms)，加载仍在进行中的数量: " + loadingCache.inFlightCount());
+        }
+        Thread.sleep(600);
+        System.out.println("加载完成后再次读取: " + loadingCache.get(-2, loadingBackend));
+
+        loaderPool.shutdown();
+        if (!loaderPool.awaitTermination(5, TimeUnit.SECONDS)) {
+            System.err.println("加载线程池没有在5秒内完全终止！");
+        }
+    }
+}
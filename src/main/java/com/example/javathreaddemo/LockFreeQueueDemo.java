@@ -0,0 +1,292 @@
+package com.example.javathreaddemo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * 无锁有界多生产者多消费者 (MPMC) 队列 Demo:
+ * 每个槽位带一个序号 (Dmitry Vyukov 的有界 MPMC 队列算法)，生产者和消费者各自 CAS 自己的游标，
+ * 交接数据不需要任何锁；游标做了缓存行填充，避免生产者和消费者互相造成伪共享。
+ * <p>
+ * 队列本身只有非阻塞的 offer/poll，阻塞的 put/take 在失败时交给可插拔的 WaitStrategy 等待：
+ * 忙等 (延迟最低，独占一个 CPU)、yield、park、先自旋再 park，按部署环境在 CPU 和延迟之间取舍。
+ */
+public class LockFreeQueueDemo {
+
+    /**
+     * put/take 暂时无法推进时的等待策略
+     */
+    interface WaitStrategy {
+        /**
+         * @param attempt 本次等待已经连续失败的次数 (从 0 开始，推进成功后重新计数)
+         */
+        void idle(int attempt);
+    }
+
+    // 忙等：只提示 CPU 正在自旋，线程一直占用 CPU
+    static final WaitStrategy BUSY_SPIN = attempt -> Thread.onSpinWait();
+
+    // 让出 CPU 给其他就绪线程，但线程仍然是 RUNNABLE
+    static final WaitStrategy YIELD = attempt -> Thread.yield();
+
+    // 每次失败都 park 一小段时间，几乎不占 CPU，但交接延迟至少是一次 park 的时间
+    static final WaitStrategy PARK = attempt -> LockSupport.parkNanos(1_000);
+
+    /**
+     * 先自旋 spins 次，再 yield yields 次，之后每次 park (park 时间从 1µs 指数增长到 maxParkNanos)
+     */
+    static WaitStrategy spinThenPark(int spins, int yields, long maxParkNanos) {
+        return attempt -> {
+            if (attempt < spins) {
+                Thread.onSpinWait();
+            } else if (attempt < spins + yields) {
+                Thread.yield();
+            } else {
+                int shift = Math.min(20, attempt - spins - yields);
+                LockSupport.parkNanos(Math.min(maxParkNanos, 1_000L << shift));
+            }
+        };
+    }
+
+    /**
+     * 缓存行填充的 AtomicLong：value 之后再占 56 字节，
+     * 保证两个相邻分配的游标 (tail 和 head) 的 value 不在同一个 64 字节的缓存行里
+     */
+    @SuppressWarnings("unused")
+    static final class PaddedAtomicLong extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+        PaddedAtomicLong(long initialValue) {
+            super(initialValue);
+        }
+    }
+
+    /**
+     * 有界无锁 MPMC 队列。容量向上取整为 2 的幂，下标用 & mask 回绕
+     */
+    static class MpmcArrayQueue<T> {
+        private final Object[] items;
+        // sequences[i] == pos      : 槽位空闲，等待位置 pos 的生产者
+        // sequences[i] == pos + 1  : 槽位已写入，等待位置 pos 的消费者
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final WaitStrategy waitStrategy;
+        private final PaddedAtomicLong tail = new PaddedAtomicLong(0); // 下一个 offer 的位置
+        private final PaddedAtomicLong head = new PaddedAtomicLong(0); // 下一个 poll 的位置
+
+        public MpmcArrayQueue(int capacity, WaitStrategy waitStrategy) {
+            if (capacity < 2 || capacity > 1 << 30) {
+                throw new IllegalArgumentException("Capacity must be between 2 and 2^30");
+            }
+            int length = Integer.highestOneBit(capacity);
+            if (length < capacity) {
+                length <<= 1;
+            }
+            this.items = new Object[length];
+            this.sequences = new AtomicLongArray(length);
+            for (int i = 0; i < length; i++) {
+                sequences.set(i, i);
+            }
+            this.mask = length - 1;
+            this.waitStrategy = waitStrategy;
+        }
+
+        /**
+         * 非阻塞放入，队列满时返回 false
+         */
+        public boolean offer(T item) {
+            if (item == null) {
+                throw new NullPointerException("item");
+            }
+            long pos = tail.get();
+            while (true) {
+                int index = (int) (pos & mask);
+                long diff = sequences.get(index) - pos;
+                if (diff == 0) {
+                    // 槽位空闲，抢占这个位置；抢到后只有当前线程会写这个槽位
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        items[index] = item;
+                        // release 写：消费者读到新序号时一定能看到 items[index]
+                        sequences.setRelease(index, pos + 1);
+                        return true;
+                    }
+                    pos = tail.get();
+                } else if (diff < 0) {
+                    // 槽位还没被上一轮的消费者取走：队列已满
+                    return false;
+                } else {
+                    // 其他生产者已经抢走了这个位置
+                    pos = tail.get();
+                }
+            }
+        }
+
+        /**
+         * 非阻塞取出，队列空时返回 null
+         */
+        @SuppressWarnings("unchecked")
+        public T poll() {
+            long pos = head.get();
+            while (true) {
+                int index = (int) (pos & mask);
+                long diff = sequences.get(index) - (pos + 1);
+                if (diff == 0) {
+                    if (head.compareAndSet(pos, pos + 1)) {
+                        T item = (T) items[index];
+                        items[index] = null;
+                        // 槽位留给下一轮 (pos + 容量) 的生产者
+                        sequences.setRelease(index, pos + mask + 1);
+                        return item;
+                    }
+                    pos = head.get();
+                } else if (diff < 0) {
+                    // 生产者还没写入这个位置：队列为空
+                    return null;
+                } else {
+                    pos = head.get();
+                }
+            }
+        }
+
+        /**
+         * 阻塞放入：队列满时按等待策略等待，等待期间响应中断
+         */
+        public void put(T item) throws InterruptedException {
+            int attempt = 0;
+            while (!offer(item)) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                waitStrategy.idle(attempt++);
+            }
+        }
+
+        /**
+         * 阻塞取出：队列空时按等待策略等待，等待期间响应中断
+         */
+        public T take() throws InterruptedException {
+            int attempt = 0;
+            T item;
+            while ((item = poll()) == null) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                waitStrategy.idle(attempt++);
+            }
+            return item;
+        }
+
+        /**
+         * 近似值：并发修改时只是某个时刻的快照
+         */
+        public int size() {
+            while (true) {
+                long h = head.get();
+                long t = tail.get();
+                if (h == head.get()) {
+                    return (int) Math.max(0, Math.min(t - h, items.length));
+                }
+            }
+        }
+
+        public int capacity() {
+            return items.length;
+        }
+    }
+
+    /**
+     * 两个线程通过两个队列来回传递同一个元素 rounds 次，返回单程交接的平均延迟 (纳秒)
+     */
+    static double pingPongLatencyNanos(IntFunction<BlockingBufferBenchmark.BenchmarkBuffer> factory, int capacity,
+                                       int rounds) throws InterruptedException {
+        BlockingBufferBenchmark.BenchmarkBuffer ping = factory.apply(capacity);
+        BlockingBufferBenchmark.BenchmarkBuffer pong = factory.apply(capacity);
+        Integer token = 1000;
+        Thread echo = new Thread(() -> {
+            try {
+                for (int i = 0; i < rounds; i++) {
+                    pong.put(ping.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "回声线程");
+        echo.start();
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            ping.put(token);
+            pong.take();
+        }
+        long elapsed = System.nanoTime() - start;
+        echo.join();
+        return elapsed / (rounds * 2.0);
+    }
+
+    static Map<String, IntFunction<BlockingBufferBenchmark.BenchmarkBuffer>> bufferFactories() {
+        Map<String, IntFunction<BlockingBufferBenchmark.BenchmarkBuffer>> factories = new LinkedHashMap<>();
+        factories.put("BlockingBuffer(wait/notify)", capacity -> {
+            ProducerConsumerWaitNotify.BlockingBuffer<Integer> buffer = new ProducerConsumerWaitNotify.BlockingBuffer<>(capacity);
+            return BlockingBufferBenchmark.adapt(buffer::put, buffer::take);
+        });
+        factories.put("BlockingBuffer(Condition)", capacity -> {
+            ProducerConsumerLockConditionDemo.BlockingBuffer<Integer> buffer =
+                    new ProducerConsumerLockConditionDemo.BlockingBuffer<>(capacity);
+            return BlockingBufferBenchmark.adapt(buffer::put, buffer::take);
+        });
+        factories.put("ArrayBlockingQueue", capacity -> {
+            ArrayBlockingQueue<Integer> queue = new ArrayBlockingQueue<>(capacity);
+            return BlockingBufferBenchmark.adapt(queue::put, queue::take);
+        });
+        Map<String, WaitStrategy> strategies = new LinkedHashMap<>();
+        strategies.put("busy-spin", BUSY_SPIN);
+        strategies.put("yield", YIELD);
+        strategies.put("park", PARK);
+        strategies.put("spin-then-park", spinThenPark(100, 10, TimeUnit.MICROSECONDS.toNanos(100)));
+        for (Map.Entry<String, WaitStrategy> strategy : strategies.entrySet()) {
+            factories.put("MpmcArrayQueue(" + strategy.getKey() + ")", capacity -> {
+                MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(capacity, strategy.getValue());
+                return BlockingBufferBenchmark.adapt(queue::put, queue::take);
+            });
+        }
+        return factories;
+    }
+
+    // --- Main 方法：吞吐和交接延迟对比 ---
+    // 参数: [生产者数, 默认 2] [消费者数, 默认 2] [容量, 默认 1024] [每个生产者的元素数, 默认 1000000] [ping-pong 轮数, 默认 100000]
+    // 注意：busy-spin 的线程数超过 CPU 核数时，自旋线程会抢走真正干活的线程的时间片，结果会非常差
+    public static void main(String[] args) throws InterruptedException {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        int itemsPerProducer = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 100_000;
+
+        Integer[] items = new Integer[1 << 12];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i + 1000;
+        }
+
+        System.out.printf("%d 生产者 / %d 消费者，容量 %d，每个生产者 %,d 个元素，ping-pong %,d 轮，CPU 核数 %d\n",
+                producers, consumers, capacity, itemsPerProducer, rounds, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-34s %14s %16s\n", "实现", "items/s", "单程交接(ns)");
+        long total = (long) producers * itemsPerProducer;
+        for (Map.Entry<String, IntFunction<BlockingBufferBenchmark.BenchmarkBuffer>> entry : bufferFactories().entrySet()) {
+            IntFunction<BlockingBufferBenchmark.BenchmarkBuffer> factory = entry.getValue();
+            // 预热一轮 (结果丢弃)
+            BlockingBufferBenchmark.run(factory.apply(capacity), items, producers, consumers, Math.max(1, itemsPerProducer / 10));
+            pingPongLatencyNanos(factory, capacity, Math.max(1, rounds / 10));
+
+            long[] result = BlockingBufferBenchmark.run(factory.apply(capacity), items, producers, consumers, itemsPerProducer);
+            double latency = pingPongLatencyNanos(factory, capacity, rounds);
+            System.out.printf("%-34s %,14.0f %,16.0f\n", entry.getKey(), total * 1e9 / result[0], latency);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.javathreaddemo;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * long -> long 的原始类型缓存 Demo (商品ID -> 库存/价格):
+ * 用两个平行的 long[] 做开放寻址 (线性探测) 哈希表，key 和 value 都不装箱，
+ * 查询不分配任何对象；锁语义和 ReadWriteLockCacheDemo.ReadWriteCache 相同 (读写锁)。
+ */
+public class LongLongCacheDemo {
+
+    static class LongLongReadWriteCache {
+        // 空槽标记；key 为 0 的条目单独存放
+        private static final long EMPTY = 0L;
+        private static final int MIN_CAPACITY = 16;
+        private static final float MAX_LOAD = 0.75f;
+
+        private long[] keys;
+        private long[] values;
+        private int mask;
+        // 线性探测使用高位哈希 (Fibonacci hashing)
+        private int shift;
+        private int size;
+        private int resizeThreshold;
+
+        private boolean hasZeroKey;
+        private long zeroValue;
+
+        private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+        private final Lock readLock = rwLock.readLock();
+        private final Lock writeLock = rwLock.writeLock();
+
+        public LongLongReadWriteCache() {
+            this(MIN_CAPACITY);
+        }
+
+        /**
+         * @param expectedSize 预计条目数，用来预分配数组避免扩容
+         */
+        public LongLongReadWriteCache(int expectedSize) {
+            allocate(capacityFor(expectedSize));
+        }
+
+        /**
+         * 查询 key，不存在时返回 defaultValue
+         */
+        public long get(long key, long defaultValue) {
+            readLock.lock();
+            try {
+                if (key == EMPTY) {
+                    return hasZeroKey ? zeroValue : defaultValue;
+                }
+                long[] keys = this.keys;
+                int index = indexOf(key);
+                while (true) {
+                    long k = keys[index];
+                    if (k == key) {
+                        return values[index];
+                    }
+                    if (k == EMPTY) {
+                        return defaultValue;
+                    }
+                    index = (index + 1) & mask;
+                }
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        public boolean containsKey(long key) {
+            readLock.lock();
+            try {
+                if (key == EMPTY) {
+                    return hasZeroKey;
+                }
+                return slotOf(key) >= 0;
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        public void put(long key, long value) {
+            writeLock.lock();
+            try {
+                if (key == EMPTY) {
+                    if (!hasZeroKey) {
+                        hasZeroKey = true;
+                        size++;
+                    }
+                    zeroValue = value;
+                    return;
+                }
+                int index = indexOf(key);
+                while (true) {
+                    long k = keys[index];
+                    if (k == key) {
+                        values[index] = value;
+                        return;
+                    }
+                    if (k == EMPTY) {
+                        keys[index] = key;
+                        values[index] = value;
+                        if (++size > resizeThreshold) {
+                            rehash(keys.length << 1);
+                        }
+                        return;
+                    }
+                    index = (index + 1) & mask;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        /**
+         * 删除 key，返回是否存在。使用"向后移位"删除，不需要墓碑标记
+         */
+        public boolean remove(long key) {
+            writeLock.lock();
+            try {
+                if (key == EMPTY) {
+                    if (!hasZeroKey) {
+                        return false;
+                    }
+                    hasZeroKey = false;
+                    size--;
+                    return true;
+                }
+                int index = slotOf(key);
+                if (index < 0) {
+                    return false;
+                }
+                shiftKeysBack(index);
+                size--;
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        public void clear() {
+            writeLock.lock();
+            try {
+                Arrays.fill(keys, EMPTY);
+                hasZeroKey = false;
+                size = 0;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        public int size() {
+            readLock.lock();
+            try {
+                return size;
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        // 必须持有读锁或写锁
+        private int slotOf(long key) {
+            int index = indexOf(key);
+            while (true) {
+                long k = keys[index];
+                if (k == key) {
+                    return index;
+                }
+                if (k == EMPTY) {
+                    return -1;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private int indexOf(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+
+        // 删除 index 后，把后面同一探测链上的条目往前挪，保证查询不会在空槽处提前结束
+        private void shiftKeysBack(int index) {
+            int last = index;
+            int slot = (last + 1) & mask;
+            while (true) {
+                long k = keys[slot];
+                if (k == EMPTY) {
+                    break;
+                }
+                int ideal = indexOf(k);
+                // 如果 slot 的理想位置不在 (last, slot] 区间内，就可以挪到 last
+                if (last <= slot ? (last >= ideal || ideal > slot) : (last >= ideal && ideal > slot)) {
+                    keys[last] = k;
+                    values[last] = values[slot];
+                    last = slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[last] = EMPTY;
+        }
+
+        private void rehash(int newCapacity) {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            allocate(newCapacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                long k = oldKeys[i];
+                if (k != EMPTY) {
+                    int index = indexOf(k);
+                    while (keys[index] != EMPTY) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = k;
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+            mask = capacity - 1;
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+            resizeThreshold = (int) (capacity * MAX_LOAD);
+        }
+
+        private static int capacityFor(int expectedSize) {
+            long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) MAX_LOAD) + 1;
+            int capacity = MIN_CAPACITY;
+            while (capacity < needed) {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // 模拟真实的商品ID：足够大，不会落在 Long 的装箱缓存 [-128, 127] 里
+    private static long productId(int i) {
+        return 1_000_000_000L + i * 7L;
+    }
+
+    // --- Main 方法：堆占用和查询吞吐对比 ---
+    // 参数: [条目数, 默认 10000000] [查询线程数, 默认 CPU 核数] [每轮毫秒数, 默认 2000]
+    // 1000 万条目的泛型缓存需要约 1GB 堆，建议使用 -Xmx3g 或更大的堆运行
+    public static void main(String[] args) throws InterruptedException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long durationMillis = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+
+        System.out.printf("条目数 %,d，查询线程 %d，每轮 %d ms\n", entries, threads, durationMillis);
+
+        // 查询用的 key 在测量堆占用之前装箱好，两次测量都不包含它们
+        Long[] keys = new Long[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = productId(i);
+        }
+        CacheBenchmarkSuite.KeyDistribution uniform = CacheBenchmarkSuite.uniform(entries);
+
+        // 1. 原始类型缓存
+        long before = usedHeapAfterGc();
+        LongLongReadWriteCache primitive = new LongLongReadWriteCache();
+        for (int i = 0; i < entries; i++) {
+            primitive.put(productId(i), i);
+        }
+        long primitiveBytes = usedHeapAfterGc() - before;
+        double primitiveOps = CacheBenchmarkSuite.throughput(CacheBenchmarkSuite.getThenPut(key -> {
+            long value = primitive.get(key, -1);
+            return value == -1 ? null : value;
+        }, primitive::put), uniform, keys, threads, 100, durationMillis);
+        System.out.printf("%-30s 每条目 %6.1f 字节，查询 %,.0f ops/s\n",
+                "LongLongReadWriteCache", (double) primitiveBytes / entries, primitiveOps);
+        primitive.clear();
+
+        // 2. 泛型缓存：每个条目是 HashMap.Node + 两个 Long
+        before = usedHeapAfterGc();
+        ReadWriteLockCacheDemo.ReadWriteCache<Long, Long> generic = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+        for (int i = 0; i < entries; i++) {
+            generic.put(productId(i), (long) i);
+        }
+        long genericBytes = usedHeapAfterGc() - before;
+        double genericOps = CacheBenchmarkSuite.throughput(CacheBenchmarkSuite.getThenPut(generic::get, generic::put),
+                uniform, keys, threads, 100, durationMillis);
+        System.out.printf("%-30s 每条目 %6.1f 字节，查询 %,.0f ops/s\n",
+                "ReadWriteCache<Long, Long>", (double) genericBytes / entries, genericOps);
+
+        System.out.printf("\n内存节省 %.1f 倍，查询吞吐 %.2f 倍\n",
+                (double) genericBytes / primitiveBytes, primitiveOps / genericOps);
+    }
+}
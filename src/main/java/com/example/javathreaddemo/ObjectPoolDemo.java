@@ -0,0 +1,624 @@
+package com.example.javathreaddemo;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 对象池 Demo:
+ * SemaphoreDemo 只用信号量限制了"同时访问资源的线程数"，资源本身并没有复用。
+ * 秒杀链路上的编码器、直接内存缓冲区、本地存储连接创建代价高，需要真正池化：
+ * <ul>
+ *     <li>容量：Semaphore 的许可数就是池的上限，池满时 borrow 在信号量上等待 (可超时)</li>
+ *     <li>空闲对象：无锁的 Treiber 栈，外加每个线程一个"上次归还的对象"快速槽，同一线程反复借还时不碰共享结构</li>
+ *     <li>借出时校验 (失败则销毁重建)、空闲超时回收、借出太久未归还的泄漏检测</li>
+ *     <li>每次借出返回新的 Lease，带有这次借出的编号；过期的 Lease (已归还后又 close 或 get) 会被拒绝，
+ *     不会误还别人正在使用的对象</li>
+ * </ul>
+ * main 方法在不同线程数下对比它与 synchronized + wait/notify 实现的借还延迟。
+ */
+public class ObjectPoolDemo {
+
+    /**
+     * 一次借出；用完必须调用 close 归还 (适合 try-with-resources)
+     */
+    interface Lease<T> extends AutoCloseable {
+        T get();
+
+        @Override
+        void close();
+    }
+
+    interface ObjectPool<T> {
+        /**
+         * @return 借到的对象；超时返回 null
+         */
+        Lease<T> borrow(long timeout, TimeUnit unit) throws InterruptedException;
+    }
+
+    static class BoundedObjectPool<T> implements ObjectPool<T>, AutoCloseable {
+
+        // 状态的低 2 位
+        private static final int IDLE = 0;
+        private static final int BORROWED = 1;
+        private static final int REMOVED = 2;
+        // 归还中：已确认是当前这次借出的归还，正在清理借用信息，此时不能被借出
+        private static final int RETURNING = 3;
+        private static final int STATUS_BITS = 2;
+        private static final long STATUS_MASK = (1 << STATUS_BITS) - 1;
+
+        private static int status(long state) {
+            return (int) (state & STATUS_MASK);
+        }
+
+        private static long withStatus(long state, int status) {
+            return (state & ~STATUS_MASK) | status;
+        }
+
+        /**
+         * 池中的一个对象；状态只能通过 CAS 改变，谁 CAS 成功谁拥有它，
+         * 因此同一个对象短暂地同时出现在空闲栈和某个线程的快速槽里也不会被借出两次。
+         * state 的高位是借出编号，每次借出加一，低 2 位是状态，编号和状态一起 CAS，过期的 Lease 无法再改变状态
+         */
+        final class Entry {
+            final T object;
+            final AtomicLong state = new AtomicLong(IDLE);
+            volatile long lastReturnedNanos = System.nanoTime();
+            volatile long borrowedAtNanos;
+            volatile Thread borrower;
+            volatile Throwable borrowSite;
+            volatile boolean leakReported;
+
+            Entry(T object) {
+                this.object = object;
+            }
+        }
+
+        /**
+         * 一次借出，记录借出时的 state (含借出编号)
+         */
+        final class PooledLease implements Lease<T> {
+            final Entry entry;
+            final long borrowedState;
+
+            PooledLease(Entry entry, long borrowedState) {
+                this.entry = entry;
+                this.borrowedState = borrowedState;
+            }
+
+            @Override
+            public T get() {
+                if (entry.state.get() != borrowedState) {
+                    throw new IllegalStateException("Lease is closed");
+                }
+                return entry.object;
+            }
+
+            @Override
+            public void close() {
+                release(this);
+            }
+        }
+
+        // Treiber 栈的节点；每次入栈都新建节点，出栈的节点不再复用，因此不存在 ABA 问题
+        private static final class Node<E> {
+            final E entry;
+            Node<E> next;
+
+            Node(E entry) {
+                this.entry = entry;
+            }
+        }
+
+        private final int maxSize;
+        private final Supplier<T> factory;
+        private final Predicate<T> validator;
+        private final Consumer<T> destroyer;
+        private final long maxIdleNanos;
+        private final long leakThresholdNanos;
+        private final boolean recordBorrowSite;
+
+        private final Semaphore permits;
+        private final AtomicReference<Node<Entry>> freeList = new AtomicReference<>();
+        private final ThreadLocal<Object[]> fastSlot = ThreadLocal.withInitial(() -> new Object[1]);
+        private final Set<Entry> allEntries = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger liveCount = new AtomicInteger();
+        private final ScheduledExecutorService housekeeper;
+        private volatile boolean closed;
+
+        private final LongAdder created = new LongAdder();
+        private final LongAdder destroyed = new LongAdder();
+        private final LongAdder evicted = new LongAdder();
+        private final LongAdder validationFailures = new LongAdder();
+        private final LongAdder leaksDetected = new LongAdder();
+        private final LongAdder fastSlotHits = new LongAdder();
+        private final LongAdder borrows = new LongAdder();
+
+        /**
+         * 不做校验、不回收空闲对象、不检测泄漏的池
+         */
+        BoundedObjectPool(int maxSize, Supplier<T> factory) {
+            this(maxSize, factory, object -> true, object -> {
+            }, 0, 0, false);
+        }
+
+        /**
+         * @param validator          借出前校验对象是否可用，返回 false 时销毁并换一个
+         * @param destroyer          销毁对象 (关闭连接、释放内存等)
+         * @param maxIdleMillis      空闲超过该时间的对象被回收，0 表示不回收
+         * @param leakThresholdMillis 借出超过该时间未归还视为泄漏并打印，0 表示不检测
+         * @param recordBorrowSite   是否记录借出时的调用栈 (便于定位泄漏，但每次借出都要创建异常对象)
+         */
+        BoundedObjectPool(int maxSize, Supplier<T> factory, Predicate<T> validator, Consumer<T> destroyer,
+                          long maxIdleMillis, long leakThresholdMillis, boolean recordBorrowSite) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("maxSize must be positive");
+            }
+            this.maxSize = maxSize;
+            this.factory = factory;
+            this.validator = validator;
+            this.destroyer = destroyer;
+            this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+            this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+            this.recordBorrowSite = recordBorrowSite;
+            this.permits = new Semaphore(maxSize);
+
+            long period = Math.min(maxIdleMillis > 0 ? maxIdleMillis : Long.MAX_VALUE,
+                    leakThresholdMillis > 0 ? leakThresholdMillis : Long.MAX_VALUE) / 2;
+            if (period < Long.MAX_VALUE / 2) {
+                housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "对象池巡检");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                period = Math.max(1, period);
+                housekeeper.scheduleWithFixedDelay(() -> {
+                    evictIdle();
+                    detectLeaks();
+                }, period, period, TimeUnit.MILLISECONDS);
+            } else {
+                housekeeper = null;
+            }
+        }
+
+        @Override
+        public Lease<T> borrow(long timeout, TimeUnit unit) throws InterruptedException {
+            if (closed) {
+                throw new IllegalStateException("Pool is closed");
+            }
+            if (!permits.tryAcquire(timeout, unit)) {
+                return null;
+            }
+            try {
+                Entry entry = acquireEntry();
+                // 已通过 CAS 拥有该对象，state 在归还前不会再被别人改变
+                long borrowedState = entry.state.get();
+                borrows.increment();
+                entry.borrowedAtNanos = System.nanoTime();
+                entry.borrower = Thread.currentThread();
+                entry.borrowSite = recordBorrowSite ? new Throwable("Borrowed here") : null;
+                entry.leakReported = false;
+                return new PooledLease(entry, borrowedState);
+            } catch (RuntimeException | Error e) {
+                // 创建对象失败时要把许可还回去，否则池的容量会永久变小
+                permits.release();
+                throw e;
+            }
+        }
+
+        /**
+         * 已持有许可，找一个对象：快速槽 -> 空闲栈 -> 新建 -> 扫描其他线程快速槽里的空闲对象。
+         * 持有许可说明借出中的对象少于 maxSize，因此这个循环最终一定能拿到对象
+         */
+        @SuppressWarnings("unchecked")
+        private Entry acquireEntry() {
+            Object[] slot = fastSlot.get();
+            Entry cached = (Entry) slot[0];
+            if (cached != null) {
+                slot[0] = null;
+                if (claim(cached)) {
+                    fastSlotHits.increment();
+                    return cached;
+                }
+            }
+            while (true) {
+                Entry entry;
+                while ((entry = pop()) != null) {
+                    // 栈里可能有已被别的线程从快速槽借走或已被回收的对象，CAS 失败就跳过
+                    if (claim(entry)) {
+                        return entry;
+                    }
+                }
+                int live = liveCount.get();
+                if (live < maxSize) {
+                    if (liveCount.compareAndSet(live, live + 1)) {
+                        return create();
+                    }
+                    continue;
+                }
+                // 池已满且栈为空：空闲对象都在其他线程的快速槽里，直接从那里抢
+                for (Entry candidate : allEntries) {
+                    if (claim(candidate)) {
+                        return candidate;
+                    }
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        // IDLE -> BORROWED 并把借出编号加一，然后做借出校验；校验失败的对象被销毁，返回 false
+        private boolean claim(Entry entry) {
+            long state = entry.state.get();
+            if (status(state) != IDLE
+                    || !entry.state.compareAndSet(state, withStatus(state + (1 << STATUS_BITS), BORROWED))) {
+                return false;
+            }
+            boolean valid;
+            try {
+                valid = validator.test(entry.object);
+            } catch (RuntimeException e) {
+                valid = false;
+            }
+            if (!valid) {
+                validationFailures.increment();
+                destroy(entry);
+                return false;
+            }
+            return true;
+        }
+
+        private Entry create() {
+            T object;
+            try {
+                object = factory.get();
+            } catch (RuntimeException | Error e) {
+                liveCount.decrementAndGet();
+                throw e;
+            }
+            Entry entry = new Entry(object);
+            entry.state.set(withStatus(1 << STATUS_BITS, BORROWED));
+            allEntries.add(entry);
+            created.increment();
+            return entry;
+        }
+
+        // IDLE -> REMOVED，成功表示拥有该对象，可以销毁
+        private static boolean tryRemoveIdle(AtomicLong state) {
+            long current = state.get();
+            return status(current) == IDLE && state.compareAndSet(current, withStatus(current, REMOVED));
+        }
+
+        // 调用方必须已经通过 CAS 拥有该对象 (状态为 BORROWED 或刚从 IDLE 改为 REMOVED)
+        private void destroy(Entry entry) {
+            entry.state.set(withStatus(entry.state.get(), REMOVED));
+            if (allEntries.remove(entry)) {
+                liveCount.decrementAndGet();
+                destroyed.increment();
+                try {
+                    destroyer.accept(entry.object);
+                } catch (RuntimeException e) {
+                    System.err.println("销毁池对象失败: " + e);
+                }
+            }
+        }
+
+        private void release(PooledLease lease) {
+            Entry entry = lease.entry;
+            // 先用 CAS 确认这是当前这次借出的归还，再修改其他字段；过期的 Lease 在这里失败，不会碰别人的借用信息
+            if (!entry.state.compareAndSet(lease.borrowedState, withStatus(lease.borrowedState, RETURNING))) {
+                throw new IllegalStateException("Lease already closed");
+            }
+            entry.borrower = null;
+            entry.borrowSite = null;
+            entry.lastReturnedNanos = System.nanoTime();
+            if (closed) {
+                destroy(entry);
+            } else {
+                entry.state.set(withStatus(lease.borrowedState, IDLE));
+                Object[] slot = fastSlot.get();
+                if (slot[0] == null) {
+                    // 放进本线程的快速槽，下次本线程借用时不需要碰共享的栈
+                    slot[0] = entry;
+                } else {
+                    push(entry);
+                }
+            }
+            // 先让对象可见再释放许可，拿到许可的线程才能保证找得到对象
+            permits.release();
+        }
+
+        /**
+         * 不归还而是销毁一个借出的对象 (例如使用中发现连接已断开)，许可照常释放
+         */
+        void invalidate(Lease<T> lease) {
+            PooledLease pooled = (PooledLease) lease;
+            if (!pooled.entry.state.compareAndSet(pooled.borrowedState, withStatus(pooled.borrowedState, REMOVED))) {
+                throw new IllegalStateException("Lease already closed");
+            }
+            destroy(pooled.entry);
+            permits.release();
+        }
+
+        private void push(Entry entry) {
+            Node<Entry> node = new Node<>(entry);
+            while (true) {
+                Node<Entry> head = freeList.get();
+                node.next = head;
+                if (freeList.compareAndSet(head, node)) {
+                    return;
+                }
+            }
+        }
+
+        private Entry pop() {
+            while (true) {
+                Node<Entry> head = freeList.get();
+                if (head == null) {
+                    return null;
+                }
+                if (freeList.compareAndSet(head, head.next)) {
+                    return head.entry;
+                }
+            }
+        }
+
+        /**
+         * 回收空闲超过 maxIdleMillis 的对象
+         *
+         * @return 回收的个数
+         */
+        int evictIdle() {
+            if (maxIdleNanos <= 0) {
+                return 0;
+            }
+            int count = 0;
+            long now = System.nanoTime();
+            for (Entry entry : allEntries) {
+                if (now - entry.lastReturnedNanos > maxIdleNanos && tryRemoveIdle(entry.state)) {
+                    destroy(entry);
+                    evicted.increment();
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * 找出借出超过 leakThresholdMillis 仍未归还的对象，每个对象每次借出只报告一次
+         *
+         * @return 本次新发现的疑似泄漏个数
+         */
+        int detectLeaks() {
+            if (leakThresholdNanos <= 0) {
+                return 0;
+            }
+            int count = 0;
+            long now = System.nanoTime();
+            for (Entry entry : allEntries) {
+                Thread borrower = entry.borrower;
+                if (status(entry.state.get()) == BORROWED && borrower != null && !entry.leakReported
+                        && now - entry.borrowedAtNanos > leakThresholdNanos) {
+                    entry.leakReported = true;
+                    leaksDetected.increment();
+                    count++;
+                    System.err.printf("疑似泄漏: 对象被线程 %s 借出 %d ms 未归还\n", borrower.getName(),
+                            TimeUnit.NANOSECONDS.toMillis(now - entry.borrowedAtNanos));
+                    Throwable site = entry.borrowSite;
+                    if (site != null) {
+                        site.printStackTrace();
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * 关闭后不能再借出；空闲对象立即销毁，借出中的对象归还时销毁
+         */
+        @Override
+        public void close() {
+            closed = true;
+            if (housekeeper != null) {
+                housekeeper.shutdownNow();
+            }
+            for (Entry entry : allEntries) {
+                if (tryRemoveIdle(entry.state)) {
+                    destroy(entry);
+                }
+            }
+        }
+
+        int liveCount() {
+            return liveCount.get();
+        }
+
+        int availablePermits() {
+            return permits.availablePermits();
+        }
+
+        long createdCount() {
+            return created.sum();
+        }
+
+        long destroyedCount() {
+            return destroyed.sum();
+        }
+
+        long evictedCount() {
+            return evicted.sum();
+        }
+
+        long validationFailureCount() {
+            return validationFailures.sum();
+        }
+
+        long leakCount() {
+            return leaksDetected.sum();
+        }
+
+        /**
+         * 从本线程快速槽直接借到对象的比例
+         */
+        double fastSlotHitRatio() {
+            long total = borrows.sum();
+            return total == 0 ? 0 : (double) fastSlotHits.sum() / total;
+        }
+    }
+
+    /**
+     * 对照组：synchronized + wait/notify，所有借还都竞争同一把锁
+     */
+    static class SynchronizedObjectPool<T> implements ObjectPool<T> {
+        private final ArrayDeque<T> idle = new ArrayDeque<>();
+        private final Supplier<T> factory;
+        private final int maxSize;
+        private int live;
+
+        SynchronizedObjectPool(int maxSize, Supplier<T> factory) {
+            this.maxSize = maxSize;
+            this.factory = factory;
+        }
+
+        @Override
+        public synchronized Lease<T> borrow(long timeout, TimeUnit unit) throws InterruptedException {
+            long remaining = unit.toNanos(timeout);
+            long deadline = System.nanoTime() + remaining;
+            while (idle.isEmpty() && live == maxSize) {
+                if (remaining <= 0) {
+                    return null;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+            T object;
+            if (idle.isEmpty()) {
+                object = factory.get();
+                live++;
+            } else {
+                object = idle.pop();
+            }
+            return new Lease<>() {
+                @Override
+                public T get() {
+                    return object;
+                }
+
+                @Override
+                public void close() {
+                    giveBack(object);
+                }
+            };
+        }
+
+        private synchronized void giveBack(T object) {
+            idle.push(object);
+            notify();
+        }
+    }
+
+    // ===================== 借还延迟测试 =====================
+
+    /**
+     * threads 个线程各自循环 iterations 次"借出 -> 写几个字节 -> 归还"，
+     * 返回 [总耗时纳秒, p50 纳秒, p99 纳秒]，延迟每 16 次采样一次
+     */
+    static long[] runContention(ObjectPool<ByteBuffer> pool, int threads, int iterations) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<long[]> samples = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long[] local = new long[iterations / 16];
+            samples.add(local);
+            new Thread(() -> {
+                try {
+                    ready.countDown();
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        long begin = (i & 15) == 0 ? System.nanoTime() : 0;
+                        try (Lease<ByteBuffer> lease = pool.borrow(1, TimeUnit.SECONDS)) {
+                            ByteBuffer buffer = lease.get();
+                            buffer.clear();
+                            buffer.putLong(i);
+                        }
+                        if (begin != 0 && (i >> 4) < local.length) {
+                            local[i >> 4] = System.nanoTime() - begin;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "借用线程-" + t).start();
+        }
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        long[] sorted = samples.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new long[]{elapsed, sorted[sorted.length / 2], sorted[(int) (sorted.length * 0.99)]};
+    }
+
+    // --- Main 方法 ---
+    // 参数: [池大小, 默认 8] [每线程借还次数, 默认 200000] [缓冲区 KB, 默认 64]
+    public static void main(String[] args) throws InterruptedException {
+        int poolSize = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int bufferKb = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        Supplier<ByteBuffer> factory = () -> ByteBuffer.allocateDirect(bufferKb * 1024);
+
+        // 1. 功能演示：校验失败重建、空闲回收、泄漏检测
+        try (BoundedObjectPool<ByteBuffer> pool = new BoundedObjectPool<>(3, factory,
+                buffer -> buffer.capacity() == bufferKb * 1024, buffer -> System.out.println("销毁一个缓冲区"),
+                200, 300, true)) {
+            Lease<ByteBuffer> leaked = pool.borrow(1, TimeUnit.SECONDS);
+            try (Lease<ByteBuffer> lease = pool.borrow(1, TimeUnit.SECONDS)) {
+                lease.get().putInt(42);
+            }
+            System.out.printf("借出 1 个未归还，当前存活 %d 个，可用许可 %d\n", pool.liveCount(), pool.availablePermits());
+            Thread.sleep(600);
+            System.out.printf("600 ms 后：空闲回收 %d 个，发现疑似泄漏 %d 个，存活 %d 个\n",
+                    pool.evictedCount(), pool.leakCount(), pool.liveCount());
+            leaked.close();
+        }
+
+        // 2. 借还延迟：线程数从 1 增加到池大小的 4 倍
+        System.out.printf("\n池大小 %d，每线程 %,d 次借还，CPU 核数 %d\n", poolSize, iterations,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-14s %6s %14s %10s %10s %10s\n", "实现", "线程", "借还次数/秒", "p50(ns)", "p99(ns)", "快速槽命中");
+        for (int threads : new int[]{1, 2, 4, poolSize, poolSize * 4}) {
+            BoundedObjectPool<ByteBuffer> lockFree = new BoundedObjectPool<>(poolSize, factory);
+            SynchronizedObjectPool<ByteBuffer> synchronizedPool = new SynchronizedObjectPool<>(poolSize, factory);
+            // 预热一轮
+            runContention(lockFree, threads, iterations / 10);
+            runContention(synchronizedPool, threads, iterations / 10);
+
+            long[] result = runContention(lockFree, threads, iterations);
+            System.out.printf("%-14s %6d %,14.0f %10d %10d %9.1f%%\n", "信号量+无锁栈", threads,
+                    (double) threads * iterations * 1e9 / result[0], result[1], result[2], lockFree.fastSlotHitRatio() * 100);
+            result = runContention(synchronizedPool, threads, iterations);
+            System.out.printf("%-14s %6d %,14.0f %10d %10d %10s\n", "synchronized", threads,
+                    (double) threads * iterations * 1e9 / result[0], result[1], result[2], "-");
+            lockFree.close();
+        }
+    }
+}
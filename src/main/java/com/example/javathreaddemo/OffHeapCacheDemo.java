@@ -0,0 +1,454 @@
+package com.example.javathreaddemo;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 堆外 (off-heap) 存储缓存 Demo:
+ * value 序列化后存放在直接内存 (DirectByteBuffer) 的 slab 中，按大小分级 (size class) 分配，
+ * 堆上只保留 key -> 地址(long) 的索引，大量缓存数据不再参与 GC 的标记和复制。
+ */
+public class OffHeapCacheDemo {
+
+    /**
+     * value 与字节数组之间的转换
+     */
+    interface ValueSerializer<V> {
+        byte[] serialize(V value);
+
+        V deserialize(byte[] bytes);
+    }
+
+    static final ValueSerializer<String> STRING_SERIALIZER = new ValueSerializer<>() {
+        public byte[] serialize(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        public String deserialize(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    static final ValueSerializer<Long> LONG_SERIALIZER = new ValueSerializer<>() {
+        public byte[] serialize(Long value) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(0, value).array();
+        }
+
+        public Long deserialize(byte[] bytes) {
+            return ByteBuffer.wrap(bytes).getLong(0);
+        }
+    };
+
+    static final ValueSerializer<byte[]> BYTES_SERIALIZER = new ValueSerializer<>() {
+        public byte[] serialize(byte[] value) {
+            return value;
+        }
+
+        public byte[] deserialize(byte[] bytes) {
+            return bytes;
+        }
+    };
+
+    /**
+     * memcached 风格的 slab 分配器 (非线程安全，由调用方加锁):
+     * - 直接内存按 slabSize 切成若干 slab，按需分配，总数不超过 maxSlabs；
+     * - 大小级别从 64 字节开始按 1.25 倍增长，每个级别从整块 slab 中切出等长的 chunk；
+     * - 释放的 chunk 进入所在级别的空闲栈，下次同级别分配时复用。
+     * 地址编码为 (slab 下标 << 32) | slab 内偏移。
+     * <p>
+     * slab 一旦切给某个级别就不再归还 (和 memcached 不开 slab_reassign 时一样)：maxSlabs 个 slab 都切完后，
+     * 某个级别没有空闲 chunk 就分配失败，即使其它级别还有大量空闲 chunk。只有 reset() 会把所有 slab 收回重新分配。
+     */
+    static class SlabAllocator {
+        private static final int MIN_CHUNK = 64;
+        private static final double GROWTH_FACTOR = 1.25;
+
+        private final int slabSize;
+        private final int maxSlabs;
+        private final List<ByteBuffer> slabs = new ArrayList<>();
+        // 已切给某个级别的 slab 数；reset() 后已申请的 slab 从头复用，不再向操作系统申请
+        private int carvedSlabs;
+        private final int[] chunkSizes;
+        private final long[][] freeStacks;
+        private final int[] freeCounts;
+
+        SlabAllocator(int slabSize, int maxSlabs) {
+            this.slabSize = slabSize;
+            this.maxSlabs = maxSlabs;
+            List<Integer> sizes = new ArrayList<>();
+            int size = MIN_CHUNK;
+            while (size < slabSize) {
+                sizes.add(size);
+                // 8 字节对齐
+                size = (int) Math.min(slabSize, ((long) (size * GROWTH_FACTOR) + 7) & ~7L);
+            }
+            sizes.add(slabSize);
+            this.chunkSizes = sizes.stream().mapToInt(Integer::intValue).toArray();
+            this.freeStacks = new long[chunkSizes.length][];
+            this.freeCounts = new int[chunkSizes.length];
+            for (int i = 0; i < chunkSizes.length; i++) {
+                freeStacks[i] = new long[16];
+            }
+        }
+
+        /**
+         * 分配至少 bytes 字节的 chunk，返回地址；没有可用内存时返回 -1
+         */
+        long allocate(int bytes) {
+            int sizeClass = sizeClassOf(bytes);
+            if (sizeClass < 0) {
+                return -1;
+            }
+            if (freeCounts[sizeClass] == 0 && !carveNewSlab(sizeClass)) {
+                return -1;
+            }
+            return freeStacks[sizeClass][--freeCounts[sizeClass]];
+        }
+
+        void free(long address, int bytes) {
+            int sizeClass = sizeClassOf(bytes);
+            long[] stack = freeStacks[sizeClass];
+            if (freeCounts[sizeClass] == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                freeStacks[sizeClass] = stack;
+            }
+            stack[freeCounts[sizeClass]++] = address;
+        }
+
+        ByteBuffer slabOf(long address) {
+            return slabs.get((int) (address >>> 32));
+        }
+
+        static int offsetOf(long address) {
+            return (int) address;
+        }
+
+        /**
+         * 两个长度是否落在同一个大小级别
+         */
+        boolean sameSizeClass(int bytes, int otherBytes) {
+            return sizeClassOf(bytes) == sizeClassOf(otherBytes);
+        }
+
+        /**
+         * 丢弃所有已分配的 chunk，slab 不再属于任何级别 (调用方保证不再使用旧地址)
+         */
+        void reset() {
+            carvedSlabs = 0;
+            Arrays.fill(freeCounts, 0);
+        }
+
+        long allocatedBytes() {
+            return (long) slabs.size() * slabSize;
+        }
+
+        private int sizeClassOf(int bytes) {
+            int index = Arrays.binarySearch(chunkSizes, bytes);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < chunkSizes.length ? index : -1;
+        }
+
+        // 给 sizeClass 分配一整块新 slab 并切成 chunk
+        private boolean carveNewSlab(int sizeClass) {
+            if (carvedSlabs >= maxSlabs) {
+                return false;
+            }
+            int slabIndex = carvedSlabs++;
+            if (slabIndex == slabs.size()) {
+                slabs.add(ByteBuffer.allocateDirect(slabSize));
+            }
+            int chunkSize = chunkSizes[sizeClass];
+            int chunks = slabSize / chunkSize;
+            long[] stack = freeStacks[sizeClass];
+            if (stack.length < freeCounts[sizeClass] + chunks) {
+                stack = Arrays.copyOf(stack, freeCounts[sizeClass] + chunks);
+                freeStacks[sizeClass] = stack;
+            }
+            // 倒序压栈，让低地址的 chunk 先被分配
+            for (int i = chunks - 1; i >= 0; i--) {
+                stack[freeCounts[sizeClass]++] = ((long) slabIndex << 32) | ((long) i * chunkSize);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 堆外缓存：锁语义与 ReadWriteLockCacheDemo.ReadWriteCache 相同。
+     * chunk 布局为 [4 字节长度][序列化后的 value]；读操作在读锁内用绝对位置的 get 直接从 slab 拷贝到堆上的 byte[]，
+     * 不修改 ByteBuffer 的 position，所以多个读者可以并发读取同一个 slab。
+     */
+    static class OffHeapCache<K, V> {
+        private static final int HEADER_BYTES = 4;
+
+        private final Map<K, Long> index = new HashMap<>();
+        private final SlabAllocator allocator;
+        private final ValueSerializer<V> serializer;
+        private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+        private final Lock readLock = rwLock.readLock();
+        private final Lock writeLock = rwLock.writeLock();
+        private long storedBytes;
+
+        /**
+         * @param slabSize 每个 slab 的字节数，也是单个 value 的上限 (含 4 字节头)
+         * @param maxBytes 堆外内存总上限
+         */
+        public OffHeapCache(ValueSerializer<V> serializer, int slabSize, long maxBytes) {
+            this.serializer = serializer;
+            this.allocator = new SlabAllocator(slabSize, (int) Math.max(1, maxBytes / slabSize));
+        }
+
+        public V get(K key) {
+            readLock.lock();
+            try {
+                Long address = index.get(key);
+                if (address == null) {
+                    return null;
+                }
+                ByteBuffer slab = allocator.slabOf(address);
+                int offset = SlabAllocator.offsetOf(address);
+                byte[] bytes = new byte[slab.getInt(offset)];
+                slab.get(offset + HEADER_BYTES, bytes, 0, bytes.length);
+                return serializer.deserialize(bytes);
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        /**
+         * 写入 value；堆外内存不足 (或 value 超过 slab 大小) 时返回 false，原有的值保持不变。
+         * 缓存不会为了腾出空间而淘汰条目，slab 也不会在级别之间转移 (见 SlabAllocator)：
+         * 堆外内存全部切完后，只有所在级别还有空闲 chunk 的 value 能写入，
+         * 覆盖写入同一级别的 value 总能成功；value 大小分布变化后需要 clear() 才能重新划分 slab。
+         */
+        public boolean put(K key, V value) {
+            // 序列化放在锁外，缩短写锁持有时间
+            byte[] bytes = serializer.serialize(value);
+            writeLock.lock();
+            try {
+                Long existing = index.get(key);
+                if (existing != null && allocator.sameSizeClass(lengthAt(existing) + HEADER_BYTES, bytes.length + HEADER_BYTES)) {
+                    // 新旧 value 在同一级别：先释放旧 chunk，下面的分配会直接复用它，满载时也不会失败
+                    index.remove(key);
+                    release(existing);
+                }
+                long address = allocator.allocate(bytes.length + HEADER_BYTES);
+                if (address < 0) {
+                    return false;
+                }
+                ByteBuffer slab = allocator.slabOf(address);
+                int offset = SlabAllocator.offsetOf(address);
+                slab.putInt(offset, bytes.length);
+                slab.put(offset + HEADER_BYTES, bytes, 0, bytes.length);
+                Long previous = index.put(key, address);
+                if (previous != null) {
+                    release(previous);
+                }
+                storedBytes += bytes.length;
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        public boolean remove(K key) {
+            writeLock.lock();
+            try {
+                Long address = index.remove(key);
+                if (address == null) {
+                    return false;
+                }
+                release(address);
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        public void clear() {
+            writeLock.lock();
+            try {
+                // 所有 chunk 都不再使用，整体重置分配器，让 slab 可以重新切给其它级别
+                allocator.reset();
+                index.clear();
+                storedBytes = 0;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        public int size() {
+            readLock.lock();
+            try {
+                return index.size();
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        /**
+         * 当前存放的 value 字节数 (不含 chunk 内部碎片)
+         */
+        public long storedBytes() {
+            readLock.lock();
+            try {
+                return storedBytes;
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        /**
+         * 已向操作系统申请的直接内存字节数
+         */
+        public long offHeapBytes() {
+            readLock.lock();
+            try {
+                return allocator.allocatedBytes();
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        // 必须持有写锁
+        private int lengthAt(long address) {
+            return allocator.slabOf(address).getInt(SlabAllocator.offsetOf(address));
+        }
+
+        // 必须持有写锁
+        private void release(long address) {
+            int length = lengthAt(address);
+            storedBytes -= length;
+            allocator.free(address, length + HEADER_BYTES);
+        }
+    }
+
+    /**
+     * 通过 GC 通知记录每次停顿的时长
+     */
+    static class GcPauseRecorder {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMillis = new AtomicLong();
+        private final AtomicLong maxMillis = new AtomicLong();
+        private final NotificationListener listener = (notification, handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                long duration = info.getGcInfo().getDuration();
+                count.incrementAndGet();
+                totalMillis.addAndGet(duration);
+                maxMillis.accumulateAndGet(duration, Math::max);
+            }
+        };
+
+        void start() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+            }
+        }
+
+        void stop() throws Exception {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).removeNotificationListener(listener);
+            }
+        }
+
+        String report() {
+            return String.format("GC 次数 %d，总停顿 %d ms，最长停顿 %d ms", count.get(), totalMillis.get(), maxMillis.get());
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 填满 totalBytes 的数据后，再用随机覆盖写 + 读的方式持续运行 durationMillis 毫秒，
+     * 期间记录 GC 停顿；返回填充后的堆占用
+     */
+    static long fillAndChurn(Function<Integer, byte[]> getter, BiConsumer<Integer, byte[]> putter, int entries, int valueBytes, long durationMillis, GcPauseRecorder recorder)
+            throws Exception {
+        long before = usedHeapAfterGc();
+        byte[] template = new byte[valueBytes];
+        for (int i = 0; i < entries; i++) {
+            // 每个 value 都是独立的数组，模拟真实的缓存数据
+            putter.accept(i, template.clone());
+        }
+        long heapBytes = usedHeapAfterGc() - before;
+
+        recorder.start();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        long checksum = 0;
+        while (System.nanoTime() < end) {
+            int key = random.nextInt(entries);
+            if (random.nextInt(10) == 0) {
+                putter.accept(key, template.clone());
+            } else {
+                byte[] value = getter.apply(key);
+                checksum += value == null ? 0 : value.length;
+            }
+        }
+        recorder.stop();
+        Blackhole.consume(checksum);
+        return heapBytes;
+    }
+
+    // --- Main 方法：GC 停顿和堆占用对比 ---
+    // 参数: [缓存数据总 MB, 默认 1024] [单个 value 字节数, 默认 4096] [运行毫秒数, 默认 10000]
+    // 数 GB 的数据需要相应调大 -Xmx 和 -XX:MaxDirectMemorySize，例如缓存 2GB 时: -Xmx4g -XX:MaxDirectMemorySize=3g
+    public static void main(String[] args) throws Exception {
+        long totalMb = args.length > 0 ? Long.parseLong(args[0]) : 1024;
+        int valueBytes = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        long durationMillis = args.length > 2 ? Long.parseLong(args[2]) : 10_000;
+        int entries = (int) (totalMb * 1024 * 1024 / valueBytes);
+
+        System.out.printf("缓存数据 %d MB (%,d 个 %d 字节的 value)，覆盖写 10%% + 读 90%%，运行 %d ms\n",
+                totalMb, entries, valueBytes, durationMillis);
+
+        // 1. 堆外缓存：slab 64MB，预留 25% 给 size class 的内部碎片
+        OffHeapCache<Integer, byte[]> offHeap = new OffHeapCache<>(BYTES_SERIALIZER, 64 * 1024 * 1024, totalMb * 1024 * 1024 * 5 / 4);
+        GcPauseRecorder offHeapGc = new GcPauseRecorder();
+        long offHeapHeap = fillAndChurn(offHeap::get, offHeap::put, entries, valueBytes, durationMillis, offHeapGc);
+        System.out.printf("%-16s 堆占用 %5d MB，堆外 %5d MB，%s\n", "OffHeapCache",
+                offHeapHeap >> 20, offHeap.offHeapBytes() >> 20, offHeapGc.report());
+        offHeap.clear();
+
+        // 2. 堆上缓存
+        ReadWriteLockCacheDemo.ReadWriteCache<Integer, byte[]> onHeap = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+        GcPauseRecorder onHeapGc = new GcPauseRecorder();
+        long onHeapHeap = fillAndChurn(onHeap::get, onHeap::put, entries, valueBytes, durationMillis, onHeapGc);
+        System.out.printf("%-16s 堆占用 %5d MB，堆外 %5d MB，%s\n", "ReadWriteCache", onHeapHeap >> 20, 0, onHeapGc.report());
+
+        // 3. 字符串 value 的简单读写
+        OffHeapCache<String, String> strings = new OffHeapCache<>(STRING_SERIALIZER, 1024 * 1024, 4 * 1024 * 1024);
+        strings.put("product-1", "秒杀商品详情...");
+        System.out.println("\n字符串读写: " + strings.get("product-1"));
+    }
+}
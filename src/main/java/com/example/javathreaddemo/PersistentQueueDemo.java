@@ -0,0 +1,462 @@
+package com.example.javathreaddemo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 基于内存映射文件的持久化阻塞队列 Demo (秒杀受理 -> 订单处理 之间的交接):
+ * 与 BlockingBuffer 相同的 put/take 阻塞语义和容量上限，但元素写在内存映射的段文件里，进程崩溃重启后不会丢失。
+ * <p>
+ * 存储格式：目录下若干个固定大小的段文件 segment-<序号>.dat，每条记录为 [int 长度][数据]，
+ * 长度为 0 表示后面还没有写入，-1 表示本段结束、继续读下一段。写入时先写数据再写长度，
+ * 因此进程在写一半时崩溃，重启后这条记录不可见。
+ * 消费者位置单独保存在 consumer.pos 中 (段序号和段内偏移编码成一个 long，一次写入)，生产者位置在重启时扫描得到。
+ * 消费者读完一个段就删除该段文件。
+ * <p>
+ * 刷盘策略可配置：每次写入都 force、每 N 次写入 force、后台定时 force，或者完全交给操作系统。
+ * take 返回的是映射内存的只读视图，读取不拷贝数据。
+ */
+public class PersistentQueueDemo {
+
+    /**
+     * 刷盘策略：决定什么时候调用 MappedByteBuffer.force() 把数据写到磁盘
+     */
+    static final class SyncPolicy {
+        // 每多少次 put/take 强制刷盘一次，0 表示不按次数刷盘
+        final int everyOps;
+        // 后台定时刷盘的间隔，0 表示不定时刷盘
+        final long intervalMillis;
+
+        private SyncPolicy(int everyOps, long intervalMillis) {
+            this.everyOps = everyOps;
+            this.intervalMillis = intervalMillis;
+        }
+
+        /**
+         * 每次 put/take 都刷盘：断电也不丢数据，最慢
+         */
+        static SyncPolicy always() {
+            return new SyncPolicy(1, 0);
+        }
+
+        /**
+         * 每 n 次 put/take 刷盘一次：断电最多丢最近 n - 1 条
+         */
+        static SyncPolicy everyOps(int n) {
+            if (n <= 0) {
+                throw new IllegalArgumentException("n must be positive");
+            }
+            return new SyncPolicy(n, 0);
+        }
+
+        /**
+         * 后台每 intervalMillis 毫秒刷盘一次：断电最多丢最近一个间隔的数据
+         */
+        static SyncPolicy interval(long intervalMillis) {
+            if (intervalMillis <= 0) {
+                throw new IllegalArgumentException("intervalMillis must be positive");
+            }
+            return new SyncPolicy(0, intervalMillis);
+        }
+
+        /**
+         * 不主动刷盘，交给操作系统：进程崩溃不丢数据 (页缓存还在)，断电可能丢失
+         */
+        static SyncPolicy none() {
+            return new SyncPolicy(0, 0);
+        }
+
+        @Override
+        public String toString() {
+            if (everyOps == 1) {
+                return "always";
+            }
+            if (everyOps > 1) {
+                return "every-" + everyOps;
+            }
+            return intervalMillis > 0 ? "interval-" + intervalMillis + "ms" : "none";
+        }
+    }
+
+    static class MappedPersistentQueue implements AutoCloseable {
+        private static final String SEGMENT_PREFIX = "segment-";
+        private static final String SEGMENT_SUFFIX = ".dat";
+        private static final String CONSUMER_POSITION_FILE = "consumer.pos";
+        private static final int RECORD_HEADER = Integer.BYTES;
+        private static final int END_OF_SEGMENT = -1;
+
+        private final Path directory;
+        private final int segmentSize;
+        private final int capacity;
+        private final SyncPolicy syncPolicy;
+
+        // 从消费者所在段到生产者所在段，所有仍然存在的段
+        private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+        private final MappedByteBuffer consumerPosition;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private final Condition notEmpty = lock.newCondition();
+
+        private long writeSegment;
+        private int writeOffset;
+        private long readSegment;
+        private int readOffset;
+        private int count;
+
+        // 生产者所在段中还没有 force 的起始偏移；计数到 everyOps 时刷盘
+        private int unsyncedFrom;
+        private int unsyncedPuts;
+        private int unsyncedTakes;
+        private final ScheduledExecutorService syncScheduler;
+        private boolean closed;
+
+        /**
+         * 打开 (或创建) directory 下的队列；已有数据时恢复生产者和消费者位置以及元素个数
+         *
+         * @param segmentSize 每个段文件的字节数，单条记录 (含 4 字节长度) 不能超过它
+         * @param capacity    最多容纳的元素个数，满时 put 阻塞
+         */
+        public MappedPersistentQueue(Path directory, int segmentSize, int capacity, SyncPolicy syncPolicy) throws IOException {
+            if (segmentSize < 64 || capacity <= 0) {
+                throw new IllegalArgumentException("segmentSize must be at least 64 and capacity positive");
+            }
+            this.directory = directory;
+            this.segmentSize = segmentSize;
+            this.capacity = capacity;
+            this.syncPolicy = syncPolicy;
+            Files.createDirectories(directory);
+
+            this.consumerPosition = map(directory.resolve(CONSUMER_POSITION_FILE), Long.BYTES);
+            long position = consumerPosition.getLong(0);
+            readSegment = position >>> 32;
+            readOffset = (int) position;
+
+            // 打开所有不早于消费者位置的段，更早的段是上次退出前没来得及删除的，直接删除
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                for (Path file : stream) {
+                    String name = file.getFileName().toString();
+                    long index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    if (index < readSegment) {
+                        Files.delete(file);
+                    } else {
+                        segments.put(index, map(file, segmentSize));
+                    }
+                }
+            }
+            if (segments.isEmpty()) {
+                segments.put(readSegment, map(segmentFile(readSegment), segmentSize));
+            } else if (!segments.containsKey(readSegment)) {
+                // 上次在删除旧段之后、保存消费者位置之前退出：从下一个段的开头继续
+                readSegment = segments.firstKey();
+                readOffset = 0;
+            }
+
+            // 从消费者位置向后扫描，得到元素个数和生产者位置
+            long segment = readSegment;
+            int offset = readOffset;
+            while (true) {
+                int length = recordLength(segments.get(segment), offset);
+                if (length == END_OF_SEGMENT && segments.containsKey(segment + 1)) {
+                    segment++;
+                    offset = 0;
+                } else if (length > 0) {
+                    count++;
+                    offset += RECORD_HEADER + length;
+                } else {
+                    break;
+                }
+            }
+            writeSegment = segment;
+            writeOffset = offset;
+            unsyncedFrom = offset;
+
+            if (syncPolicy.intervalMillis > 0) {
+                syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "队列刷盘线程-" + directory.getFileName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                syncScheduler.scheduleWithFixedDelay(this::syncQuietly, syncPolicy.intervalMillis,
+                        syncPolicy.intervalMillis, TimeUnit.MILLISECONDS);
+            } else {
+                syncScheduler = null;
+            }
+        }
+
+        /**
+         * 放入一条记录 (position 到 limit 之间的字节)；队列满时阻塞
+         *
+         * @throws IllegalArgumentException 如果记录为空或大于段文件能容纳的大小
+         */
+        public void put(ByteBuffer record) throws InterruptedException, IOException {
+            int length = record.remaining();
+            if (length == 0 || RECORD_HEADER + length > segmentSize) {
+                throw new IllegalArgumentException("Record length must be between 1 and " + (segmentSize - RECORD_HEADER));
+            }
+            lock.lockInterruptibly();
+            try {
+                ensureOpen();
+                while (count == capacity) {
+                    notFull.await();
+                    ensureOpen();
+                }
+                if (writeOffset + RECORD_HEADER + length > segmentSize) {
+                    rollOver();
+                }
+                MappedByteBuffer segment = segments.get(writeSegment);
+                // 先写数据，再写长度：长度不为 0 的记录一定是完整的
+                segment.put(writeOffset + RECORD_HEADER, record, record.position(), length);
+                segment.putInt(writeOffset, length);
+                writeOffset += RECORD_HEADER + length;
+                if (syncPolicy.everyOps > 0 && ++unsyncedPuts >= syncPolicy.everyOps) {
+                    syncWriteSegment();
+                }
+                count++;
+                // 每次都唤醒一个消费者：只在 0 -> 1 时唤醒的话，连续两次 put 只会叫醒两个等待者中的一个
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void put(byte[] record) throws InterruptedException, IOException {
+            put(ByteBuffer.wrap(record));
+        }
+
+        /**
+         * 取出一条记录；队列空时阻塞。
+         * 返回映射内存的只读视图 (零拷贝)，在队列关闭之前一直有效
+         */
+        public ByteBuffer take() throws InterruptedException, IOException {
+            lock.lockInterruptibly();
+            try {
+                ensureOpen();
+                while (count == 0) {
+                    notEmpty.await();
+                    ensureOpen();
+                }
+                int length = recordLength(segments.get(readSegment), readOffset);
+                if (length == END_OF_SEGMENT) {
+                    // 本段已经读完：删除段文件，转到下一段
+                    segments.remove(readSegment);
+                    Files.deleteIfExists(segmentFile(readSegment));
+                    readSegment++;
+                    readOffset = 0;
+                    length = recordLength(segments.get(readSegment), readOffset);
+                }
+                ByteBuffer record = segments.get(readSegment)
+                        .slice(readOffset + RECORD_HEADER, length)
+                        .asReadOnlyBuffer();
+                readOffset += RECORD_HEADER + length;
+                consumerPosition.putLong(0, (readSegment << 32) | readOffset);
+                if (syncPolicy.everyOps > 0 && ++unsyncedTakes >= syncPolicy.everyOps) {
+                    consumerPosition.force();
+                    unsyncedTakes = 0;
+                }
+                count--;
+                notFull.signal();
+                return record;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 取出一条记录并拷贝成字节数组
+         */
+        public byte[] takeBytes() throws InterruptedException, IOException {
+            ByteBuffer record = take();
+            byte[] bytes = new byte[record.remaining()];
+            record.get(bytes);
+            return bytes;
+        }
+
+        public int size() {
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 刷盘并关闭；阻塞在 put/take 上的线程会收到 IllegalStateException
+         */
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                syncWriteSegment();
+                consumerPosition.force();
+                closed = true;
+                notFull.signalAll();
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (syncScheduler != null) {
+                syncScheduler.shutdownNow();
+            }
+        }
+
+        private void rollOver() throws IOException {
+            MappedByteBuffer current = segments.get(writeSegment);
+            if (writeOffset + RECORD_HEADER <= segmentSize) {
+                current.putInt(writeOffset, END_OF_SEGMENT);
+            }
+            // 换段之前把旧段剩下的部分刷盘 (如果策略要求)
+            if (syncPolicy.everyOps > 0) {
+                current.force(unsyncedFrom, segmentSize - unsyncedFrom);
+            }
+            writeSegment++;
+            writeOffset = 0;
+            unsyncedFrom = 0;
+            segments.put(writeSegment, map(segmentFile(writeSegment), segmentSize));
+        }
+
+        // 必须持有 lock
+        private void syncWriteSegment() {
+            if (writeOffset > unsyncedFrom) {
+                segments.get(writeSegment).force(unsyncedFrom, writeOffset - unsyncedFrom);
+                unsyncedFrom = writeOffset;
+            }
+            unsyncedPuts = 0;
+        }
+
+        private void syncQuietly() {
+            lock.lock();
+            try {
+                if (!closed) {
+                    syncWriteSegment();
+                    consumerPosition.force();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void ensureOpen() {
+            if (closed) {
+                throw new IllegalStateException("Queue is closed");
+            }
+        }
+
+        private int recordLength(MappedByteBuffer segment, int offset) {
+            return offset + RECORD_HEADER > segmentSize ? END_OF_SEGMENT : segment.getInt(offset);
+        }
+
+        private Path segmentFile(long index) {
+            return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        }
+
+        private static MappedByteBuffer map(Path file, int size) throws IOException {
+            // 映射建立之后就不再依赖 channel，可以直接关闭
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * 一个生产者、一个消费者，传递 records 条 recordSize 字节的记录，返回每秒条数
+     */
+    static double throughput(Path directory, SyncPolicy policy, int records, int recordSize) throws Exception {
+        deleteRecursively(directory);
+        try (MappedPersistentQueue queue = new MappedPersistentQueue(directory, 64 * 1024 * 1024, 100_000, policy)) {
+            byte[] payload = new byte[recordSize];
+            CountDownLatch done = new CountDownLatch(1);
+            Thread consumer = new Thread(() -> {
+                try {
+                    long checksum = 0;
+                    for (int i = 0; i < records; i++) {
+                        checksum += queue.take().get(0);
+                    }
+                    Blackhole.consume(checksum);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            }, "订单处理线程");
+            long start = System.nanoTime();
+            consumer.start();
+            for (int i = 0; i < records; i++) {
+                payload[0] = (byte) i;
+                queue.put(payload);
+            }
+            done.await();
+            return records * 1e9 / (System.nanoTime() - start);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    // --- Main 方法 ---
+    // 参数: [每种策略的记录数, 默认 200000] [记录字节数, 默认 128]
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int recordSize = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        Path directory = Files.createTempDirectory("seckill-queue");
+
+        // 1. 重启恢复：放入 5 个订单，处理 2 个，关闭后重新打开，剩下的 3 个还在
+        Path restartDir = directory.resolve("restart");
+        try (MappedPersistentQueue queue = new MappedPersistentQueue(restartDir, 4096, 1000, SyncPolicy.always())) {
+            for (int i = 1; i <= 5; i++) {
+                queue.put(("订单-" + i).getBytes(StandardCharsets.UTF_8));
+            }
+            System.out.println("处理: " + new String(queue.takeBytes(), StandardCharsets.UTF_8));
+            System.out.println("处理: " + new String(queue.takeBytes(), StandardCharsets.UTF_8));
+        }
+        try (MappedPersistentQueue queue = new MappedPersistentQueue(restartDir, 4096, 1000, SyncPolicy.always())) {
+            System.out.println("重启后队列中还有 " + queue.size() + " 个订单");
+            while (queue.size() > 0) {
+                System.out.println("处理: " + new String(queue.takeBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        // 2. 各刷盘策略的吞吐
+        System.out.printf("\n%,d 条 %d 字节的记录，1 个生产者 / 1 个消费者\n", records, recordSize);
+        for (SyncPolicy policy : List.of(SyncPolicy.none(), SyncPolicy.interval(10), SyncPolicy.everyOps(1000),
+                SyncPolicy.always())) {
+            // always 每条记录都要 force，记录数减少到 1/100 以免运行太久
+            int n = policy.everyOps == 1 ? Math.max(1, records / 100) : records;
+            double opsPerSecond = throughput(directory.resolve("bench"), policy, n, recordSize);
+            System.out.printf("%-14s %,12.0f 条/秒\n", policy, opsPerSecond);
+        }
+        deleteRecursively(directory);
+    }
+}
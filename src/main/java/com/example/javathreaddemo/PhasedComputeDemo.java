@@ -0,0 +1,333 @@
+package com.example.javathreaddemo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+/**
+ * 基于 Phaser 的分阶段并行计算 Demo:
+ * CyclicBarrierDemo 里参与方固定为 3 个、阶段写死为两个。夜间库存对账这类迭代任务要跑很多轮，
+ * 参与的线程数也可能随机器负载增减。PhasedComputeEngine 把数据切成分片，每一轮 (phase):
+ * <ol>
+ *     <li>各工作线程从共享游标领取分片执行计算，把本线程的局部结果合并好</li>
+ *     <li>在 Phaser 上到达；最后一个到达的线程在 onAdvance 里归约所有局部结果，并判断是否收敛</li>
+ *     <li>收敛或达到最大轮数时 onAdvance 返回 true，Phaser 终止，所有线程退出</li>
+ * </ol>
+ * 分片按游标动态领取而不是按线程静态划分，因此可以随时 addWorker / removeWorker 增减参与方。
+ */
+public class PhasedComputeDemo {
+
+    /**
+     * 每一轮对一个分片的计算
+     */
+    interface Kernel<S, R> {
+        R compute(int phase, S shard);
+    }
+
+    /**
+     * 每一轮结束时在 onAdvance 中调用 (此时所有参与方都已到达，可以安全地修改共享状态)
+     */
+    interface PhaseListener<R> {
+        /**
+         * @return true 表示已收敛，停止计算
+         */
+        boolean onPhaseEnd(int phase, R reduced);
+    }
+
+    static final class ComputeResult<R> {
+        final int phases;
+        final boolean converged;
+        final R lastReduced;
+        final List<Long> phaseNanos;
+        final long elapsedNanos;
+
+        ComputeResult(int phases, boolean converged, R lastReduced, List<Long> phaseNanos, long elapsedNanos) {
+            this.phases = phases;
+            this.converged = converged;
+            this.lastReduced = lastReduced;
+            this.phaseNanos = phaseNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    static class PhasedComputeEngine<S, R> {
+        private final List<S> shards;
+        private final R identity;
+        private final BinaryOperator<R> combiner;
+        private final Kernel<S, R> kernel;
+        private final PhaseListener<R> listener;
+        private final int maxPhases;
+
+        private final Phaser phaser;
+        // 本轮下一个待领取的分片
+        private final AtomicInteger cursor = new AtomicInteger();
+        private final ConcurrentLinkedQueue<R> partials = new ConcurrentLinkedQueue<>();
+        // 等待退出的工作线程个数，由 removeWorker 设置，工作线程在轮次结束时认领
+        private final AtomicInteger pendingLeaves = new AtomicInteger();
+        // 没有被要求退出的工作线程数；removeWorker 用 CAS 扣减它，并发的退出请求不会把参与方减到 0
+        private final AtomicInteger retainedWorkers = new AtomicInteger();
+        private final AtomicInteger workerIds = new AtomicInteger();
+        private final CompletableFuture<ComputeResult<R>> done = new CompletableFuture<>();
+
+        // 以下字段只在 onAdvance 中修改，Phaser 的轮次推进保证了可见性
+        private final List<Long> phaseNanos = new ArrayList<>();
+        private long startNanos;
+        private long phaseStartNanos;
+        private int phasesRun;
+        private boolean converged;
+        private R lastReduced;
+        private volatile Throwable failure;
+
+        /**
+         * @param identity  归约的单位元 (例如求和时为 0，求最大值时为负无穷)
+         * @param combiner  合并两个局部结果，必须满足结合律
+         * @param maxPhases 最多运行的轮数
+         */
+        PhasedComputeEngine(List<S> shards, R identity, BinaryOperator<R> combiner, Kernel<S, R> kernel,
+                            PhaseListener<R> listener, int maxPhases) {
+            this.shards = List.copyOf(shards);
+            this.identity = identity;
+            this.combiner = combiner;
+            this.kernel = kernel;
+            this.listener = listener;
+            this.maxPhases = maxPhases;
+            this.phaser = new Phaser() {
+                @Override
+                protected boolean onAdvance(int phase, int registeredParties) {
+                    return advance(phase, registeredParties);
+                }
+            };
+        }
+
+        /**
+         * 启动 workers 个工作线程，计算结束 (收敛、达到最大轮数或出错) 时返回的 future 完成
+         */
+        CompletableFuture<ComputeResult<R>> start(int workers) {
+            if (workers <= 0) {
+                throw new IllegalArgumentException("workers must be positive");
+            }
+            startNanos = System.nanoTime();
+            phaseStartNanos = startNanos;
+            // 先一次性注册所有参与方再启动线程，避免先启动的线程单独走完第一轮
+            retainedWorkers.addAndGet(workers);
+            int phase = phaser.bulkRegister(workers);
+            for (int i = 0; i < workers; i++) {
+                startWorker(phase);
+            }
+            return done;
+        }
+
+        /**
+         * 增加一个工作线程，它从当前轮开始参与
+         */
+        void addWorker() {
+            retainedWorkers.incrementAndGet();
+            int phase = phaser.register();
+            if (phase < 0) {
+                retainedWorkers.decrementAndGet();
+                return; // 已经结束
+            }
+            startWorker(phase);
+        }
+
+        /**
+         * 让一个工作线程在本轮结束后退出；至少保留一个工作线程
+         *
+         * @return 是否接受了退出请求
+         */
+        boolean removeWorker() {
+            while (true) {
+                int retained = retainedWorkers.get();
+                if (retained <= 1) {
+                    return false;
+                }
+                if (retainedWorkers.compareAndSet(retained, retained - 1)) {
+                    pendingLeaves.incrementAndGet();
+                    return true;
+                }
+            }
+        }
+
+        int workerCount() {
+            return phaser.getRegisteredParties();
+        }
+
+        private void startWorker(int phase) {
+            Thread thread = new Thread(() -> work(phase), "计算线程-" + workerIds.getAndIncrement());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void work(int phase) {
+            while (phase >= 0) {
+                R local = identity;
+                int index;
+                while (failure == null && (index = cursor.getAndIncrement()) < shards.size()) {
+                    try {
+                        local = combiner.apply(local, kernel.compute(phase, shards.get(index)));
+                    } catch (RuntimeException | Error e) {
+                        failure = e;
+                    }
+                }
+                partials.add(local);
+
+                int leaves = pendingLeaves.get();
+                if (leaves > 0 && pendingLeaves.compareAndSet(leaves, leaves - 1)) {
+                    // 本线程的到达可能正好结束了最后一轮，这时可能已没有别的线程来完成结果
+                    if (phaser.arriveAndDeregister() < 0 || phaser.isTerminated()) {
+                        finish();
+                    }
+                    return;
+                }
+                phaser.arriveAndAwaitAdvance();
+                phase = phaser.getPhase();
+            }
+            finish();
+        }
+
+        // 由本轮最后一个到达的线程调用，此时其他参与方都在等待
+        private boolean advance(int phase, int registeredParties) {
+            R reduced = identity;
+            R partial;
+            while ((partial = partials.poll()) != null) {
+                reduced = combiner.apply(reduced, partial);
+            }
+            long now = System.nanoTime();
+            phaseNanos.add(now - phaseStartNanos);
+            phaseStartNanos = now;
+            phasesRun = phase + 1;
+            lastReduced = reduced;
+            cursor.set(0);
+
+            if (failure != null || registeredParties == 0) {
+                return true;
+            }
+            try {
+                converged = listener.onPhaseEnd(phase, reduced);
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                return true;
+            }
+            return converged || phasesRun >= maxPhases;
+        }
+
+        // 可能被多个线程调用，只有第一次生效
+        private void finish() {
+            Throwable error = failure;
+            if (error != null) {
+                done.completeExceptionally(error);
+            } else {
+                done.complete(new ComputeResult<>(phasesRun, converged, lastReduced,
+                        Collections.unmodifiableList(phaseNanos), System.nanoTime() - startNanos));
+            }
+        }
+    }
+
+    // ===================== 示例负载：一维 Jacobi 迭代 =====================
+
+    /**
+     * 一维扩散方程的 Jacobi 迭代：两端固定为 0 和 1，内部每个点取左右邻居的平均值，直到最大变化量小于阈值。
+     * 偶数轮读 a 写 b，奇数轮读 b 写 a，同一轮内各分片只写自己的区间，不需要额外同步
+     */
+    static final class JacobiProblem {
+        final double[] a;
+        final double[] b;
+        final List<int[]> shards = new ArrayList<>();
+
+        JacobiProblem(int points, int shardCount) {
+            a = new double[points];
+            b = new double[points];
+            a[points - 1] = 1;
+            b[points - 1] = 1;
+            int interior = points - 2;
+            for (int s = 0; s < shardCount; s++) {
+                int from = 1 + (int) ((long) interior * s / shardCount);
+                int to = 1 + (int) ((long) interior * (s + 1) / shardCount);
+                if (from < to) {
+                    shards.add(new int[]{from, to});
+                }
+            }
+        }
+
+        /**
+         * @return 本分片内的最大变化量
+         */
+        double relax(int phase, int[] shard) {
+            double[] src = (phase & 1) == 0 ? a : b;
+            double[] dst = (phase & 1) == 0 ? b : a;
+            double maxDelta = 0;
+            for (int i = shard[0]; i < shard[1]; i++) {
+                double value = (src[i - 1] + src[i + 1]) * 0.5;
+                maxDelta = Math.max(maxDelta, Math.abs(value - src[i]));
+                dst[i] = value;
+            }
+            return maxDelta;
+        }
+    }
+
+    static ComputeResult<Double> runJacobi(int points, int shardCount, int workers, int maxPhases, double epsilon) {
+        JacobiProblem problem = new JacobiProblem(points, shardCount);
+        PhasedComputeEngine<int[], Double> engine = new PhasedComputeEngine<>(problem.shards, 0.0, Math::max,
+                problem::relax, (phase, maxDelta) -> maxDelta < epsilon, maxPhases);
+        return engine.start(workers).join();
+    }
+
+    // --- Main 方法 ---
+    // 参数: [扩展性测试的数据点数, 默认 4000000] [每次运行的轮数, 默认 50] [分片数, 默认 256]
+    public static void main(String[] args) throws InterruptedException {
+        int points = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int phases = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int shardCount = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // 1. 收敛与动态增减参与方：小规模问题一直迭代到收敛，运行中先加 2 个线程，再减 1 个
+        JacobiProblem small = new JacobiProblem(100, 8);
+        PhasedComputeEngine<int[], Double> engine = new PhasedComputeEngine<>(small.shards, 0.0, Math::max,
+                small::relax, (phase, maxDelta) -> {
+                    if (phase % 5_000 == 0) {
+                        System.out.printf("第 %,d 轮，最大变化量 %.3e\n", phase, maxDelta);
+                    }
+                    return maxDelta < 1e-8;
+                }, 1_000_000);
+        CompletableFuture<ComputeResult<Double>> future = engine.start(2);
+        TimeUnit.MILLISECONDS.sleep(50);
+        engine.addWorker();
+        engine.addWorker();
+        System.out.println("增加 2 个参与方，当前 " + engine.workerCount());
+        TimeUnit.MILLISECONDS.sleep(50);
+        engine.removeWorker();
+        TimeUnit.MILLISECONDS.sleep(10);
+        System.out.println("移除 1 个参与方，当前 " + engine.workerCount());
+        ComputeResult<Double> converged = future.join();
+        System.out.printf("收敛=%s，共 %,d 轮，最后一轮最大变化量 %.3e，耗时 %.1f ms，中点的值 %.6f (理论值 %.6f)\n",
+                converged.converged, converged.phases, converged.lastReduced, converged.elapsedNanos / 1e6,
+                small.a[50], 50 / 99.0);
+
+        // 2. 扩展效率：固定轮数，线程数从 1 增加到 CPU 核数
+        System.out.printf("\n%,d 个点，%d 个分片，每次 %d 轮，CPU 核数 %d\n", points, shardCount, phases, cores);
+        System.out.printf("%6s %12s %14s %10s %10s\n", "线程", "总耗时(ms)", "每轮均值(ms)", "加速比", "效率");
+        runJacobi(points, shardCount, 1, phases / 5 + 1, 0); // 预热
+        double baseline = 0;
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(cores);
+        for (int threads : threadCounts) {
+            ComputeResult<Double> result = runJacobi(points, shardCount, threads, phases, 0);
+            double millis = result.elapsedNanos / 1e6;
+            if (threads == 1) {
+                baseline = millis;
+            }
+            double speedup = baseline / millis;
+            System.out.printf("%6d %12.1f %14.2f %10.2f %9.0f%%\n", threads, millis, millis / result.phases,
+                    speedup, speedup / threads * 100);
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.example.javathreaddemo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * 多阶段流水线 Demo (秒杀下单: 校验 -> 扣库存 -> 落库 -> 通知):
+ * 相邻阶段之间用有界的 TwoLockBlockingBuffer 连接，每个阶段有自己的并行度；
+ * 下游处理不过来时上游的 put 阻塞，压力一路传回 submit 的调用方 (端到端背压)。
+ * <p>
+ * 关闭时不中断线程：shutdown 在队尾放入结束标记，每个阶段处理完标记之前的所有元素后再把标记传给下一阶段，
+ * 因此已提交的元素全部处理完才会结束 (排空关闭)。
+ * 每个阶段导出吞吐、队列深度、排队时间和处理时间。
+ */
+public class PipelineDemo {
+
+    /**
+     * 在阶段之间传递的元素：记录提交时间和进入当前阶段队列的时间，用于统计延迟
+     */
+    static final class Envelope {
+        // 结束标记，比较引用
+        static final Envelope END = new Envelope(null, 0);
+
+        final Object payload;
+        final long submittedAt;
+        long enqueuedAt;
+
+        Envelope(Object payload, long submittedAt) {
+            this.payload = payload;
+            this.submittedAt = submittedAt;
+            this.enqueuedAt = submittedAt;
+        }
+    }
+
+    /**
+     * 某个阶段在某一时刻的统计快照
+     */
+    static final class StageStats {
+        final String name;
+        final int parallelism;
+        final int queueDepth;
+        final long processed;
+        final long dropped;
+        final long failed;
+        final double avgQueueMicros;
+        final double avgServiceMicros;
+
+        StageStats(String name, int parallelism, int queueDepth, long processed, long dropped, long failed,
+                   double avgQueueMicros, double avgServiceMicros) {
+            this.name = name;
+            this.parallelism = parallelism;
+            this.queueDepth = queueDepth;
+            this.processed = processed;
+            this.dropped = dropped;
+            this.failed = failed;
+            this.avgQueueMicros = avgQueueMicros;
+            this.avgServiceMicros = avgServiceMicros;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s x%-2d 队列 %4d  完成 %,8d  丢弃 %,6d  失败 %,4d  排队 %9.1f µs  处理 %8.1f µs",
+                    name, parallelism, queueDepth, processed, dropped, failed, avgQueueMicros, avgServiceMicros);
+        }
+    }
+
+    private static final class Stage {
+        final String name;
+        final int parallelism;
+        final Function<Object, Object> function;
+        final ProducerConsumerLockConditionDemo.TwoLockBlockingBuffer<Envelope> input;
+        Stage next;
+        // 还没有收到结束标记的工作线程数；最后一个退出的线程负责把结束标记传给下一阶段
+        final AtomicInteger runningWorkers;
+        final List<Thread> workers = new ArrayList<>();
+
+        final LongAdder processed = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder queueNanos = new LongAdder();
+        final LongAdder serviceNanos = new LongAdder();
+        // 只有最后一个阶段记录：从 submit 到处理完成的端到端延迟
+        final LongAdder endToEndNanos = new LongAdder();
+
+        Stage(String name, int parallelism, int capacity, Function<Object, Object> function) {
+            this.name = name;
+            this.parallelism = parallelism;
+            this.function = function;
+            this.input = new ProducerConsumerLockConditionDemo.TwoLockBlockingBuffer<>(capacity);
+            this.runningWorkers = new AtomicInteger(parallelism);
+        }
+
+        void runWorker() {
+            try {
+                while (true) {
+                    Envelope envelope = input.take();
+                    if (envelope == Envelope.END) {
+                        break;
+                    }
+                    long start = System.nanoTime();
+                    queueNanos.add(start - envelope.enqueuedAt);
+                    Object result;
+                    try {
+                        result = function.apply(envelope.payload);
+                    } catch (RuntimeException e) {
+                        // 单个元素失败不影响工作线程，记录后丢弃该元素
+                        failed.increment();
+                        continue;
+                    } finally {
+                        serviceNanos.add(System.nanoTime() - start);
+                    }
+                    if (result == null) {
+                        // 返回 null 表示过滤掉该元素 (例如校验不通过、库存不足)
+                        dropped.increment();
+                        continue;
+                    }
+                    processed.increment();
+                    if (next == null) {
+                        endToEndNanos.add(System.nanoTime() - envelope.submittedAt);
+                    } else {
+                        Envelope forwarded = new Envelope(result, envelope.submittedAt);
+                        forwarded.enqueuedAt = System.nanoTime();
+                        next.input.put(forwarded);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // 只有 shutdownNow 才会中断工作线程
+                Thread.currentThread().interrupt();
+            } finally {
+                // 正常结束、被中断或被 Error 终止都要登记退出，否则下游永远收不到结束标记
+                if (runningWorkers.decrementAndGet() == 0 && next != null) {
+                    next.end();
+                }
+            }
+        }
+
+        // 上一阶段的工作线程全部退出后调用：给本阶段的每个工作线程放一个结束标记
+        private void end() {
+            try {
+                for (int i = 0; i < parallelism; i++) {
+                    input.put(Envelope.END);
+                }
+            } catch (InterruptedException e) {
+                // shutdownNow：下一阶段的工作线程同样会被中断，不需要结束标记
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        StageStats stats() {
+            long done = processed.sum() + dropped.sum() + failed.sum();
+            return new StageStats(name, parallelism, input.size(), processed.sum(), dropped.sum(), failed.sum(),
+                    done == 0 ? 0 : queueNanos.sum() / 1000.0 / done,
+                    done == 0 ? 0 : serviceNanos.sum() / 1000.0 / done);
+        }
+    }
+
+    /**
+     * 类型安全地依次添加阶段：Builder<I, O> 表示流水线输入类型为 I，当前最后一个阶段的输出类型为 O
+     */
+    static final class Builder<I, O> {
+        private final List<Stage> stages;
+
+        private Builder(List<Stage> stages) {
+            this.stages = stages;
+        }
+
+        /**
+         * 添加一个阶段
+         *
+         * @param parallelism 工作线程数
+         * @param capacity    该阶段输入队列的容量
+         * @param function    处理函数；返回 null 表示丢弃该元素，抛出 RuntimeException 计为失败
+         */
+        @SuppressWarnings("unchecked")
+        <R> Builder<I, R> stage(String name, int parallelism, int capacity, Function<? super O, ? extends R> function) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("Parallelism must be positive");
+            }
+            List<Stage> copy = new ArrayList<>(stages);
+            copy.add(new Stage(name, parallelism, capacity, (Function<Object, Object>) function));
+            return new Builder<>(copy);
+        }
+
+        Pipeline<I> start() {
+            if (stages.isEmpty()) {
+                throw new IllegalStateException("Pipeline has no stages");
+            }
+            return new Pipeline<>(stages);
+        }
+    }
+
+    static <I> Builder<I, I> builder() {
+        return new Builder<>(Collections.emptyList());
+    }
+
+    static class Pipeline<I> {
+        private final List<Stage> stages;
+        private final long startedAt = System.nanoTime();
+        // 保护 submit 和 shutdown 之间的竞争：shutdown 之后不能再有元素排在结束标记后面
+        private final Object submitLock = new Object();
+        // 已通过 shutdown 检查、正在 put 的 submit 个数 (受 submitLock 保护)；shutdown 等它归零后才放结束标记
+        private int submitting;
+        private volatile boolean shutdown;
+        // shutdownNow 之后工作线程不再消费，shutdown 不必 (也不可能) 再放入结束标记
+        private volatile boolean abandoned;
+
+        private Pipeline(List<Stage> stages) {
+            this.stages = stages;
+            for (int i = 0; i + 1 < stages.size(); i++) {
+                stages.get(i).next = stages.get(i + 1);
+            }
+            for (Stage stage : stages) {
+                for (int w = 0; w < stage.parallelism; w++) {
+                    Thread worker = new Thread(stage::runWorker, stage.name + "-" + w);
+                    stage.workers.add(worker);
+                    worker.start();
+                }
+            }
+        }
+
+        /**
+         * 提交一个元素；第一个阶段的队列满时阻塞 (背压)
+         *
+         * @throws IllegalStateException 如果流水线已经 shutdown
+         */
+        public void submit(I item) throws InterruptedException {
+            if (item == null) {
+                throw new NullPointerException("item");
+            }
+            synchronized (submitLock) {
+                if (shutdown) {
+                    throw new IllegalStateException("Pipeline is shut down");
+                }
+                submitting++;
+            }
+            // 在锁外阻塞 put，一个生产者被背压阻塞时不影响其他生产者
+            try {
+                stages.get(0).input.put(new Envelope(item, System.nanoTime()));
+            } finally {
+                synchronized (submitLock) {
+                    if (--submitting == 0 && shutdown) {
+                        submitLock.notifyAll();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 停止接收新元素，已提交的元素会被全部处理完 (不中断工作线程)。
+         * <p>
+         * 等待期间不响应中断 (返回前恢复中断标记)：shutdown 标记一旦设置，再次调用会直接返回，
+         * 如果这里因中断提前退出，结束标记就永远不会放入，工作线程会一直阻塞在 take 上。
+         */
+        public void shutdown() {
+            boolean interrupted = false;
+            synchronized (submitLock) {
+                if (shutdown) {
+                    return;
+                }
+                shutdown = true;
+                // 等正在 put 的 submit 完成 (工作线程照常消费，背压总会解除)，之后不会再有元素入队
+                while (submitting > 0 && !abandoned) {
+                    try {
+                        submitLock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            Stage first = stages.get(0);
+            int ends = 0;
+            while (ends < first.parallelism && !abandoned) {
+                try {
+                    first.input.put(Envelope.END);
+                    ends++;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * 等待所有阶段排空并结束
+         *
+         * @return 是否在超时前全部结束
+         */
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Stage stage : stages) {
+                for (Thread worker : stage.workers) {
+                    long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remainingMillis <= 0) {
+                        return false;
+                    }
+                    worker.join(remainingMillis);
+                    if (worker.isAlive()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 放弃排空，直接中断所有工作线程 (队列中未处理的元素会丢失)
+         */
+        public void shutdownNow() {
+            shutdown = true;
+            abandoned = true;
+            synchronized (submitLock) {
+                submitLock.notifyAll();
+            }
+            for (Stage stage : stages) {
+                stage.workers.forEach(Thread::interrupt);
+            }
+        }
+
+        public List<StageStats> stats() {
+            List<StageStats> result = new ArrayList<>();
+            for (Stage stage : stages) {
+                result.add(stage.stats());
+            }
+            return result;
+        }
+
+        /**
+         * 最后一个阶段的吞吐 (元素/秒，从流水线启动开始计算)
+         */
+        public double throughput() {
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            return stages.get(stages.size() - 1).processed.sum() / seconds;
+        }
+
+        /**
+         * 走完所有阶段的元素的平均端到端延迟 (微秒)，包括在各个队列中的排队时间
+         */
+        public double averageLatencyMicros() {
+            Stage last = stages.get(stages.size() - 1);
+            long completed = last.processed.sum();
+            return completed == 0 ? 0 : last.endToEndNanos.sum() / 1000.0 / completed;
+        }
+    }
+
+    // ===================== 秒杀下单示例 =====================
+
+    static final class Order {
+        final long userId;
+        final long productId;
+        boolean reserved;
+        boolean persisted;
+
+        Order(long userId, long productId) {
+            this.userId = userId;
+            this.productId = productId;
+        }
+    }
+
+    // 模拟阻塞 IO (落库、发通知)
+    private static void simulateIo(long micros) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+
+    // --- Main 方法 ---
+    // 参数: [订单数, 默认 20000] [库存, 默认 15000] [落库并行度, 默认 8]
+    public static void main(String[] args) throws InterruptedException {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int stock = args.length > 1 ? Integer.parseInt(args[1]) : 15_000;
+        int persistParallelism = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        AtomicInteger remainingStock = new AtomicInteger(stock);
+        LongAdder notified = new LongAdder();
+
+        Pipeline<Order> pipeline = PipelineDemo.<Order>builder()
+                .stage("校验", 1, 256, (Order order) -> order.userId > 0 ? order : null)
+                .stage("扣库存", 2, 256, (Order order) -> {
+                    if (remainingStock.getAndUpdate(s -> s > 0 ? s - 1 : s) <= 0) {
+                        return null; // 售罄
+                    }
+                    order.reserved = true;
+                    return order;
+                })
+                .stage("落库", persistParallelism, 128, (Order order) -> {
+                    simulateIo(500);
+                    order.persisted = true;
+                    return order;
+                })
+                .stage("通知", 2, 128, (Order order) -> {
+                    simulateIo(100);
+                    notified.increment();
+                    return order;
+                })
+                .start();
+
+        // 定期导出各阶段的统计
+        Thread reporter = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                System.out.printf("--- 吞吐 %,.0f 单/秒，端到端平均延迟 %,.0f µs ---\n",
+                        pipeline.throughput(), pipeline.averageLatencyMicros());
+                pipeline.stats().forEach(System.out::println);
+            }
+        }, "统计线程");
+        reporter.setDaemon(true);
+        reporter.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < orders; i++) {
+            // 约 1% 的请求用户ID非法，在校验阶段被过滤
+            long userId = ThreadLocalRandom.current().nextInt(100) == 0 ? -1 : i + 1;
+            pipeline.submit(new Order(userId, 1001));
+        }
+        System.out.printf("提交 %,d 个订单用时 %d ms (提交被背压限速)\n", orders, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        pipeline.shutdown();
+        boolean drained = pipeline.awaitTermination(60, TimeUnit.SECONDS);
+        reporter.interrupt();
+
+        System.out.printf("\n排空%s，总耗时 %d ms，剩余库存 %d，通知 %,d 个订单\n", drained ? "完成" : "超时",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), remainingStock.get(), notified.sum());
+        pipeline.stats().forEach(System.out::println);
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.javathreaddemo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多优先级通道的阻塞缓冲区 Demo:
+ * 大促时支付确认消息不应该排在海量库存查询消息后面。每个通道 (lane) 有自己的容量和权重，
+ * put 只在自己的通道满时阻塞，take 按权重做赤字轮询 (Deficit Round Robin)：
+ * 每轮每个通道最多取"权重"个元素，因此高优先级通道在过载时延迟有上界，低优先级通道也不会饿死。
+ */
+public class PriorityLaneBufferDemo {
+
+    static class MultiLaneBlockingBuffer<T> {
+
+        private static final class Lane {
+            final Object[] items;
+            final int mask;
+            final int capacity;
+            final int weight;
+            final Condition notFull;
+            long head;
+            long tail;
+            // 本轮还能从该通道取多少个元素
+            int deficit;
+
+            Lane(int capacity, int weight, Condition notFull) {
+                int length = Integer.highestOneBit(capacity);
+                if (length < capacity) {
+                    length <<= 1;
+                }
+                this.items = new Object[length];
+                this.mask = length - 1;
+                this.capacity = capacity;
+                this.weight = weight;
+                this.notFull = notFull;
+            }
+
+            int size() {
+                return (int) (tail - head);
+            }
+        }
+
+        private final Lane[] lanes;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private int total;
+        // 轮询当前指向的通道
+        private int current;
+
+        /**
+         * @param capacities 每个通道的容量
+         * @param weights    每个通道的权重 (每轮最多连续取出的个数)，与 capacities 一一对应
+         */
+        public MultiLaneBlockingBuffer(int[] capacities, int[] weights) {
+            if (capacities.length == 0 || capacities.length != weights.length) {
+                throw new IllegalArgumentException("capacities and weights must be non-empty and of equal length");
+            }
+            lanes = new Lane[capacities.length];
+            for (int i = 0; i < lanes.length; i++) {
+                if (capacities[i] <= 0 || capacities[i] > 1 << 30 || weights[i] <= 0) {
+                    throw new IllegalArgumentException("Capacity and weight of lane " + i + " must be positive");
+                }
+                lanes[i] = new Lane(capacities[i], weights[i], lock.newCondition());
+            }
+            lanes[0].deficit = lanes[0].weight;
+        }
+
+        /**
+         * 放入指定通道；该通道满时阻塞 (其他通道不受影响)
+         */
+        public void put(int laneIndex, T item) throws InterruptedException {
+            Lane lane = lanes[laneIndex];
+            lock.lock();
+            try {
+                while (lane.size() == lane.capacity) {
+                    lane.notFull.await();
+                }
+                lane.items[(int) (lane.tail++ & lane.mask)] = item;
+                total++;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 按赤字轮询取出一个元素；所有通道都为空时阻塞
+         */
+        @SuppressWarnings("unchecked")
+        public T take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (total == 0) {
+                    notEmpty.await();
+                }
+                while (true) {
+                    Lane lane = lanes[current];
+                    if (lane.size() == 0) {
+                        // 空通道不能积攒额度，否则它之后来的突发流量会连续占用消费者
+                        lane.deficit = 0;
+                        advance();
+                    } else if (lane.deficit == 0) {
+                        advance();
+                    } else {
+                        lane.deficit--;
+                        int index = (int) (lane.head++ & lane.mask);
+                        T item = (T) lane.items[index];
+                        lane.items[index] = null;
+                        total--;
+                        lane.notFull.signal();
+                        if (total > 0) {
+                            notEmpty.signal();
+                        }
+                        return item;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // 转到下一个通道，并给它本轮的额度
+        private void advance() {
+            current = current + 1 == lanes.length ? 0 : current + 1;
+            lanes[current].deficit += lanes[current].weight;
+        }
+
+        public int size(int laneIndex) {
+            lock.lock();
+            try {
+                return lanes[laneIndex].size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // ===================== 过载测试 =====================
+
+    static final int PAYMENT = 0;
+    static final int STOCK_CHECK = 1;
+    static final String[] LANE_NAMES = {"支付确认", "库存查询"};
+
+    static final class Message {
+        final int lane;
+        final long submittedAt = System.nanoTime();
+
+        Message(int lane) {
+            this.lane = lane;
+        }
+    }
+
+    interface MessageSink {
+        void put(Message message) throws InterruptedException;
+    }
+
+    interface MessageSource {
+        Message take() throws InterruptedException;
+    }
+
+    /**
+     * 库存查询消息持续灌满缓冲区，支付确认消息以固定速率到达；消费者每条消息处理 serviceMicros。
+     * 返回每个通道的延迟样本 (纳秒)
+     */
+    static List<List<Long>> runOverload(MessageSink sink, MessageSource source, int consumers, int floodProducers,
+                                        double paymentRate, long serviceMicros, long durationMillis)
+            throws InterruptedException {
+        List<List<Long>> latencies = List.of(new ArrayList<>(), new ArrayList<>());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                List<List<Long>> local = List.of(new ArrayList<>(), new ArrayList<>());
+                try {
+                    while (System.nanoTime() < deadline) {
+                        Message message = source.take();
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(serviceMicros));
+                        local.get(message.lane).add(System.nanoTime() - message.submittedAt);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (latencies) {
+                    latencies.get(PAYMENT).addAll(local.get(PAYMENT));
+                    latencies.get(STOCK_CHECK).addAll(local.get(STOCK_CHECK));
+                }
+            }, "消费者-" + c));
+        }
+        for (int p = 0; p < floodProducers; p++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        sink.put(new Message(STOCK_CHECK));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "库存查询生产者-" + p));
+        }
+        threads.add(new Thread(() -> {
+            long interval = (long) (1e9 / paymentRate);
+            long next = System.nanoTime();
+            try {
+                while (System.nanoTime() < deadline) {
+                    next += interval;
+                    LockSupport.parkNanos(next - System.nanoTime());
+                    sink.put(new Message(PAYMENT));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "支付确认生产者"));
+
+        threads.forEach(Thread::start);
+        // 截止后生产者/消费者可能阻塞在 put/take 上，等一小段时间后中断它们
+        Thread.sleep(durationMillis + 200);
+        threads.forEach(Thread::interrupt);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return latencies;
+    }
+
+    private static void report(String name, List<List<Long>> latencies, long durationMillis) {
+        for (int lane = 0; lane < latencies.size(); lane++) {
+            long[] sorted = latencies.get(lane).stream().mapToLong(Long::longValue).sorted().toArray();
+            if (sorted.length == 0) {
+                System.out.printf("%-14s %-8s 没有完成任何消息\n", name, LANE_NAMES[lane]);
+                continue;
+            }
+            System.out.printf("%-14s %-8s %,10.0f 条/秒  p50 %8.1f ms  p99 %8.1f ms  max %8.1f ms\n", name, LANE_NAMES[lane],
+                    sorted.length * 1000.0 / durationMillis, sorted[sorted.length / 2] / 1e6,
+                    sorted[(int) (sorted.length * 0.99)] / 1e6, sorted[sorted.length - 1] / 1e6);
+        }
+    }
+
+    // --- Main 方法 ---
+    // 参数: [运行毫秒数, 默认 3000] [消费者数, 默认 4] [每条处理 µs, 默认 200] [支付确认速率/秒, 默认 1000] [支付通道权重, 默认 4]
+    public static void main(String[] args) throws InterruptedException {
+        long durationMillis = args.length > 0 ? Long.parseLong(args[0]) : 3000;
+        int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long serviceMicros = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        double paymentRate = args.length > 3 ? Double.parseDouble(args[3]) : 1000;
+        int paymentWeight = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        int floodProducers = 2;
+
+        System.out.printf("%d 个消费者，每条 %d µs (处理能力约 %,.0f 条/秒)，支付确认 %,.0f 条/秒，库存查询持续灌满\n",
+                consumers, serviceMicros, consumers * 1e6 / serviceMicros, paymentRate);
+
+        // 1. 单一 FIFO：支付确认排在所有库存查询后面
+        ProducerConsumerLockConditionDemo.BlockingBuffer<Message> fifo =
+                new ProducerConsumerLockConditionDemo.BlockingBuffer<>(1024);
+        report("单一 FIFO", runOverload(fifo::put, fifo::take, consumers, floodProducers, paymentRate,
+                serviceMicros, durationMillis), durationMillis);
+
+        // 2. 多通道 + 赤字轮询：支付通道权重更高，库存查询仍能得到剩余的处理能力
+        MultiLaneBlockingBuffer<Message> lanes = new MultiLaneBlockingBuffer<>(new int[]{256, 1024}, new int[]{paymentWeight, 1});
+        report("多通道 DRR", runOverload(message -> lanes.put(message.lane, message), lanes::take, consumers,
+                floodProducers, paymentRate, serviceMicros, durationMillis), durationMillis);
+        System.out.println("通道权重: " + Arrays.toString(new int[]{paymentWeight, 1}));
+    }
+}
@@ -1,10 +1,11 @@
 package com.example.javathreaddemo;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -19,8 +20,12 @@ public class ProducerConsumerLockConditionDemo {
      * @param <T> 缓冲区中存储的数据类型
      */
     static class BlockingBuffer<T> {
-        private final Queue<T> buffer;
+        // 预分配的环形数组，长度取不小于 capacity 的 2 的幂，下标用 & mask 回绕
+        private final Object[] items;
+        private final int mask;
         private final int capacity;
+        private long head; // 下一个 take 的位置 (单调递增，取下标时 & mask)
+        private long tail; // 下一个 put 的位置
         private final Lock lock = new ReentrantLock(); // 使用 ReentrantLock
         // 条件变量：缓冲区非满 (供生产者等待)
         private final Condition notFull = lock.newCondition();
@@ -28,12 +33,16 @@ public class ProducerConsumerLockConditionDemo {
         private final Condition notEmpty = lock.newCondition();
 
         public BlockingBuffer(int capacity) {
-            if (capacity <= 0) {
-                throw new IllegalArgumentException("Capacity must be positive");
+            if (capacity <= 0 || capacity > 1 << 30) {
+                throw new IllegalArgumentException("Capacity must be positive and at most 2^30");
             }
-            this.buffer = new LinkedList<>();
+            int length = Integer.highestOneBit(capacity);
+            if (length < capacity) {
+                length <<= 1;
+            }
+            this.items = new Object[length];
+            this.mask = length - 1;
             this.capacity = capacity;
-            System.out.println("缓冲区(Lock/Condition)创建，容量为: " + capacity);
         }
 
         /**
@@ -43,13 +52,13 @@ public class ProducerConsumerLockConditionDemo {
             lock.lock(); // 获取锁
             try {
                 // **必须用 while 循环检查条件**
-                while (buffer.size() == capacity) {
-                    System.out.println("缓冲区已满! 生产者 " + Thread.currentThread().getName() + " 在 notFull 条件上等待...");
+                while (tail - head == capacity) {
+                    onWaitNotFull(false);
                     notFull.await(); // 缓冲区满，在 notFull 上等待 (释放 lock)
-                    System.out.println("生产者 " + Thread.currentThread().getName() + " 从 notFull 等待中唤醒，重新检查容量...");
+                    onWokenNotFull();
                 }
-                buffer.offer(item);
-                System.out.printf("生产者 %s 生产了: %s (当前容量: %d)\n", Thread.currentThread().getName(), item, buffer.size());
+                items[(int) (tail++ & mask)] = item;
+                onPut(item, (int) (tail - head));
 
                 // **唤醒等待 notEmpty 的线程 (消费者)**
                 // System.out.println("生产者 " + Thread.currentThread().getName() + " 发出 notEmpty 信号...");
@@ -62,17 +71,21 @@ public class ProducerConsumerLockConditionDemo {
         /**
          * 消费者取出数据
          */
+        @SuppressWarnings("unchecked")
         public T take() throws InterruptedException {
             lock.lock(); // 获取锁
             try {
                 // **必须用 while 循环检查条件**
-                while (buffer.isEmpty()) {
-                    System.out.println("缓冲区为空! 消费者 " + Thread.currentThread().getName() + " 在 notEmpty 条件上等待...");
+                while (tail == head) {
+                    onWaitNotEmpty(false);
                     notEmpty.await(); // 缓冲区空，在 notEmpty 上等待 (释放 lock)
-                     System.out.println("消费者 " + Thread.currentThread().getName() + " 从 notEmpty 等待中唤醒，重新检查是否有数据...");
+                    onWokenNotEmpty();
                 }
-                T item = buffer.poll();
-                System.out.printf("消费者 %s 消费了: %s (当前容量: %d)\n", Thread.currentThread().getName(), item, buffer.size());
+                // 取出后清空槽位，避免数组继续引用已消费的对象
+                int index = (int) (head++ & mask);
+                T item = (T) items[index];
+                items[index] = null;
+                onTake(item, (int) (tail - head));
 
                 // **唤醒等待 notFull 的线程 (生产者)**
                 // System.out.println("消费者 " + Thread.currentThread().getName() + " 发出 notFull 信号...");
@@ -82,12 +95,274 @@ public class ProducerConsumerLockConditionDemo {
                 lock.unlock(); // **必须在 finally 中释放锁**
             }
         }
+
+        /**
+         * 批量放入：缓冲区满时阻塞，直到至少有一个空位；然后在同一次持锁内放入尽可能多的元素。
+         * <p>
+         * 一次调用不保证放完整个列表，调用方根据返回值继续放入剩下的部分。
+         * 只有在放入任何元素之前的等待阶段才会抛出 InterruptedException，因此中断不会丢失已放入的数据。
+         *
+         * @return 实际放入的个数 (列表为空时返回 0，否则至少为 1)
+         * @throws InterruptedException 如果线程在等待空位时被中断 (此时一个元素都没有放入)
+         */
+        public int putAll(List<? extends T> batch) throws InterruptedException {
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            lock.lock();
+            try {
+                while (tail - head == capacity) {
+                    onWaitNotFull(true);
+                    notFull.await();
+                }
+                int count = (int) Math.min(batch.size(), capacity - (tail - head));
+                for (int i = 0; i < count; i++) {
+                    items[(int) (tail++ & mask)] = batch.get(i);
+                }
+                onPutAll(count, (int) (tail - head));
+                // 整批只发一次信号：放入多个元素时要唤醒所有等待的消费者，否则只有一个消费者醒来处理整批
+                if (count == 1) {
+                    notEmpty.signal();
+                } else {
+                    notEmpty.signalAll();
+                }
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 批量取出：缓冲区为空时阻塞，直到至少有一个元素；然后在同一次持锁内最多取出 maxItems 个加入 target。
+         * <p>
+         * 注意与 BlockingQueue.drainTo 不同：这里空缓冲区会阻塞等待，而不是立即返回 0。
+         *
+         * @return 实际取出的个数 (maxItems <= 0 时返回 0，否则至少为 1)
+         * @throws InterruptedException 如果线程在等待数据时被中断 (此时一个元素都没有取出)
+         */
+        @SuppressWarnings("unchecked")
+        public int drainTo(Collection<? super T> target, int maxItems) throws InterruptedException {
+            if (maxItems <= 0) {
+                return 0;
+            }
+            lock.lock();
+            try {
+                while (tail == head) {
+                    onWaitNotEmpty(true);
+                    notEmpty.await();
+                }
+                int count = (int) Math.min(maxItems, tail - head);
+                for (int i = 0; i < count; i++) {
+                    int index = (int) (head++ & mask);
+                    target.add((T) items[index]);
+                    items[index] = null;
+                }
+                onDrain(count, (int) (tail - head));
+                if (count == 1) {
+                    notFull.signal();
+                } else {
+                    notFull.signalAll();
+                }
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int size() {
+            lock.lock();
+            try {
+                return (int) (tail - head);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // 以下钩子都在持有锁时调用，默认什么都不做，基准测试直接使用本类；演示用的日志放在子类里
+        void onWaitNotFull(boolean batch) {
+        }
+
+        void onWokenNotFull() {
+        }
+
+        void onWaitNotEmpty(boolean batch) {
+        }
+
+        void onWokenNotEmpty() {
+        }
+
+        void onPut(T item, int size) {
+        }
+
+        void onTake(T item, int size) {
+        }
+
+        void onPutAll(int count, int size) {
+        }
+
+        void onDrain(int count, int size) {
+        }
+    }
+
+    /**
+     * 演示用的缓冲区：持有锁时打印等待、唤醒和生产/消费日志
+     */
+    static class LoggingBlockingBuffer<T> extends BlockingBuffer<T> {
+
+        public LoggingBlockingBuffer(int capacity) {
+            super(capacity);
+            System.out.println("缓冲区(Lock/Condition)创建，容量为: " + capacity);
+        }
+
+        @Override
+        void onWaitNotFull(boolean batch) {
+            System.out.println("缓冲区已满! 生产者 " + Thread.currentThread().getName() + " 在 notFull 条件上等待" + (batch ? " (批量)..." : "..."));
+        }
+
+        @Override
+        void onWokenNotFull() {
+            System.out.println("生产者 " + Thread.currentThread().getName() + " 从 notFull 等待中唤醒，重新检查容量...");
+        }
+
+        @Override
+        void onWaitNotEmpty(boolean batch) {
+            System.out.println("缓冲区为空! 消费者 " + Thread.currentThread().getName() + " 在 notEmpty 条件上等待" + (batch ? " (批量)..." : "..."));
+        }
+
+        @Override
+        void onWokenNotEmpty() {
+            System.out.println("消费者 " + Thread.currentThread().getName() + " 从 notEmpty 等待中唤醒，重新检查是否有数据...");
+        }
+
+        @Override
+        void onPut(T item, int size) {
+            System.out.printf("生产者 %s 生产了: %s (当前容量: %d)\n", Thread.currentThread().getName(), item, size);
+        }
+
+        @Override
+        void onTake(T item, int size) {
+            System.out.printf("消费者 %s 消费了: %s (当前容量: %d)\n", Thread.currentThread().getName(), item, size);
+        }
+
+        @Override
+        void onPutAll(int count, int size) {
+            System.out.printf("生产者 %s 批量生产了 %d 个 (当前容量: %d)\n", Thread.currentThread().getName(), count, size);
+        }
+
+        @Override
+        void onDrain(int count, int size) {
+            System.out.printf("消费者 %s 批量消费了 %d 个 (当前容量: %d)\n", Thread.currentThread().getName(), count, size);
+        }
+    }
+
+    /**
+     * 双锁阻塞缓冲区 (思路同 LinkedBlockingQueue):
+     * 生产者只争用 putLock，消费者只争用 takeLock，缓冲区既不满也不空时两端互不阻塞。
+     * <p>
+     * tail 只被持有 putLock 的生产者修改，head 只被持有 takeLock 的消费者修改，元素个数用 AtomicInteger 维护；
+     * 生产者先写槽位再增加 count，消费者先读到 count 再读槽位，槽位的可见性由 count 的 volatile 读写保证。
+     * 跨锁的唤醒只在 空 -> 非空 和 满 -> 非满 两种转换时发生。
+     */
+    static class TwoLockBlockingBuffer<T> {
+        private final Object[] items;
+        private final int mask;
+        private final int capacity;
+        private final AtomicInteger count = new AtomicInteger();
+        private long head; // 受 takeLock 保护
+        private long tail; // 受 putLock 保护
+        private final ReentrantLock putLock = new ReentrantLock();
+        private final Condition notFull = putLock.newCondition();
+        private final ReentrantLock takeLock = new ReentrantLock();
+        private final Condition notEmpty = takeLock.newCondition();
+
+        public TwoLockBlockingBuffer(int capacity) {
+            if (capacity <= 0 || capacity > 1 << 30) {
+                throw new IllegalArgumentException("Capacity must be positive and at most 2^30");
+            }
+            int length = Integer.highestOneBit(capacity);
+            if (length < capacity) {
+                length <<= 1;
+            }
+            this.items = new Object[length];
+            this.mask = length - 1;
+            this.capacity = capacity;
+        }
+
+        public void put(T item) throws InterruptedException {
+            int before;
+            putLock.lockInterruptibly();
+            try {
+                while (count.get() == capacity) {
+                    notFull.await();
+                }
+                items[(int) (tail++ & mask)] = item;
+                before = count.getAndIncrement();
+                // 还有空位就接力唤醒下一个等待的生产者，消费者不需要为每次 take 都去拿 putLock
+                if (before + 1 < capacity) {
+                    notFull.signal();
+                }
+            } finally {
+                putLock.unlock();
+            }
+            // 空 -> 非空：消费者可能都在 notEmpty 上等待
+            if (before == 0) {
+                signalNotEmpty();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public T take() throws InterruptedException {
+            T item;
+            int before;
+            takeLock.lockInterruptibly();
+            try {
+                while (count.get() == 0) {
+                    notEmpty.await();
+                }
+                int index = (int) (head++ & mask);
+                item = (T) items[index];
+                items[index] = null;
+                before = count.getAndDecrement();
+                if (before > 1) {
+                    notEmpty.signal();
+                }
+            } finally {
+                takeLock.unlock();
+            }
+            // 满 -> 非满：生产者可能都在 notFull 上等待
+            if (before == capacity) {
+                signalNotFull();
+            }
+            return item;
+        }
+
+        public int size() {
+            return count.get();
+        }
+
+        private void signalNotEmpty() {
+            takeLock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                takeLock.unlock();
+            }
+        }
+
+        private void signalNotFull() {
+            putLock.lock();
+            try {
+                notFull.signal();
+            } finally {
+                putLock.unlock();
+            }
+        }
     }
 
     // --- Main 方法，启动生产者和消费者 ---
     public static void main(String[] args) throws InterruptedException {
         // 创建容量为 3 的缓冲区
-        BlockingBuffer<Integer> buffer = new BlockingBuffer<>(3);
+        BlockingBuffer<Integer> buffer = new LoggingBlockingBuffer<>(3);
 
         // 生产者任务: 持续生产 0, 1, 2, ...
         Runnable producerTask = () -> {
@@ -1,7 +1,7 @@
 package com.example.javathreaddemo;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -17,17 +17,25 @@ public class ProducerConsumerWaitNotify {
      * @param <T> 缓冲区中存储的数据类型
      */
     static class BlockingBuffer<T> {
-        private final Queue<T> buffer; // 底层使用 LinkedList 作为队列
-        private final int capacity;    // 缓冲区容量
+        // 底层使用预分配的环形数组，长度取不小于 capacity 的 2 的幂，下标用 & mask 回绕，put 不再分配链表节点
+        private final Object[] items;
+        private final int mask;
+        private final int capacity;    // 缓冲区容量 (逻辑上限，可能小于数组长度)
+        private long head;             // 下一个 take 的位置 (单调递增，取下标时 & mask)
+        private long tail;             // 下一个 put 的位置
 
         // 构造函数，初始化缓冲区和容量
         public BlockingBuffer(int capacity) {
-            if (capacity <= 0) {
-                throw new IllegalArgumentException("Capacity must be positive");
+            if (capacity <= 0 || capacity > 1 << 30) {
+                throw new IllegalArgumentException("Capacity must be positive and at most 2^30");
             }
-            this.buffer = new LinkedList<>();
+            int length = Integer.highestOneBit(capacity);
+            if (length < capacity) {
+                length <<= 1;
+            }
+            this.items = new Object[length];
+            this.mask = length - 1;
             this.capacity = capacity;
-            System.out.println("缓冲区创建，容量为: " + capacity);
         }
 
         /**
@@ -37,27 +45,27 @@ public class ProducerConsumerWaitNotify {
          * @throws InterruptedException 如果线程在等待时被中断
          */
         public void put(T item) throws InterruptedException {
-            // 使用缓冲区对象自身作为锁
-            synchronized (buffer) {
+            // 使用缓冲区数组自身作为锁
+            synchronized (items) {
                 // **关键点1: 必须使用 while 循环检查条件**
                 // 防止“虚假唤醒”(Spurious Wakeup)，即使被唤醒也要再次检查条件是否满足
-                while (buffer.size() == capacity) {
-                    System.out.println("缓冲区已满! 生产者 " + Thread.currentThread().getName() + " 进入等待...");
-                    // 缓冲区满了，生产者调用 wait() 等待，并释放 buffer 锁
-                    buffer.wait();
-                    System.out.println("生产者 " + Thread.currentThread().getName() + " 被唤醒，重新检查容量...");
+                while (tail - head == capacity) {
+                    onWaitNotFull(false);
+                    // 缓冲区满了，生产者调用 wait() 等待，并释放 items 锁
+                    items.wait();
+                    onWokenNotFull();
                 }
 
                 // 缓冲区未满，可以放入数据
-                buffer.offer(item); // 向队列添加元素
-                System.out.println("生产者 " + Thread.currentThread().getName() + " 生产了: " + item + " (当前容量: " + buffer.size() + ")");
+                items[(int) (tail++ & mask)] = item;
+                onPut(item, (int) (tail - head));
 
                 // **关键点2: 唤醒可能在等待的消费者**
                 // 因为放入了数据，缓冲区肯定不为空了，可以唤醒等待的消费者
                 // 使用 notifyAll() 更安全，可以唤醒所有等待线程（包括其他生产者或消费者）
                 // 如果只用 notify()，可能只唤醒了另一个生产者，而消费者继续饿死
-                buffer.notifyAll();
-            } // 释放 buffer 锁
+                items.notifyAll();
+            } // 释放 items 锁
         }
 
         /**
@@ -66,33 +74,179 @@ public class ProducerConsumerWaitNotify {
          * @return 取出的数据
          * @throws InterruptedException 如果线程在等待时被中断
          */
+        @SuppressWarnings("unchecked")
         public T take() throws InterruptedException {
-            // 使用缓冲区对象自身作为锁
-            synchronized (buffer) {
+            // 使用缓冲区数组自身作为锁
+            synchronized (items) {
                 // **关键点1: 必须使用 while 循环检查条件**
-                while (buffer.isEmpty()) {
-                    System.out.println("缓冲区为空! 消费者 " + Thread.currentThread().getName() + " 进入等待...");
-                    // 缓冲区空了，消费者调用 wait() 等待，并释放 buffer 锁
-                    buffer.wait();
-                    System.out.println("消费者 " + Thread.currentThread().getName() + " 被唤醒，重新检查是否有数据...");
+                while (tail == head) {
+                    onWaitNotEmpty(false);
+                    // 缓冲区空了，消费者调用 wait() 等待，并释放 items 锁
+                    items.wait();
+                    onWokenNotEmpty();
                 }
 
-                // 缓冲区不为空，可以取出数据
-                T item = buffer.poll(); // 从队列头部取出并移除元素
-                System.out.println("消费者 " + Thread.currentThread().getName() + " 消费了: " + item + " (当前容量: " + buffer.size() + ")");
+                // 缓冲区不为空，可以取出数据；取出后清空槽位，避免数组继续引用已消费的对象
+                int index = (int) (head++ & mask);
+                T item = (T) items[index];
+                items[index] = null;
+                onTake(item, (int) (tail - head));
 
                 // **关键点2: 唤醒可能在等待的生产者**
                 // 因为取出了数据，缓冲区肯定不为满了，可以唤醒等待的生产者
-                buffer.notifyAll();
+                items.notifyAll();
 
                 return item;
-            } // 释放 buffer 锁
+            } // 释放 items 锁
+        }
+
+        /**
+         * 批量放入：缓冲区满时阻塞，直到至少有一个空位；然后在同一次持锁内放入尽可能多的元素，
+         * 只唤醒一次等待线程。
+         * <p>
+         * 一次调用不保证放完整个列表，调用方根据返回值继续放入剩下的部分。
+         * 只有在放入任何元素之前的等待阶段才会抛出 InterruptedException，因此中断不会丢失已放入的数据。
+         *
+         * @return 实际放入的个数 (列表为空时返回 0，否则至少为 1)
+         * @throws InterruptedException 如果线程在等待空位时被中断 (此时一个元素都没有放入)
+         */
+        public int putAll(List<? extends T> batch) throws InterruptedException {
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            synchronized (items) {
+                while (tail - head == capacity) {
+                    onWaitNotFull(true);
+                    items.wait();
+                }
+                int count = (int) Math.min(batch.size(), capacity - (tail - head));
+                for (int i = 0; i < count; i++) {
+                    items[(int) (tail++ & mask)] = batch.get(i);
+                }
+                onPutAll(count, (int) (tail - head));
+                // 整批只唤醒一次
+                items.notifyAll();
+                return count;
+            }
+        }
+
+        /**
+         * 批量取出：缓冲区为空时阻塞，直到至少有一个元素；然后在同一次持锁内最多取出 maxItems 个加入 target，
+         * 只唤醒一次等待线程。
+         * <p>
+         * 注意与 BlockingQueue.drainTo 不同：这里空缓冲区会阻塞等待，而不是立即返回 0。
+         *
+         * @return 实际取出的个数 (maxItems <= 0 时返回 0，否则至少为 1)
+         * @throws InterruptedException 如果线程在等待数据时被中断 (此时一个元素都没有取出)
+         */
+        @SuppressWarnings("unchecked")
+        public int drainTo(Collection<? super T> target, int maxItems) throws InterruptedException {
+            if (maxItems <= 0) {
+                return 0;
+            }
+            synchronized (items) {
+                while (tail == head) {
+                    onWaitNotEmpty(true);
+                    items.wait();
+                }
+                int count = (int) Math.min(maxItems, tail - head);
+                for (int i = 0; i < count; i++) {
+                    int index = (int) (head++ & mask);
+                    target.add((T) items[index]);
+                    items[index] = null;
+                }
+                onDrain(count, (int) (tail - head));
+                items.notifyAll();
+                return count;
+            }
+        }
+
+        public int size() {
+            synchronized (items) {
+                return (int) (tail - head);
+            }
+        }
+
+        // 以下钩子都在持有 items 锁时调用，默认什么都不做，基准测试直接使用本类；演示用的日志放在子类里
+        void onWaitNotFull(boolean batch) {
+        }
+
+        void onWokenNotFull() {
+        }
+
+        void onWaitNotEmpty(boolean batch) {
+        }
+
+        void onWokenNotEmpty() {
+        }
+
+        void onPut(T item, int size) {
+        }
+
+        void onTake(T item, int size) {
+        }
+
+        void onPutAll(int count, int size) {
+        }
+
+        void onDrain(int count, int size) {
+        }
+    }
+
+    /**
+     * 演示用的缓冲区：持有锁时打印等待、唤醒和生产/消费日志
+     */
+    static class LoggingBlockingBuffer<T> extends BlockingBuffer<T> {
+
+        public LoggingBlockingBuffer(int capacity) {
+            super(capacity);
+            System.out.println("缓冲区创建，容量为: " + capacity);
+        }
+
+        @Override
+        void onWaitNotFull(boolean batch) {
+            System.out.println("缓冲区已满! 生产者 " + Thread.currentThread().getName() + " 进入等待" + (batch ? " (批量)..." : "..."));
+        }
+
+        @Override
+        void onWokenNotFull() {
+            System.out.println("生产者 " + Thread.currentThread().getName() + " 被唤醒，重新检查容量...");
+        }
+
+        @Override
+        void onWaitNotEmpty(boolean batch) {
+            System.out.println("缓冲区为空! 消费者 " + Thread.currentThread().getName() + " 进入等待" + (batch ? " (批量)..." : "..."));
+        }
+
+        @Override
+        void onWokenNotEmpty() {
+            System.out.println("消费者 " + Thread.currentThread().getName() + " 被唤醒，重新检查是否有数据...");
+        }
+
+        @Override
+        void onPut(T item, int size) {
+            System.out.println("生产者 " + Thread.currentThread().getName() + " 生产了: " + item + " (当前容量: " + size + ")");
+        }
+
+        @Override
+        void onTake(T item, int size) {
+            System.out.println("消费者 " + Thread.currentThread().getName() + " 消费了: " + item + " (当前容量: " + size + ")");
+        }
+
+        @Override
+        void onPutAll(int count, int size) {
+            System.out.println("生产者 " + Thread.currentThread().getName() + " 批量生产了 " + count + " 个 (当前容量: " + size + ")");
+        }
+
+        @Override
+        void onDrain(int count, int size) {
+            System.out.println("消费者 " + Thread.currentThread().getName() + " 批量消费了 " + count + " 个 (当前容量: " + size + ")");
         }
     }
 
     // --- Main 方法，启动生产者和消费者 ---
     public static void main(String[] args) throws InterruptedException {
-        BlockingBuffer<Integer> buffer = new BlockingBuffer<>(5); // 创建容量为 5 的缓冲区
+        BlockingBuffer<Integer> buffer = new LoggingBlockingBuffer<>(5); // 创建容量为 5 的缓冲区
 
         // 生产者任务
         Runnable producerTask = () -> {
@@ -1,5 +1,7 @@
 package com.example.javathreaddemo;
 
+import com.example.javathreaddemo.util.HighContentionCounters;
+
 // (可以放在你的项目中的任何地方，或者直接在测试类里写个内部类)
 class Counter {
     private int count = 0;
@@ -41,5 +43,20 @@ public class RaceConditionDemo {
         System.out.println("预期结果: 200000");
         System.out.println("实际结果: " + counter.getCount()); // 打印最终计数值
         System.out.println("耗时: " + (endTime - startTime) + " ms");
+
+        // 正确且在高竞争下依然快的写法：分槽计数器 (更多实现和对比见 CounterBenchmark)
+        HighContentionCounters.StatCounter stripedCounter = new HighContentionCounters.StripedCounter();
+        Runnable stripedTask = () -> {
+            for (int i = 0; i < 100000; i++) {
+                stripedCounter.increment();
+            }
+        };
+        Thread thread3 = new Thread(stripedTask, "线程C");
+        Thread thread4 = new Thread(stripedTask, "线程D");
+        thread3.start();
+        thread4.start();
+        thread3.join();
+        thread4.join();
+        System.out.println("分槽计数器结果: " + stripedCounter.sum());
     }
 }
\ No newline at end of file
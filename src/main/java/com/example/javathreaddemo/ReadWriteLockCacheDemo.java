@@ -20,19 +20,16 @@ public class ReadWriteLockCacheDemo {
         private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
         private final Lock readLock = rwLock.readLock();
         private final Lock writeLock = rwLock.writeLock();
-        // 这个 random 仅供 ReadWriteCache 内部的 sleep 使用
-        private final Random cacheInternalRandom = new Random();
 
         public V get(K key) {
             readLock.lock();
             try {
-                System.out.printf("线程 [%s] 获取了读取锁，准备读取 key: %s\n", Thread.currentThread().getName(), key);
-                sleepRandomly(10, 50); // 内部调用随机休眠
+                onReadLocked(key);
                 V value = cacheMap.get(key);
-                System.out.printf("线程 [%s] 读取完成 key: %s, value: %s\n", Thread.currentThread().getName(), key, value);
+                onReadDone(key, value);
                 return value;
             } finally {
-                System.out.printf("线程 [%s] 释放了读取锁\n", Thread.currentThread().getName());
+                onUnlock(false);
                 readLock.unlock();
             }
         }
@@ -40,12 +37,11 @@ public class ReadWriteLockCacheDemo {
         public void put(K key, V value) {
             writeLock.lock();
             try {
-                System.out.printf(">>>> 线程 [%s] 获取了写入锁，准备写入 key: %s, value: %s\n", Thread.currentThread().getName(), key, value);
-                sleepRandomly(50, 100); // 内部调用随机休眠
+                onWriteLocked(key, value);
                 cacheMap.put(key, value);
-                System.out.printf(">>>> 线程 [%s] 写入完成 key: %s, value: %s\n", Thread.currentThread().getName(), key, value);
+                onWriteDone(key, value);
             } finally {
-                System.out.printf("<<<< 线程 [%s] 释放了写入锁\n", Thread.currentThread().getName());
+                onUnlock(true);
                 writeLock.unlock();
             }
         }
@@ -53,15 +49,95 @@ public class ReadWriteLockCacheDemo {
         public void clear() {
             writeLock.lock();
             try {
-                System.out.printf(">>>> 线程 [%s] 获取了写入锁，准备清空缓存\n", Thread.currentThread().getName());
+                onClearLocked();
                 cacheMap.clear();
-                System.out.printf(">>>> 线程 [%s] 缓存已清空\n", Thread.currentThread().getName());
+                onClearDone();
             } finally {
-                System.out.printf("<<<< 线程 [%s] 释放了写入锁\n", Thread.currentThread().getName());
+                onUnlock(true);
                 writeLock.unlock();
             }
         }
 
+        public int size() {
+            readLock.lock();
+            try {
+                return cacheMap.size();
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        // 以下钩子都在持有锁时调用，默认什么都不做，基准测试直接使用本类；演示用的日志和休眠放在子类里
+        void onReadLocked(K key) {
+        }
+
+        void onReadDone(K key, V value) {
+        }
+
+        void onWriteLocked(K key, V value) {
+        }
+
+        void onWriteDone(K key, V value) {
+        }
+
+        void onClearLocked() {
+        }
+
+        void onClearDone() {
+        }
+
+        void onUnlock(boolean write) {
+        }
+    }
+
+    /**
+     * 演示用的缓存：持有锁时打印日志并随机休眠，便于观察读锁共享、写锁独占
+     */
+    static class LoggingReadWriteCache<K, V> extends ReadWriteCache<K, V> {
+        // 这个 random 仅供缓存内部的 sleep 使用
+        private final Random cacheInternalRandom = new Random();
+
+        @Override
+        void onReadLocked(K key) {
+            System.out.printf("线程 [%s] 获取了读取锁，准备读取 key: %s\n", Thread.currentThread().getName(), key);
+            sleepRandomly(10, 50); // 内部调用随机休眠
+        }
+
+        @Override
+        void onReadDone(K key, V value) {
+            System.out.printf("线程 [%s] 读取完成 key: %s, value: %s\n", Thread.currentThread().getName(), key, value);
+        }
+
+        @Override
+        void onWriteLocked(K key, V value) {
+            System.out.printf(">>>> 线程 [%s] 获取了写入锁，准备写入 key: %s, value: %s\n", Thread.currentThread().getName(), key, value);
+            sleepRandomly(50, 100); // 内部调用随机休眠
+        }
+
+        @Override
+        void onWriteDone(K key, V value) {
+            System.out.printf(">>>> 线程 [%s] 写入完成 key: %s, value: %s\n", Thread.currentThread().getName(), key, value);
+        }
+
+        @Override
+        void onClearLocked() {
+            System.out.printf(">>>> 线程 [%s] 获取了写入锁，准备清空缓存\n", Thread.currentThread().getName());
+        }
+
+        @Override
+        void onClearDone() {
+            System.out.printf(">>>> 线程 [%s] 缓存已清空\n", Thread.currentThread().getName());
+        }
+
+        @Override
+        void onUnlock(boolean write) {
+            if (write) {
+                System.out.printf("<<<< 线程 [%s] 释放了写入锁\n", Thread.currentThread().getName());
+            } else {
+                System.out.printf("线程 [%s] 释放了读取锁\n", Thread.currentThread().getName());
+            }
+        }
+
         // 提取一个内部方法用于随机休眠
         private void sleepRandomly(int minMillis, int boundMillis) {
             try {
@@ -75,7 +151,7 @@ public class ReadWriteLockCacheDemo {
 
     // --- Main 方法，启动读写线程 ---
     public static void main(String[] args) throws InterruptedException {
-        ReadWriteCache<String, String> cache = new ReadWriteCache<>();
+        ReadWriteCache<String, String> cache = new LoggingReadWriteCache<>();
         // **修正：在 main 方法作用域内创建一个 Random 实例**
         final Random taskRandom = new Random();
 
@@ -0,0 +1,338 @@
+package com.example.javathreaddemo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 分散-聚合 (scatter-gather) Demo:
+ * CountDownLatchDemo 的做法是主线程 latch.await 阻塞等待，拿不到各任务的结果，超时后还在跑的任务也没人取消，
+ * 继续占着线程池。按分区汇总库存时，慢分区会拖慢后面所有请求。
+ * <p>
+ * ScatterGatherExecutor 把 N 个子任务提交到线程池，立即返回 CompletableFuture：
+ * 全部完成或到达截止时间时完成，截止时还没结束的子任务被中断取消，已完成的部分结果照常返回，
+ * 每个子任务都记录状态和耗时。等待期间不占用任何调用方线程，截止时间由一个共享的定时线程触发。
+ */
+public class ScatterGatherDemo {
+
+    /**
+     * 单个子任务的结果
+     */
+    static final class SubtaskResult<T> {
+        enum Status {SUCCESS, FAILED, TIMED_OUT}
+
+        final int index;
+        final Status status;
+        final T value;
+        final Throwable error;
+        // 从提交到完成 (或截止) 的耗时，包括在线程池里排队的时间
+        final long latencyNanos;
+
+        SubtaskResult(int index, Status status, T value, Throwable error, long latencyNanos) {
+            this.index = index;
+            this.status = status;
+            this.value = value;
+            this.error = error;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+
+    /**
+     * 一次聚合的结果，subtasks 与提交的任务一一对应
+     */
+    static final class GatherResult<T> {
+        final List<SubtaskResult<T>> subtasks;
+        final long elapsedNanos;
+
+        GatherResult(List<SubtaskResult<T>> subtasks, long elapsedNanos) {
+            this.subtasks = subtasks;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * 所有子任务都成功完成
+         */
+        boolean isComplete() {
+            return successCount() == subtasks.size();
+        }
+
+        int successCount() {
+            int count = 0;
+            for (SubtaskResult<T> result : subtasks) {
+                if (result.status == SubtaskResult.Status.SUCCESS) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        int count(SubtaskResult.Status status) {
+            int count = 0;
+            for (SubtaskResult<T> result : subtasks) {
+                if (result.status == status) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * 成功子任务的结果 (按提交顺序)
+         */
+        List<T> values() {
+            List<T> values = new ArrayList<>();
+            for (SubtaskResult<T> result : subtasks) {
+                if (result.status == SubtaskResult.Status.SUCCESS) {
+                    values.add(result.value);
+                }
+            }
+            return values;
+        }
+    }
+
+    static class ScatterGatherExecutor {
+        private final ExecutorService workers;
+        private final ScheduledExecutorService timer;
+
+        /**
+         * @param workers 执行子任务的线程池；超时取消通过 Future.cancel(true) 中断子任务
+         * @param timer   只用于触发截止时间，一个线程即可
+         */
+        ScatterGatherExecutor(ExecutorService workers, ScheduledExecutorService timer) {
+            this.workers = workers;
+            this.timer = timer;
+        }
+
+        /**
+         * 并发执行 tasks，在 timeout 内聚合结果。返回的 future 不会异常完成：
+         * 子任务抛出的异常记为 FAILED，截止时未完成的记为 TIMED_OUT 并被取消。
+         * <p>
+         * future 在最后一个子任务的线程或定时线程上完成，后续的重活应使用 thenApplyAsync 等异步方法。
+         * 调用方取消返回的 future 时，所有未完成的子任务也一起取消。
+         */
+        <T> CompletableFuture<GatherResult<T>> gather(List<? extends Callable<? extends T>> tasks,
+                                                       long timeout, TimeUnit unit) {
+            Gather<T> gather = new Gather<>(tasks.size());
+            if (tasks.isEmpty()) {
+                gather.result.complete(new GatherResult<>(Collections.emptyList(), 0));
+                return gather.result;
+            }
+            gather.deadline = timer.schedule(gather::expire, timeout, unit);
+            gather.result.whenComplete((r, e) -> {
+                if (gather.result.isCancelled()) {
+                    gather.expire();
+                }
+            });
+            for (int i = 0; i < tasks.size(); i++) {
+                final int index = i;
+                Callable<? extends T> task = tasks.get(i);
+                try {
+                    Future<?> future = workers.submit(() -> {
+                        try {
+                            gather.complete(index, SubtaskResult.Status.SUCCESS, task.call(), null);
+                        } catch (Throwable e) {
+                            // 被截止时间取消时槽位已经写成 TIMED_OUT，这里的 complete 不会生效
+                            gather.complete(index, SubtaskResult.Status.FAILED, null, e);
+                        }
+                    });
+                    gather.futures.set(index, future);
+                    // 提交过程中可能已经截止，此时 expire 看不到这个 future，需要自己取消
+                    SubtaskResult<T> slot = gather.slots.get(index);
+                    if (slot != null && slot.status == SubtaskResult.Status.TIMED_OUT) {
+                        future.cancel(true);
+                    }
+                } catch (RejectedExecutionException e) {
+                    gather.complete(index, SubtaskResult.Status.FAILED, null, e);
+                }
+            }
+            return gather.result;
+        }
+    }
+
+    /**
+     * 一次聚合的状态；每个槽位只能被写一次 (子任务完成或截止二者之一)，写满时完成 result
+     */
+    private static final class Gather<T> {
+        final long startNanos = System.nanoTime();
+        final AtomicReferenceArray<SubtaskResult<T>> slots;
+        final AtomicReferenceArray<Future<?>> futures;
+        final AtomicInteger remaining;
+        final CompletableFuture<GatherResult<T>> result = new CompletableFuture<>();
+        volatile ScheduledFuture<?> deadline;
+
+        Gather(int size) {
+            slots = new AtomicReferenceArray<>(size);
+            futures = new AtomicReferenceArray<>(size);
+            remaining = new AtomicInteger(size);
+        }
+
+        boolean complete(int index, SubtaskResult.Status status, T value, Throwable error) {
+            SubtaskResult<T> subtask = new SubtaskResult<>(index, status, value, error, System.nanoTime() - startNanos);
+            if (!slots.compareAndSet(index, null, subtask)) {
+                return false;
+            }
+            if (remaining.decrementAndGet() == 0) {
+                ScheduledFuture<?> timeout = deadline;
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+                List<SubtaskResult<T>> subtasks = new ArrayList<>(slots.length());
+                for (int i = 0; i < slots.length(); i++) {
+                    subtasks.add(slots.get(i));
+                }
+                result.complete(new GatherResult<>(subtasks, System.nanoTime() - startNanos));
+            }
+            return true;
+        }
+
+        // 截止：把所有未完成的槽位写成 TIMED_OUT 并中断对应的子任务
+        void expire() {
+            for (int i = 0; i < slots.length(); i++) {
+                if (complete(i, SubtaskResult.Status.TIMED_OUT, null, null)) {
+                    Future<?> future = futures.get(i);
+                    if (future != null) {
+                        future.cancel(true);
+                    }
+                }
+            }
+        }
+    }
+
+    // ===================== 高扇出延迟测试 =====================
+
+    /**
+     * 模拟查询一个分区的库存：通常耗时 fastMicros 左右，按 stragglerRatio 的概率变成 slowMillis 的慢分区
+     */
+    static Callable<Integer> partitionQuery(int partition, long fastMicros, double stragglerRatio, long slowMillis) {
+        return () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < stragglerRatio) {
+                TimeUnit.MILLISECONDS.sleep(slowMillis);
+            } else {
+                TimeUnit.MICROSECONDS.sleep(fastMicros / 2 + random.nextLong(fastMicros));
+            }
+            return partition % 7;
+        };
+    }
+
+    /**
+     * 对照组：CountDownLatchDemo 的写法，调用线程阻塞等待，超时后的任务不取消
+     */
+    static GatherResult<Integer> latchGather(ExecutorService workers, List<Callable<Integer>> tasks, long timeoutMillis)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        CountDownLatch latch = new CountDownLatch(tasks.size());
+        AtomicReferenceArray<SubtaskResult<Integer>> slots = new AtomicReferenceArray<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            final int index = i;
+            Callable<Integer> task = tasks.get(i);
+            workers.execute(() -> {
+                try {
+                    slots.set(index, new SubtaskResult<>(index, SubtaskResult.Status.SUCCESS, task.call(), null,
+                            System.nanoTime() - start));
+                } catch (Exception e) {
+                    slots.set(index, new SubtaskResult<>(index, SubtaskResult.Status.FAILED, null, e,
+                            System.nanoTime() - start));
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        List<SubtaskResult<Integer>> subtasks = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            SubtaskResult<Integer> result = slots.get(i);
+            subtasks.add(result != null ? result
+                    : new SubtaskResult<>(i, SubtaskResult.Status.TIMED_OUT, null, null, System.nanoTime() - start));
+        }
+        return new GatherResult<>(subtasks, System.nanoTime() - start);
+    }
+
+    private static void report(String name, int fanOut, List<GatherResult<Integer>> results) {
+        long[] elapsed = results.stream().mapToLong(r -> r.elapsedNanos).sorted().toArray();
+        long[] subtaskLatency = results.stream().flatMap(r -> r.subtasks.stream())
+                .filter(s -> s.status == SubtaskResult.Status.SUCCESS).mapToLong(s -> s.latencyNanos).sorted().toArray();
+        long complete = results.stream().filter(GatherResult::isComplete).count();
+        double successRatio = results.stream().mapToInt(GatherResult::successCount).sum() / (double) (fanOut * results.size());
+        System.out.printf("%-16s %6d %10.2f %10.2f %10.2f %9.1f%% %11.2f%% %12.2f\n", name, fanOut,
+                elapsed[elapsed.length / 2] / 1e6, elapsed[(int) (elapsed.length * 0.99)] / 1e6,
+                elapsed[elapsed.length - 1] / 1e6, complete * 100.0 / results.size(), successRatio * 100,
+                subtaskLatency.length == 0 ? 0 : subtaskLatency[(int) (subtaskLatency.length * 0.99)] / 1e6);
+    }
+
+    // --- Main 方法 ---
+    // 参数: [每种扇出的聚合次数, 默认 100] [截止时间 ms, 默认 20] [慢分区概率, 默认 0.002] [线程池大小, 默认 64]
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long timeoutMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        double stragglerRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.002;
+        int poolSize = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        long fastMicros = 200;
+        long slowMillis = 200;
+
+        System.out.printf("线程池 %d，分区查询约 %d µs，%.1f%% 的分区耗时 %d ms，截止时间 %d ms，每种扇出 %d 次聚合\n",
+                poolSize, fastMicros, stragglerRatio * 100, slowMillis, timeoutMillis, rounds);
+        System.out.printf("%-16s %6s %10s %10s %10s %10s %12s %12s\n", "实现", "扇出", "p50(ms)", "p99(ms)", "max(ms)",
+                "全部完成", "子任务成功率", "子任务p99(ms)");
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "聚合截止定时器");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int fanOut : new int[]{10, 100, 1000}) {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int p = 0; p < fanOut; p++) {
+                tasks.add(partitionQuery(p, fastMicros, stragglerRatio, slowMillis));
+            }
+
+            ExecutorService latchWorkers = Executors.newFixedThreadPool(poolSize);
+            List<GatherResult<Integer>> latchResults = new ArrayList<>();
+            for (int r = 0; r < rounds; r++) {
+                latchResults.add(latchGather(latchWorkers, tasks, timeoutMillis));
+            }
+            latchWorkers.shutdownNow();
+            report("CountDownLatch", fanOut, latchResults);
+
+            ExecutorService workers = Executors.newFixedThreadPool(poolSize);
+            ScatterGatherExecutor executor = new ScatterGatherExecutor(workers, timer);
+            List<GatherResult<Integer>> results = new ArrayList<>();
+            for (int r = 0; r < rounds; r++) {
+                // Demo 里为了逐次测量延迟才 join；业务代码里应该用 thenApply / thenAccept 继续处理
+                results.add(executor.gather(tasks, timeoutMillis, TimeUnit.MILLISECONDS).join());
+            }
+            workers.shutdownNow();
+            report("ScatterGather", fanOut, results);
+        }
+
+        // 非阻塞地汇总总库存：聚合结束后在回调里求和，调用线程不等待
+        ExecutorService workers = Executors.newFixedThreadPool(poolSize);
+        ScatterGatherExecutor executor = new ScatterGatherExecutor(workers, timer);
+        List<Callable<Integer>> partitions = new ArrayList<>();
+        for (int p = 0; p < 16; p++) {
+            partitions.add(partitionQuery(p, fastMicros, 0.1, slowMillis));
+        }
+        CompletableFuture<String> summary = executor.gather(partitions, timeoutMillis, TimeUnit.MILLISECONDS)
+                .thenApply(result -> String.format("总库存 %d (来自 %d/%d 个分区，超时 %d 个)，各分区状态 %s",
+                        result.values().stream().mapToInt(Integer::intValue).sum(), result.successCount(),
+                        result.subtasks.size(), result.count(SubtaskResult.Status.TIMED_OUT),
+                        Arrays.toString(result.subtasks.stream().map(s -> s.status.name().charAt(0)).toArray())));
+        System.out.println("\n调用线程已返回，等待回调...");
+        System.out.println(summary.get(1, TimeUnit.SECONDS));
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.javathreaddemo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 锁分段 (lock striping) 的读写缓存 Demo:
+ * 按 key 的 hash 把数据分到 N 个段，每个段有自己的读写锁和 HashMap，
+ * 一个写线程只会阻塞同一段上的读者，而不是整个缓存。
+ */
+public class SegmentedCacheDemo {
+
+    static class SegmentedReadWriteCache<K, V> {
+
+        /**
+         * 一个段：结构和 ReadWriteLockCacheDemo.ReadWriteCache 一样，只是多了一个 volatile 的条目计数
+         */
+        static final class Segment<K, V> {
+            private final Map<K, V> map = new HashMap<>();
+            private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+            private final Lock readLock = rwLock.readLock();
+            // 包内可见，测试中用来占住一个段的写锁
+            final Lock writeLock = rwLock.writeLock();
+            // 只在写锁内修改，读取无需加锁
+            private volatile int count;
+
+            V get(K key) {
+                readLock.lock();
+                try {
+                    return map.get(key);
+                } finally {
+                    readLock.unlock();
+                }
+            }
+
+            void put(K key, V value) {
+                writeLock.lock();
+                try {
+                    map.put(key, value);
+                    count = map.size();
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            V remove(K key) {
+                writeLock.lock();
+                try {
+                    V removed = map.remove(key);
+                    count = map.size();
+                    return removed;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            void clear() {
+                writeLock.lock();
+                try {
+                    map.clear();
+                    count = 0;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        }
+
+        private final Segment<K, V>[] segments;
+
+        @SuppressWarnings("unchecked")
+        public SegmentedReadWriteCache(int segmentCount) {
+            if (segmentCount <= 0) {
+                throw new IllegalArgumentException("Segment count must be positive");
+            }
+            this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment<>();
+            }
+        }
+
+        public V get(K key) {
+            return segmentFor(key).get(key);
+        }
+
+        public void put(K key, V value) {
+            segmentFor(key).put(key, value);
+        }
+
+        public V remove(K key) {
+            return segmentFor(key).remove(key);
+        }
+
+        /**
+         * 逐段清空：每次只锁一个段，其它段的读写不受影响。
+         * 注意这不是一个原子快照，清空过程中并发写入其它段的数据可能被保留下来。
+         */
+        public void clear() {
+            for (Segment<K, V> segment : segments) {
+                segment.clear();
+            }
+        }
+
+        /**
+         * 累加各段的 volatile 计数，不加任何锁；并发写入时结果是近似值
+         */
+        public int size() {
+            int size = 0;
+            for (Segment<K, V> segment : segments) {
+                size += segment.count;
+            }
+            return size;
+        }
+
+        public int segmentCount() {
+            return segments.length;
+        }
+
+        // 包内可见，测试中用来找到 key 所在的段
+        Segment<K, V> segmentFor(K key) {
+            // 和 HashMap 一样允许 null key，固定落在第 0 段
+            int h = key == null ? 0 : key.hashCode();
+            // 打散 hash，避免连续的 Integer key 集中在低位
+            h ^= (h >>> 16);
+            h *= 0x85ebca6b;
+            h ^= (h >>> 13);
+            return segments[Math.floorMod(h, segments.length)];
+        }
+    }
+
+    // --- Main 方法：单锁 vs 1/16/64 段的混合读写吞吐 ---
+    // 参数: [线程数, 默认 CPU 核数 * 2] [每轮毫秒数, 默认 2000] [key 数量, 默认 100000]
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        long durationMillis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        int keyCount = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        Long[] keys = CacheBenchmarkSuite.sequentialKeys(keyCount);
+        CacheBenchmarkSuite.KeyDistribution uniform = CacheBenchmarkSuite.uniform(keyCount);
+
+        System.out.printf("混合读写基准：%d 线程，key 数量 %d，每轮 %d ms\n", threads, keyCount, durationMillis);
+        System.out.printf("%-10s %18s %18s %18s %18s\n", "写比例", "单锁(ops/s)", "1段(ops/s)", "16段(ops/s)", "64段(ops/s)");
+        for (int writePercent : new int[]{1, 10, 50}) {
+            ReadWriteLockCacheDemo.ReadWriteCache<Long, Long> single = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+            for (Long key : keys) {
+                single.put(key, key);
+            }
+            double singleOps = CacheBenchmarkSuite.throughput(CacheBenchmarkSuite.getThenPut(single::get, single::put),
+                    uniform, keys, threads, 100 - writePercent, durationMillis);
+            StringBuilder row = new StringBuilder(String.format("%-10s %18.0f", writePercent + "%", singleOps));
+            for (int segmentCount : new int[]{1, 16, 64}) {
+                SegmentedReadWriteCache<Long, Long> segmented = new SegmentedReadWriteCache<>(segmentCount);
+                for (Long key : keys) {
+                    segmented.put(key, key);
+                }
+                double ops = CacheBenchmarkSuite.throughput(CacheBenchmarkSuite.getThenPut(segmented::get, segmented::put),
+                        uniform, keys, threads, 100 - writePercent, durationMillis);
+                row.append(String.format(" %18.0f", ops));
+            }
+            System.out.println(row);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.javathreaddemo;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 使用 StampedLock 乐观读实现的缓存 Demo:
+ * get 先走乐观读 (不修改锁状态，读者之间没有 CAS 竞争)，validate 失败才退化为悲观读锁；
+ * 写操作通过写锁 stamp 进行。main 方法对比它和 ReentrantReadWriteLock 版本在 1~N 个读线程下的读吞吐。
+ */
+public class StampedLockCacheDemo {
+
+    /**
+     * 与 ReadWriteLockCacheDemo.ReadWriteCache 相同 API 的 StampedLock 缓存
+     * <p>
+     * 乐观读不持有锁，读的过程中写线程可能正在修改，所以不能像 ReadWriteCache 那样直接读 HashMap
+     * (扩容、树化时读者可能看到不一致的结构)。这里用自己的哈希表：
+     * 桶数组通过 volatile 引用发布，扩容时整体换新数组；链表节点的字段全部是 final，写线程只会
+     * 把新节点挂到桶头或复制出新的链表前缀，从不修改已发布的节点。乐观读者无论和写线程怎样交错，
+     * 看到的都是某个完整的链表，最坏只是读到旧值，再由 validate 发现并退化为读锁重读。
+     */
+    static class StampedLockCache<K, V> {
+        private static final int INITIAL_CAPACITY = 16;
+
+        static final class Node<K, V> {
+            final int hash;
+            final K key;
+            final V value;
+            final Node<K, V> next;
+
+            Node(int hash, K key, V value, Node<K, V> next) {
+                this.hash = hash;
+                this.key = key;
+                this.value = value;
+                this.next = next;
+            }
+        }
+
+        private final StampedLock stampedLock = new StampedLock();
+        private volatile Node<K, V>[] table = newTable(INITIAL_CAPACITY);
+        // 只在持有写锁时访问
+        private int size;
+
+        public V get(K key) {
+            int hash = hash(key);
+            // 1. 乐观读：只读取一次版本号，不加锁；table 只读一次，之后都在这个快照上查找
+            long stamp = stampedLock.tryOptimisticRead();
+            if (stamp != 0L) {
+                V value = find(table, hash, key);
+                // 2. 校验期间没有写锁被获取过，读到的值才是最新的
+                if (stampedLock.validate(stamp)) {
+                    return value;
+                }
+            }
+            // 3. 乐观读失败 (有并发写入)，退化为悲观读锁
+            stamp = stampedLock.readLock();
+            try {
+                return find(table, hash, key);
+            } finally {
+                stampedLock.unlockRead(stamp);
+            }
+        }
+
+        public void put(K key, V value) {
+            int hash = hash(key);
+            long stamp = stampedLock.writeLock();
+            try {
+                Node<K, V>[] tab = table;
+                int index = hash & (tab.length - 1);
+                Node<K, V> head = tab[index];
+                for (Node<K, V> node = head; node != null; node = node.next) {
+                    if (node.hash == hash && Objects.equals(node.key, key)) {
+                        tab[index] = replace(head, node, value);
+                        return;
+                    }
+                }
+                tab[index] = new Node<>(hash, key, value, head);
+                if (++size > tab.length - (tab.length >>> 2)) {
+                    resize(tab);
+                }
+            } finally {
+                stampedLock.unlockWrite(stamp);
+            }
+        }
+
+        public void clear() {
+            long stamp = stampedLock.writeLock();
+            try {
+                table = newTable(INITIAL_CAPACITY);
+                size = 0;
+            } finally {
+                stampedLock.unlockWrite(stamp);
+            }
+        }
+
+        public int size() {
+            long stamp = stampedLock.readLock();
+            try {
+                return size;
+            } finally {
+                stampedLock.unlockRead(stamp);
+            }
+        }
+
+        private static <K, V> V find(Node<K, V>[] tab, int hash, K key) {
+            for (Node<K, V> node = tab[hash & (tab.length - 1)]; node != null; node = node.next) {
+                if (node.hash == hash && Objects.equals(node.key, key)) {
+                    return node.value;
+                }
+            }
+            return null;
+        }
+
+        // 复制 target 之前的节点，target 之后的节点原样复用
+        private static <K, V> Node<K, V> replace(Node<K, V> node, Node<K, V> target, V value) {
+            if (node == target) {
+                return new Node<>(target.hash, target.key, value, target.next);
+            }
+            return new Node<>(node.hash, node.key, node.value, replace(node.next, target, value));
+        }
+
+        // 在新数组上重建所有链表，建好后才通过 volatile 写发布
+        private void resize(Node<K, V>[] oldTable) {
+            Node<K, V>[] newTable = newTable(oldTable.length << 1);
+            for (Node<K, V> head : oldTable) {
+                for (Node<K, V> node = head; node != null; node = node.next) {
+                    int index = node.hash & (newTable.length - 1);
+                    newTable[index] = new Node<>(node.hash, node.key, node.value, newTable[index]);
+                }
+            }
+            table = newTable;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <K, V> Node<K, V>[] newTable(int capacity) {
+            return (Node<K, V>[]) new Node<?, ?>[capacity];
+        }
+
+        private static int hash(Object key) {
+            int h = Objects.hashCode(key);
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * 后台低频写线程：每次写后停顿约 100 微秒，直到 running 被置为 false；写操作不计入吞吐
+     */
+    static Thread startBackgroundWriter(CacheBenchmarkSuite.Putter putter, Long[] keys, AtomicBoolean running) {
+        Thread writer = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long counter = 0;
+            try {
+                while (running.get()) {
+                    putter.put(keys[random.nextInt(keys.length)], counter++);
+                    LockSupport.parkNanos(100_000);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, "写线程");
+        writer.start();
+        return writer;
+    }
+
+    // --- Main 方法，读吞吐扩展性基准 ---
+    // 参数: [最大读线程数, 默认 CPU 核数] [每轮毫秒数, 默认 2000] [key 数量, 默认 10000]
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long durationMillis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        int keyCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        Long[] keys = CacheBenchmarkSuite.sequentialKeys(keyCount);
+        CacheBenchmarkSuite.KeyDistribution uniform = CacheBenchmarkSuite.uniform(keyCount);
+        ReadWriteLockCacheDemo.ReadWriteCache<Long, Long> rwCache = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+        StampedLockCache<Long, Long> stampedCache = new StampedLockCache<>();
+        for (Long key : keys) {
+            rwCache.put(key, key);
+            stampedCache.put(key, key);
+        }
+        CacheBenchmarkSuite.BenchmarkCache rw = CacheBenchmarkSuite.getThenPut(rwCache::get, rwCache::put);
+        CacheBenchmarkSuite.BenchmarkCache stamped = CacheBenchmarkSuite.getThenPut(stampedCache::get, stampedCache::put);
+
+        System.out.printf("读吞吐基准：key 数量 %d，每轮 %d ms，最大读线程数 %d\n", keyCount, durationMillis, maxThreads);
+        for (boolean withWriter : new boolean[]{false, true}) {
+            System.out.println(withWriter ? "\n--- 读 + 1 个低频写线程 ---" : "\n--- 纯读 ---");
+            System.out.printf("%-8s %22s %22s %10s\n", "读线程", "ReadWriteLock(ops/s)", "StampedLock(ops/s)", "加速比");
+            for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+                double rwOps = readThroughput(rw, rwCache::put, withWriter, uniform, keys, threads, durationMillis);
+                double stampedOps = readThroughput(stamped, stampedCache::put, withWriter, uniform, keys, threads, durationMillis);
+                System.out.printf("%-8d %22.0f %22.0f %9.2fx\n", threads, rwOps, stampedOps, stampedOps / rwOps);
+            }
+        }
+    }
+
+    // 纯读负载交给 CacheBenchmarkSuite 测量，需要时在旁边跑一个后台写线程
+    private static double readThroughput(CacheBenchmarkSuite.BenchmarkCache cache, CacheBenchmarkSuite.Putter putter,
+                                         boolean withWriter, CacheBenchmarkSuite.KeyDistribution distribution,
+                                         Long[] keys, int threads, long durationMillis) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = withWriter ? startBackgroundWriter(putter, keys, running) : null;
+        try {
+            return CacheBenchmarkSuite.throughput(cache, distribution, keys, threads, 100, durationMillis);
+        } finally {
+            running.set(false);
+            if (writer != null) {
+                writer.join();
+            }
+        }
+    }
+
+    // 线程数按 1, 2, 4, ... 翻倍，最后一轮一定跑满 maxThreads
+    private static int nextThreadCount(int current, int maxThreads) {
+        if (current == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(current * 2, maxThreads);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.javathreaddemo;
+
+import com.example.javathreaddemo.service.ThreadContentionSampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 线程状态与锁竞争采样器的开销测试:
+ * 两组线程制造竞争——"订单线程"争抢同一个 synchronized 监视器，"库存线程"在 ReentrantLock 的 Condition 上等待补货；
+ * 分别在不采样、100 Hz、1 kHz 下运行相同时间，对比工作负载的吞吐量、每次采样耗时和采样线程的 CPU 占用，
+ * 最后输出 1 kHz 时按线程池和锁聚合的结果。
+ */
+public class ThreadSamplerDemo {
+
+    /**
+     * 制造竞争的工作负载
+     */
+    static class ContendedWorkload {
+        private final Object orderMonitor = new Object();
+        private final ReentrantLock stockLock = new ReentrantLock();
+        private final Condition restocked = stockLock.newCondition();
+        private final LongAdder operations = new LongAdder();
+        private final List<Thread> threads = new ArrayList<>();
+        private volatile boolean running = true;
+        private long orders;
+        private int stock;
+
+        ContendedWorkload(int orderThreads, int stockThreads) {
+            for (int i = 0; i < orderThreads; i++) {
+                threads.add(new Thread(this::placeOrders, "订单线程-" + i));
+            }
+            for (int i = 0; i < stockThreads; i++) {
+                threads.add(new Thread(this::takeStock, "库存线程-" + i));
+            }
+            threads.add(new Thread(this::restock, "补货线程"));
+        }
+
+        private void placeOrders() {
+            while (running) {
+                synchronized (orderMonitor) {
+                    // 临界区内做一点计算，让其他线程有机会 BLOCKED
+                    long x = orders;
+                    for (int i = 0; i < 200; i++) {
+                        x = x * 31 + i;
+                    }
+                    orders = x;
+                }
+                operations.increment();
+            }
+        }
+
+        private void takeStock() {
+            while (running) {
+                stockLock.lock();
+                try {
+                    while (stock == 0 && running) {
+                        restocked.await(10, TimeUnit.MILLISECONDS);
+                    }
+                    if (stock > 0) {
+                        stock--;
+                        operations.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    stockLock.unlock();
+                }
+            }
+        }
+
+        private void restock() {
+            while (running) {
+                stockLock.lock();
+                try {
+                    stock += 10;
+                    restocked.signalAll();
+                } finally {
+                    stockLock.unlock();
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 运行 millis 毫秒，返回每秒完成的操作数
+         */
+        double run(long millis) throws InterruptedException {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            Thread.sleep(millis);
+            running = false;
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            return operations.sum() * 1000.0 / millis;
+        }
+    }
+
+    // --- Main 方法 ---
+    // 参数: [每轮运行 ms, 默认 3000] [订单线程数, 默认 8] [库存线程数, 默认 4]
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 3000;
+        int orderThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int stockThreads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        System.out.printf("CPU 核数 %d，订单线程 %d，库存线程 %d，每轮 %d ms\n",
+                Runtime.getRuntime().availableProcessors(), orderThreads, stockThreads, millis);
+        new ContendedWorkload(orderThreads, stockThreads).run(millis / 3); // 预热
+
+        System.out.printf("%-10s %16s %10s %12s %14s %12s\n", "采样频率", "操作数/秒", "吞吐变化", "采样次数",
+                "每次采样(µs)", "采样CPU");
+        double baseline = new ContendedWorkload(orderThreads, stockThreads).run(millis);
+        System.out.printf("%-10s %,16.0f %10s %12s %14s %12s\n", "不采样", baseline, "-", "-", "-", "-");
+
+        ThreadContentionSampler last = null;
+        for (long intervalMicros : new long[]{10_000, 1_000}) {
+            ThreadContentionSampler sampler = new ThreadContentionSampler(intervalMicros, 1000);
+            sampler.start();
+            double throughput = new ContendedWorkload(orderThreads, stockThreads).run(millis);
+            sampler.close();
+            System.out.printf("%-10s %,16.0f %9.1f%% %,12d %14.1f %11.2f%%\n", (1_000_000 / intervalMicros) + " Hz",
+                    throughput, (throughput - baseline) * 100 / baseline, sampler.getSampleCount(),
+                    sampler.getAverageSampleMicros(), sampler.getSamplerCpuPercent());
+            last = sampler;
+        }
+
+        System.out.println("\n1 kHz 采样结果 (按线程池):");
+        System.out.printf("%-20s %6s %12s %12s %12s %12s\n", "线程池", "线程", "BLOCKED(ms)", "阻塞次数", "WAITED(ms)",
+                "等待次数");
+        for (ThreadContentionSampler.PoolStats pool : last.getPoolStats()) {
+            System.out.printf("%-20s %6d %12d %,12d %12d %,12d   %s\n", pool.getName(), pool.getThreads(),
+                    pool.getBlockedMillis(), pool.getBlockedCount(), pool.getWaitedMillis(), pool.getWaitedCount(),
+                    pool.getStateMillis());
+        }
+        System.out.println("\n1 kHz 采样结果 (竞争最多的锁):");
+        for (ThreadContentionSampler.LockStats lock : last.getTopLocks(5)) {
+            System.out.printf("%-70s BLOCKED %6d ms, 等待 %6d ms, 最近持有者 %s\n", lock.getLockName(),
+                    lock.getBlockedMillis(), lock.getWaitingMillis(), lock.getLastOwner());
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package com.example.javathreaddemo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 有界缓存 Demo: W-TinyLFU 准入 + 分段 LRU 淘汰
+ * <p>
+ * - 数据放在 ConcurrentHashMap 中，读操作不加锁；
+ * - 读命中只把节点写进"读缓冲区"(有损的条带化环形数组)，缓冲区满了再由拿到淘汰锁的线程批量回放，
+ *   这样 LRU 链表的调整和频率统计是摊销完成的，不需要每次读都抢锁；
+ * - 写操作在淘汰锁内完成：先回放读缓冲区，再插入窗口区，最后执行淘汰；
+ * - 淘汰策略：新条目先进入窗口 LRU (约 1%)，从窗口挤出的候选者和主区 (分段 LRU: 试用区 + 保护区) 的
+ *   牺牲者比较 Count-Min Sketch 估计的访问频率，频率更高的留下。
+ */
+public class TinyLfuCacheDemo {
+
+    /**
+     * 4-bit 计数器的 Count-Min Sketch，用来估计 key 的近期访问频率。
+     * 累计增加次数达到 sampleSize 后所有计数减半 (老化)，让频率反映"近期"热度。
+     * 非线程安全，只在淘汰锁内访问。
+     */
+    static class FrequencySketch {
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            // 每个 long 存 16 个 4-bit 计数器
+            int size = tableSizeFor(Math.max(maximumSize, 16));
+            this.table = new long[size];
+            this.tableMask = size - 1;
+            this.sampleSize = 10 * Math.max(maximumSize, 16);
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = counterOffset(hash, i);
+                int count = (int) ((table[index] >>> offset) & 0xFL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), counterOffset(hash, i));
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int index, int offset) {
+            long mask = 0xFL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        // 所有计数器减半
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions = sampleSize / 2;
+        }
+
+        // 第 i 行使用不同的种子，把 hash 映射到不同的 long
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += (h >>> 32);
+            return ((int) h) & tableMask;
+        }
+
+        // 第 i 行计数器在 long 内的位偏移 (0~60，步长 4)
+        private int counterOffset(int hash, int i) {
+            return (((hash >>> (i << 3)) & 3) << 2) + (i << 4);
+        }
+
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+
+    static int tableSizeFor(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * 有界缓存，按条目数限制大小
+     */
+    static class BoundedCache<K, V> {
+        private static final int WINDOW = 0;
+        private static final int PROBATION = 1;
+        private static final int PROTECTED = 2;
+        private static final int DEAD = 3;
+
+        // 链表指针和所在队列只在淘汰锁内修改；value 可被读线程无锁读取
+        static final class Node<K, V> {
+            final K key;
+            volatile V value;
+            int queue;
+            Node<K, V> prev;
+            Node<K, V> next;
+
+            Node(K key, V value) {
+                this.key = key;
+                this.value = value;
+            }
+        }
+
+        /**
+         * 侵入式双向链表，头部是最久未访问的节点
+         */
+        static final class AccessOrderDeque<K, V> {
+            Node<K, V> head;
+            Node<K, V> tail;
+            int size;
+
+            void addLast(Node<K, V> node) {
+                node.prev = tail;
+                node.next = null;
+                if (tail == null) {
+                    head = node;
+                } else {
+                    tail.next = node;
+                }
+                tail = node;
+                size++;
+            }
+
+            void remove(Node<K, V> node) {
+                if (node.prev == null) {
+                    head = node.next;
+                } else {
+                    node.prev.next = node.next;
+                }
+                if (node.next == null) {
+                    tail = node.prev;
+                } else {
+                    node.next.prev = node.prev;
+                }
+                node.prev = null;
+                node.next = null;
+                size--;
+            }
+
+            void moveToLast(Node<K, V> node) {
+                if (node != tail) {
+                    remove(node);
+                    addLast(node);
+                }
+            }
+
+            Node<K, V> pollFirst() {
+                Node<K, V> first = head;
+                if (first != null) {
+                    remove(first);
+                }
+                return first;
+            }
+
+            void clear() {
+                head = null;
+                tail = null;
+                size = 0;
+            }
+        }
+
+        /**
+         * 一个条带的读缓冲区：多个读线程 CAS 写入，持有淘汰锁的线程负责读出。
+         * 缓冲区满时直接丢弃这次访问记录 (有损)，对命中率影响很小，但读线程永远不会被阻塞。
+         */
+        static final class ReadBuffer<K, V> {
+            static final int SIZE = 16;
+            static final int MASK = SIZE - 1;
+            final AtomicReferenceArray<Node<K, V>> slots = new AtomicReferenceArray<>(SIZE);
+            final AtomicLong writeCounter = new AtomicLong();
+            volatile long readCounter;
+
+            // 返回 true 表示缓冲区已满，需要回放
+            boolean offer(Node<K, V> node) {
+                long head = readCounter;
+                long tail = writeCounter.get();
+                long size = tail - head;
+                if (size >= SIZE) {
+                    return true;
+                }
+                if (writeCounter.compareAndSet(tail, tail + 1)) {
+                    slots.lazySet((int) (tail & MASK), node);
+                    return size + 1 >= SIZE;
+                }
+                return false;
+            }
+        }
+
+        private final int maximumSize;
+        private final int windowMaximum;
+        private final int protectedMaximum;
+
+        private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+        private final ReentrantLock evictionLock = new ReentrantLock();
+        private final FrequencySketch sketch;
+        private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+        private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+        private final AccessOrderDeque<K, V> protectedQueue = new AccessOrderDeque<>();
+        private final ReadBuffer<K, V>[] readBuffers;
+        private final int readBufferMask;
+
+        @SuppressWarnings("unchecked")
+        public BoundedCache(int maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("Maximum size must be positive");
+            }
+            this.maximumSize = maximumSize;
+            this.windowMaximum = Math.max(1, maximumSize / 100);
+            int mainMaximum = maximumSize - windowMaximum;
+            this.protectedMaximum = (int) (mainMaximum * 0.8);
+            this.sketch = new FrequencySketch(maximumSize);
+            int stripes = tableSizeFor(Runtime.getRuntime().availableProcessors());
+            this.readBuffers = (ReadBuffer<K, V>[]) new ReadBuffer<?, ?>[stripes];
+            for (int i = 0; i < stripes; i++) {
+                readBuffers[i] = new ReadBuffer<>();
+            }
+            this.readBufferMask = stripes - 1;
+        }
+
+        public V get(K key) {
+            Node<K, V> node = data.get(key);
+            if (node == null) {
+                return null;
+            }
+            // 只记录访问，不调整链表
+            ReadBuffer<K, V> buffer = readBuffers[stripeIndex()];
+            if (buffer.offer(node) && evictionLock.tryLock()) {
+                try {
+                    drainReadBuffers();
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+            return node.value;
+        }
+
+        public void put(K key, V value) {
+            evictionLock.lock();
+            try {
+                drainReadBuffers();
+                sketch.increment(key);
+                Node<K, V> existing = data.get(key);
+                if (existing != null) {
+                    existing.value = value;
+                    onAccess(existing);
+                    return;
+                }
+                Node<K, V> node = new Node<>(key, value);
+                node.queue = WINDOW;
+                data.put(key, node);
+                window.addLast(node);
+                evictEntries();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+
+        public void clear() {
+            evictionLock.lock();
+            try {
+                drainReadBuffers();
+                for (Node<K, V> node : data.values()) {
+                    node.queue = DEAD;
+                }
+                data.clear();
+                window.clear();
+                probation.clear();
+                protectedQueue.clear();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+
+        public int size() {
+            return data.size();
+        }
+
+        private int stripeIndex() {
+            long id = Thread.currentThread().getId();
+            return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & readBufferMask;
+        }
+
+        // 必须持有 evictionLock
+        private void drainReadBuffers() {
+            for (ReadBuffer<K, V> buffer : readBuffers) {
+                long head = buffer.readCounter;
+                long tail = buffer.writeCounter.get();
+                for (; head < tail; head++) {
+                    int index = (int) (head & ReadBuffer.MASK);
+                    Node<K, V> node = buffer.slots.get(index);
+                    if (node == null) {
+                        // 写入者已经占了位置但还没发布节点，下次再回放
+                        break;
+                    }
+                    buffer.slots.lazySet(index, null);
+                    sketch.increment(node.key);
+                    onAccess(node);
+                }
+                buffer.readCounter = head;
+            }
+        }
+
+        // 必须持有 evictionLock
+        private void onAccess(Node<K, V> node) {
+            switch (node.queue) {
+                case WINDOW -> window.moveToLast(node);
+                case PROBATION -> {
+                    // 试用区被再次访问，晋升到保护区；保护区超限时把最久未访问的降级回试用区
+                    probation.remove(node);
+                    node.queue = PROTECTED;
+                    protectedQueue.addLast(node);
+                    while (protectedQueue.size > protectedMaximum) {
+                        Node<K, V> demoted = protectedQueue.pollFirst();
+                        demoted.queue = PROBATION;
+                        probation.addLast(demoted);
+                    }
+                }
+                case PROTECTED -> protectedQueue.moveToLast(node);
+                default -> {
+                    // 已被淘汰的节点，忽略迟到的访问记录
+                }
+            }
+        }
+
+        // 必须持有 evictionLock
+        private void evictEntries() {
+            while (window.size > windowMaximum) {
+                Node<K, V> candidate = window.pollFirst();
+                if (window.size + probation.size + protectedQueue.size < maximumSize) {
+                    // 主区还有空位，直接进入试用区
+                    candidate.queue = PROBATION;
+                    probation.addLast(candidate);
+                    continue;
+                }
+                Node<K, V> victim = probation.head != null ? probation.head : protectedQueue.head;
+                if (victim == null) {
+                    evict(candidate);
+                } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                    // 候选者更热，淘汰主区的牺牲者
+                    if (victim.queue == PROBATION) {
+                        probation.remove(victim);
+                    } else {
+                        protectedQueue.remove(victim);
+                    }
+                    evict(victim);
+                    candidate.queue = PROBATION;
+                    probation.addLast(candidate);
+                } else {
+                    evict(candidate);
+                }
+            }
+        }
+
+        private void evict(Node<K, V> node) {
+            node.queue = DEAD;
+            data.remove(node.key, node);
+        }
+    }
+
+    /**
+     * 对照组：按访问顺序淘汰的 LRU (LinkedHashMap + synchronized)，每次读都要加锁调整链表
+     */
+    static class LruCache<K, V> {
+        private final Map<K, V> map;
+
+        LruCache(int maximumSize) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > maximumSize;
+                }
+            };
+        }
+
+        public synchronized V get(K key) {
+            return map.get(key);
+        }
+
+        public synchronized void put(K key, V value) {
+            map.put(key, value);
+        }
+    }
+
+    /**
+     * 单线程回放访问序列，返回命中率 (未命中时模拟回源并写入缓存)
+     */
+    static double replayHitRatio(Function<Long, Long> getter, BiConsumer<Long, Long> putter, long[] trace) {
+        long hits = 0;
+        for (long k : trace) {
+            Long key = k;
+            if (getter.apply(key) != null) {
+                hits++;
+            } else {
+                putter.accept(key, key);
+            }
+        }
+        return (double) hits / trace.length;
+    }
+
+    static long[] zipfianTrace(int length, long items, long seed) {
+        CacheBenchmarkSuite.ZipfianGenerator generator = new CacheBenchmarkSuite.ZipfianGenerator(items, 0.99);
+        Random random = new Random(seed);
+        long[] trace = new long[length];
+        for (int i = 0; i < length; i++) {
+            trace[i] = generator.next(random);
+        }
+        return trace;
+    }
+
+    /**
+     * Zipfian 访问中周期性插入一次性的顺序扫描 (每次扫描的 key 都不会再被访问)，
+     * 用来观察扫描对 LRU 的污染
+     */
+    static long[] scanHeavyTrace(int length, long items, int scanLength, long seed) {
+        CacheBenchmarkSuite.ZipfianGenerator generator = new CacheBenchmarkSuite.ZipfianGenerator(items, 0.99);
+        Random random = new Random(seed);
+        long[] trace = new long[length];
+        long nextScanKey = items;
+        int i = 0;
+        while (i < length) {
+            for (int j = 0; j < scanLength && i < length; j++) {
+                trace[i++] = generator.next(random);
+            }
+            for (int j = 0; j < scanLength && i < length; j++) {
+                trace[i++] = nextScanKey++;
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * 多线程吞吐：每个线程从访问序列的随机位置开始顺序回放，读未命中则写入
+     */
+    static double throughput(CacheBenchmarkSuite.BenchmarkCache cache, long[] trace, int threads, long durationMillis)
+            throws InterruptedException {
+        Long[] keys = new Long[trace.length];
+        for (int i = 0; i < trace.length; i++) {
+            keys[i] = trace[i];
+        }
+        return CacheBenchmarkSuite.throughput(cache, CacheBenchmarkSuite.scan(keys.length), keys, threads, 100, durationMillis);
+    }
+
+    // --- Main 方法：命中率与吞吐对比 ---
+    // 参数: [缓存容量, 默认 10000] [key 空间, 默认 1000000] [访问序列长度, 默认 2000000] [吞吐测试线程数, 默认 CPU 核数]
+    public static void main(String[] args) throws InterruptedException {
+        int maximumSize = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long items = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        int traceLength = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("缓存容量 %d，key 空间 %d，访问序列长度 %d\n", maximumSize, items, traceLength);
+        long[] zipfian = zipfianTrace(traceLength, items, 42);
+        long[] scanHeavy = scanHeavyTrace(traceLength, items, maximumSize * 2, 42);
+
+        System.out.println("\n--- 命中率 ---");
+        System.out.printf("%-12s %14s %14s %20s\n", "访问序列", "W-TinyLFU", "LRU", "无界ReadWriteCache");
+        for (String name : new String[]{"Zipfian", "Scan-heavy"}) {
+            long[] trace = name.equals("Zipfian") ? zipfian : scanHeavy;
+            BoundedCache<Long, Long> tinyLfu = new BoundedCache<>(maximumSize);
+            LruCache<Long, Long> lru = new LruCache<>(maximumSize);
+            ReadWriteLockCacheDemo.ReadWriteCache<Long, Long> unbounded = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+            double tinyLfuRatio = replayHitRatio(tinyLfu::get, tinyLfu::put, trace);
+            double lruRatio = replayHitRatio(lru::get, lru::put, trace);
+            double unboundedRatio = replayHitRatio(unbounded::get, unbounded::put, trace);
+            System.out.printf("%-12s %13.2f%% %13.2f%% %19.2f%%  (W-TinyLFU 最终条目数: %d)\n",
+                    name, tinyLfuRatio * 100, lruRatio * 100, unboundedRatio * 100, tinyLfu.size());
+        }
+
+        System.out.printf("\n--- 吞吐 (Zipfian, %d 线程, 读未命中则写入) ---\n", threads);
+        BoundedCache<Long, Long> tinyLfu = new BoundedCache<>(maximumSize);
+        LruCache<Long, Long> lru = new LruCache<>(maximumSize);
+        System.out.printf("W-TinyLFU : %,.0f ops/s\n", throughput(CacheBenchmarkSuite.getThenPut(tinyLfu::get, tinyLfu::put), zipfian, threads, 2000));
+        System.out.printf("LRU       : %,.0f ops/s\n", throughput(CacheBenchmarkSuite.getThenPut(lru::get, lru::put), zipfian, threads, 2000));
+    }
+}
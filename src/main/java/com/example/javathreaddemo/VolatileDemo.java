@@ -2,7 +2,7 @@ package com.example.javathreaddemo;
 
 class Worker implements Runnable {
     // 使用 volatile 修饰状态标志
-    private  boolean shutdownRequested = false;
+    private volatile boolean shutdownRequested = false;
 
     public void shutdown() {
         shutdownRequested = true; // 写 volatile 变量
@@ -16,6 +16,7 @@ class Worker implements Runnable {
         while (!shutdownRequested) { // 读 volatile 变量
             // 执行工作...
             try {
+                // 注意：停止最多要等一个 sleep 周期才生效，事件驱动的写法见 WorkerLifecycleDemo.ManagedWorker
                 Thread.sleep(100); // 模拟工作
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
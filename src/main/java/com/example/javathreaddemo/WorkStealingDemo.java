@@ -0,0 +1,345 @@
+package com.example.javathreaddemo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 工作窃取的消费者池 Demo:
+ * 每个消费者有自己的有界双端队列，生产者把元素轮流分给各个消费者；消费者从自己队列的头部取 (FIFO)，
+ * 自己的队列空了就去其他消费者队列的尾部偷一个，避免"慢元素堵住某个队列，其他消费者却闲着"。
+ * 没有元素可取时消费者 park，submit 把元素放入某个队列后叫醒它的主人或一个空闲的消费者。
+ * <p>
+ * 与 ProducerConsumerWaitNotify 中所有消费者争用同一个缓冲区相比，消费者之间只在偷取时才会竞争。
+ * main 方法在处理耗时严重倾斜的负载下对比三种方案的吞吐和尾延迟：共享缓冲区、每个消费者独立队列 (不偷取)、工作窃取。
+ */
+public class WorkStealingDemo {
+
+    static class WorkStealingConsumerPool<T> {
+        private final List<LinkedBlockingDeque<T>> deques = new ArrayList<>();
+        private final List<Thread> workers = new ArrayList<>();
+        private final Consumer<? super T> handler;
+        private final boolean stealing;
+        private final AtomicInteger nextDeque = new AtomicInteger();
+        // 已登记提交、还没被消费者取走的元素数；消费者只在 shutdown 且它为 0 时退出
+        private final AtomicLong pending = new AtomicLong();
+        // 第 i 个消费者即将 park 或已经 park 时为 1；submit 看到 1 才需要 unpark
+        private final AtomicIntegerArray idle;
+        private final LongAdder stolen = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile boolean shutdown;
+
+        /**
+         * @param workers       消费者线程数
+         * @param dequeCapacity 每个消费者队列的容量 (生产者的背压)
+         * @param stealing      是否允许空闲消费者偷取其他队列的元素 (关闭后用于对比)
+         * @param handler       处理元素的回调；抛出的 RuntimeException 只计数，不影响消费者线程
+         */
+        public WorkStealingConsumerPool(String name, int workers, int dequeCapacity, boolean stealing,
+                                        Consumer<? super T> handler) {
+            if (workers <= 0) {
+                throw new IllegalArgumentException("Workers must be positive");
+            }
+            this.handler = handler;
+            this.stealing = stealing;
+            this.idle = new AtomicIntegerArray(workers);
+            for (int i = 0; i < workers; i++) {
+                deques.add(new LinkedBlockingDeque<>(dequeCapacity));
+            }
+            for (int i = 0; i < workers; i++) {
+                final int self = i;
+                Thread worker = new Thread(() -> runWorker(self), name + "-" + i);
+                this.workers.add(worker);
+            }
+            this.workers.forEach(Thread::start);
+        }
+
+        /**
+         * 把元素分配给下一个消费者 (轮询)；该队列满时依次尝试其他队列，全部满时阻塞在原队列上 (背压)。
+         * 正常返回的元素保证会被处理，即使与 shutdown 并发
+         *
+         * @throws IllegalStateException 如果已经 shutdown
+         */
+        public void submit(T item) throws InterruptedException {
+            // 先登记再检查 shutdown：消费者看到 shutdown 且 pending 为 0 才退出，
+            // 因此通过了这里检查的元素一定有消费者在等它入队
+            pending.incrementAndGet();
+            if (shutdown) {
+                unregister();
+                throw new IllegalStateException("Pool is shut down");
+            }
+            int size = deques.size();
+            int start = Math.floorMod(nextDeque.getAndIncrement(), size);
+            for (int i = 0; i < size; i++) {
+                int target = (start + i) % size;
+                if (deques.get(target).offerLast(item)) {
+                    wake(target);
+                    return;
+                }
+            }
+            try {
+                deques.get(start).putLast(item);
+            } catch (InterruptedException e) {
+                unregister();
+                throw e;
+            }
+            wake(start);
+        }
+
+        // 一个登记过的元素不会再入队 (被取走或提交失败)；shutdown 后降到 0 时叫醒所有消费者退出
+        private void unregister() {
+            if (pending.decrementAndGet() == 0 && shutdown) {
+                wakeAll();
+            }
+        }
+
+        // 元素进入了 target 的队列：队列主人空闲就叫醒它，否则 (允许偷取时) 叫醒任意一个空闲消费者
+        private void wake(int target) {
+            if (idle.get(target) == 1) {
+                LockSupport.unpark(workers.get(target));
+                return;
+            }
+            if (stealing) {
+                for (int i = 0; i < workers.size(); i++) {
+                    if (idle.get(i) == 1) {
+                        LockSupport.unpark(workers.get(i));
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void wakeAll() {
+            workers.forEach(LockSupport::unpark);
+        }
+
+        private void runWorker(int self) {
+            LinkedBlockingDeque<T> own = deques.get(self);
+            while (!Thread.currentThread().isInterrupted()) {
+                T item = own.pollFirst();
+                if (item == null && stealing) {
+                    item = steal(self);
+                }
+                if (item == null) {
+                    if (shutdown && pending.get() == 0) {
+                        return;
+                    }
+                    idle.set(self, 1);
+                    // 登记之后再检查一次，避免错过登记之前的 submit / shutdown
+                    if (own.isEmpty() && !(stealing && !allEmpty()) && !(shutdown && pending.get() == 0)) {
+                        LockSupport.park(this);
+                    }
+                    idle.set(self, 0);
+                    continue;
+                }
+                unregister();
+                try {
+                    handler.accept(item);
+                } catch (RuntimeException e) {
+                    failed.increment();
+                }
+            }
+        }
+
+        // 从随机位置开始，依次偷其他队列尾部的元素。LinkedBlockingDeque 两端共用一把锁，
+        // 偷取时仍会和队列主人、生产者竞争这把锁，只是只有空闲的消费者才会去偷，不是每次取元素都争用
+        private T steal(int self) {
+            int size = deques.size();
+            int start = ThreadLocalRandom.current().nextInt(size);
+            for (int i = 0; i < size; i++) {
+                int victim = (start + i) % size;
+                if (victim == self) {
+                    continue;
+                }
+                T item = deques.get(victim).pollLast();
+                if (item != null) {
+                    stolen.increment();
+                    return item;
+                }
+            }
+            return null;
+        }
+
+        private boolean allEmpty() {
+            for (LinkedBlockingDeque<T> deque : deques) {
+                if (!deque.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 停止接收新元素；已提交的元素会全部处理完
+         */
+        public void shutdown() {
+            shutdown = true;
+            wakeAll();
+        }
+
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Thread worker : workers) {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+                if (worker.isAlive()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public long stolenCount() {
+            return stolen.sum();
+        }
+
+        public long failedCount() {
+            return failed.sum();
+        }
+    }
+
+    // ===================== 基准测试 =====================
+
+    /**
+     * 待处理的任务：处理耗时在提交前就已确定，方便不同方案使用完全相同的负载
+     */
+    static final class Task {
+        final int id;
+        final long costNanos;
+        long submittedAt;
+
+        Task(int id, long costNanos) {
+            this.id = id;
+            this.costNanos = costNanos;
+        }
+    }
+
+    /**
+     * 倾斜的耗时分布：slowFraction 的任务耗时 slowMicros，其余耗时 fastMicros
+     */
+    static Task[] skewedTasks(int count, double slowFraction, long fastMicros, long slowMicros, long seed) {
+        Random random = new Random(seed);
+        Task[] tasks = new Task[count];
+        for (int i = 0; i < count; i++) {
+            long micros = random.nextDouble() < slowFraction ? slowMicros : fastMicros;
+            tasks[i] = new Task(i, TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        return tasks;
+    }
+
+    interface TaskSubmitter {
+        void submit(Task task) throws InterruptedException;
+    }
+
+    interface Finisher {
+        void finish() throws InterruptedException;
+    }
+
+    // 模拟处理：park 指定时间 (类似阻塞 IO，不占 CPU，这样单核机器上多个消费者也能并行"处理")
+    private static void process(Task task, long[] latencies) {
+        LockSupport.parkNanos(task.costNanos);
+        latencies[task.id] = System.nanoTime() - task.submittedAt;
+    }
+
+    /**
+     * 以固定速率 (开环) 提交任务，全部处理完后返回 [耗时纳秒]，每个任务的延迟写入 latencies
+     */
+    static long runOpenLoop(Task[] tasks, double ratePerSecond, TaskSubmitter submitter, Finisher finisher)
+            throws InterruptedException {
+        long intervalNanos = (long) (1e9 / ratePerSecond);
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks.length; i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            tasks[i].submittedAt = System.nanoTime();
+            submitter.submit(tasks[i]);
+        }
+        finisher.finish();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, long elapsedNanos, long[] latencies, String extra) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-26s %,10.0f %10.2f %10.2f %10.2f %10.2f  %s\n", name, latencies.length * 1e9 / elapsedNanos,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[(int) (sorted.length * 0.999)] / 1e6, sorted[sorted.length - 1] / 1e6, extra);
+    }
+
+    // --- Main 方法 ---
+    // 参数: [消费者数, 默认 8] [任务数, 默认 20000] [慢任务比例, 默认 0.02] [快任务µs, 默认 200] [慢任务µs, 默认 20000] [负载率, 默认 0.7]
+    public static void main(String[] args) throws InterruptedException {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        double slowFraction = args.length > 2 ? Double.parseDouble(args[2]) : 0.02;
+        long fastMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        long slowMicros = args.length > 4 ? Long.parseLong(args[4]) : 20_000;
+        double load = args.length > 5 ? Double.parseDouble(args[5]) : 0.7;
+
+        // 按平均耗时估算消费者池的理论处理能力，以 load 的比例提交
+        double meanMicros = slowFraction * slowMicros + (1 - slowFraction) * fastMicros;
+        double rate = load * workers * 1e6 / meanMicros;
+        int queueCapacity = 1024;
+
+        System.out.printf("%d 个消费者，%,d 个任务，%.1f%% 的任务耗时 %d µs、其余 %d µs，提交速率 %,.0f/s (负载 %.0f%%)\n",
+                workers, count, slowFraction * 100, slowMicros, fastMicros, rate, load * 100);
+        System.out.printf("%-26s %10s %10s %10s %10s %10s\n", "方案", "任务/秒", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+
+        // 1. 共享缓冲区：所有消费者争用一个 BlockingBuffer，结束时放入毒丸
+        {
+            Task[] tasks = skewedTasks(count, slowFraction, fastMicros, slowMicros, 42);
+            long[] latencies = new long[count];
+            Task poison = new Task(-1, 0);
+            ProducerConsumerWaitNotify.BlockingBuffer<Task> buffer = new ProducerConsumerWaitNotify.BlockingBuffer<>(queueCapacity);
+            CountDownLatch done = new CountDownLatch(workers);
+            for (int w = 0; w < workers; w++) {
+                new Thread(() -> {
+                    try {
+                        Task task;
+                        while ((task = buffer.take()) != poison) {
+                            process(task, latencies);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "共享消费者-" + w).start();
+            }
+            long elapsed = runOpenLoop(tasks, rate, buffer::put, () -> {
+                for (int w = 0; w < workers; w++) {
+                    buffer.put(poison);
+                }
+                done.await();
+            });
+            report("共享 BlockingBuffer", elapsed, latencies, "");
+        }
+
+        // 2. 每个消费者独立队列，不偷取；3. 工作窃取
+        for (boolean stealing : new boolean[]{false, true}) {
+            Task[] tasks = skewedTasks(count, slowFraction, fastMicros, slowMicros, 42);
+            long[] latencies = new long[count];
+            WorkStealingConsumerPool<Task> pool = new WorkStealingConsumerPool<>(stealing ? "窃取消费者" : "独立消费者",
+                    workers, queueCapacity / workers, stealing, task -> process(task, latencies));
+            long elapsed = runOpenLoop(tasks, rate, pool::submit, () -> {
+                pool.shutdown();
+                pool.awaitTermination(1, TimeUnit.HOURS);
+            });
+            report(stealing ? "工作窃取" : "独立队列 (不偷取)", elapsed, latencies,
+                    stealing ? String.format("偷取 %,d 次", pool.stolenCount()) : "");
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.javathreaddemo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 事件驱动的后台工作线程 Demo:
+ * VolatileDemo 里的 Worker 每 100 ms sleep 一次再检查标志，停止要等最多 100 ms，新任务也要等到下一次醒来。
+ * ManagedWorker 只在没有任务时才空闲，空闲策略为"先自旋、再 yield、最后 park"；
+ * submit 和 stop 发现线程已 park 时立即 unpark 它，因此唤醒延迟不再取决于轮询间隔，空闲时也几乎不占 CPU。
+ * <p>
+ * 生命周期: NEW -> RUNNING -> STOPPING (不再接受新任务，处理完已提交的任务) -> TERMINATED。
+ * stop 在给定时间内等待线程退出，超时则中断它并放弃队列里剩下的任务 (可用 drainRemaining 取回)。
+ */
+public class WorkerLifecycleDemo {
+
+    static class ManagedWorker<T> {
+        static final int NEW = 0;
+        static final int RUNNING = 1;
+        static final int STOPPING = 2;
+        static final int TERMINATED = 3;
+
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+        private final Consumer<T> handler;
+        private final int spins;
+        private final int yields;
+        private final Thread thread;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        // 工作线程即将 park 或已经 park；submit / stop 看到它为 true 才需要 unpark
+        private volatile boolean parked;
+        // stop 超时后置为 true，工作线程每次取任务前检查，不再处理剩下的任务
+        private volatile boolean forced;
+        // 已通过状态检查、还没入队完成的 submit 个数；工作线程要等它为 0 才能确认队列真的空了
+        private final AtomicInteger submitting = new AtomicInteger();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder parks = new LongAdder();
+
+        /**
+         * @param spins  没有任务时先自旋检查的次数
+         * @param yields 自旋之后 yield 的次数，之后 park 直到被 submit / stop 唤醒
+         */
+        ManagedWorker(String name, Consumer<T> handler, int spins, int yields) {
+            this.handler = handler;
+            this.spins = spins;
+            this.yields = yields;
+            this.thread = new Thread(this::runLoop, name);
+        }
+
+        void start() {
+            if (!state.compareAndSet(NEW, RUNNING)) {
+                throw new IllegalStateException("Worker already started");
+            }
+            thread.start();
+        }
+
+        /**
+         * 提交一个任务；线程空闲 park 时立即唤醒
+         *
+         * @throws IllegalStateException 已经 stop
+         */
+        void submit(T item) {
+            // 先登记再检查状态：工作线程看到 STOPPING 之后还要等登记数归零、队列为空才退出，
+            // 因此通过检查的任务不会在线程退出后才入队
+            submitting.incrementAndGet();
+            try {
+                if (state.get() >= STOPPING) {
+                    throw new IllegalStateException("Worker is stopping");
+                }
+                queue.offer(item);
+            } finally {
+                submitting.decrementAndGet();
+            }
+            // 先入队再读 parked；工作线程先写 parked 再检查队列，两边至少有一方能看到对方
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        /**
+         * 优雅停止：不再接受新任务，处理完已提交的任务后退出
+         *
+         * @return 线程是否在 timeout 内正常退出；超时时线程被中断、不再处理剩下的任务，返回 false
+         */
+        boolean stop(long timeout, TimeUnit unit) throws InterruptedException {
+            if (state.compareAndSet(NEW, TERMINATED)) {
+                return true;
+            }
+            state.compareAndSet(RUNNING, STOPPING);
+            LockSupport.unpark(thread);
+            thread.join(Math.max(1, unit.toMillis(timeout)));
+            if (thread.isAlive()) {
+                forced = true;
+                thread.interrupt();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * 取出还没处理的任务；用于 stop 超时之后，由调用方决定重新提交到别处还是丢弃
+         */
+        List<T> drainRemaining() {
+            List<T> remaining = new ArrayList<>();
+            T item;
+            while ((item = queue.poll()) != null) {
+                remaining.add(item);
+            }
+            return remaining;
+        }
+
+        private void runLoop() {
+            int idle = 0;
+            try {
+                while (!forced) {
+                    T item = queue.poll();
+                    if (item != null) {
+                        idle = 0;
+                        handle(item);
+                        continue;
+                    }
+                    if (state.get() != RUNNING) {
+                        if (submitting.get() == 0 && queue.isEmpty()) {
+                            break; // 正在停止，且没有 submit 还在入队，队列确实已空
+                        }
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    if (idle < spins) {
+                        Thread.onSpinWait();
+                    } else if (idle < (long) spins + yields) {
+                        Thread.yield();
+                    } else {
+                        parked = true;
+                        // 登记之后再检查一次，避免错过登记之前的 submit / stop
+                        if (queue.isEmpty() && state.get() == RUNNING) {
+                            parks.increment();
+                            LockSupport.park(this);
+                        }
+                        parked = false;
+                        if (Thread.interrupted()) {
+                            break;
+                        }
+                    }
+                    if (idle < Integer.MAX_VALUE) {
+                        idle++;
+                    }
+                }
+            } finally {
+                state.set(TERMINATED);
+            }
+        }
+
+        private void handle(T item) {
+            try {
+                handler.accept(item);
+                processed.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                System.err.println(thread.getName() + " 处理任务失败: " + e);
+            }
+        }
+
+        int state() {
+            return state.get();
+        }
+
+        long processedCount() {
+            return processed.sum();
+        }
+
+        long failedCount() {
+            return failed.sum();
+        }
+
+        long parkCount() {
+            return parks.sum();
+        }
+
+        long threadId() {
+            return thread.getId();
+        }
+    }
+
+    /**
+     * 对照组：VolatileDemo.Worker 的写法推广到有任务队列的情况，每 pollMillis 毫秒醒来一次
+     */
+    static class PollingWorker<T> {
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+        private final Consumer<T> handler;
+        private final long pollMillis;
+        private final Thread thread;
+        private volatile boolean shutdownRequested;
+
+        PollingWorker(String name, Consumer<T> handler, long pollMillis) {
+            this.handler = handler;
+            this.pollMillis = pollMillis;
+            this.thread = new Thread(this::runLoop, name);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void submit(T item) {
+            queue.offer(item);
+        }
+
+        void stop() throws InterruptedException {
+            shutdownRequested = true;
+            thread.join();
+        }
+
+        private void runLoop() {
+            while (!shutdownRequested) {
+                T item;
+                while ((item = queue.poll()) != null) {
+                    handler.accept(item);
+                }
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        long threadId() {
+            return thread.getId();
+        }
+    }
+
+    // ===================== 唤醒延迟与空闲 CPU 测试 =====================
+
+    interface WorkerUnderTest {
+        void submit(long submittedAtNanos);
+
+        void stop() throws InterruptedException;
+
+        long threadId();
+    }
+
+    private static final class Result {
+        final double p50Micros;
+        final double p99Micros;
+        final double stopMillis;
+        final double idleCpuPercent;
+
+        Result(double p50Micros, double p99Micros, double stopMillis, double idleCpuPercent) {
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.stopMillis = stopMillis;
+            this.idleCpuPercent = idleCpuPercent;
+        }
+    }
+
+    /**
+     * 1. 空闲 idleMillis，用线程 CPU 时间计算空闲占用；
+     * 2. 以 intervalMillis 的间隔逐个提交 samples 个任务，记录从提交到开始处理的延迟；
+     * 3. 测量从 stop 到线程退出的耗时
+     */
+    static Result measure(WorkerUnderTest worker, long[] latencies, int samples, long intervalMillis, long idleMillis)
+            throws InterruptedException {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Thread.sleep(50); // 让线程进入空闲状态
+        long cpuBefore = threadMXBean.getThreadCpuTime(worker.threadId());
+        long wallBefore = System.nanoTime();
+        Thread.sleep(idleMillis);
+        double idleCpu = (threadMXBean.getThreadCpuTime(worker.threadId()) - cpuBefore) * 100.0
+                / (System.nanoTime() - wallBefore);
+
+        for (int i = 0; i < samples; i++) {
+            worker.submit(System.nanoTime());
+            Thread.sleep(intervalMillis);
+        }
+        long stopStart = System.nanoTime();
+        worker.stop();
+        double stopMillis = (System.nanoTime() - stopStart) / 1e6;
+
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        return new Result(sorted[samples / 2] / 1e3, sorted[(int) (samples * 0.99)] / 1e3, stopMillis, idleCpu);
+    }
+
+    // --- Main 方法 ---
+    // 参数: [任务数, 默认 200] [任务间隔 ms, 默认 7] [空闲测量 ms, 默认 1000]
+    public static void main(String[] args) throws InterruptedException {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long intervalMillis = args.length > 1 ? Long.parseLong(args[1]) : 7;
+        long idleMillis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+        System.out.printf("CPU 核数 %d，%d 个任务，间隔 %d ms\n", Runtime.getRuntime().availableProcessors(),
+                samples, intervalMillis);
+        System.out.printf("%-22s %14s %14s %12s %12s\n", "实现", "唤醒p50(µs)", "唤醒p99(µs)", "停止(ms)", "空闲CPU");
+
+        String[] names = {"轮询 sleep(100ms)", "轮询 sleep(1ms)", "只 park", "自旋+yield+park", "只自旋"};
+        for (String name : names) {
+            long[] latencies = new long[samples];
+            AtomicInteger next = new AtomicInteger();
+            Consumer<Long> handler = submittedAt -> latencies[next.getAndIncrement()] = System.nanoTime() - submittedAt;
+            WorkerUnderTest worker;
+            if (name.startsWith("轮询")) {
+                PollingWorker<Long> polling = new PollingWorker<>("轮询线程", handler, name.contains("100") ? 100 : 1);
+                polling.start();
+                worker = new WorkerUnderTest() {
+                    @Override
+                    public void submit(long submittedAtNanos) {
+                        polling.submit(submittedAtNanos);
+                    }
+
+                    @Override
+                    public void stop() throws InterruptedException {
+                        polling.stop();
+                    }
+
+                    @Override
+                    public long threadId() {
+                        return polling.threadId();
+                    }
+                };
+            } else {
+                int spins = name.equals("只 park") ? 0 : name.equals("只自旋") ? Integer.MAX_VALUE : 1_000;
+                int yields = name.equals("自旋+yield+park") ? 100 : 0;
+                ManagedWorker<Long> managed = new ManagedWorker<>("事件驱动线程", handler, spins, yields);
+                managed.start();
+                worker = new WorkerUnderTest() {
+                    @Override
+                    public void submit(long submittedAtNanos) {
+                        managed.submit(submittedAtNanos);
+                    }
+
+                    @Override
+                    public void stop() throws InterruptedException {
+                        managed.stop(1, TimeUnit.SECONDS);
+                    }
+
+                    @Override
+                    public long threadId() {
+                        return managed.threadId();
+                    }
+                };
+            }
+            Result result = measure(worker, latencies, samples, intervalMillis, idleMillis);
+            System.out.printf("%-22s %14.1f %14.1f %12.2f %11.1f%%\n", name, result.p50Micros, result.p99Micros,
+                    result.stopMillis, result.idleCpuPercent);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.example.javathreaddemo;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 写回 (write-behind) 缓存 Demo:
+ * put 只更新缓存并把 key 标记为"脏"，由后台刷写线程批量写入慢存储 (sink)；
+ * 同一个 key 在刷写前的多次写入会被合并成一次，脏数据数量有上限，超限时 put 阻塞 (背压)，
+ * shutdown 时把剩余脏数据全部刷写完。sink 写入失败时退避重试；shutdown 之后仍连续失败若干次则丢弃剩余脏数据并计数，
+ * 保证刷写线程一定会退出。对照组是同步写穿 (write-through)。
+ */
+public class WriteBehindCacheDemo {
+
+    /**
+     * 慢存储的写入接口：一次写入一批 key/value
+     */
+    interface CacheSink<K, V> {
+        void write(Map<K, V> batch) throws IOException;
+    }
+
+    /**
+     * 追加写的本地文件 sink，每条记录一行 "key=value"，统计写入的记录数和批次数
+     */
+    static class AppendOnlyFileSink<K, V> implements CacheSink<K, V> {
+        private final FileOutputStream output;
+        private final BufferedWriter writer;
+        // 是否每批都 fsync (更持久，但更慢)
+        private final boolean forceEachBatch;
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+
+        AppendOnlyFileSink(Path path, boolean forceEachBatch) throws IOException {
+            this.forceEachBatch = forceEachBatch;
+            this.output = new FileOutputStream(path.toFile(), true);
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public synchronized void write(Map<K, V> batch) throws IOException {
+            for (Map.Entry<K, V> entry : batch.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue());
+                writer.newLine();
+            }
+            writer.flush();
+            if (forceEachBatch) {
+                output.getChannel().force(false);
+            }
+            records.addAndGet(batch.size());
+            batches.incrementAndGet();
+        }
+
+        synchronized void close() throws IOException {
+            writer.close();
+        }
+
+        long getRecords() {
+            return records.get();
+        }
+
+        long getBatches() {
+            return batches.get();
+        }
+    }
+
+    /**
+     * 写回缓存
+     */
+    static class WriteBehindCache<K, V> {
+        // 写入失败后的首次重试间隔，之后每次翻倍，最长为刷写间隔
+        static final long RETRY_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+        // shutdown 之后最多再尝试写入几次，仍然失败就放弃剩余脏数据
+        static final int MAX_ATTEMPTS_AFTER_SHUTDOWN = 3;
+
+        private final ReadWriteLockCacheDemo.ReadWriteCache<K, V> cache = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+        private final CacheSink<K, V> sink;
+        private final int maxDirty;
+        private final int batchSize;
+        private final long flushIntervalNanos;
+
+        private final Lock dirtyLock = new ReentrantLock();
+        // 条件变量：脏数据未满 (供 put 等待)
+        private final Condition notFull = dirtyLock.newCondition();
+        // 条件变量：需要刷写 (供刷写线程等待)
+        private final Condition flushNeeded = dirtyLock.newCondition();
+        // 等待刷写的脏数据，同一个 key 只保留最新的值 (合并写)
+        private LinkedHashMap<K, V> dirty = new LinkedHashMap<>();
+        // 已从 dirty 取走、正在写入 sink 的条目数，同样计入容量
+        private int flushingCount;
+        private boolean running = true;
+
+        private final Thread flusher;
+        private final AtomicLong puts = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+        private final AtomicLong sinkFailures = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        /**
+         * @param maxDirty        脏数据上限 (含正在刷写的)，达到上限时 put 阻塞
+         * @param batchSize       脏数据达到这个数量时立即触发刷写
+         * @param flushIntervalMillis 即使不满一批，最多间隔这么久也刷写一次
+         */
+        public WriteBehindCache(CacheSink<K, V> sink, int maxDirty, int batchSize, long flushIntervalMillis) {
+            if (maxDirty <= 0 || batchSize <= 0 || batchSize > maxDirty) {
+                throw new IllegalArgumentException("Require 0 < batchSize <= maxDirty");
+            }
+            this.sink = sink;
+            this.maxDirty = maxDirty;
+            this.batchSize = batchSize;
+            this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+            this.flusher = new Thread(this::flushLoop, "write-behind-flusher");
+            // shutdown 超时后不阻止 JVM 退出
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        }
+
+        public V get(K key) {
+            return cache.get(key);
+        }
+
+        /**
+         * 写入缓存并标记为脏；脏数据已满且 key 不在脏数据中时阻塞等待刷写
+         *
+         * @throws InterruptedException  如果线程在等待时被中断
+         * @throws IllegalStateException 如果缓存已经 shutdown
+         */
+        public void put(K key, V value) throws InterruptedException {
+            dirtyLock.lock();
+            try {
+                // 已经是脏的 key 直接覆盖，不占用新的容量
+                while (running && !dirty.containsKey(key) && dirty.size() + flushingCount >= maxDirty) {
+                    notFull.await();
+                }
+                if (!running) {
+                    throw new IllegalStateException("Cache is shut down");
+                }
+                // 在 dirtyLock 内同时更新缓存和脏数据，保证两边对同一个 key 的写入顺序一致
+                cache.put(key, value);
+                if (dirty.put(key, value) != null) {
+                    coalesced.incrementAndGet();
+                }
+                puts.incrementAndGet();
+                if (dirty.size() >= batchSize) {
+                    flushNeeded.signal();
+                }
+            } finally {
+                dirtyLock.unlock();
+            }
+        }
+
+        /**
+         * 停止接收写入，刷写全部剩余脏数据后返回；sink 持续失败时剩余数据被丢弃，见 getDropped
+         *
+         * @return 刷写线程是否在超时时间内退出
+         */
+        public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+            dirtyLock.lock();
+            try {
+                running = false;
+                flushNeeded.signal();
+                notFull.signalAll();
+            } finally {
+                dirtyLock.unlock();
+            }
+            // join(0) 表示无限等待，超时不足 1 毫秒时至少等 1 毫秒
+            flusher.join(Math.max(1, unit.toMillis(timeout)));
+            return !flusher.isAlive();
+        }
+
+        public int dirtyCount() {
+            dirtyLock.lock();
+            try {
+                return dirty.size() + flushingCount;
+            } finally {
+                dirtyLock.unlock();
+            }
+        }
+
+        public long getPuts() {
+            return puts.get();
+        }
+
+        public long getCoalesced() {
+            return coalesced.get();
+        }
+
+        public long getSinkFailures() {
+            return sinkFailures.get();
+        }
+
+        /**
+         * 因 sink 持续失败而丢弃的脏数据条数
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        private void flushLoop() {
+            long lastFlush = System.nanoTime();
+            // 连续写入失败的次数
+            int failures = 0;
+            while (true) {
+                Map<K, V> batch;
+                dirtyLock.lock();
+                try {
+                    if (failures == 0) {
+                        // 等到攒够一批、到达刷写间隔或者 shutdown
+                        long remaining;
+                        while (running && dirty.size() < batchSize
+                                && (remaining = flushIntervalNanos - (System.nanoTime() - lastFlush)) > 0) {
+                            flushNeeded.awaitNanos(remaining);
+                        }
+                    } else {
+                        // 上次写入失败：无论是否 shutdown 都先退避，不立即重试
+                        long backoff = Math.min(RETRY_BACKOFF_NANOS << Math.min(failures - 1, 20),
+                                Math.max(flushIntervalNanos, RETRY_BACKOFF_NANOS));
+                        long remaining;
+                        while ((remaining = backoff - (System.nanoTime() - lastFlush)) > 0) {
+                            flushNeeded.awaitNanos(remaining);
+                        }
+                        if (!running && failures >= MAX_ATTEMPTS_AFTER_SHUTDOWN) {
+                            dropped.addAndGet(dirty.size());
+                            System.err.printf("刷写线程：shutdown 后连续 %d 次写入失败，丢弃 %d 条脏数据\n",
+                                    failures, dirty.size());
+                            dirty.clear();
+                            notFull.signalAll();
+                            return;
+                        }
+                    }
+                    if (dirty.isEmpty()) {
+                        if (!running) {
+                            return;
+                        }
+                        lastFlush = System.nanoTime();
+                        continue;
+                    }
+                    batch = dirty;
+                    dirty = new LinkedHashMap<>();
+                    flushingCount = batch.size();
+                } catch (InterruptedException e) {
+                    // 刷写线程不响应中断，保证 shutdown 时数据能刷写完
+                    continue;
+                } finally {
+                    dirtyLock.unlock();
+                }
+
+                boolean written = writeBatch(batch);
+                lastFlush = System.nanoTime();
+                failures = written ? 0 : failures + 1;
+
+                dirtyLock.lock();
+                try {
+                    flushingCount = 0;
+                    if (!written) {
+                        // 写入失败：把这批数据放回去，但不覆盖期间产生的更新的值，退避后重试；
+                        // 放回时同样遵守脏数据上限，放不下的丢弃并计数
+                        for (Map.Entry<K, V> entry : batch.entrySet()) {
+                            if (dirty.containsKey(entry.getKey())) {
+                                continue;
+                            }
+                            if (dirty.size() < maxDirty) {
+                                dirty.put(entry.getKey(), entry.getValue());
+                            } else {
+                                dropped.incrementAndGet();
+                            }
+                        }
+                    }
+                    notFull.signalAll();
+                } finally {
+                    dirtyLock.unlock();
+                }
+            }
+        }
+
+        private boolean writeBatch(Map<K, V> batch) {
+            try {
+                sink.write(batch);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                sinkFailures.incrementAndGet();
+                System.err.printf("刷写线程：写入 %d 条记录失败: %s\n", batch.size(), e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 对照组：写穿缓存，在写锁内同步写 sink，每次 put 都是一次 sink 写入
+     */
+    static class WriteThroughCache<K, V> {
+        private final ReadWriteLockCacheDemo.ReadWriteCache<K, V> cache = new ReadWriteLockCacheDemo.ReadWriteCache<>();
+        private final CacheSink<K, V> sink;
+        private final Lock writeLock = new ReentrantLock();
+
+        WriteThroughCache(CacheSink<K, V> sink) {
+            this.sink = sink;
+        }
+
+        public V get(K key) {
+            return cache.get(key);
+        }
+
+        public void put(K key, V value) throws IOException {
+            writeLock.lock();
+            try {
+                sink.write(Map.of(key, value));
+                cache.put(key, value);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    interface Putter {
+        void put(Integer key, String value) throws Exception;
+    }
+
+    /**
+     * threads 个线程各执行 putsPerThread 次 put (key 服从 Zipfian 分布)，返回每次 put 的延迟 (纳秒，已排序)
+     */
+    static long[] measurePuts(Putter putter, int threads, int putsPerThread, int keySpace) throws InterruptedException {
+        long[][] latencies = new long[threads][putsPerThread];
+        CacheBenchmarkSuite.ZipfianGenerator generator = new CacheBenchmarkSuite.ZipfianGenerator(keySpace, 0.99);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final long[] mine = latencies[t];
+            new Thread(() -> {
+                try {
+                    startSignal.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < putsPerThread; i++) {
+                        int key = (int) generator.next(random);
+                        long start = System.nanoTime();
+                        putter.put(key, "stock-" + i);
+                        mine[i] = System.nanoTime() - start;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    System.err.println("写入失败: " + e);
+                } finally {
+                    done.countDown();
+                }
+            }, "写线程-" + t).start();
+        }
+        startSignal.countDown();
+        done.await();
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).toArray();
+        Arrays.sort(all);
+        return all;
+    }
+
+    private static String percentiles(long[] sorted) {
+        return String.format("p50 %6.1f µs, p99 %8.1f µs, p99.9 %8.1f µs",
+                sorted[(int) (sorted.length * 0.5)] / 1000.0,
+                sorted[(int) (sorted.length * 0.99)] / 1000.0,
+                sorted[(int) (sorted.length * 0.999)] / 1000.0);
+    }
+
+    // --- Main 方法：写穿 vs 写回的 put 延迟和写放大 ---
+    // 参数: [写线程数, 默认 4] [每线程 put 次数, 默认 20000] [key 空间, 默认 1000] [每批 fsync, 默认 false]
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int putsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int keySpace = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        boolean force = args.length > 3 && Boolean.parseBoolean(args[3]);
+        int totalPuts = threads * putsPerThread;
+
+        System.out.printf("%d 个写线程，共 %,d 次 put，key 空间 %d (Zipfian)，每批 fsync: %s\n",
+                threads, totalPuts, keySpace, force);
+
+        // 1. 写穿
+        Path throughFile = Files.createTempFile("write-through-", ".log");
+        AppendOnlyFileSink<Integer, String> throughSink = new AppendOnlyFileSink<>(throughFile, force);
+        WriteThroughCache<Integer, String> writeThrough = new WriteThroughCache<>(throughSink);
+        long[] throughLatencies = measurePuts(writeThrough::put, threads, putsPerThread, keySpace);
+        throughSink.close();
+        System.out.printf("%-14s %s，sink 写入 %,d 条 / %,d 批，写放大 %.3f\n", "Write-through",
+                percentiles(throughLatencies), throughSink.getRecords(), throughSink.getBatches(),
+                (double) throughSink.getRecords() / totalPuts);
+
+        // 2. 写回：脏数据上限 5000，每 500 条或 50ms 刷写一次
+        Path behindFile = Files.createTempFile("write-behind-", ".log");
+        AppendOnlyFileSink<Integer, String> behindSink = new AppendOnlyFileSink<>(behindFile, force);
+        WriteBehindCache<Integer, String> writeBehind = new WriteBehindCache<>(behindSink, 5000, 500, 50);
+        long[] behindLatencies = measurePuts(writeBehind::put, threads, putsPerThread, keySpace);
+        int dirtyBeforeShutdown = writeBehind.dirtyCount();
+        boolean flushed = writeBehind.shutdown(10, TimeUnit.SECONDS);
+        behindSink.close();
+        System.out.printf("%-14s %s，sink 写入 %,d 条 / %,d 批，写放大 %.3f (合并 %,d 次)\n", "Write-behind",
+                percentiles(behindLatencies), behindSink.getRecords(), behindSink.getBatches(),
+                (double) behindSink.getRecords() / totalPuts, writeBehind.getCoalesced());
+        System.out.printf("shutdown 前剩余脏数据 %d 条，shutdown 刷写完成: %s，丢弃 %d 条\n", dirtyBeforeShutdown,
+                flushed, writeBehind.getDropped());
+
+        Files.deleteIfExists(throughFile);
+        Files.deleteIfExists(behindFile);
+    }
+}
@@ -1,24 +1,32 @@
 package com.example.javathreaddemo.controller; // 建议新建一个 controller 包
 
+import com.example.javathreaddemo.service.AdaptiveConcurrencyLimiter;
 import com.example.javathreaddemo.service.SeckillService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @RestController // 标记为 RESTful Controller
 @RequestMapping("/seckill") // 请求路径前缀
 public class SeckillController {
 
     // 注入 SeckillService
     private final SeckillService seckillService;
+    // 自适应限流器：在途请求数超过当前 limit 时直接拒绝，不排队
+    private final AdaptiveConcurrencyLimiter seckillLimiter;
 
     @Autowired // 构造器注入
-    public SeckillController(SeckillService seckillService) {
+    public SeckillController(SeckillService seckillService, AdaptiveConcurrencyLimiter seckillLimiter) {
         this.seckillService = seckillService;
+        this.seckillLimiter = seckillLimiter;
     }
 
     /**
@@ -30,7 +38,28 @@ public class SeckillController {
      */
     @PostMapping("/buy/{productId}")
     public ResponseEntity<String> buy(@PathVariable int productId) {
-        boolean success = seckillService.processSeckill(productId);
+        AdaptiveConcurrencyLimiter.Token token = seckillLimiter.tryAcquire();
+        if (token == null) {
+            // 超过当前并发上限，快速失败，返回 HTTP 429
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("系统繁忙，请稍后重试！商品ID: " + productId);
+        }
+        boolean success;
+        try {
+            if (!seckillService.isValidProduct(productId)) {
+                // 无效商品ID的请求几乎不耗时，不作为延迟样本，否则会把 Gradient 的无负载 RTT 拉低、永久压低 limit
+                token.onIgnore();
+                success = false;
+            } else {
+                success = seckillService.processSeckill(productId);
+                token.onSuccess();
+            }
+        } catch (RuntimeException e) {
+            token.onDropped();
+            throw e;
+        } finally {
+            // 兜底：Error 等未登记的情况也要归还许可；已经释放过时是空操作
+            token.onIgnore();
+        }
 
         if (success) {
             // 秒杀成功，返回 HTTP 200 OK
@@ -43,6 +72,21 @@ public class SeckillController {
         }
     }
 
+    /**
+     * 查询限流器当前状态
+     * GET /seckill/limiter
+     */
+    @GetMapping("/limiter")
+    public Map<String, Object> limiter() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("algorithm", seckillLimiter.getAlgorithmName());
+        status.put("limit", seckillLimiter.getLimit());
+        status.put("inflight", seckillLimiter.getInflight());
+        status.put("accepted", seckillLimiter.getAcceptedCount());
+        status.put("rejected", seckillLimiter.getRejectedCount());
+        return status;
+    }
+
     // (可选) 添加一个查询库存的接口
     // GET /seckill/stock/{productId}
     // ...
@@ -0,0 +1,66 @@
+package com.example.javathreaddemo.controller;
+
+import com.example.javathreaddemo.service.ThreadContentionSampler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/threads")
+public class ThreadMonitorController {
+
+    // 后台线程状态采样器，按线程池和锁聚合 BLOCKED / WAITING 时间
+    private final ThreadContentionSampler sampler;
+
+    @Autowired // 构造器注入
+    public ThreadMonitorController(ThreadContentionSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * 查询各线程池处于各状态的时间、阻塞/等待累计时间，以及竞争最多的锁
+     * GET /threads/contention?locks=20
+     */
+    @GetMapping("/contention")
+    public Map<String, Object> contention(@RequestParam(defaultValue = "20") int locks) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("intervalMicros", sampler.getIntervalMicros());
+        status.put("samples", sampler.getSampleCount());
+        status.put("contentionMonitoring", sampler.isContentionMonitoringEnabled());
+        status.put("avgSampleMicros", sampler.getAverageSampleMicros());
+        status.put("samplerCpuPercent", sampler.getSamplerCpuPercent());
+
+        List<Map<String, Object>> pools = new ArrayList<>();
+        for (ThreadContentionSampler.PoolStats pool : sampler.getPoolStats()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("pool", pool.getName());
+            item.put("threads", pool.getThreads());
+            item.put("stateMillis", pool.getStateMillis());
+            item.put("blockedMillis", pool.getBlockedMillis());
+            item.put("blockedCount", pool.getBlockedCount());
+            item.put("waitedMillis", pool.getWaitedMillis());
+            item.put("waitedCount", pool.getWaitedCount());
+            pools.add(item);
+        }
+        status.put("pools", pools);
+
+        List<Map<String, Object>> topLocks = new ArrayList<>();
+        for (ThreadContentionSampler.LockStats lock : sampler.getTopLocks(locks)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("lock", lock.getLockName());
+            item.put("blockedMillis", lock.getBlockedMillis());
+            item.put("waitingMillis", lock.getWaitingMillis());
+            item.put("lastOwner", lock.getLastOwner());
+            topLocks.add(item);
+        }
+        status.put("locks", topLocks);
+        return status;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.javathreaddemo.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应并发限流器:
+ * 与固定许可数的 Semaphore 不同，许可数 (limit) 根据观测到的请求耗时和在途请求数自动调整。
+ * tryAcquire 不阻塞，超过 limit 时立即拒绝，调用方应直接返回"系统繁忙"。
+ * <p>
+ * 调整算法可选:
+ * <ul>
+ *     <li>AIMD: 耗时正常时每个请求 +1，超时或失败时乘以 0.9</li>
+ *     <li>Gradient: 比较短期平均耗时和无负载耗时，短期耗时变长 (开始排队) 时按比例缩小 limit</li>
+ * </ul>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * limit 调整算法；限流器在持有算法对象监视器 (synchronized (algorithm)) 时调用 update 并发布返回值，
+     * 同一个算法对象的 update 不会并发执行，发布的 limit 也不会被较早算出的旧值覆盖
+     */
+    public interface LimitAlgorithm {
+        int initialLimit();
+
+        /**
+         * @param rttNanos 本次请求的耗时
+         * @param inflight 本次请求开始时的在途请求数 (包括它自己)
+         * @param dropped  请求是否失败 (异常、超时等)
+         * @return 新的 limit
+         */
+        int update(long rttNanos, int inflight, boolean dropped);
+
+        String name();
+    }
+
+    /**
+     * 加性增、乘性减 (TCP 拥塞控制的思路)
+     */
+    public static class AimdLimit implements LimitAlgorithm {
+        private final int minLimit;
+        private final int maxLimit;
+        private final long timeoutNanos;
+        private final double backoffRatio;
+        private int limit;
+
+        /**
+         * @param timeout 超过该耗时的请求视为过载信号
+         */
+        public AimdLimit(int initialLimit, int minLimit, int maxLimit, long timeout, TimeUnit unit) {
+            this.limit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.timeoutNanos = unit.toNanos(timeout);
+            this.backoffRatio = 0.9;
+        }
+
+        @Override
+        public int initialLimit() {
+            return limit;
+        }
+
+        @Override
+        public synchronized int update(long rttNanos, int inflight, boolean dropped) {
+            if (dropped || rttNanos > timeoutNanos) {
+                limit = Math.max(minLimit, (int) (limit * backoffRatio));
+            } else if (inflight * 2 >= limit) {
+                // 只有在途请求真的用到了 limit 的一半以上才增长，否则说明是流量不够，而不是 limit 不够
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            return limit;
+        }
+
+        @Override
+        public String name() {
+            return "aimd";
+        }
+    }
+
+    /**
+     * 梯度算法：gradient = tolerance * 无负载耗时 / 短期平均耗时，限制在 [0.5, 1]。
+     * 没有排队时 gradient 为 1，limit 每次增加 sqrt(limit) 的探测余量；开始排队时短期耗时上升，limit 按比例收缩。
+     * <p>
+     * 无负载耗时取观测到的最小耗时，遇到更小的值立即下调，否则极缓慢地上调 (适应下游本身变慢)；
+     * 如果像短期耗时那样用普通移动平均，持续排队时基准会被一起拉高，limit 就再也收不回来。
+     */
+    public static class GradientLimit implements LimitAlgorithm {
+        private static final double SHORT_ALPHA = 2.0 / (10 + 1);   // 约 10 个样本的指数移动平均
+        private static final double BASELINE_ALPHA = 1.0 / 10_000; // 基准耗时向上漂移的速度
+        private static final double SMOOTHING = 0.2;
+
+        private final int minLimit;
+        private final int maxLimit;
+        private final double tolerance;
+        private double limit;
+        private double shortRtt;
+        private double noLoadRtt;
+
+        /**
+         * @param tolerance 允许短期耗时比无负载耗时高多少倍而不收缩 limit，例如 1.5
+         */
+        public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+            this.limit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.tolerance = tolerance;
+        }
+
+        @Override
+        public int initialLimit() {
+            return (int) limit;
+        }
+
+        @Override
+        public synchronized int update(long rttNanos, int inflight, boolean dropped) {
+            if (shortRtt == 0) {
+                shortRtt = rttNanos;
+                noLoadRtt = rttNanos;
+            }
+            shortRtt += SHORT_ALPHA * (rttNanos - shortRtt);
+            if (rttNanos < noLoadRtt) {
+                noLoadRtt = rttNanos;
+            } else {
+                noLoadRtt += BASELINE_ALPHA * (rttNanos - noLoadRtt);
+            }
+            if (!dropped && inflight * 2 < limit) {
+                // 流量不够用满 limit，耗时说明不了 limit 是否合适
+                return (int) limit;
+            }
+            double gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1.0, tolerance * noLoadRtt / shortRtt));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            limit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, limit));
+            return (int) limit;
+        }
+
+        @Override
+        public String name() {
+            return "gradient";
+        }
+    }
+
+    /**
+     * 一次获取成功的许可；请求结束时必须调用且只调用一次 onSuccess / onDropped / onIgnore 之一
+     */
+    public final class Token {
+        private final long startNanos = System.nanoTime();
+        private final int inflightAtStart;
+        private final AtomicInteger released = new AtomicInteger();
+
+        private Token(int inflightAtStart) {
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        /**
+         * 请求正常完成，用耗时更新 limit
+         */
+        public void onSuccess() {
+            release(false, true);
+        }
+
+        /**
+         * 请求失败或超时，作为过载信号更新 limit
+         */
+        public void onDropped() {
+            release(true, true);
+        }
+
+        /**
+         * 只释放许可，不参与 limit 计算 (例如请求参数非法，耗时没有代表性)
+         */
+        public void onIgnore() {
+            release(false, false);
+        }
+
+        private void release(boolean dropped, boolean sample) {
+            if (!released.compareAndSet(0, 1)) {
+                return;
+            }
+            inflight.decrementAndGet();
+            if (sample) {
+                long rttNanos = System.nanoTime() - startNanos;
+                // 计算和发布放在同一个临界区：否则先算出的旧值可能晚于新值写入 limit
+                synchronized (algorithm) {
+                    limit = algorithm.update(rttNanos, inflightAtStart, dropped);
+                }
+            }
+        }
+    }
+
+    private final LimitAlgorithm algorithm;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        this.limit = algorithm.initialLimit();
+    }
+
+    /**
+     * 尝试获取许可，不阻塞
+     *
+     * @return 许可；在途请求数已达到 limit 时返回 null，调用方应立即拒绝请求
+     */
+    public Token tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return null;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return new Token(current + 1);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public String getAlgorithmName() {
+        return algorithm.name();
+    }
+}
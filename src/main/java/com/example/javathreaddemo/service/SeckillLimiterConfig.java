@@ -0,0 +1,31 @@
+package com.example.javathreaddemo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀接口的自适应限流器配置，算法通过 seckill.limiter.algorithm 选择 (aimd 或 gradient)
+ */
+@Configuration
+public class SeckillLimiterConfig {
+
+    @Bean
+    public AdaptiveConcurrencyLimiter seckillLimiter(@Value("${seckill.limiter.algorithm:gradient}") String algorithm,
+                                                     @Value("${seckill.limiter.initial-limit:20}") int initialLimit,
+                                                     @Value("${seckill.limiter.max-limit:1000}") int maxLimit,
+                                                     @Value("${seckill.limiter.aimd-timeout-millis:50}") long aimdTimeoutMillis) {
+        switch (algorithm) {
+            case "aimd":
+                return new AdaptiveConcurrencyLimiter(new AdaptiveConcurrencyLimiter.AimdLimit(
+                        initialLimit, 1, maxLimit, aimdTimeoutMillis, TimeUnit.MILLISECONDS));
+            case "gradient":
+                return new AdaptiveConcurrencyLimiter(new AdaptiveConcurrencyLimiter.GradientLimit(
+                        initialLimit, 1, maxLimit, 1.5));
+            default:
+                throw new IllegalArgumentException("Unknown seckill.limiter.algorithm: " + algorithm);
+        }
+    }
+}
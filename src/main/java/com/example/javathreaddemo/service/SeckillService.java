@@ -1,5 +1,7 @@
 package com.example.javathreaddemo.service; // 建议新建一个 service 包
 
+import com.example.javathreaddemo.util.HighContentionCounters;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -12,12 +14,14 @@ public class SeckillService {
     private static final Logger log = LoggerFactory.getLogger(SeckillService.class);
 
     // 商品ID -> 库存 映射 (简化，只模拟一个商品 productId=1)
-    private final AtomicInteger stock = new AtomicInteger(100); // 初始库存 100
+    private static final int INITIAL_STOCK = 100;
+    private final AtomicInteger stock = new AtomicInteger(INITIAL_STOCK); // 初始库存 100
     private final int productId = 1;
 
     // 统计成功次数 (可选，用于观察)
-    private final AtomicInteger successCount = new AtomicInteger(0);
-    private final AtomicInteger failCount = new AtomicInteger(0);
+    // 库存卖完后所有请求都会递增 failCount，用分槽计数器避免所有线程争抢同一个缓存行
+    private final HighContentionCounters.StatCounter successCount = new HighContentionCounters.StripedCounter();
+    private final HighContentionCounters.StatCounter failCount = new HighContentionCounters.StripedCounter();
 
 
     /**
@@ -39,19 +43,28 @@ public class SeckillService {
             currentStock = stock.get();
             if (currentStock <= 0) {
                 // log.info("库存不足 ({}). 请求线程: {}", currentStock, Thread.currentThread().getName());
-                failCount.incrementAndGet(); // 统计失败
+                failCount.increment(); // 统计失败
                 return false; // 库存不足
             }
         } while (!stock.compareAndSet(currentStock, currentStock - 1));
 
         // CAS 成功，库存扣减成功
-        int successNum = successCount.incrementAndGet(); // 统计成功
+        successCount.increment(); // 统计成功
+        // 每次 CAS 成功库存恰好减 1，成功序号可以直接由库存算出，不需要读计数器
+        int successNum = INITIAL_STOCK - (currentStock - 1);
         log.info("秒杀成功! 商品ID: {}, 成功次数: {}, 剩余库存: {}. 请求线程: {}",
                  requestedProductId, successNum, currentStock - 1, Thread.currentThread().getName());
         // 实际项目中，这里应该继续创建订单、发送消息等后续操作...
         return true;
     }
 
+    /**
+     * 商品ID是否有效 (当前只支持 1)
+     */
+    public boolean isValidProduct(int requestedProductId) {
+        return requestedProductId == this.productId;
+    }
+
     /**
      * 获取当前库存 (用于查询)
      * @param requestedProductId 商品ID
@@ -67,10 +80,10 @@ public class SeckillService {
     // --- 用于统计的方法 (可选) ---
      public int getSuccessCount(int requestedProductId) {
          if (requestedProductId != this.productId) return 0;
-         return successCount.get();
+         return (int) successCount.sum();
      }
       public int getFailCount(int requestedProductId) {
           if (requestedProductId != this.productId) return 0;
-          return failCount.get();
+          return (int) failCount.sum();
       }
 }
\ No newline at end of file
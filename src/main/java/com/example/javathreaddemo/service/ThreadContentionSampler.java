@@ -0,0 +1,391 @@
+package com.example.javathreaddemo.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 线程状态与锁竞争采样器:
+ * 后台线程按固定间隔用 ThreadMXBean.getThreadInfo (不取调用栈) 抓取所有线程的状态，按线程池和锁聚合：
+ * <ul>
+ *     <li>每个线程池 (由线程名去掉末尾编号得到，例如 http-nio-8080-exec-12 -> http-nio-8080-exec)
+ *     处于各状态的时间，按"采样次数 x 采样间隔"估算</li>
+ *     <li>每个线程池的 BLOCKED / WAITING 累计时间和次数，来自 JVM 的线程竞争监控 (精确值，不是采样)</li>
+ *     <li>每把锁 (monitor、AQS、park 的 blocker) 上 BLOCKED 和等待的采样时间，以及最近一次的持有者。
+ *     锁按对象身份 (类名@identityHash) 区分，短命的锁对象会不断产生新条目，所以统计的锁数量达到上限时，
+ *     先淘汰连续若干次采样都没再出现的锁，腾不出位置才计入"(其他)"</li>
+ * </ul>
+ * 采样器自己的耗时和 CPU 占用也会统计，便于评估开销。
+ */
+public class ThreadContentionSampler implements AutoCloseable {
+
+    // 线程名末尾的编号 (以及它前面的分隔符)
+    private static final Pattern THREAD_NUMBER = Pattern.compile("^(.*?)[-_#. ]?\\d+$");
+    private static final String OTHER_LOCKS = "(其他)";
+    // 默认淘汰 60 秒内没有再被采样到的锁
+    private static final long DEFAULT_LOCK_IDLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    /**
+     * 一个线程池的统计
+     */
+    public static final class PoolStats {
+        private final String name;
+        private int threads;
+        private final EnumMap<Thread.State, Long> stateSamples = new EnumMap<>(Thread.State.class);
+        private long blockedMillis;
+        private long blockedCount;
+        private long waitedMillis;
+        private long waitedCount;
+        private long intervalMicros;
+
+        private PoolStats(String name) {
+            this.name = name;
+        }
+
+        private PoolStats copy(long intervalMicros) {
+            PoolStats copy = new PoolStats(name);
+            copy.threads = threads;
+            copy.stateSamples.putAll(stateSamples);
+            copy.blockedMillis = blockedMillis;
+            copy.blockedCount = blockedCount;
+            copy.waitedMillis = waitedMillis;
+            copy.waitedCount = waitedCount;
+            copy.intervalMicros = intervalMicros;
+            return copy;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 最近一次采样时的线程数
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * 池内所有线程处于各状态的估算总时间 (毫秒)
+         */
+        public Map<String, Long> getStateMillis() {
+            Map<String, Long> millis = new LinkedHashMap<>();
+            for (Map.Entry<Thread.State, Long> entry : stateSamples.entrySet()) {
+                millis.put(entry.getKey().name(), entry.getValue() * intervalMicros / 1000);
+            }
+            return millis;
+        }
+
+        public long getBlockedMillis() {
+            return blockedMillis;
+        }
+
+        public long getBlockedCount() {
+            return blockedCount;
+        }
+
+        public long getWaitedMillis() {
+            return waitedMillis;
+        }
+
+        public long getWaitedCount() {
+            return waitedCount;
+        }
+    }
+
+    /**
+     * 一把锁的统计
+     */
+    public static final class LockStats {
+        private final String lockName;
+        private long blockedSamples;
+        private long waitingSamples;
+        private String lastOwner;
+        private long intervalMicros;
+        // 最近一次被采样到时的采样序号，用于淘汰不再出现的锁
+        private long lastSeenSample;
+
+        private LockStats(String lockName) {
+            this.lockName = lockName;
+        }
+
+        private LockStats copy(long intervalMicros) {
+            LockStats copy = new LockStats(lockName);
+            copy.blockedSamples = blockedSamples;
+            copy.waitingSamples = waitingSamples;
+            copy.lastOwner = lastOwner;
+            copy.intervalMicros = intervalMicros;
+            return copy;
+        }
+
+        public String getLockName() {
+            return lockName;
+        }
+
+        /**
+         * 线程在这把锁上 BLOCKED 的估算总时间 (毫秒)
+         */
+        public long getBlockedMillis() {
+            return blockedSamples * intervalMicros / 1000;
+        }
+
+        /**
+         * 线程在这把锁 (或条件、blocker) 上 WAITING / TIMED_WAITING 的估算总时间 (毫秒)
+         */
+        public long getWaitingMillis() {
+            return waitingSamples * intervalMicros / 1000;
+        }
+
+        /**
+         * 最近一次采样到的持有者线程名，未知时为 null
+         */
+        public String getLastOwner() {
+            return lastOwner;
+        }
+    }
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final long intervalMicros;
+    private final int maxLocks;
+    private final long lockIdleSamples;
+    // 线程竞争监控是 JVM 全局开关，只在 start() 时打开；restoreContentionMonitoring 记录是否由本采样器打开，close() 时据此恢复
+    private volatile boolean contentionMonitoring;
+    private boolean restoreContentionMonitoring;
+    private ScheduledExecutorService scheduler;
+    private volatile long samplerThreadId = -1;
+
+    // 以下字段只在持有 this 锁时访问
+    private final Map<String, PoolStats> pools = new HashMap<>();
+    private final Map<String, LockStats> locks = new HashMap<>();
+    // 线程 id -> 上次采样时的 {blockedTime, blockedCount, waitedTime, waitedCount}
+    private Map<Long, long[]> previous = new HashMap<>();
+    private long samples;
+    // 上一次因为锁数量达到上限而尝试淘汰时的采样序号，每次采样最多淘汰一轮
+    private long lastEvictionSample = -1;
+    private long sampleNanos;
+    private long samplerCpuNanos;
+    private long startNanos;
+
+    /**
+     * @param intervalMicros 采样间隔，1000 即 1 kHz
+     * @param maxLocks       最多单独统计多少把锁，超出的计入"(其他)"，防止锁对象很多时无限增长
+     */
+    public ThreadContentionSampler(long intervalMicros, int maxLocks) {
+        this(intervalMicros, maxLocks, Math.max(1, DEFAULT_LOCK_IDLE_MICROS / Math.max(1, intervalMicros)));
+    }
+
+    /**
+     * @param lockIdleSamples 锁数量达到上限时，连续多少次采样没有出现的锁可以被淘汰
+     */
+    public ThreadContentionSampler(long intervalMicros, int maxLocks, long lockIdleSamples) {
+        if (intervalMicros <= 0 || maxLocks <= 0 || lockIdleSamples <= 0) {
+            throw new IllegalArgumentException("intervalMicros, maxLocks and lockIdleSamples must be positive");
+        }
+        this.intervalMicros = intervalMicros;
+        this.maxLocks = maxLocks;
+        this.lockIdleSamples = lockIdleSamples;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 打开线程竞争监控并启动后台采样线程
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        enableContentionMonitoring();
+        startNanos = System.nanoTime();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "线程状态采样");
+            thread.setDaemon(true);
+            samplerThreadId = thread.getId();
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sampleOnce, intervalMicros, intervalMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * 停止采样；线程竞争监控如果是 start() 打开的，恢复为关闭
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (restoreContentionMonitoring) {
+            threadMXBean.setThreadContentionMonitoringEnabled(false);
+            restoreContentionMonitoring = false;
+        }
+        contentionMonitoring = false;
+    }
+
+    /**
+     * 打开线程竞争监控，使采样能读到阻塞/等待的累计时间；由 start() 调用，也可以在测试中直接调用
+     */
+    synchronized void enableContentionMonitoring() {
+        if (contentionMonitoring || !threadMXBean.isThreadContentionMonitoringSupported()) {
+            return;
+        }
+        if (!threadMXBean.isThreadContentionMonitoringEnabled()) {
+            threadMXBean.setThreadContentionMonitoringEnabled(true);
+            restoreContentionMonitoring = true;
+        }
+        contentionMonitoring = true;
+    }
+
+    /**
+     * 采样一次；由后台线程调用，也可以在测试中直接调用
+     */
+    synchronized void sampleOnce() {
+        long begin = System.nanoTime();
+        long cpuBegin = threadMXBean.getCurrentThreadCpuTime();
+
+        // maxDepth 为 0：不取调用栈，只要状态、锁和竞争计数
+        record(threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0));
+
+        samplerCpuNanos += threadMXBean.getCurrentThreadCpuTime() - cpuBegin;
+        sampleNanos += System.nanoTime() - begin;
+    }
+
+    /**
+     * 把一次采样抓到的线程信息计入统计；测试中可以只传入部分线程
+     */
+    synchronized void record(ThreadInfo[] infos) {
+        Map<Long, long[]> current = new HashMap<>(previous.size() * 2 + 16);
+        for (PoolStats pool : pools.values()) {
+            pool.threads = 0;
+        }
+        for (ThreadInfo info : infos) {
+            if (info == null || info.getThreadId() == samplerThreadId) {
+                continue; // 线程已结束，或是采样线程自己
+            }
+            PoolStats pool = pools.computeIfAbsent(poolName(info.getThreadName()), PoolStats::new);
+            pool.threads++;
+            Thread.State state = info.getThreadState();
+            pool.stateSamples.merge(state, 1L, Long::sum);
+
+            long[] counters = {info.getBlockedTime(), info.getBlockedCount(), info.getWaitedTime(), info.getWaitedCount()};
+            long[] last = previous.get(info.getThreadId());
+            // 新线程的累计值全部计入；blockedTime / waitedTime 在竞争监控不可用时为 -1
+            pool.blockedMillis += Math.max(0, counters[0] - (last == null ? 0 : Math.max(0, last[0])));
+            pool.blockedCount += counters[1] - (last == null ? 0 : last[1]);
+            pool.waitedMillis += Math.max(0, counters[2] - (last == null ? 0 : Math.max(0, last[2])));
+            pool.waitedCount += counters[3] - (last == null ? 0 : last[3]);
+            current.put(info.getThreadId(), counters);
+
+            String lockName = info.getLockName();
+            if (lockName != null && state != Thread.State.RUNNABLE) {
+                LockStats lock = locks.get(lockName);
+                if (lock == null) {
+                    if (locks.size() >= maxLocks) {
+                        evictIdleLocks();
+                    }
+                    lock = locks.computeIfAbsent(locks.size() < maxLocks ? lockName : OTHER_LOCKS, LockStats::new);
+                }
+                lock.lastSeenSample = samples;
+                if (state == Thread.State.BLOCKED) {
+                    lock.blockedSamples++;
+                } else {
+                    lock.waitingSamples++;
+                }
+                if (info.getLockOwnerName() != null) {
+                    lock.lastOwner = info.getLockOwnerName();
+                }
+            }
+        }
+        previous = current;
+        samples++;
+    }
+
+    /**
+     * 淘汰超过 lockIdleSamples 次采样没有出现的锁 ("(其他)" 除外)；
+     * 同一次采样里只扫描一次，避免新锁很多而又没有可淘汰的条目时反复扫描整张表
+     */
+    private void evictIdleLocks() {
+        if (lastEvictionSample == samples) {
+            return;
+        }
+        lastEvictionSample = samples;
+        locks.values().removeIf(lock -> samples - lock.lastSeenSample > lockIdleSamples
+                && !lock.lockName.equals(OTHER_LOCKS));
+    }
+
+    /**
+     * 由线程名推断所属线程池：去掉末尾的编号
+     */
+    static String poolName(String threadName) {
+        Matcher matcher = THREAD_NUMBER.matcher(threadName);
+        if (matcher.matches() && !matcher.group(1).isEmpty()) {
+            return matcher.group(1);
+        }
+        return threadName;
+    }
+
+    /**
+     * 各线程池的统计快照，按 BLOCKED + WAITING 累计时间从大到小排序
+     */
+    public synchronized List<PoolStats> getPoolStats() {
+        List<PoolStats> result = new ArrayList<>();
+        for (PoolStats pool : pools.values()) {
+            result.add(pool.copy(intervalMicros));
+        }
+        result.sort(Comparator.comparingLong((PoolStats p) -> p.blockedMillis + p.waitedMillis).reversed());
+        return result;
+    }
+
+    /**
+     * 阻塞 + 等待时间最多的 limit 把锁，limit 不大于 0 时返回空列表
+     */
+    public synchronized List<LockStats> getTopLocks(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<LockStats> result = new ArrayList<>();
+        for (LockStats lock : locks.values()) {
+            result.add(lock.copy(intervalMicros));
+        }
+        result.sort(Comparator.comparingLong((LockStats l) -> l.blockedSamples + l.waitingSamples).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public long getIntervalMicros() {
+        return intervalMicros;
+    }
+
+    public boolean isContentionMonitoringEnabled() {
+        return contentionMonitoring;
+    }
+
+    public synchronized long getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * 平均每次采样的耗时 (微秒)
+     */
+    public synchronized double getAverageSampleMicros() {
+        return samples == 0 ? 0 : sampleNanos / 1000.0 / samples;
+    }
+
+    /**
+     * 采样线程占用的 CPU 时间相对于运行时长的百分比 (按单核计)
+     */
+    public synchronized double getSamplerCpuPercent() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : samplerCpuNanos * 100.0 / elapsed;
+    }
+}
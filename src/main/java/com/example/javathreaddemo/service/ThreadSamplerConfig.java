@@ -0,0 +1,23 @@
+package com.example.javathreaddemo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 线程状态与锁竞争采样器配置，采样间隔通过 threads.sampler.interval-micros 设置，threads.sampler.enabled=false 时不启动采样，也不打开线程竞争监控
+ */
+@Configuration
+public class ThreadSamplerConfig {
+
+    @Bean(destroyMethod = "close")
+    public ThreadContentionSampler threadContentionSampler(@Value("${threads.sampler.enabled:true}") boolean enabled,
+                                                           @Value("${threads.sampler.interval-micros:10000}") long intervalMicros,
+                                                           @Value("${threads.sampler.max-locks:1000}") int maxLocks) {
+        ThreadContentionSampler sampler = new ThreadContentionSampler(intervalMicros, maxLocks);
+        if (enabled) {
+            sampler.start();
+        }
+        return sampler;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.javathreaddemo.util;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 高竞争计数器:
+ * 秒杀时 successCount / failCount 这类统计值被所有请求线程同时递增，AtomicInteger 的每次 incrementAndGet
+ * 都在争抢同一个缓存行。这里的实现都把写分散开，读的时候再汇总：
+ * <ul>
+ *     <li>{@link StripedCounter}: 固定数量、缓存行填充的槽位，线程按哈希选槽，CAS 失败 (说明有竞争) 时换槽</li>
+ *     <li>{@link PerThreadCounter}: 每个线程独占一个槽位，只有它自己写，递增不需要原子指令</li>
+ *     <li>{@link SloppyCounter}: 线程先在本地累计，满 threshold 才加到全局值上；读只看全局值，误差有上界</li>
+ * </ul>
+ * 代价都在读：sum 要遍历所有槽位，且并发更新时读到的只是一个近似快照 (与 LongAdder 相同)，
+ * 因此只适合"写多读少"的统计，不能用来做库存扣减这类需要精确比较的操作。
+ */
+public final class HighContentionCounters {
+
+    private HighContentionCounters() {
+    }
+
+    public interface StatCounter {
+        void add(long delta);
+
+        default void increment() {
+            add(1);
+        }
+
+        /**
+         * @return 当前总数；有并发更新时是近似值
+         */
+        long sum();
+    }
+
+    // 槽位之间间隔 16 个 long (128 字节)，同时避开相邻缓存行预取造成的伪共享
+    private static final int PADDING = 16;
+
+    /**
+     * 分槽计数器：槽位个数为不小于 2 倍 CPU 核数的 2 的幂
+     */
+    public static class StripedCounter implements StatCounter {
+        private static final AtomicInteger nextHash = new AtomicInteger(1);
+        // 每个线程的槽位哈希，发生竞争时改变；所有 StripedCounter 共用
+        private static final ThreadLocal<int[]> threadHash =
+                ThreadLocal.withInitial(() -> new int[]{nextHash.getAndAdd(0x61c88647)});
+
+        private final AtomicLongArray cells;
+        private final int mask;
+
+        public StripedCounter() {
+            this(Runtime.getRuntime().availableProcessors() * 2);
+        }
+
+        public StripedCounter(int stripes) {
+            int length = Integer.highestOneBit(Math.max(2, stripes));
+            if (length < stripes) {
+                length <<= 1;
+            }
+            this.mask = length - 1;
+            this.cells = new AtomicLongArray(length * PADDING);
+        }
+
+        @Override
+        public void add(long delta) {
+            int[] hash = threadHash.get();
+            int index = (hash[0] & mask) * PADDING;
+            long current = cells.get(index);
+            if (!cells.compareAndSet(index, current, current + delta)) {
+                // 有其他线程在用这个槽：换一个槽 (xorshift)，本次改用 getAndAdd 保证一定成功
+                int h = hash[0];
+                h ^= h << 13;
+                h ^= h >>> 17;
+                h ^= h << 5;
+                hash[0] = h == 0 ? 1 : h;
+                cells.getAndAdd((h & mask) * PADDING, delta);
+            }
+        }
+
+        @Override
+        public long sum() {
+            long sum = 0;
+            for (int i = 0; i <= mask; i++) {
+                sum += cells.get(i * PADDING);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * 每线程计数器：线程第一次递增时登记一个自己的槽位，之后只有它写这个槽位，
+     * 用 lazySet (release 写) 代替原子加。线程结束后槽位保留，已计的数不会丢，
+     * 因此适合线程池这类线程数稳定的场景，不适合为每个请求新建线程。
+     */
+    public static class PerThreadCounter implements StatCounter {
+
+        /**
+         * value 之后再占 56 字节，保证不同线程的槽位不在同一个缓存行里
+         */
+        @SuppressWarnings("unused")
+        private static final class Cell extends AtomicLong {
+            private static final long serialVersionUID = 1L;
+
+            private long p1, p2, p3, p4, p5, p6, p7;
+        }
+
+        private final CopyOnWriteArrayList<Cell> cells = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<Cell> localCell = ThreadLocal.withInitial(() -> {
+            Cell cell = new Cell();
+            cells.add(cell);
+            return cell;
+        });
+
+        @Override
+        public void add(long delta) {
+            Cell cell = localCell.get();
+            cell.lazySet(cell.get() + delta);
+        }
+
+        @Override
+        public long sum() {
+            long sum = 0;
+            for (Cell cell : cells) {
+                sum += cell.get();
+            }
+            return sum;
+        }
+
+        /**
+         * 登记过的线程数 (sum 需要遍历的槽位数)
+         */
+        public int threads() {
+            return cells.size();
+        }
+    }
+
+    /**
+     * 松散计数器：每个线程本地累计，达到 threshold 才一次性加到全局值。
+     * sum 只读全局值，与真实值最多相差 (写过的线程数) x (threshold - 1)；flush 把当前线程的本地值立即加上去。
+     */
+    public static class SloppyCounter implements StatCounter {
+        private final long threshold;
+        private final AtomicLong global = new AtomicLong();
+        private final AtomicInteger threads = new AtomicInteger();
+        private final ThreadLocal<long[]> local = ThreadLocal.withInitial(() -> {
+            threads.incrementAndGet();
+            return new long[1];
+        });
+
+        public SloppyCounter(long threshold) {
+            if (threshold <= 0) {
+                throw new IllegalArgumentException("threshold must be positive");
+            }
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void add(long delta) {
+            long[] pending = local.get();
+            long value = pending[0] + delta;
+            if (Math.abs(value) >= threshold) {
+                global.addAndGet(value);
+                value = 0;
+            }
+            pending[0] = value;
+        }
+
+        @Override
+        public long sum() {
+            return global.get();
+        }
+
+        /**
+         * 把当前线程本地累计的值加到全局值上
+         */
+        public void flush() {
+            long[] pending = local.get();
+            if (pending[0] != 0) {
+                global.addAndGet(pending[0]);
+                pending[0] = 0;
+            }
+        }
+
+        /**
+         * sum 与真实值之差的上界
+         */
+        public long maxError() {
+            return threads.get() * (threshold - 1);
+        }
+    }
+}
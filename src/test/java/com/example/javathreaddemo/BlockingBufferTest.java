@@ -0,0 +1,178 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 两个 BlockingBuffer (环形数组实现) 的单元测试：FIFO 顺序、下标回绕、容量上限和批量操作，以及双锁缓冲区
+ */
+public class BlockingBufferTest {
+
+    /**
+     * 测试目的：容量不是 2 的幂时，多次回绕后仍保持 FIFO 顺序，且 size 正确。
+     */
+    @Test
+    void testFifoAcrossWrapAround() throws InterruptedException {
+        ProducerConsumerWaitNotify.BlockingBuffer<Integer> waitNotify = new ProducerConsumerWaitNotify.BlockingBuffer<>(5);
+        ProducerConsumerLockConditionDemo.BlockingBuffer<Integer> condition =
+                new ProducerConsumerLockConditionDemo.BlockingBuffer<>(5);
+
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 3; i++) {
+                waitNotify.put(next);
+                condition.put(next);
+                next++;
+            }
+            Assertions.assertEquals(next - expected, waitNotify.size());
+            Assertions.assertEquals(next - expected, condition.size());
+            for (int i = 0; i < 3; i++) {
+                Assertions.assertEquals(expected, waitNotify.take());
+                Assertions.assertEquals(expected, condition.take());
+                expected++;
+            }
+        }
+        Assertions.assertEquals(0, waitNotify.size());
+        Assertions.assertEquals(0, condition.size());
+    }
+
+    /**
+     * 测试目的：缓冲区满 (逻辑容量，而不是数组长度) 时 put 阻塞，take 一个之后才能放入。
+     */
+    @Test
+    void testPutBlocksAtCapacity() throws InterruptedException {
+        ProducerConsumerLockConditionDemo.BlockingBuffer<Integer> buffer =
+                new ProducerConsumerLockConditionDemo.BlockingBuffer<>(3);
+        for (int i = 0; i < 3; i++) {
+            buffer.put(i);
+        }
+
+        Thread producer = new Thread(() -> {
+            try {
+                buffer.put(3);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        // 数组长度为 4，但逻辑容量为 3，第 4 个 put 必须阻塞
+        producer.join(200);
+        Assertions.assertTrue(producer.isAlive(), "缓冲区已满时 put 应该阻塞");
+        Assertions.assertEquals(3, buffer.size());
+
+        Assertions.assertEquals(0, buffer.take());
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        Assertions.assertFalse(producer.isAlive(), "take 之后 put 应该完成");
+        Assertions.assertEquals(3, buffer.size());
+    }
+
+    /**
+     * 测试目的：putAll 只放入能放下的部分并返回个数，drainTo 最多取 maxItems 个，顺序保持 FIFO。
+     */
+    @Test
+    void testPartialBatches() throws InterruptedException {
+        ProducerConsumerWaitNotify.BlockingBuffer<Integer> waitNotify = new ProducerConsumerWaitNotify.BlockingBuffer<>(5);
+        ProducerConsumerLockConditionDemo.BlockingBuffer<Integer> condition =
+                new ProducerConsumerLockConditionDemo.BlockingBuffer<>(5);
+        List<Integer> batch = List.of(0, 1, 2, 3, 4, 5, 6, 7);
+
+        Assertions.assertEquals(5, waitNotify.putAll(batch));
+        Assertions.assertEquals(5, condition.putAll(batch));
+        Assertions.assertEquals(0, waitNotify.putAll(List.of()));
+
+        List<Integer> drained = new ArrayList<>();
+        Assertions.assertEquals(3, waitNotify.drainTo(drained, 3));
+        Assertions.assertEquals(3, waitNotify.putAll(batch.subList(5, 8)));
+        Assertions.assertEquals(5, waitNotify.drainTo(drained, 100));
+        Assertions.assertEquals(batch, drained);
+
+        drained.clear();
+        Assertions.assertEquals(0, condition.drainTo(drained, 0));
+        Assertions.assertEquals(5, condition.drainTo(drained, 100));
+        Assertions.assertEquals(batch.subList(0, 5), drained);
+        Assertions.assertEquals(0, condition.size());
+    }
+
+    /**
+     * 测试目的：空缓冲区上的 drainTo 阻塞等待，被中断时抛出 InterruptedException 且不取出任何元素。
+     */
+    @Test
+    void testDrainToInterruptedWhileEmpty() throws InterruptedException {
+        ProducerConsumerLockConditionDemo.BlockingBuffer<Integer> buffer =
+                new ProducerConsumerLockConditionDemo.BlockingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+        boolean[] interrupted = new boolean[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                buffer.drainTo(drained, 4);
+            } catch (InterruptedException e) {
+                interrupted[0] = true;
+            }
+        });
+        consumer.start();
+        consumer.join(200);
+        Assertions.assertTrue(consumer.isAlive(), "缓冲区为空时 drainTo 应该阻塞");
+
+        consumer.interrupt();
+        consumer.join(TimeUnit.SECONDS.toMillis(5));
+        Assertions.assertTrue(interrupted[0]);
+        Assertions.assertTrue(drained.isEmpty());
+    }
+
+    /**
+     * 测试目的：双锁缓冲区在多生产者多消费者下每个元素恰好被消费一次，结束后为空。
+     * 容量很小，频繁经过 满 -> 非满 和 空 -> 非空 的转换，用来检查跨锁唤醒不会丢失。
+     */
+    @Test
+    void testTwoLockBufferDeliversEachItemOnce() throws InterruptedException {
+        int producers = 3;
+        int consumers = 3;
+        int perProducer = 20_000;
+        ProducerConsumerLockConditionDemo.TwoLockBlockingBuffer<Integer> buffer =
+                new ProducerConsumerLockConditionDemo.TwoLockBlockingBuffer<>(3);
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        buffer.put(base + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        for (int c = 0; c < consumers; c++) {
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        seen.incrementAndGet(buffer.take());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        Assertions.assertTrue(done.await(30, TimeUnit.SECONDS), "生产者/消费者没有在限定时间内结束 (可能丢失了唤醒)");
+        for (int i = 0; i < seen.length(); i++) {
+            Assertions.assertEquals(1, seen.get(i), "元素 " + i + " 的消费次数不正确");
+        }
+        Assertions.assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CombiningTreeBarrierDemo.CombiningTreeBarrier 的单元测试：多代循环使用、屏障动作、返回值和中断后破坏
+ */
+public class CombiningTreeBarrierTest {
+
+    /**
+     * 测试目的：参与方数不是 radix 的整数次幂时，每一代所有参与方都到达后才放行，屏障动作每代执行一次，
+     * 每代的返回值恰好是 0 ~ parties-1 各一次。
+     */
+    @Test
+    void testReusableAcrossGenerations() throws Exception {
+        int parties = 37;
+        int rounds = 200;
+        AtomicInteger arrivals = new AtomicInteger();
+        AtomicInteger actions = new AtomicInteger();
+        List<String> errors = new ArrayList<>();
+        CombiningTreeBarrierDemo.CombiningTreeBarrier barrier = new CombiningTreeBarrierDemo.CombiningTreeBarrier(
+                parties, () -> {
+                    int generation = actions.incrementAndGet();
+                    if (arrivals.get() != parties * generation) {
+                        errors.add("第 " + generation + " 代放行时只到达了 " + arrivals.get());
+                    }
+                }, 3, 16);
+        Assertions.assertEquals(4, barrier.depth());
+
+        int[][] indexes = new int[rounds][parties];
+        ExecutorService executor = Executors.newFixedThreadPool(parties);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < parties; t++) {
+            final int id = t;
+            futures.add(executor.submit(() -> {
+                for (int r = 0; r < rounds; r++) {
+                    arrivals.incrementAndGet();
+                    indexes[r][id] = barrier.await();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(List.of(), errors);
+        Assertions.assertEquals(rounds, actions.get());
+        for (int r = 0; r < rounds; r++) {
+            Set<Integer> seen = new HashSet<>();
+            for (int index : indexes[r]) {
+                seen.add(index);
+            }
+            Assertions.assertEquals(parties, seen.size());
+            Assertions.assertTrue(seen.contains(0) && seen.contains(parties - 1));
+        }
+    }
+
+    /**
+     * 测试目的：一个等待者被中断时屏障被破坏，其他等待者抛出 BrokenBarrierException 而不是永远等待。
+     */
+    @Test
+    void testInterruptBreaksBarrier() throws Exception {
+        CombiningTreeBarrierDemo.CombiningTreeBarrier barrier = new CombiningTreeBarrierDemo.CombiningTreeBarrier(8);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            futures.add(executor.submit(barrier::await));
+        }
+        Thread.sleep(200);
+        executor.shutdownNow(); // 中断所有等待者
+
+        int interrupted = 0;
+        int brokenCount = 0;
+        for (Future<Integer> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assertions.fail("屏障不应被放行");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof InterruptedException) {
+                    interrupted++;
+                } else if (e.getCause() instanceof BrokenBarrierException) {
+                    brokenCount++;
+                }
+            }
+        }
+        Assertions.assertTrue(interrupted >= 1);
+        Assertions.assertEquals(3, interrupted + brokenCount);
+        Assertions.assertTrue(barrier.isBroken());
+        Assertions.assertThrows(BrokenBarrierException.class, barrier::await);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ExpiringCacheDemo.ExpiringCache 的单元测试：写入 TTL / 访问 TTL 的惰性过期、分批清扫和提前刷新
+ */
+public class ExpiringCacheTest {
+
+    /**
+     * 测试目的：写入 TTL 到期后读不到旧值并被惰性删除；单独设置的 TTL 覆盖默认值；
+     * 访问 TTL 下持续被读的条目不过期，没人读的条目过期。
+     */
+    @Test
+    void testWriteAndAccessTtl() throws InterruptedException {
+        ExpiringCacheDemo.ExpiringCache<String, Integer> cache = new ExpiringCacheDemo.ExpiringCache<>(100, 0);
+        cache.put("short", 1);
+        cache.put("long", 2, 10, 0, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, cache.get("short"));
+        Thread.sleep(200);
+        Assertions.assertNull(cache.get("short"));
+        Assertions.assertEquals(2, cache.get("long"));
+        Assertions.assertEquals(1, cache.size());
+
+        ExpiringCacheDemo.ExpiringCache<String, String> accessCache = new ExpiringCacheDemo.ExpiringCache<>(0, 150);
+        accessCache.put("hot", "h");
+        accessCache.put("cold", "c");
+        for (int i = 0; i < 6; i++) {
+            Thread.sleep(50);
+            Assertions.assertEquals("h", accessCache.get("hot"));
+        }
+        Assertions.assertNull(accessCache.get("cold"));
+        Assertions.assertEquals("h", accessCache.get("hot"));
+    }
+
+    /**
+     * 测试目的：分批清扫每次最多检查 batch 个条目，游标跨批次保留，多次调用后删除全部过期条目且不删未过期的条目。
+     */
+    @Test
+    void testSweepInBatches() throws InterruptedException {
+        ExpiringCacheDemo.ExpiringCache<Integer, Integer> cache = new ExpiringCacheDemo.ExpiringCache<>(50, 0);
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(i, i);
+        }
+        for (int i = 0; i < 100; i++) {
+            cache.put(-i - 1, i, 1, 0, TimeUnit.HOURS);
+        }
+        Thread.sleep(100);
+
+        int first = cache.sweep(300);
+        Assertions.assertTrue(first <= 300, "一批删除了 " + first);
+        int removed = first;
+        for (int i = 0; i < 10; i++) {
+            removed += cache.sweep(300);
+        }
+        Assertions.assertEquals(1_000, removed);
+        Assertions.assertEquals(100, cache.size());
+        Assertions.assertEquals(0, cache.get(-1));
+    }
+
+    /**
+     * 测试目的：TTL 到期前的提前刷新窗口内读取会触发一次异步刷新，读者在刷新期间拿到旧值而不阻塞；
+     * 刷新完成后读到新值，并发读取只触发一次刷新；加载失败时保留旧值并计入失败次数。
+     */
+    @Test
+    void testRefreshAhead() throws InterruptedException {
+        ExecutorService refreshPool = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExpiringCacheDemo.ExpiringCache<String, Integer> cache = new ExpiringCacheDemo.ExpiringCache<>(300, 0, key -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (key.equals("bad")) {
+                throw new IllegalStateException("load failed");
+            }
+            return 100 + loads.incrementAndGet();
+        }, 250, refreshPool);
+        cache.put("price", 1);
+        cache.put("bad", 2);
+        Thread.sleep(100);
+
+        // 进入刷新窗口：加载被卡住，读者照样立即拿到旧值
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(1, cache.get("price"));
+        }
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getRefreshCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(101, cache.get("price"));
+        Assertions.assertEquals(1, loads.get());
+
+        Assertions.assertEquals(2, cache.get("bad"));
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getRefreshFailures() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(1, cache.getRefreshFailures());
+        Assertions.assertEquals(2, cache.get("bad"));
+
+        refreshPool.shutdownNow();
+    }
+
+    /**
+     * 测试目的：刷新窗口不短于默认写入 TTL 时构造器直接拒绝；单独设置的写入 TTL 不长于刷新窗口的条目
+     * 被反复读取也不会触发刷新，只会到期后过期，而 TTL 足够长的条目进入窗口后照常刷新。
+     */
+    @Test
+    void testRefreshAheadMustBeShorterThanWriteTtl() throws InterruptedException {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ExpiringCacheDemo.ExpiringCache<String, Integer>(100, 0, key -> 0, 100, Runnable::run));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ExpiringCacheDemo.ExpiringCache<String, Integer>(100, 0, key -> 0, 200, Runnable::run));
+
+        AtomicInteger loads = new AtomicInteger();
+        // 默认不过期，刷新在读线程上同步执行，便于直接检查加载次数
+        ExpiringCacheDemo.ExpiringCache<String, Integer> cache = new ExpiringCacheDemo.ExpiringCache<>(0, 0,
+                key -> 100 + loads.incrementAndGet(), 200, Runnable::run);
+        cache.put("short", 1, 200, 0, TimeUnit.MILLISECONDS);
+        cache.put("long", 2, 300, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(1, cache.get("short"));
+        }
+        Assertions.assertEquals(0, loads.get());
+        Assertions.assertEquals(0, cache.getRefreshCount());
+
+        Thread.sleep(220);
+        Assertions.assertNull(cache.get("short"));
+        // "long" 已进入刷新窗口：第一次读取返回旧值并刷新，之后读到新值
+        Assertions.assertEquals(2, cache.get("long"));
+        Assertions.assertEquals(101, cache.get("long"));
+        Assertions.assertEquals(1, loads.get());
+    }
+}
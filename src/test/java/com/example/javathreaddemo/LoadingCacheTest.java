@@ -0,0 +1,105 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * LoadingCacheDemo.LoadingCache 的单元测试：请求合并、失败传播和超时
+ */
+public class LoadingCacheTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadingCacheTest.class);
+
+    private ExecutorService loaderPool;
+    private LoadingCacheDemo.LoadingCache<Integer, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        loaderPool = Executors.newFixedThreadPool(4);
+        cache = new LoadingCacheDemo.LoadingCache<>(new ReadWriteLockCacheDemo.ReadWriteCache<>(), loaderPool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loaderPool.shutdownNow();
+    }
+
+    /**
+     * 测试目的：多个线程同时读取同一个未命中的 key，只应触发一次加载，所有线程拿到同一个值。
+     */
+    @Test
+    void testConcurrentMissesLoadOnce() throws Exception {
+        final int THREAD_COUNT = 16;
+        LoadingCacheDemo.SlowBackend backend = new LoadingCacheDemo.SlowBackend(200);
+        ExecutorService callers = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            results.add(callers.submit(() -> {
+                startSignal.await();
+                return cache.get(1, backend);
+            }));
+        }
+        startSignal.countDown();
+        for (Future<String> result : results) {
+            Assertions.assertEquals("product-1", result.get(5, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+
+        log.info("{} 个并发请求触发的加载次数: {}", THREAD_COUNT, backend.getCalls());
+        Assertions.assertEquals(1, backend.getCalls(), "同一个 key 只应加载一次");
+        Assertions.assertEquals(0, cache.inFlightCount(), "加载完成后不应残留登记");
+
+        // 再次读取应直接命中缓存
+        Assertions.assertEquals("product-1", cache.get(1, backend));
+        Assertions.assertEquals(1, backend.getCalls(), "命中缓存时不应再加载");
+    }
+
+    /**
+     * 测试目的：加载失败时调用者收到 ExecutionException，失败结果不被缓存，下次请求重新加载。
+     */
+    @Test
+    void testLoadFailurePropagatesAndIsNotCached() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Function<Integer, String> flakyLoader = key -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("后端不可用");
+            }
+            return "ok-" + key;
+        };
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> cache.get(7, flakyLoader));
+        Assertions.assertInstanceOf(IllegalStateException.class, e.getCause(), "cause 应为 loader 抛出的异常");
+        Assertions.assertEquals("ok-7", cache.get(7, flakyLoader), "失败后应重新加载");
+        Assertions.assertEquals(2, attempts.get());
+    }
+
+    /**
+     * 测试目的：带超时的 get 超时后抛出 TimeoutException，但加载继续进行并最终写入缓存。
+     */
+    @Test
+    void testTimeoutOnlyAffectsCaller() throws Exception {
+        LoadingCacheDemo.SlowBackend backend = new LoadingCacheDemo.SlowBackend(300);
+        Assertions.assertThrows(TimeoutException.class, () -> cache.get(3, backend, 50, TimeUnit.MILLISECONDS));
+
+        // 不带超时的等待者复用同一次加载
+        Assertions.assertEquals("product-3", cache.get(3, backend));
+        Assertions.assertEquals(1, backend.getCalls(), "超时不应触发重复加载");
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * LongLongCacheDemo.LongLongReadWriteCache 的单元测试：与 HashMap 的行为对比
+ */
+public class LongLongCacheTest {
+
+    /**
+     * 测试目的：随机执行 put / remove / get，结果应与 HashMap 完全一致 (覆盖扩容和向后移位删除)。
+     */
+    @Test
+    void testRandomOperationsMatchHashMap() {
+        LongLongCacheDemo.LongLongReadWriteCache cache = new LongLongCacheDemo.LongLongReadWriteCache();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            // key 范围较小，保证有大量冲突、覆盖写和删除
+            long key = random.nextInt(5_000) - 100;
+            int op = random.nextInt(10);
+            if (op < 5) {
+                long value = random.nextLong();
+                cache.put(key, value);
+                expected.put(key, value);
+            } else if (op < 8) {
+                Assertions.assertEquals(expected.remove(key) != null, cache.remove(key), "remove 返回值不一致, key=" + key);
+            } else {
+                Assertions.assertEquals(expected.getOrDefault(key, -1L), cache.get(key, -1L), "get 结果不一致, key=" + key);
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), cache.size(), "条目数不一致");
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            Assertions.assertTrue(cache.containsKey(entry.getKey()));
+            Assertions.assertEquals(entry.getValue(), cache.get(entry.getKey(), -1L));
+        }
+    }
+
+    /**
+     * 测试目的：key 为 0 (内部的空槽标记) 时也能正常存取和删除。
+     */
+    @Test
+    void testZeroKey() {
+        LongLongCacheDemo.LongLongReadWriteCache cache = new LongLongCacheDemo.LongLongReadWriteCache();
+        Assertions.assertFalse(cache.containsKey(0));
+        cache.put(0, 99);
+        Assertions.assertEquals(99, cache.get(0, -1));
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertTrue(cache.remove(0));
+        Assertions.assertEquals(-1, cache.get(0, -1));
+        Assertions.assertEquals(0, cache.size());
+    }
+}
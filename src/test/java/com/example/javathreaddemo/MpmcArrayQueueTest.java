@@ -0,0 +1,84 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * LockFreeQueueDemo.MpmcArrayQueue 的单元测试
+ */
+public class MpmcArrayQueueTest {
+
+    /**
+     * 测试目的：容量向上取整为 2 的幂，满时 offer 返回 false，空时 poll 返回 null，单线程下保持 FIFO。
+     */
+    @Test
+    void testBoundsAndFifo() {
+        LockFreeQueueDemo.MpmcArrayQueue<Integer> queue = new LockFreeQueueDemo.MpmcArrayQueue<>(3, LockFreeQueueDemo.YIELD);
+        Assertions.assertEquals(4, queue.capacity());
+        Assertions.assertNull(queue.poll());
+
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 4; i++) {
+                Assertions.assertTrue(queue.offer(round * 4 + i));
+            }
+            Assertions.assertFalse(queue.offer(-1), "队列已满时 offer 应返回 false");
+            Assertions.assertEquals(4, queue.size());
+            for (int i = 0; i < 4; i++) {
+                Assertions.assertEquals(round * 4 + i, queue.poll());
+            }
+            Assertions.assertNull(queue.poll());
+        }
+    }
+
+    /**
+     * 测试目的：多生产者多消费者并发 put/take，每个元素恰好被消费一次。
+     */
+    @Test
+    void testConcurrentPutTakeDeliversEachItemOnce() throws InterruptedException {
+        int producers = 3;
+        int consumers = 3;
+        int perProducer = 50_000;
+        int total = producers * perProducer;
+        LockFreeQueueDemo.MpmcArrayQueue<Integer> queue =
+                new LockFreeQueueDemo.MpmcArrayQueue<>(64, LockFreeQueueDemo.spinThenPark(50, 10, 100_000));
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.put(base + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        for (int c = 0; c < consumers; c++) {
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        seen.incrementAndGet(queue.take());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        done.await();
+        for (int i = 0; i < total; i++) {
+            Assertions.assertEquals(1, seen.get(i), "元素 " + i + " 的消费次数不正确");
+        }
+        Assertions.assertNull(queue.poll());
+    }
+}
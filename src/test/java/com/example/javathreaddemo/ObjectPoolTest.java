@@ -0,0 +1,154 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ObjectPoolDemo.BoundedObjectPool 的单元测试：容量上限、过期 Lease、借出校验、空闲回收和泄漏检测
+ */
+public class ObjectPoolTest {
+
+    /**
+     * 测试目的：多线程并发借还时，同时借出的对象数和创建的对象数都不超过池大小，同一对象不会同时借给两个线程。
+     */
+    @Test
+    void testConcurrentBorrowNeverExceedsCapacity() throws Exception {
+        int poolSize = 4;
+        AtomicInteger createdObjects = new AtomicInteger();
+        ObjectPoolDemo.BoundedObjectPool<AtomicInteger> pool =
+                new ObjectPoolDemo.BoundedObjectPool<>(poolSize, () -> {
+                    createdObjects.incrementAndGet();
+                    return new AtomicInteger();
+                });
+        AtomicInteger inUse = new AtomicInteger();
+        AtomicInteger maxInUse = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    try (ObjectPoolDemo.Lease<AtomicInteger> lease = pool.borrow(5, TimeUnit.SECONDS)) {
+                        // 对象上的标记从 0 变成 1，若被两个线程同时持有就会失败
+                        Assertions.assertTrue(lease.get().compareAndSet(0, 1));
+                        maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                        inUse.decrementAndGet();
+                        lease.get().set(0);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assertions.assertTrue(maxInUse.get() <= poolSize, "同时借出 " + maxInUse.get());
+        Assertions.assertTrue(createdObjects.get() <= poolSize, "创建了 " + createdObjects.get());
+        Assertions.assertEquals(poolSize, pool.availablePermits());
+        pool.close();
+    }
+
+    /**
+     * 测试目的：池满时借用超时返回 null；重复归还抛出异常。
+     */
+    @Test
+    void testTimeoutAndDoubleRelease() throws InterruptedException {
+        ObjectPoolDemo.BoundedObjectPool<Object> pool = new ObjectPoolDemo.BoundedObjectPool<>(1, Object::new);
+        ObjectPoolDemo.Lease<Object> lease = pool.borrow(1, TimeUnit.SECONDS);
+        Assertions.assertNotNull(lease);
+        Assertions.assertNull(pool.borrow(50, TimeUnit.MILLISECONDS));
+
+        lease.close();
+        Assertions.assertThrows(IllegalStateException.class, lease::close);
+        Assertions.assertNotNull(pool.borrow(1, TimeUnit.SECONDS));
+        pool.close();
+    }
+
+    /**
+     * 测试目的：同一个对象再次借出后，上一次借出的 Lease 已过期，对它 close / get / invalidate 都被拒绝，
+     * 不会释放许可，也不会影响当前借用者。
+     */
+    @Test
+    void testStaleLeaseIsRejected() throws InterruptedException {
+        ObjectPoolDemo.BoundedObjectPool<Object> pool = new ObjectPoolDemo.BoundedObjectPool<>(1, Object::new,
+                object -> true, object -> {
+        }, 0, 50, false);
+        ObjectPoolDemo.Lease<Object> first = pool.borrow(1, TimeUnit.SECONDS);
+        Object object = first.get();
+        first.close();
+
+        // 从快速槽借到同一个对象，但拿到的是新的 Lease
+        ObjectPoolDemo.Lease<Object> second = pool.borrow(1, TimeUnit.SECONDS);
+        Assertions.assertNotSame(first, second);
+        Assertions.assertSame(object, second.get());
+
+        Assertions.assertThrows(IllegalStateException.class, first::close);
+        Assertions.assertThrows(IllegalStateException.class, first::get);
+        Assertions.assertThrows(IllegalStateException.class, () -> pool.invalidate(first));
+        Assertions.assertEquals(0, pool.availablePermits());
+        Assertions.assertNull(pool.borrow(50, TimeUnit.MILLISECONDS));
+
+        // 当前借用者的泄漏跟踪没有被过期的 close 清掉
+        Thread.sleep(200);
+        Assertions.assertEquals(1, pool.leakCount());
+
+        second.close();
+        Assertions.assertEquals(1, pool.availablePermits());
+        pool.close();
+    }
+
+    /**
+     * 测试目的：校验失败的对象被销毁并换成新对象；空闲超时的对象被回收；借出太久的对象被报告为泄漏。
+     */
+    @Test
+    void testValidationEvictionAndLeakDetection() throws InterruptedException {
+        AtomicInteger ids = new AtomicInteger();
+        List<Integer> destroyedIds = new ArrayList<>();
+        ObjectPoolDemo.BoundedObjectPool<int[]> pool = new ObjectPoolDemo.BoundedObjectPool<>(2,
+                () -> new int[]{ids.incrementAndGet(), 0}, object -> object[1] == 0,
+                object -> {
+                    synchronized (destroyedIds) {
+                        destroyedIds.add(object[0]);
+                    }
+                }, 100, 0, false);
+
+        // 标记第一个对象为坏的，下次借出时校验失败，换成新对象
+        try (ObjectPoolDemo.Lease<int[]> lease = pool.borrow(1, TimeUnit.SECONDS)) {
+            Assertions.assertEquals(1, lease.get()[0]);
+            lease.get()[1] = 1;
+        }
+        try (ObjectPoolDemo.Lease<int[]> lease = pool.borrow(1, TimeUnit.SECONDS)) {
+            Assertions.assertEquals(2, lease.get()[0]);
+        }
+        Assertions.assertEquals(1, pool.validationFailureCount());
+        Assertions.assertEquals(1, pool.liveCount());
+
+        // 空闲超过 100 ms 后被回收
+        Thread.sleep(300);
+        Assertions.assertEquals(0, pool.liveCount());
+        synchronized (destroyedIds) {
+            Assertions.assertEquals(List.of(1, 2), destroyedIds);
+        }
+        pool.close();
+
+        ObjectPoolDemo.BoundedObjectPool<Object> leakyPool = new ObjectPoolDemo.BoundedObjectPool<>(2, Object::new,
+                object -> true, object -> {
+        }, 0, 50, false);
+        ObjectPoolDemo.Lease<Object> leaked = leakyPool.borrow(1, TimeUnit.SECONDS);
+        // 巡检线程每 25 ms 检查一次，同一次借出只报告一次
+        Thread.sleep(200);
+        Assertions.assertEquals(1, leakyPool.leakCount());
+        Assertions.assertEquals(0, leakyPool.detectLeaks());
+        leaked.close();
+        leakyPool.close();
+    }
+}
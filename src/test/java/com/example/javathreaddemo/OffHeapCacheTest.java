@@ -0,0 +1,90 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * OffHeapCacheDemo 的单元测试：slab 分配器的分配 / 释放 / 复用，以及堆外内存写满后 put 的返回值和覆盖写入
+ */
+public class OffHeapCacheTest {
+
+    /**
+     * 测试目的：释放的 chunk 被同级别的下一次分配复用；一个 slab 的 chunk 用完后切出新 slab；
+     * slab 总数达到上限后，没有空闲 chunk 的级别分配失败，释放一个 chunk 后又能分配；reset() 后 slab 可以切给其它级别。
+     */
+    @Test
+    void testAllocatorRoundTrip() {
+        OffHeapCacheDemo.SlabAllocator allocator = new OffHeapCacheDemo.SlabAllocator(1024, 2);
+        long first = allocator.allocate(12);
+        Assertions.assertEquals(0L, first);
+        allocator.free(first, 12);
+        Assertions.assertEquals(first, allocator.allocate(12));
+
+        // 64 字节级别：一个 1024 字节的 slab 切出 16 个 chunk
+        long last = first;
+        for (int i = 1; i < 16; i++) {
+            last = allocator.allocate(60);
+            Assertions.assertEquals(0, last >>> 32);
+        }
+        long second = allocator.allocate(64);
+        Assertions.assertEquals(1, second >>> 32);
+        Assertions.assertEquals(2048, allocator.allocatedBytes());
+
+        // 两个 slab 都切给了 64 字节级别，其它级别分配失败
+        Assertions.assertEquals(-1, allocator.allocate(500));
+        Assertions.assertEquals(-1, allocator.allocate(2048));
+        for (int i = 1; i < 16; i++) {
+            Assertions.assertTrue(allocator.allocate(64) >= 0);
+        }
+        Assertions.assertEquals(-1, allocator.allocate(64));
+        allocator.free(last, 64);
+        Assertions.assertEquals(last, allocator.allocate(64));
+
+        allocator.reset();
+        long big = allocator.allocate(500);
+        Assertions.assertEquals(0, big >>> 32);
+        Assertions.assertEquals(2048, allocator.allocatedBytes());
+    }
+
+    /**
+     * 测试目的：堆外内存写满后 put 返回 false，原有的值不变；覆盖写入同一级别的 value 仍然成功；
+     * 删除后腾出的 chunk 可以写入新 key；其它级别的 value 写不进去，clear() 后才能写入。
+     */
+    @Test
+    void testPutOnFullCache() {
+        // 只有一个 1024 字节的 slab；long value 占 12 字节，落在 64 字节级别，共 16 个 chunk
+        OffHeapCacheDemo.OffHeapCache<Integer, Long> cache =
+                new OffHeapCacheDemo.OffHeapCache<>(OffHeapCacheDemo.LONG_SERIALIZER, 1024, 1024);
+        for (int i = 0; i < 16; i++) {
+            Assertions.assertTrue(cache.put(i, (long) i));
+        }
+        Assertions.assertFalse(cache.put(16, 16L));
+        Assertions.assertNull(cache.get(16));
+        Assertions.assertEquals(16, cache.size());
+
+        Assertions.assertTrue(cache.put(0, 100L));
+        Assertions.assertEquals(100L, cache.get(0));
+        Assertions.assertEquals(16 * Long.BYTES, cache.storedBytes());
+
+        Assertions.assertTrue(cache.remove(1));
+        Assertions.assertTrue(cache.put(16, 16L));
+        Assertions.assertEquals(16L, cache.get(16));
+        for (int i = 2; i < 16; i++) {
+            Assertions.assertEquals(i, cache.get(i));
+        }
+
+        OffHeapCacheDemo.OffHeapCache<Integer, String> strings =
+                new OffHeapCacheDemo.OffHeapCache<>(OffHeapCacheDemo.STRING_SERIALIZER, 1024, 1024);
+        for (int i = 0; i < 16; i++) {
+            Assertions.assertTrue(strings.put(i, "v" + i));
+        }
+        String large = "x".repeat(400);
+        Assertions.assertFalse(strings.put(0, large));
+        Assertions.assertEquals("v0", strings.get(0));
+        strings.clear();
+        Assertions.assertEquals(0, strings.storedBytes());
+        Assertions.assertTrue(strings.put(0, large));
+        Assertions.assertEquals(large, strings.get(0));
+        Assertions.assertEquals(1024, strings.offHeapBytes());
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * PersistentQueueDemo.MappedPersistentQueue 的单元测试：重启恢复、段滚动和删除、多个生产者/消费者阻塞时的唤醒
+ */
+public class PersistentQueueTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+
+    /**
+     * 测试目的：关闭后重新打开，未被取走的元素按原顺序还在，已取走的不会重复出现；重启后可以继续放入。
+     */
+    @Test
+    void testRemainingItemsSurviveRestart(@TempDir Path directory) throws Exception {
+        try (PersistentQueueDemo.MappedPersistentQueue queue =
+                     new PersistentQueueDemo.MappedPersistentQueue(directory, 4096, 100, PersistentQueueDemo.SyncPolicy.none())) {
+            for (int i = 0; i < 10; i++) {
+                queue.put(bytes("item-" + i));
+            }
+            Assertions.assertEquals("item-0", string(queue.takeBytes()));
+            Assertions.assertEquals("item-1", string(queue.takeBytes()));
+        }
+
+        try (PersistentQueueDemo.MappedPersistentQueue queue =
+                     new PersistentQueueDemo.MappedPersistentQueue(directory, 4096, 100, PersistentQueueDemo.SyncPolicy.none())) {
+            Assertions.assertEquals(8, queue.size());
+            queue.put(bytes("item-10"));
+            for (int i = 2; i <= 10; i++) {
+                Assertions.assertEquals("item-" + i, string(queue.takeBytes()));
+            }
+            Assertions.assertEquals(0, queue.size());
+        }
+    }
+
+    /**
+     * 测试目的：记录跨越多个段时顺序正确，读完的段文件被删除，重启后的容量上限包括之前剩余的元素。
+     */
+    @Test
+    void testSegmentRolloverAndDeletion(@TempDir Path directory) throws Exception {
+        // 每个段 64 字节，每条记录 4 + 20 字节，一个段放 2 条
+        try (PersistentQueueDemo.MappedPersistentQueue queue =
+                     new PersistentQueueDemo.MappedPersistentQueue(directory, 64, 10, PersistentQueueDemo.SyncPolicy.everyOps(3))) {
+            for (int i = 0; i < 10; i++) {
+                queue.put(bytes(String.format("record-%013d", i)));
+            }
+            Assertions.assertEquals(5, segmentFiles(directory));
+            for (int i = 0; i < 6; i++) {
+                ByteBuffer record = queue.take();
+                Assertions.assertTrue(record.isReadOnly());
+                byte[] copy = new byte[record.remaining()];
+                record.get(copy);
+                Assertions.assertEquals(String.format("record-%013d", i), string(copy));
+            }
+            // 前两个段已读完并删除，第三个段的末尾还没读到结束标记
+            Assertions.assertEquals(3, segmentFiles(directory));
+        }
+
+        try (PersistentQueueDemo.MappedPersistentQueue queue =
+                     new PersistentQueueDemo.MappedPersistentQueue(directory, 64, 10, PersistentQueueDemo.SyncPolicy.always())) {
+            Assertions.assertEquals(4, queue.size());
+            for (int i = 10; i < 16; i++) {
+                queue.put(bytes(String.format("record-%013d", i)));
+            }
+            Assertions.assertEquals(10, queue.size());
+
+            // 已满，put 必须阻塞
+            Thread producer = new Thread(() -> {
+                try {
+                    queue.put(bytes(String.format("record-%013d", 16)));
+                } catch (Exception e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            producer.start();
+            producer.join(200);
+            Assertions.assertTrue(producer.isAlive(), "队列已满时 put 应该阻塞");
+
+            for (int i = 6; i <= 16; i++) {
+                Assertions.assertEquals(String.format("record-%013d", i), string(queue.takeBytes()));
+            }
+            producer.join(5000);
+            Assertions.assertFalse(producer.isAlive());
+        }
+    }
+
+    /**
+     * 测试目的：两个消费者都阻塞在空队列上时，连续两次 put 把两个都唤醒；
+     * 两个生产者都阻塞在满队列上时，连续两次 take 把两个都唤醒，不会有线程在有元素 (或有空位) 时继续睡眠。
+     */
+    @Test
+    void testEveryBlockedThreadIsWoken(@TempDir Path directory) throws Exception {
+        try (PersistentQueueDemo.MappedPersistentQueue queue =
+                     new PersistentQueueDemo.MappedPersistentQueue(directory, 4096, 2, PersistentQueueDemo.SyncPolicy.none())) {
+            List<String> taken = new CopyOnWriteArrayList<>();
+            List<Thread> consumers = new ArrayList<>();
+            for (int c = 0; c < 2; c++) {
+                consumers.add(startAndAwaitWaiting(() -> taken.add(string(queue.takeBytes()))));
+            }
+            queue.put(bytes("a"));
+            queue.put(bytes("b"));
+            for (Thread consumer : consumers) {
+                consumer.join(5000);
+                Assertions.assertFalse(consumer.isAlive(), "有元素时消费者仍在等待，size=" + queue.size());
+            }
+            Assertions.assertEquals(List.of("a", "b"), taken.stream().sorted().toList());
+
+            queue.put(bytes("c"));
+            queue.put(bytes("d"));
+            List<Thread> producers = new ArrayList<>();
+            for (String item : new String[]{"e", "f"}) {
+                producers.add(startAndAwaitWaiting(() -> queue.put(bytes(item))));
+            }
+            Assertions.assertEquals("c", string(queue.takeBytes()));
+            Assertions.assertEquals("d", string(queue.takeBytes()));
+            for (Thread producer : producers) {
+                producer.join(5000);
+                Assertions.assertFalse(producer.isAlive(), "有空位时生产者仍在等待，size=" + queue.size());
+            }
+            Assertions.assertEquals(2, queue.size());
+        }
+    }
+
+    interface QueueAction {
+        void run() throws Exception;
+    }
+
+    // 启动线程并等它阻塞在条件变量上
+    private static Thread startAndAwaitWaiting(QueueAction action) throws InterruptedException {
+        Thread thread = new Thread(() -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PhasedComputeDemo.PhasedComputeEngine 的单元测试：每轮归约、收敛终止、动态增减参与方 (含并发退出请求) 和异常传播
+ */
+public class PhasedComputeTest {
+
+    /**
+     * 测试目的：每一轮所有分片恰好被计算一次，归约结果正确；参与方增减不影响结果；收敛条件满足时停止。
+     */
+    @Test
+    void testReductionPerPhaseWithDynamicParties() throws Exception {
+        List<Integer> shards = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            shards.add(i);
+        }
+        List<Long> sums = new CopyOnWriteArrayList<>();
+        PhasedComputeDemo.PhasedComputeEngine<Integer, Long> engine = new PhasedComputeDemo.PhasedComputeEngine<>(
+                shards, 0L, Long::sum, (phase, shard) -> (long) shard * (phase + 1),
+                (phase, sum) -> {
+                    sums.add(sum);
+                    return phase == 199;
+                }, 1_000);
+
+        CompletableFuture<PhasedComputeDemo.ComputeResult<Long>> future = engine.start(2);
+        engine.addWorker();
+        engine.addWorker();
+        Assertions.assertTrue(engine.removeWorker());
+        PhasedComputeDemo.ComputeResult<Long> result = future.get(30, TimeUnit.SECONDS);
+
+        Assertions.assertTrue(result.converged);
+        Assertions.assertEquals(200, result.phases);
+        Assertions.assertEquals(200, sums.size());
+        for (int phase = 0; phase < 200; phase++) {
+            Assertions.assertEquals(5050L * (phase + 1), sums.get(phase));
+        }
+        Assertions.assertEquals(5050L * 200, result.lastReduced);
+    }
+
+    /**
+     * 测试目的：未收敛时在最大轮数处停止；至少保留一个参与方；分片计算抛出的异常使 future 异常完成。
+     */
+    @Test
+    void testMaxPhasesAndFailure() throws Exception {
+        PhasedComputeDemo.PhasedComputeEngine<Integer, Integer> engine = new PhasedComputeDemo.PhasedComputeEngine<>(
+                List.of(1, 2, 3), 0, Integer::sum, (phase, shard) -> shard, (phase, sum) -> false, 10);
+        Assertions.assertFalse(engine.removeWorker());
+        PhasedComputeDemo.ComputeResult<Integer> result = engine.start(1).get(10, TimeUnit.SECONDS);
+        Assertions.assertFalse(result.converged);
+        Assertions.assertEquals(10, result.phases);
+        Assertions.assertEquals(10, result.phaseNanos.size());
+
+        PhasedComputeDemo.PhasedComputeEngine<Integer, Integer> failing = new PhasedComputeDemo.PhasedComputeEngine<>(
+                List.of(1, 2, 3), 0, Integer::sum, (phase, shard) -> {
+                    if (phase == 3 && shard == 2) {
+                        throw new IllegalStateException("bad shard");
+                    }
+                    return shard;
+                }, (phase, sum) -> false, 100);
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                () -> failing.start(3).get(10, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    /**
+     * 测试目的：多个线程同时 removeWorker 时最多只接受到只剩一个参与方为止，计算照常结束，不会因参与方减到 0 而挂起。
+     */
+    @Test
+    void testConcurrentRemoveWorkerKeepsOneParty() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            PhasedComputeDemo.PhasedComputeEngine<Integer, Integer> engine = new PhasedComputeDemo.PhasedComputeEngine<>(
+                    List.of(1, 2, 3, 4), 0, Integer::sum, (phase, shard) -> shard, (phase, sum) -> false, 20);
+            CompletableFuture<PhasedComputeDemo.ComputeResult<Integer>> future = engine.start(2);
+            AtomicInteger accepted = new AtomicInteger();
+            CountDownLatch go = new CountDownLatch(1);
+            List<Thread> removers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread remover = new Thread(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (engine.removeWorker()) {
+                        accepted.incrementAndGet();
+                    }
+                });
+                removers.add(remover);
+                remover.start();
+            }
+            go.countDown();
+            for (Thread remover : removers) {
+                remover.join();
+            }
+            Assertions.assertEquals(1, accepted.get());
+            PhasedComputeDemo.ComputeResult<Integer> result = future.get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals(20, result.phases);
+            Assertions.assertEquals(10, result.lastReduced);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PipelineDemo 流水线的单元测试：排空关闭、过滤/失败计数、shutdown 后拒绝提交、工作线程被 Error 终止时仍能结束、
+ * 背压时生产者不互相串行、调用 shutdown 的线程被中断后流水线仍能结束
+ */
+public class PipelineTest {
+
+    /**
+     * 测试目的：队列很小 (持续背压) 且各阶段有多个工作线程时，shutdown 后所有已提交元素都被处理完，
+     * 每个元素恰好到达最后一个阶段一次；过滤和异常分别计入 dropped 和 failed。
+     */
+    @Test
+    void testShutdownDrainsAllSubmittedItems() throws InterruptedException {
+        int items = 10_000;
+        AtomicIntegerArray delivered = new AtomicIntegerArray(items);
+
+        PipelineDemo.Pipeline<Integer> pipeline = PipelineDemo.<Integer>builder()
+                // 过滤掉 10 的倍数
+                .stage("过滤", 2, 4, (Integer i) -> i % 10 == 0 ? null : i)
+                // 7 的倍数抛出异常
+                .stage("转换", 3, 4, (Integer i) -> {
+                    if (i % 7 == 0) {
+                        throw new IllegalStateException("boom " + i);
+                    }
+                    return (long) i;
+                })
+                .stage("收集", 2, 4, (Long i) -> {
+                    delivered.incrementAndGet(i.intValue());
+                    return i;
+                })
+                .start();
+
+        for (int i = 0; i < items; i++) {
+            pipeline.submit(i);
+        }
+        pipeline.shutdown();
+        Assertions.assertTrue(pipeline.awaitTermination(30, TimeUnit.SECONDS), "流水线没有在限定时间内排空");
+
+        int expectedDelivered = 0;
+        for (int i = 0; i < items; i++) {
+            int expected = (i % 10 == 0 || i % 7 == 0) ? 0 : 1;
+            expectedDelivered += expected;
+            Assertions.assertEquals(expected, delivered.get(i), "元素 " + i + " 的到达次数不正确");
+        }
+
+        List<PipelineDemo.StageStats> stats = pipeline.stats();
+        Assertions.assertEquals(items / 10, stats.get(0).dropped);
+        Assertions.assertEquals(items - items / 10, stats.get(0).processed);
+        Assertions.assertEquals(items - items / 10 - expectedDelivered, stats.get(1).failed);
+        Assertions.assertEquals(expectedDelivered, stats.get(2).processed);
+        for (PipelineDemo.StageStats stage : stats) {
+            Assertions.assertEquals(0, stage.queueDepth);
+        }
+    }
+
+    /**
+     * 测试目的：shutdown 之后再 submit 会抛出 IllegalStateException。
+     */
+    @Test
+    void testSubmitAfterShutdownIsRejected() throws InterruptedException {
+        PipelineDemo.Pipeline<String> pipeline = PipelineDemo.<String>builder()
+                .stage("原样", 1, 8, (String s) -> s)
+                .start();
+        pipeline.submit("a");
+        pipeline.shutdown();
+        Assertions.assertThrows(IllegalStateException.class, () -> pipeline.submit("b"));
+        Assertions.assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, pipeline.stats().get(0).processed);
+    }
+
+    /**
+     * 测试目的：处理函数抛出 Error 终止了某个工作线程，结束标记仍然传到下游，awaitTermination 正常返回，
+     * 其他元素照常处理。
+     */
+    @Test
+    void testWorkerKilledByErrorStillTerminates() throws InterruptedException {
+        LongAdder delivered = new LongAdder();
+        PipelineDemo.Pipeline<Integer> pipeline = PipelineDemo.<Integer>builder()
+                .stage("可能出错", 2, 4, (Integer i) -> {
+                    if (i == 5) {
+                        throw new AssertionError("fatal " + i);
+                    }
+                    return i;
+                })
+                .stage("收集", 1, 4, (Integer i) -> {
+                    delivered.increment();
+                    return i;
+                })
+                .start();
+        for (int i = 0; i < 100; i++) {
+            pipeline.submit(i);
+        }
+        pipeline.shutdown();
+        Assertions.assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS), "流水线没有结束");
+        Assertions.assertEquals(99, delivered.sum());
+    }
+
+    /**
+     * 测试目的：第一个阶段队列满时，被背压阻塞的 submit 不持有提交锁，其他生产者也进入队列等待而不是阻塞在锁上；
+     * 与阻塞中的 submit 并发的 shutdown 会等它入队，元素不丢失。
+     */
+    @Test
+    void testBlockedSubmitDoesNotSerializeProducers() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        LongAdder processed = new LongAdder();
+        PipelineDemo.Pipeline<Integer> pipeline = PipelineDemo.<Integer>builder()
+                .stage("阻塞", 1, 1, (Integer i) -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    processed.increment();
+                    return i;
+                })
+                .start();
+        // 第一个元素被工作线程取走并卡住，第二个填满队列
+        pipeline.submit(0);
+        pipeline.submit(1);
+        Thread producerA = new Thread(() -> submitQuietly(pipeline, 2));
+        Thread producerB = new Thread(() -> submitQuietly(pipeline, 3));
+        producerA.start();
+        producerB.start();
+        Thread.sleep(100);
+        Assertions.assertEquals(Thread.State.WAITING, producerA.getState());
+        Assertions.assertEquals(Thread.State.WAITING, producerB.getState());
+
+        Thread shutdown = new Thread(pipeline::shutdown);
+        shutdown.start();
+        Thread.sleep(50);
+        Assertions.assertTrue(shutdown.isAlive(), "shutdown 应等待阻塞中的 submit");
+
+        release.countDown();
+        producerA.join(5_000);
+        producerB.join(5_000);
+        shutdown.join(5_000);
+        Assertions.assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(4, processed.sum());
+    }
+
+    /**
+     * 测试目的：shutdown 正在等待被背压阻塞的 submit 时调用线程被中断，shutdown 仍然等到底并放入结束标记，
+     * 返回时恢复中断标记；流水线最终排空结束，再次调用 shutdown 直接返回。
+     */
+    @Test
+    void testInterruptedShutdownStillTerminates() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        LongAdder processed = new LongAdder();
+        PipelineDemo.Pipeline<Integer> pipeline = PipelineDemo.<Integer>builder()
+                .stage("阻塞", 1, 1, (Integer i) -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    processed.increment();
+                    return i;
+                })
+                .start();
+        pipeline.submit(0);
+        pipeline.submit(1);
+        Thread producer = new Thread(() -> submitQuietly(pipeline, 2));
+        producer.start();
+        while (producer.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        boolean[] interruptRestored = new boolean[1];
+        Thread shutdown = new Thread(() -> {
+            pipeline.shutdown();
+            interruptRestored[0] = Thread.currentThread().isInterrupted();
+        });
+        shutdown.start();
+        while (shutdown.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        shutdown.interrupt();
+        Thread.sleep(50);
+        Assertions.assertTrue(shutdown.isAlive(), "被中断的 shutdown 不应放弃等待");
+
+        release.countDown();
+        shutdown.join(5_000);
+        producer.join(5_000);
+        Assertions.assertFalse(shutdown.isAlive());
+        Assertions.assertTrue(interruptRestored[0], "shutdown 返回前应恢复中断标记");
+        Assertions.assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS), "结束标记没有放入");
+        Assertions.assertEquals(3, processed.sum());
+        pipeline.shutdown();
+    }
+
+    private static void submitQuietly(PipelineDemo.Pipeline<Integer> pipeline, int item) {
+        try {
+            pipeline.submit(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
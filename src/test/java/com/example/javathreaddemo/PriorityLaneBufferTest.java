@@ -0,0 +1,66 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PriorityLaneBufferDemo.MultiLaneBlockingBuffer 的单元测试：按权重轮询、空通道不积攒额度
+ */
+public class PriorityLaneBufferTest {
+
+    /**
+     * 测试目的：两个通道都有积压时，按权重 3:1 交替取出，每个通道内部保持 FIFO；低权重通道不会饿死。
+     */
+    @Test
+    void testWeightedRoundRobin() throws InterruptedException {
+        PriorityLaneBufferDemo.MultiLaneBlockingBuffer<String> buffer =
+                new PriorityLaneBufferDemo.MultiLaneBlockingBuffer<>(new int[]{16, 16}, new int[]{3, 1});
+        for (int i = 0; i < 9; i++) {
+            buffer.put(0, "high-" + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            buffer.put(1, "low-" + i);
+        }
+
+        List<String> taken = new ArrayList<>();
+        for (int i = 0; i < 14; i++) {
+            taken.add(buffer.take());
+        }
+        Assertions.assertEquals(List.of(
+                "high-0", "high-1", "high-2", "low-0",
+                "high-3", "high-4", "high-5", "low-1",
+                "high-6", "high-7", "high-8", "low-2",
+                "low-3", "low-4"), taken);
+        Assertions.assertEquals(0, buffer.size(0));
+        Assertions.assertEquals(0, buffer.size(1));
+    }
+
+    /**
+     * 测试目的：长时间为空的通道不会积攒额度，之后的突发只能按权重取，不会连续占满消费者。
+     */
+    @Test
+    void testIdleLaneDoesNotAccumulateDeficit() throws InterruptedException {
+        PriorityLaneBufferDemo.MultiLaneBlockingBuffer<String> buffer =
+                new PriorityLaneBufferDemo.MultiLaneBlockingBuffer<>(new int[]{16, 16}, new int[]{2, 1});
+        // 只有低优先级通道有数据，轮询会多次经过空的高优先级通道
+        for (int i = 0; i < 6; i++) {
+            buffer.put(1, "low-" + i);
+        }
+        for (int i = 0; i < 6; i++) {
+            Assertions.assertEquals("low-" + i, buffer.take());
+        }
+
+        for (int i = 0; i < 6; i++) {
+            buffer.put(0, "high-" + i);
+            buffer.put(1, "low-" + (6 + i));
+        }
+        List<String> taken = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            taken.add(buffer.take());
+        }
+        Assertions.assertEquals(List.of("high-0", "high-1", "low-6", "high-2", "high-3", "low-7"), taken);
+    }
+}
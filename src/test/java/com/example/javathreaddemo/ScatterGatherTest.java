@@ -0,0 +1,83 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScatterGatherDemo.ScatterGatherExecutor 的单元测试：全部完成、部分结果与取消、异常子任务
+ */
+public class ScatterGatherTest {
+
+    private ExecutorService workers;
+    private ScheduledExecutorService timer;
+    private ScatterGatherDemo.ScatterGatherExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        workers = Executors.newFixedThreadPool(4);
+        timer = Executors.newSingleThreadScheduledExecutor();
+        executor = new ScatterGatherDemo.ScatterGatherExecutor(workers, timer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * 测试目的：所有子任务在截止前完成时，结果按提交顺序返回，不等到截止时间。
+     */
+    @Test
+    void testAllSubtasksComplete() throws Exception {
+        List<Callable<Integer>> tasks = List.of(() -> 1, () -> 2, () -> 3);
+        ScatterGatherDemo.GatherResult<Integer> result =
+                executor.gather(tasks, 10, TimeUnit.SECONDS).get(2, TimeUnit.SECONDS);
+
+        Assertions.assertTrue(result.isComplete());
+        Assertions.assertEquals(List.of(1, 2, 3), result.values());
+        Assertions.assertTrue(result.elapsedNanos < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    /**
+     * 测试目的：截止时返回已完成的部分结果，未完成的子任务记为 TIMED_OUT 并被中断；抛异常的子任务记为 FAILED。
+     */
+    @Test
+    void testDeadlineReturnsPartialResultsAndCancelsStragglers() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<Callable<Integer>> tasks = List.of(
+                () -> 1,
+                () -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw e;
+                    }
+                    return 2;
+                },
+                () -> {
+                    throw new IllegalStateException("partition offline");
+                });
+        ScatterGatherDemo.GatherResult<Integer> result =
+                executor.gather(tasks, 100, TimeUnit.MILLISECONDS).get(2, TimeUnit.SECONDS);
+
+        Assertions.assertFalse(result.isComplete());
+        Assertions.assertEquals(List.of(1), result.values());
+        Assertions.assertEquals(ScatterGatherDemo.SubtaskResult.Status.SUCCESS, result.subtasks.get(0).status);
+        Assertions.assertEquals(ScatterGatherDemo.SubtaskResult.Status.TIMED_OUT, result.subtasks.get(1).status);
+        Assertions.assertEquals(ScatterGatherDemo.SubtaskResult.Status.FAILED, result.subtasks.get(2).status);
+        Assertions.assertInstanceOf(IllegalStateException.class, result.subtasks.get(2).error);
+        Assertions.assertTrue(interrupted.await(2, TimeUnit.SECONDS), "超时的子任务应被中断");
+    }
+}
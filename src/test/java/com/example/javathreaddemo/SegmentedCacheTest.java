@@ -0,0 +1,109 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * SegmentedCacheDemo.SegmentedReadWriteCache 的单元测试：与 HashMap 的行为对比 (包括 null key)，
+ * 以及某个段的写锁被占住时 size() 不加锁、clear() 逐段加锁
+ */
+public class SegmentedCacheTest {
+
+    /**
+     * 测试目的：随机执行 put / get / remove / clear，结果与 HashMap 完全一致；null key 落在第 0 段，不抛 NullPointerException。
+     */
+    @Test
+    void testMatchesHashMap() {
+        SegmentedCacheDemo.SegmentedReadWriteCache<Integer, Integer> cache = new SegmentedCacheDemo.SegmentedReadWriteCache<>(16);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Assertions.assertSame(cache.segmentFor(0), cache.segmentFor(null));
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            Integer key = random.nextInt(1_000) == 0 ? null : random.nextInt(5_000) - 2_500;
+            int op = random.nextInt(1_000);
+            if (op == 0) {
+                cache.clear();
+                expected.clear();
+            } else if (op < 300) {
+                cache.put(key, i);
+                expected.put(key, i);
+            } else if (op < 400) {
+                Assertions.assertEquals(expected.remove(key), cache.remove(key), "key " + key);
+            } else {
+                Assertions.assertEquals(expected.get(key), cache.get(key), "key " + key);
+            }
+        }
+        Assertions.assertEquals(expected.size(), cache.size());
+    }
+
+    /**
+     * 测试目的：另一个线程占住某个段的写锁时，size() 不加锁立即返回，其它段照常读写；
+     * clear() 逐段加锁，清掉前面的段后停在被占住的段上，写锁释放后才清完。
+     */
+    @Test
+    void testSizeIsLockFreeAndClearGoesSegmentBySegment() throws InterruptedException {
+        SegmentedCacheDemo.SegmentedReadWriteCache<Integer, Integer> cache = new SegmentedCacheDemo.SegmentedReadWriteCache<>(16);
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(i, i);
+        }
+        // null key 固定落在第 0 段；占住另一个段，clear() 会先清掉第 0 段再停在它上面
+        SegmentedCacheDemo.SegmentedReadWriteCache.Segment<Integer, Integer> first = cache.segmentFor(null);
+        int lockedKey = 0;
+        while (cache.segmentFor(lockedKey) == first) {
+            lockedKey++;
+        }
+        SegmentedCacheDemo.SegmentedReadWriteCache.Segment<Integer, Integer> locked = cache.segmentFor(lockedKey);
+        int otherKey = 0;
+        while (cache.segmentFor(otherKey) != first) {
+            otherKey++;
+        }
+        int lockedKeys = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (cache.segmentFor(i) == locked) {
+                lockedKeys++;
+            }
+        }
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            locked.writeLock.lock();
+            try {
+                held.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                locked.writeLock.unlock();
+            }
+        });
+        holder.start();
+        held.await();
+        Thread clearer = new Thread(cache::clear);
+        try {
+            Assertions.assertEquals(1_000, cache.size());
+            Assertions.assertEquals(otherKey, cache.get(otherKey));
+            cache.put(-1, -1);
+            Assertions.assertEquals(1_001, cache.size());
+
+            clearer.start();
+            while (clearer.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            // clear() 卡在被占住的段上，此时第 0 段已经清空，被占住的段还在
+            Assertions.assertNull(cache.get(otherKey));
+            Assertions.assertTrue(cache.size() >= lockedKeys && cache.size() < 1_001, "size " + cache.size());
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+        clearer.join();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertNull(cache.get(lockedKey));
+    }
+}
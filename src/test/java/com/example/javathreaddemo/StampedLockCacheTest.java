@@ -0,0 +1,81 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * StampedLockCacheDemo.StampedLockCache 的单元测试：与 HashMap 的行为对比，以及写线程扩容时乐观读的正确性
+ */
+public class StampedLockCacheTest {
+
+    /**
+     * 测试目的：随机执行 put / get / clear，结果与 HashMap 完全一致 (包括覆盖写、null key 和多次扩容)。
+     */
+    @Test
+    void testMatchesHashMap() {
+        StampedLockCacheDemo.StampedLockCache<Integer, Integer> cache = new StampedLockCacheDemo.StampedLockCache<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            Integer key = random.nextInt(20_000) == 0 ? null : random.nextInt(5_000) - 2_500;
+            int op = random.nextInt(1_000);
+            if (op == 0) {
+                cache.clear();
+                expected.clear();
+            } else if (op < 400) {
+                cache.put(key, i);
+                expected.put(key, i);
+            } else {
+                Assertions.assertEquals(expected.get(key), cache.get(key), "key " + key);
+            }
+        }
+        Assertions.assertEquals(expected.size(), cache.size());
+    }
+
+    /**
+     * 测试目的：写线程不断插入新 key (反复扩容) 并覆盖旧 key 时，读线程不抛异常，
+     * 读到的值永远是某次写入过的值，已写入的 key 不会读成 null。
+     */
+    @Test
+    void testOptimisticReadDuringResize() throws InterruptedException {
+        StampedLockCacheDemo.StampedLockCache<Integer, Integer> cache = new StampedLockCacheDemo.StampedLockCache<>();
+        int keys = 100_000;
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                Random random = new Random();
+                while (writing.get()) {
+                    int key = random.nextInt(100);
+                    Integer value = cache.get(key);
+                    // 前 100 个 key 只会被写成 key 或 key + keys
+                    if (value == null || (value != key && value != key + keys)) {
+                        throw new AssertionError("key " + key + " 读到 " + value);
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        for (int i = 100; i < keys; i++) {
+            cache.put(i, i);
+            if ((i & 7) == 0) {
+                cache.put(i % 100, i % 100 + keys);
+            }
+        }
+        writing.set(false);
+        reader.join();
+        Assertions.assertNull(failure.get());
+        Assertions.assertEquals(keys, cache.size());
+    }
+}
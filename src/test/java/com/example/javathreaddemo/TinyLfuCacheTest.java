@@ -0,0 +1,118 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * TinyLfuCacheDemo.BoundedCache 的单元测试：条目数上限、扫描型访问下热点 key 不被冲掉，以及只访问一次的 key 不能挤掉热点
+ */
+public class TinyLfuCacheTest {
+
+    /**
+     * 测试目的：单线程写入远多于上限的 key 后条目数恰好等于上限；多个线程并发读写结束后条目数也不超过上限。
+     */
+    @Test
+    void testSizeNeverExceedsMaximum() throws InterruptedException {
+        TinyLfuCacheDemo.BoundedCache<Integer, Integer> cache = new TinyLfuCacheDemo.BoundedCache<>(100);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+            Assertions.assertTrue(cache.size() <= 100, "size " + cache.size());
+        }
+        Assertions.assertEquals(100, cache.size());
+
+        TinyLfuCacheDemo.BoundedCache<Integer, Integer> shared = new TinyLfuCacheDemo.BoundedCache<>(100);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 50_000; i++) {
+                        int key = random.nextInt(1_000);
+                        Integer value = shared.get(key);
+                        if (value == null) {
+                            shared.put(key, key);
+                        } else if (value != key) {
+                            throw new AssertionError("key " + key + " 读到 " + value);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertNull(failure.get());
+        Assertions.assertTrue(shared.size() <= 100, "size " + shared.size());
+    }
+
+    /**
+     * 测试目的：一批经常被读的 key 在大量只出现一次的 key 扫过缓存后仍然全部命中，
+     * 扫描进来的 key 只能在窗口区和试用区之间互相替换。
+     */
+    @Test
+    void testFrequentKeysSurviveScan() {
+        TinyLfuCacheDemo.BoundedCache<Integer, Integer> cache = new TinyLfuCacheDemo.BoundedCache<>(100);
+        int hot = 50;
+        for (int i = 0; i < hot; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < hot; i++) {
+                Assertions.assertEquals(i, cache.get(i));
+            }
+        }
+
+        // 扫描 5000 个不重复的 key，期间热点 key 仍被轮流读取
+        for (int i = 0; i < 5_000; i++) {
+            int key = 1_000 + i;
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+            cache.get(i % hot);
+        }
+        for (int i = 0; i < hot; i++) {
+            Assertions.assertEquals(i, cache.get(i), "热点 key " + i + " 被扫描冲掉");
+        }
+        Assertions.assertEquals(100, cache.size());
+    }
+
+    /**
+     * 测试目的：主区写满热点 key 后，新写入的 key 只被访问一次，被挤出窗口区时频率不高于主区的牺牲者，
+     * 不被准入而是直接淘汰，主区的热点 key 都留下。
+     */
+    @Test
+    void testOneHitWonderIsNotAdmittedOverHotVictim() {
+        // 上限 10：窗口区 1 个，主区 9 个
+        TinyLfuCacheDemo.BoundedCache<Integer, Integer> cache = new TinyLfuCacheDemo.BoundedCache<>(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertEquals(i, cache.get(i));
+            }
+        }
+
+        // 写入 100 时，窗口区原有的 9 被挤出 (和主区牺牲者一样热，频率不更高，同样不准入)；
+        // 写入 101 时，只访问过一次的 100 被挤出窗口区，应当被淘汰
+        cache.put(100, 100);
+        cache.put(101, 101);
+        Assertions.assertNull(cache.get(100));
+        Assertions.assertEquals(101, cache.get(101));
+        for (int i = 0; i < 9; i++) {
+            Assertions.assertEquals(i, cache.get(i), "热点 key " + i + " 被淘汰");
+        }
+        Assertions.assertEquals(10, cache.size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WorkStealingDemo.WorkStealingConsumerPool 的单元测试：与 shutdown 并发提交时不丢元素、空闲消费者偷取、空闲时 park
+ */
+public class WorkStealingTest {
+
+    /**
+     * 测试目的：多个生产者与 shutdown 并发提交 (队列容量很小，提交经常阻塞)，
+     * 正常返回的 submit 对应的元素全部被处理，被拒绝的 submit 抛出 IllegalStateException，所有消费者都能退出。
+     */
+    @Test
+    void testSubmitRacingShutdownLosesNothing() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            LongAdder handled = new LongAdder();
+            WorkStealingDemo.WorkStealingConsumerPool<Integer> pool = new WorkStealingDemo.WorkStealingConsumerPool<>(
+                    "测试消费者", 3, 2, round % 2 == 0, item -> handled.increment());
+            LongAdder accepted = new LongAdder();
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                Thread producer = new Thread(() -> {
+                    try {
+                        for (int i = 0; ; i++) {
+                            pool.submit(i);
+                            accepted.increment();
+                        }
+                    } catch (IllegalStateException e) {
+                        // shutdown 之后被拒绝
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, "测试生产者-" + p);
+                producers.add(producer);
+                producer.start();
+            }
+            Thread.sleep(5);
+            pool.shutdown();
+            for (Thread producer : producers) {
+                producer.join(5_000);
+                Assertions.assertFalse(producer.isAlive(), "生产者没有退出");
+            }
+            Assertions.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS), "消费者没有退出");
+            Assertions.assertEquals(accepted.sum(), handled.sum());
+        }
+    }
+
+    /**
+     * 测试目的：一个消费者被慢元素占住时，分给它的其他元素被空闲消费者偷走处理；处理时抛出的异常只计数。
+     */
+    @Test
+    void testIdleWorkerStealsFromBusyWorker() throws InterruptedException {
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        CountDownLatch othersDone = new CountDownLatch(9);
+        WorkStealingDemo.WorkStealingConsumerPool<Integer> pool = new WorkStealingDemo.WorkStealingConsumerPool<>(
+                "测试消费者", 2, 16, true, item -> {
+            if (item == 0) {
+                try {
+                    releaseSlow.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+            othersDone.countDown();
+            if (item == 1) {
+                throw new IllegalArgumentException("bad item");
+            }
+        });
+        // 轮询分配：偶数进第 0 个队列，它的主人在处理元素 0 时被卡住
+        for (int i = 0; i < 10; i++) {
+            pool.submit(i);
+        }
+        Assertions.assertTrue(othersDone.await(5, TimeUnit.SECONDS), "其他元素应被空闲消费者处理完");
+        Assertions.assertTrue(pool.stolenCount() > 0);
+        Assertions.assertEquals(1, pool.failedCount());
+        releaseSlow.countDown();
+        pool.shutdown();
+        Assertions.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 测试目的：没有元素时消费者 park (WAITING)，而不是定时醒来轮询；submit 立即唤醒它。
+     */
+    @Test
+    void testIdleWorkersPark() throws InterruptedException {
+        AtomicInteger handled = new AtomicInteger();
+        WorkStealingDemo.WorkStealingConsumerPool<Integer> pool = new WorkStealingDemo.WorkStealingConsumerPool<>(
+                "停放测试消费者", 2, 16, true, item -> handled.incrementAndGet());
+        Thread.sleep(100);
+        List<Thread> workers = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("停放测试消费者-")).toList();
+        Assertions.assertEquals(2, workers.size());
+        for (Thread worker : workers) {
+            Assertions.assertEquals(Thread.State.WAITING, worker.getState());
+        }
+        pool.submit(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (handled.get() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        Assertions.assertEquals(1, handled.get());
+        pool.shutdown();
+        Assertions.assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+    }
+}
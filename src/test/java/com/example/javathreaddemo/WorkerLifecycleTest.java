@@ -0,0 +1,137 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WorkerLifecycleDemo.ManagedWorker 的单元测试：park 后被 submit 唤醒、优雅停止时处理完剩余任务、停止超时后中断并放弃剩余任务、
+ * submit 与 stop 并发时不丢任务
+ */
+public class WorkerLifecycleTest {
+
+    /**
+     * 测试目的：线程空闲 park 后，submit 立即唤醒它；stop 之后提交的任务被拒绝，之前提交的任务全部处理完。
+     */
+    @Test
+    void testParkedWorkerWakesOnSubmitAndDrainsOnStop() throws InterruptedException {
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch first = new CountDownLatch(1);
+        WorkerLifecycleDemo.ManagedWorker<Integer> worker = new WorkerLifecycleDemo.ManagedWorker<>("test-worker",
+                item -> {
+                    handled.add(item);
+                    first.countDown();
+                }, 0, 0);
+        worker.start();
+        Thread.sleep(100);
+        Assertions.assertTrue(worker.parkCount() >= 1, "空闲时应当 park");
+
+        worker.submit(0);
+        Assertions.assertTrue(first.await(1, TimeUnit.SECONDS), "submit 应唤醒 park 的线程");
+        for (int i = 1; i <= 100; i++) {
+            worker.submit(i);
+        }
+        Assertions.assertTrue(worker.stop(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(WorkerLifecycleDemo.ManagedWorker.TERMINATED, worker.state());
+        Assertions.assertEquals(101, handled.size());
+        Assertions.assertEquals(101, worker.processedCount());
+        Assertions.assertThrows(IllegalStateException.class, () -> worker.submit(-1));
+    }
+
+    /**
+     * 测试目的：任务一直不结束时，stop 在超时后返回 false 并中断线程；处理任务抛出的异常不会让线程退出。
+     */
+    @Test
+    void testStopTimesOutAndInterrupts() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        WorkerLifecycleDemo.ManagedWorker<String> worker = new WorkerLifecycleDemo.ManagedWorker<>("test-worker",
+                item -> {
+                    if (item.equals("fail")) {
+                        throw new IllegalArgumentException(item);
+                    }
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        Thread.currentThread().interrupt();
+                    }
+                }, 100, 10);
+        worker.start();
+        worker.submit("fail");
+        worker.submit("block");
+        Thread.sleep(100);
+        Assertions.assertEquals(1, worker.failedCount());
+
+        Assertions.assertFalse(worker.stop(100, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 测试目的：队列里有 100 个 20 ms 的任务时 stop(50 ms) 超时，之后工作线程不再继续处理剩下的任务，
+     * 已处理和取回的任务合计正好 100 个。
+     */
+    @Test
+    void testForcedStopAbandonsRemainingItems() throws InterruptedException {
+        WorkerLifecycleDemo.ManagedWorker<Integer> worker = new WorkerLifecycleDemo.ManagedWorker<>("test-worker",
+                item -> {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, 0, 0);
+        worker.start();
+        for (int i = 0; i < 100; i++) {
+            worker.submit(i);
+        }
+        Assertions.assertFalse(worker.stop(50, TimeUnit.MILLISECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (worker.state() != WorkerLifecycleDemo.ManagedWorker.TERMINATED && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(WorkerLifecycleDemo.ManagedWorker.TERMINATED, worker.state());
+        Assertions.assertTrue(worker.processedCount() <= 5, "超时后仍处理了 " + worker.processedCount() + " 个");
+        Assertions.assertEquals(100, worker.processedCount() + worker.drainRemaining().size());
+    }
+
+    /**
+     * 测试目的：多个线程提交的同时 stop，正常返回的 submit 对应的任务全部被处理，被拒绝的抛出 IllegalStateException。
+     */
+    @Test
+    void testSubmitRacingStopLosesNothing() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            WorkerLifecycleDemo.ManagedWorker<Integer> worker = new WorkerLifecycleDemo.ManagedWorker<>("test-worker",
+                    item -> {
+                    }, 100, 10);
+            worker.start();
+            LongAdder accepted = new LongAdder();
+            List<Thread> submitters = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread submitter = new Thread(() -> {
+                    try {
+                        for (int i = 0; ; i++) {
+                            worker.submit(i);
+                            accepted.increment();
+                        }
+                    } catch (IllegalStateException e) {
+                        // stop 之后被拒绝
+                    }
+                });
+                submitters.add(submitter);
+                submitter.start();
+            }
+            Thread.sleep(2);
+            Assertions.assertTrue(worker.stop(5, TimeUnit.SECONDS));
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            Assertions.assertEquals(accepted.sum(), worker.processedCount());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.javathreaddemo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WriteBehindCacheDemo.WriteBehindCache 的单元测试：sink 失败时退避重试，shutdown 后持续失败时刷写线程能退出，
+ * 放回失败批次时不超过脏数据上限，超时为 0 的 shutdown 立即返回
+ */
+public class WriteBehindCacheTest {
+
+    /**
+     * 测试目的：sink 一直失败时，shutdown 在有限次重试后返回 true，剩余脏数据被丢弃并计数，刷写线程是守护线程。
+     */
+    @Test
+    void testShutdownStopsWhenSinkKeepsFailing() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        WriteBehindCacheDemo.WriteBehindCache<Integer, String> cache = new WriteBehindCacheDemo.WriteBehindCache<>(
+                batch -> {
+                    attempts.incrementAndGet();
+                    throw new IOException("sink down");
+                }, 10, 5, 1000);
+        for (int i = 0; i < 3; i++) {
+            cache.put(i, "v" + i);
+        }
+        Thread flusher = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("write-behind-flusher")).findFirst().orElseThrow();
+        Assertions.assertTrue(flusher.isDaemon());
+
+        long start = System.nanoTime();
+        Assertions.assertTrue(cache.shutdown(5, TimeUnit.SECONDS), "刷写线程应当退出");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assertions.assertTrue(elapsedMillis < 1000, "耗时 " + elapsedMillis + " ms");
+        Assertions.assertEquals(WriteBehindCacheDemo.WriteBehindCache.MAX_ATTEMPTS_AFTER_SHUTDOWN, attempts.get());
+        Assertions.assertEquals(attempts.get(), cache.getSinkFailures());
+        Assertions.assertEquals(3, cache.getDropped());
+        Assertions.assertEquals(0, cache.dirtyCount());
+    }
+
+    /**
+     * 测试目的：sink 暂时失败时退避重试 (不会立即连续重试)，恢复后数据全部写入；
+     * 失败期间脏数据数量始终不超过上限。
+     */
+    @Test
+    void testRetriesWithBackoffWithinMaxDirty() throws InterruptedException {
+        Map<Integer, String> written = new ConcurrentHashMap<>();
+        AtomicInteger attempts = new AtomicInteger();
+        WriteBehindCacheDemo.WriteBehindCache<Integer, String> cache = new WriteBehindCacheDemo.WriteBehindCache<>(
+                batch -> {
+                    if (attempts.incrementAndGet() <= 3) {
+                        throw new IOException("sink down");
+                    }
+                    written.putAll(batch);
+                }, 8, 4, 200);
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            cache.put(i, "v" + i);
+            Assertions.assertTrue(cache.dirtyCount() <= 8, "脏数据 " + cache.dirtyCount());
+        }
+        Assertions.assertTrue(cache.shutdown(5, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 3 次失败之后的退避为 10 + 20 + 40 ms
+        Assertions.assertTrue(elapsedMillis >= 70, "耗时 " + elapsedMillis + " ms");
+        Assertions.assertEquals(3, cache.getSinkFailures());
+        Assertions.assertEquals(0, cache.getDropped());
+        Assertions.assertEquals(20, written.size());
+    }
+
+    /**
+     * 测试目的：sink 卡住时 shutdown(0) 不会无限等待，而是立即返回 false；sink 恢复后刷写线程正常退出。
+     */
+    @Test
+    void testZeroTimeoutShutdownDoesNotWaitForever() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindCacheDemo.WriteBehindCache<Integer, String> cache = new WriteBehindCacheDemo.WriteBehindCache<>(
+                batch -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, 10, 5, 10);
+        cache.put(1, "v1");
+        long start = System.nanoTime();
+        Assertions.assertFalse(cache.shutdown(0, TimeUnit.SECONDS));
+        Assertions.assertFalse(cache.shutdown(500, TimeUnit.MICROSECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assertions.assertTrue(elapsedMillis < 1000, "耗时 " + elapsedMillis + " ms");
+
+        release.countDown();
+        Assertions.assertTrue(cache.shutdown(5, TimeUnit.SECONDS));
+    }
+}
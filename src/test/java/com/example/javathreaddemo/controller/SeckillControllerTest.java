@@ -0,0 +1,59 @@
+package com.example.javathreaddemo.controller;
+
+import com.example.javathreaddemo.service.AdaptiveConcurrencyLimiter;
+import com.example.javathreaddemo.service.SeckillService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SeckillController 的单元测试：无效商品ID不影响限流器的 limit，处理时抛出 Error 也会归还许可
+ */
+public class SeckillControllerTest {
+
+    /**
+     * 测试目的：大量无效商品ID的请求 (几乎不耗时) 不作为延迟样本：之后耗时稳定的正常负载下 Gradient 的 limit 不会收缩，
+     * 许可全部归还。
+     */
+    @Test
+    void testInvalidProductDoesNotShrinkLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new AdaptiveConcurrencyLimiter.GradientLimit(20, 1, 1000, 1.5));
+        SeckillController controller = new SeckillController(new SeckillService(), limiter);
+        for (int i = 0; i < 1000; i++) {
+            controller.buy(999);
+        }
+        Assertions.assertEquals(0, limiter.getInflight());
+
+        // 正常负载：每轮 15 个并发请求，每个耗时约 5 ms
+        for (int round = 0; round < 20; round++) {
+            List<AdaptiveConcurrencyLimiter.Token> tokens = new ArrayList<>();
+            for (int i = 0; i < 15; i++) {
+                tokens.add(limiter.tryAcquire());
+            }
+            Thread.sleep(5);
+            tokens.forEach(AdaptiveConcurrencyLimiter.Token::onSuccess);
+        }
+        Assertions.assertTrue(limiter.getLimit() >= 20, "limit 被压低到 " + limiter.getLimit());
+    }
+
+    /**
+     * 测试目的：processSeckill 抛出 Error 时许可仍被归还。
+     */
+    @Test
+    void testErrorReleasesPermit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new AdaptiveConcurrencyLimiter.GradientLimit(20, 1, 1000, 1.5));
+        SeckillService failing = new SeckillService() {
+            @Override
+            public boolean processSeckill(int requestedProductId) {
+                throw new StackOverflowError("boom");
+            }
+        };
+        SeckillController controller = new SeckillController(failing, limiter);
+        Assertions.assertThrows(StackOverflowError.class, () -> controller.buy(1));
+        Assertions.assertEquals(0, limiter.getInflight());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.javathreaddemo.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdaptiveConcurrencyLimiter 的单元测试：快速拒绝、limit 的调整方向，以及并发释放时 limit 按计算顺序发布
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    /**
+     * 测试目的：在途请求数达到 limit 后 tryAcquire 立即返回 null；释放后可以再次获取，重复释放不会多还许可。
+     */
+    @Test
+    void testRejectsAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new AdaptiveConcurrencyLimiter.AimdLimit(2, 1, 10, 1, TimeUnit.HOURS));
+        AdaptiveConcurrencyLimiter.Token first = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Token second = limiter.tryAcquire();
+        Assertions.assertNotNull(first);
+        Assertions.assertNotNull(second);
+        Assertions.assertNull(limiter.tryAcquire());
+        Assertions.assertEquals(1, limiter.getRejectedCount());
+
+        first.onIgnore();
+        first.onIgnore();
+        Assertions.assertEquals(1, limiter.getInflight());
+        Assertions.assertNotNull(limiter.tryAcquire());
+        Assertions.assertNull(limiter.tryAcquire());
+    }
+
+    /**
+     * 测试目的：AIMD 在请求用满 limit 时加性增长，失败时乘性减小，且不低于最小值。
+     */
+    @Test
+    void testAimdAdjustsLimit() {
+        AdaptiveConcurrencyLimiter.AimdLimit aimd = new AdaptiveConcurrencyLimiter.AimdLimit(10, 2, 100, 1, TimeUnit.SECONDS);
+        Assertions.assertEquals(11, aimd.update(1_000_000, 10, false));
+        // 在途请求不到 limit 的一半：不增长
+        Assertions.assertEquals(11, aimd.update(1_000_000, 2, false));
+        Assertions.assertEquals(9, aimd.update(1_000_000, 11, true));
+        // 超时同样视为过载
+        Assertions.assertEquals(8, aimd.update(TimeUnit.SECONDS.toNanos(2), 9, false));
+        for (int i = 0; i < 50; i++) {
+            aimd.update(1_000_000, 1, true);
+        }
+        Assertions.assertEquals(2, aimd.update(1_000_000, 1, true));
+    }
+
+    /**
+     * 测试目的：Gradient 在耗时稳定时增长 limit，耗时明显变长 (排队) 时收缩 limit。
+     */
+    @Test
+    void testGradientShrinksWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter.GradientLimit gradient = new AdaptiveConcurrencyLimiter.GradientLimit(20, 1, 1000, 1.5);
+        int limit = 20;
+        for (int i = 0; i < 50; i++) {
+            limit = gradient.update(1_000_000, limit, false);
+        }
+        Assertions.assertTrue(limit > 20, "耗时稳定时 limit 应该增长, limit=" + limit);
+
+        int before = limit;
+        for (int i = 0; i < 50; i++) {
+            limit = gradient.update(10_000_000, limit, false);
+        }
+        Assertions.assertTrue(limit < before, "耗时变长 10 倍时 limit 应该收缩, before=" + before + ", after=" + limit);
+    }
+
+    /**
+     * 测试目的：两个请求先后结束，先开始计算的 update 被卡住时，后一个请求的 update 要等它算完并发布后才执行，
+     * 最终的 limit 是后一次 update 的结果，不会被先算出、后写入的旧值覆盖。
+     */
+    @Test
+    void testLimitIsPublishedInUpdateOrder() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        // 不自己加锁：第一次 update 算出 limit=5 后停住，第二次 update 算出 limit=6
+        AdaptiveConcurrencyLimiter.LimitAlgorithm algorithm = new AdaptiveConcurrencyLimiter.LimitAlgorithm() {
+            private int updates;
+
+            @Override
+            public int initialLimit() {
+                return 4;
+            }
+
+            @Override
+            public int update(long rttNanos, int inflight, boolean dropped) {
+                int next = 4 + ++updates;
+                if (updates == 1) {
+                    entered.countDown();
+                    try {
+                        proceed.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return next;
+            }
+
+            @Override
+            public String name() {
+                return "ordered";
+            }
+        };
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(algorithm);
+        AdaptiveConcurrencyLimiter.Token first = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Token second = limiter.tryAcquire();
+        Thread slow = new Thread(first::onSuccess);
+        Thread fast = new Thread(second::onSuccess);
+        slow.start();
+        entered.await();
+        fast.start();
+        // 第二次 update 不能在第一次发布之前执行完
+        fast.join(200);
+        Assertions.assertTrue(fast.isAlive());
+        proceed.countDown();
+        slow.join();
+        fast.join();
+        Assertions.assertEquals(6, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInflight());
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.javathreaddemo.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * ThreadContentionSampler 的单元测试：由线程名推断线程池，BLOCKED 的线程按线程池和锁正确归类，锁数量达到上限时淘汰不再出现的锁，
+ * 以及线程竞争监控开关只在 start() 时打开、close() 时恢复
+ */
+public class ThreadContentionSamplerTest {
+
+    /**
+     * 测试目的：线程名末尾的编号被去掉，得到线程池名；没有编号的线程名保持不变。
+     */
+    @Test
+    void testPoolName() {
+        Assertions.assertEquals("http-nio-8080-exec", ThreadContentionSampler.poolName("http-nio-8080-exec-12"));
+        Assertions.assertEquals("pool-3-thread", ThreadContentionSampler.poolName("pool-3-thread-7"));
+        Assertions.assertEquals("ForkJoinPool.commonPool-worker",
+                ThreadContentionSampler.poolName("ForkJoinPool.commonPool-worker-1"));
+        Assertions.assertEquals("订单线程", ThreadContentionSampler.poolName("订单线程-0"));
+        Assertions.assertEquals("main", ThreadContentionSampler.poolName("main"));
+        Assertions.assertEquals("42", ThreadContentionSampler.poolName("42"));
+    }
+
+    /**
+     * 测试目的：线程在监视器上 BLOCKED 时，采样结果中它所在线程池有 BLOCKED 时间，锁的统计记录了持有者；
+     * 锁释放后，线程竞争监控累计的阻塞次数和时间计入该线程池。
+     */
+    @Test
+    void testBlockedThreadIsAttributedToPoolAndLock() throws InterruptedException {
+        ThreadContentionSampler sampler = new ThreadContentionSampler(1_000, 100);
+        sampler.enableContentionMonitoring();
+        Object monitor = new Object();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread blocked = new Thread(() -> {
+            synchronized (monitor) {
+                // 拿到锁后立即释放
+            }
+            try {
+                release.await(); // 保持存活，便于下一次采样读取竞争计数
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "采样测试线程-1");
+        try {
+            synchronized (monitor) {
+                blocked.start();
+                while (blocked.getState() != Thread.State.BLOCKED) {
+                    Thread.sleep(1);
+                }
+                for (int i = 0; i < 5; i++) {
+                    sampler.sampleOnce();
+                    Thread.sleep(10);
+                }
+            }
+            while (blocked.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            sampler.sampleOnce();
+
+            ThreadContentionSampler.PoolStats pool = sampler.getPoolStats().stream()
+                    .filter(p -> p.getName().equals("采样测试线程")).findFirst().orElseThrow();
+            Assertions.assertEquals(1, pool.getThreads());
+            Assertions.assertEquals(5L, pool.getStateMillis().get("BLOCKED"));
+            Assertions.assertTrue(pool.getBlockedCount() >= 1);
+            if (sampler.isContentionMonitoringEnabled()) {
+                Assertions.assertTrue(pool.getBlockedMillis() > 0, "阻塞时间 " + pool.getBlockedMillis());
+            }
+
+            String lockName = monitor.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(monitor));
+            ThreadContentionSampler.LockStats lock = sampler.getTopLocks(100).stream()
+                    .filter(l -> l.getLockName().equals(lockName)).findFirst().orElseThrow();
+            Assertions.assertEquals(5, lock.getBlockedMillis());
+            Assertions.assertEquals(Thread.currentThread().getName(), lock.getLastOwner());
+            Assertions.assertEquals(6, sampler.getSampleCount());
+        } finally {
+            release.countDown();
+            blocked.join();
+            sampler.close();
+        }
+    }
+
+    /**
+     * 测试目的：锁数量达到上限时，超过 lockIdleSamples 次采样没有出现的锁被淘汰，新锁占用它的位置；
+     * 现有的锁都还活跃时，新锁才计入"(其他)"。只把测试线程的信息交给采样器，不受 JVM 其他线程的影响。
+     */
+    @Test
+    void testIdleLocksAreEvictedWhenFull() throws InterruptedException {
+        ThreadContentionSampler sampler = new ThreadContentionSampler(1_000, 2, 3);
+        Object first = new Object();
+        Object second = new Object();
+        Object third = new Object();
+        Object fourth = new Object();
+        List<AtomicBoolean> stops = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        try {
+            Thread firstThread = parkOn(first, "采样测试线程-1", stops, threads);
+            sampler.record(threadInfos(firstThread));
+            Assertions.assertEquals(Set.of(lockName(first)), lockNames(sampler));
+
+            // 之后的 4 次采样都看不到第一把锁
+            Thread secondThread = parkOn(second, "采样测试线程-2", stops, threads);
+            for (int i = 0; i < 4; i++) {
+                sampler.record(threadInfos(secondThread));
+            }
+            Assertions.assertEquals(Set.of(lockName(first), lockName(second)), lockNames(sampler));
+
+            Thread thirdThread = parkOn(third, "采样测试线程-3", stops, threads);
+            sampler.record(threadInfos(secondThread, thirdThread));
+            Assertions.assertEquals(Set.of(lockName(second), lockName(third)), lockNames(sampler));
+
+            // 两把锁都还活跃，新锁只能计入"(其他)"
+            Thread fourthThread = parkOn(fourth, "采样测试线程-4", stops, threads);
+            sampler.record(threadInfos(secondThread, thirdThread, fourthThread));
+            Assertions.assertEquals(Set.of(lockName(second), lockName(third), "(其他)"), lockNames(sampler));
+            Assertions.assertEquals(7, sampler.getSampleCount());
+        } finally {
+            for (AtomicBoolean stop : stops) {
+                stop.set(true);
+            }
+            for (Thread thread : threads) {
+                LockSupport.unpark(thread);
+                thread.join();
+            }
+            sampler.close();
+        }
+    }
+
+    /**
+     * 测试目的：只创建采样器 (threads.sampler.enabled=false 时的情形) 不改变 JVM 全局的线程竞争监控开关；
+     * start() 打开它，close() 恢复为创建前的状态；limit 不大于 0 时 getTopLocks 返回空列表而不是抛异常。
+     */
+    @Test
+    void testContentionMonitoringOnlyEnabledByStart() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        boolean before = threadMXBean.isThreadContentionMonitoringEnabled();
+        ThreadContentionSampler sampler = new ThreadContentionSampler(1_000_000, 100);
+        try {
+            Assertions.assertEquals(before, threadMXBean.isThreadContentionMonitoringEnabled());
+            Assertions.assertFalse(sampler.isContentionMonitoringEnabled());
+            Assertions.assertTrue(sampler.getTopLocks(-1).isEmpty());
+            Assertions.assertTrue(sampler.getTopLocks(0).isEmpty());
+
+            sampler.start();
+            if (threadMXBean.isThreadContentionMonitoringSupported()) {
+                Assertions.assertTrue(threadMXBean.isThreadContentionMonitoringEnabled());
+                Assertions.assertTrue(sampler.isContentionMonitoringEnabled());
+            }
+        } finally {
+            sampler.close();
+        }
+        Assertions.assertEquals(before, threadMXBean.isThreadContentionMonitoringEnabled());
+        Assertions.assertFalse(sampler.isContentionMonitoringEnabled());
+    }
+
+    // 启动一个以 blocker 为阻塞对象 park 的线程，等它进入 WAITING 后返回
+    private static Thread parkOn(Object blocker, String name, List<AtomicBoolean> stops, List<Thread> threads)
+            throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread thread = new Thread(() -> {
+            while (!stop.get()) {
+                LockSupport.park(blocker);
+            }
+        }, name);
+        stops.add(stop);
+        threads.add(thread);
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+
+    private static ThreadInfo[] threadInfos(Thread... threads) {
+        long[] ids = new long[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            ids[i] = threads[i].getId();
+        }
+        return ManagementFactory.getThreadMXBean().getThreadInfo(ids, 0);
+    }
+
+    private static String lockName(Object lock) {
+        return lock.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(lock));
+    }
+
+    private static Set<String> lockNames(ThreadContentionSampler sampler) {
+        return sampler.getTopLocks(100).stream().map(ThreadContentionSampler.LockStats::getLockName)
+                .collect(Collectors.toSet());
+    }
+}
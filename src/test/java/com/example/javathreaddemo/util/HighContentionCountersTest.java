@@ -0,0 +1,71 @@
+package com.example.javathreaddemo.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HighContentionCounters 的单元测试：精确计数器并发递增后总数正确，松散计数器误差不超过上界
+ */
+public class HighContentionCountersTest {
+
+    private static void incrementConcurrently(HighContentionCounters.StatCounter counter, int threads, int increments,
+                                              Runnable afterEachThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < increments; i++) {
+                    counter.increment();
+                }
+                afterEachThread.run();
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * 测试目的：分槽计数器和每线程计数器在多线程并发递增后，总数与递增次数完全一致。
+     */
+    @Test
+    void testExactCountersAreCorrect() throws Exception {
+        HighContentionCounters.StripedCounter striped = new HighContentionCounters.StripedCounter(4);
+        incrementConcurrently(striped, 8, 100_000, () -> {
+        });
+        Assertions.assertEquals(800_000, striped.sum());
+        striped.add(-5);
+        Assertions.assertEquals(799_995, striped.sum());
+
+        HighContentionCounters.PerThreadCounter perThread = new HighContentionCounters.PerThreadCounter();
+        incrementConcurrently(perThread, 8, 100_000, () -> {
+        });
+        Assertions.assertEquals(800_000, perThread.sum());
+        Assertions.assertEquals(8, perThread.threads());
+    }
+
+    /**
+     * 测试目的：松散计数器未 flush 时的误差不超过 maxError，各线程 flush 之后总数精确。
+     */
+    @Test
+    void testSloppyCounterErrorIsBounded() throws Exception {
+        HighContentionCounters.SloppyCounter sloppy = new HighContentionCounters.SloppyCounter(100);
+        incrementConcurrently(sloppy, 4, 10_050, () -> {
+        });
+        long error = 4 * 10_050 - sloppy.sum();
+        Assertions.assertTrue(error >= 0 && error <= sloppy.maxError(), "误差 " + error);
+        Assertions.assertEquals(4 * 99, sloppy.maxError());
+
+        HighContentionCounters.SloppyCounter flushed = new HighContentionCounters.SloppyCounter(100);
+        incrementConcurrently(flushed, 4, 10_050, flushed::flush);
+        Assertions.assertEquals(4 * 10_050, flushed.sum());
+    }
+}